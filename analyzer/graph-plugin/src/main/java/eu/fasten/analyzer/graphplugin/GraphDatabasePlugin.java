@@ -18,13 +18,14 @@
 
 package eu.fasten.analyzer.graphplugin;
 
+import eu.fasten.core.data.CallGraphBinaryFormat;
 import eu.fasten.core.data.graphdb.GidGraph;
 import eu.fasten.core.data.graphdb.RocksDao;
 import eu.fasten.core.plugins.GraphDBConnector;
 import eu.fasten.core.plugins.KafkaPlugin;
+import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.file.Paths;
 import java.util.Arrays;
@@ -53,11 +54,12 @@ public class GraphDatabasePlugin extends Plugin {
         private String consumerTopic = "fasten.MetadataDBExtension.out";
         private Throwable pluginError = null;
         private final Logger logger = LoggerFactory.getLogger(GraphDBExtension.class.getName());
-        private static RocksDao rocksDao;
+        /** The database, which is shared among workers and closed by whoever set it. */
+        private RocksDao rocksDao;
         private String outputPath;
 
         public void setRocksDao(RocksDao rocksDao) {
-            GraphDBExtension.rocksDao = rocksDao;
+            this.rocksDao = rocksDao;
         }
 
         @Override
@@ -91,14 +93,15 @@ public class GraphDatabasePlugin extends Plugin {
 
             final GidGraph gidGraph;
             if (!path.isEmpty()) {
-                try {
-                    JSONTokener tokener = new JSONTokener(new FileReader(path));
-                    gidGraph = GidGraph.getGraph(new JSONObject(tokener));
+                try (var input = new BufferedInputStream(new FileInputStream(path))) {
+                    gidGraph = CallGraphBinaryFormat.isBinary(input)
+                            ? CallGraphBinaryFormat.readGidGraph(input)
+                            : GidGraph.getGraph(new JSONObject(new JSONTokener(input)));
                 } catch (JSONException e) {
                     logger.error("Could not parse GID graph", e);
                     setPluginError(e);
                     return;
-                } catch (FileNotFoundException e) {
+                } catch (IOException e) {
                     logger.error("Error parsing JSON callgraph for '"
                             + Paths.get(path).getFileName() + "'", e);
                     setPluginError(e);
@@ -113,7 +116,25 @@ public class GraphDatabasePlugin extends Plugin {
                     return;
                 }
             }
+            saveGidGraph(gidGraph);
+        }
+
+        @Override
+        public boolean consumeObject(Object object) {
+            if (!(object instanceof GidGraph)) {
+                return false;
+            }
+            this.pluginError = null;
+            saveGidGraph((GidGraph) object);
+            return true;
+        }
 
+        /**
+         * Saves a GID graph into RocksDB.
+         *
+         * @param gidGraph GID graph to save
+         */
+        private void saveGidGraph(GidGraph gidGraph) {
             var artifact = gidGraph.getProduct() + "@" + gidGraph.getVersion();
 
             final String groupId;
@@ -171,7 +192,6 @@ public class GraphDatabasePlugin extends Plugin {
 
         @Override
         public void stop() {
-            rocksDao.close();
             rocksDao = null;
         }
 
@@ -186,7 +206,6 @@ public class GraphDatabasePlugin extends Plugin {
 
         @Override
         public void freeResource() {
-            rocksDao.close();
             rocksDao = null;
         }
     }
@@ -18,9 +18,12 @@
 
 package eu.fasten.analyzer.graphplugin;
 
+import eu.fasten.core.data.graphdb.MappedGraphStore;
 import eu.fasten.core.data.graphdb.RocksDao;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
+import java.io.IOException;
 import org.json.JSONObject;
 import org.json.JSONTokener;
 import org.rocksdb.RocksDBException;
@@ -43,6 +46,10 @@ public class Main implements Runnable {
             description = "The directory of the RocksDB instance")
     String dir;
 
+    @CommandLine.Option(names = {"-m", "--mapped"},
+            description = "Store graphs in a memory-mapped file instead of RocksDB")
+    boolean mapped;
+
     public static void main(String[] args) {
         final int exitCode = new CommandLine(new Main()).execute(args);
         System.exit(exitCode);
@@ -51,20 +58,25 @@ public class Main implements Runnable {
     @Override
     public void run() {
         var graphPlugin = new GraphDatabasePlugin.GraphDBExtension();
+        final RocksDao rocksDao;
         try {
-            graphPlugin.setRocksDao(new RocksDao(dir));
-        } catch (RocksDBException e) {
+            rocksDao = mapped
+                    ? new RocksDao(new MappedGraphStore(new File(dir))) : new RocksDao(dir);
+        } catch (RocksDBException | IOException e) {
             System.err.println("Could not set RocksDB location");
             return;
         }
-        final FileReader reader;
-        try {
-            reader = new FileReader(jsonFile);
-        } catch (FileNotFoundException e) {
-            logger.error("Could not find the JSON file at " + jsonFile, e);
-            return;
+        try (rocksDao) {
+            graphPlugin.setRocksDao(rocksDao);
+            final FileReader reader;
+            try {
+                reader = new FileReader(jsonFile);
+            } catch (FileNotFoundException e) {
+                logger.error("Could not find the JSON file at " + jsonFile, e);
+                return;
+            }
+            final JSONObject graph = new JSONObject(new JSONTokener(reader));
+            graphPlugin.consume(graph.toString());
         }
-        final JSONObject graph = new JSONObject(new JSONTokener(reader));
-        graphPlugin.consume(graph.toString());
     }
 }
@@ -19,6 +19,8 @@
 package eu.fasten.analyzer.graphplugin;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Collections;
 import java.util.Optional;
 import eu.fasten.core.data.graphdb.RocksDao;
@@ -26,6 +28,7 @@ import eu.fasten.core.data.graphdb.GidGraph;
 import org.json.JSONObject;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mockito;
 import org.rocksdb.RocksDBException;
 import static org.junit.jupiter.api.Assertions.*;
@@ -57,6 +60,25 @@ public class GraphDatabasePluginTest {
         Mockito.verify(rocksDao).saveToRocksDb(graph.getIndex(), graph.getNodes(), graph.getNumInternalNodes(), graph.getEdges());
     }
 
+    @Test
+    public void consumeObjectTest() throws IOException, RocksDBException {
+        var rocksDao = Mockito.mock(RocksDao.class);
+        var json = new JSONObject("{" +
+                "\"index\": 1," +
+                "\"product\": \"test\"," +
+                "\"version\": \"0.0.1\"," +
+                "\"nodes\": [1, 2, 3]," +
+                "\"numInternalNodes\": 2," +
+                "\"edges\": [[1, 2], [2, 3]]" +
+                "}");
+        var graph = GidGraph.getGraph(json);
+        graphDBExtension.setRocksDao(rocksDao);
+        assertFalse(graphDBExtension.consumeObject(json));
+        assertTrue(graphDBExtension.consumeObject(graph));
+        assertNull(graphDBExtension.getPluginError());
+        Mockito.verify(rocksDao).saveToRocksDb(graph.getIndex(), graph.getNodes(), graph.getNumInternalNodes(), graph.getEdges());
+    }
+
     @Test
     public void consumeTest() {
         var json ="{\"payload\": {" +
@@ -67,6 +89,7 @@ public class GraphDatabasePluginTest {
                 "\"numInternalNodes\": 2," +
                 "\"edges\": [[0, 1], [1, 2]]" +
                 "}}";
+        graphDBExtension.setRocksDao(Mockito.mock(RocksDao.class));
         graphDBExtension.consume(json);
         assertNull(graphDBExtension.getPluginError());
     }
@@ -106,4 +129,16 @@ public class GraphDatabasePluginTest {
                 + " topic and populates graph database (RocksDB) with consumed data";
         assertEquals(description, graphDBExtension.description());
     }
+
+    @Test
+    public void estimateCostTest(@TempDir Path dir) throws IOException {
+        var file = Files.write(dir.resolve("graph.json"), new byte[1234]);
+        var record = new JSONObject().put("payload", new JSONObject().put("dir", file.toString()));
+        assertEquals(1234, graphDBExtension.estimateCost(record.toString()));
+        var noDir = "{\"payload\":{\"foo\":\"bar\"}}";
+        assertEquals(noDir.length(), graphDBExtension.estimateCost(noDir));
+        record.getJSONObject("payload").put("dir", dir.resolve("missing.json").toString());
+        assertEquals(-1, graphDBExtension.estimateCost(record.toString()));
+        assertEquals(-1, graphDBExtension.estimateCost("not json"));
+    }
 }
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.analyzer.javacgopal;
+
+import eu.fasten.analyzer.javacgopal.data.MavenCoordinate;
+import eu.fasten.analyzer.javacgopal.data.PartialCallGraph;
+import eu.fasten.core.data.CallGraphBinaryFormat;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * The main class of the child JVMs of a {@link CallGraphWorkerPool}, which generate call graphs
+ * for the Maven coordinates they receive on standard input and write the results on standard
+ * output.
+ *
+ * <p>A request contains the group id, the artifact id, the version and the packaging of the
+ * coordinate, its repositories, the release timestamp and the algorithm. A response starts with a
+ * status byte: {@link #OK} is followed by the length and the bytes of the call graph in
+ * {@linkplain CallGraphBinaryFormat binary format}, whereas {@link #ERROR} is followed by the
+ * class name and the message of the exception. In both cases, the response ends with the heap
+ * used after a garbage collection and the maximum heap, so that the pool can recycle the worker
+ * when it approaches its high-water mark. The worker exits when its standard input is closed.
+ *
+ * <p>After an {@link OutOfMemoryError}, the state of the worker cannot be trusted: the worker
+ * reports the error and a full heap, so that the pool recycles it, and exits.
+ *
+ * <p>Since standard output carries responses, {@link System#out} is redirected to standard error
+ * before anything else runs, and logs thus go to standard error.
+ */
+public final class CallGraphWorker {
+
+    /**
+     * The status of a response containing a call graph.
+     */
+    static final byte OK = 0;
+
+    /**
+     * The status of a response containing an exception.
+     */
+    static final byte ERROR = 1;
+
+    /**
+     * The maximum length of the message of an exception in a response.
+     */
+    static final int MAX_MESSAGE_LENGTH = 8192;
+
+    private CallGraphWorker() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        final var out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+        System.setOut(System.err);
+        final var in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(FileDescriptor.in)));
+
+        while (true) {
+            final MavenCoordinate coordinate;
+            final long timestamp;
+            final String algorithm;
+            try {
+                final var groupId = in.readUTF();
+                final var artifactId = in.readUTF();
+                final var version = in.readUTF();
+                final var packaging = in.readUTF();
+                final var repos = new ArrayList<String>();
+                for (int i = in.readInt(); i-- != 0; ) {
+                    repos.add(in.readUTF());
+                }
+                coordinate = new MavenCoordinate(repos, groupId, artifactId, version, packaging);
+                timestamp = in.readLong();
+                algorithm = in.readUTF();
+            } catch (EOFException e) {
+                return;
+            }
+
+            boolean outOfMemory = false;
+            try {
+                final var graph = PartialCallGraph.createExtendedRevisionCallGraph(coordinate, "",
+                        algorithm, timestamp);
+                final var bytes = new ByteArrayOutputStream();
+                CallGraphBinaryFormat.write(graph, bytes);
+                out.writeByte(OK);
+                out.writeInt(bytes.size());
+                bytes.writeTo(out);
+            } catch (Exception | OutOfMemoryError e) {
+                outOfMemory = e instanceof OutOfMemoryError;
+                var message = e.getMessage() == null ? "" : e.getMessage();
+                if (message.length() > MAX_MESSAGE_LENGTH) {
+                    message = message.substring(0, MAX_MESSAGE_LENGTH);
+                }
+                out.writeByte(ERROR);
+                out.writeUTF(e.getClass().getName());
+                out.writeUTF(message);
+            }
+
+            final var runtime = Runtime.getRuntime();
+            if (outOfMemory) {
+                out.writeLong(runtime.maxMemory());
+                out.writeLong(runtime.maxMemory());
+                out.flush();
+                System.exit(1);
+            }
+            System.gc();
+            out.writeLong(runtime.totalMemory() - runtime.freeMemory());
+            out.writeLong(runtime.maxMemory());
+            out.flush();
+        }
+    }
+}
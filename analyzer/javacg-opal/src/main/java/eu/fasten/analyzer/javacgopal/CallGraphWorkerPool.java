@@ -0,0 +1,385 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.analyzer.javacgopal;
+
+import eu.fasten.analyzer.javacgopal.data.MavenCoordinate;
+import eu.fasten.core.data.CallGraphBinaryFormat;
+import eu.fasten.core.data.ExtendedRevisionCallGraph;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A pool of child JVMs generating call graphs, so that the large, short-lived object graphs of
+ * OPAL analyses do not fragment the heap of the JVM running the pool, and that throughput scales
+ * with the number of processes rather than with the heap of a single JVM.
+ *
+ * <p>Each worker is a {@link CallGraphWorker} process, which receives Maven coordinates through a
+ * pipe and streams back call graphs in {@linkplain eu.fasten.core.data.CallGraphBinaryFormat
+ * binary format}. Workers are started lazily, reused across jobs, and recycled (i.e., stopped
+ * and replaced by a new process at the next job) after a maximum number of jobs, or when the
+ * heap they retain after a job reaches a fraction of their maximum heap. A worker that dies
+ * during a job is replaced, too, and the job fails, as a pathological artifact would likely kill
+ * the next worker as well.
+ *
+ * <p>The pool runs as many jobs concurrently as it has workers; further callers of
+ * {@link #generate(MavenCoordinate, String, long)} wait for a worker to be available. The pool
+ * keeps counters for jobs, failures, started workers, recycled workers and dead workers.
+ */
+public class CallGraphWorkerPool implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(CallGraphWorkerPool.class);
+
+    /**
+     * The environment variable specifying the number of workers of the
+     * {@linkplain #shared() shared} pool; without it, there is no shared pool.
+     */
+    public static final String WORKERS_VARIABLE = "FASTEN_OPAL_WORKERS";
+
+    /**
+     * The environment variable specifying the maximum number of jobs of a worker of the
+     * {@linkplain #shared() shared} pool.
+     */
+    public static final String JOBS_VARIABLE = "FASTEN_OPAL_WORKER_JOBS";
+
+    /**
+     * The environment variable specifying the heap high-water mark of the workers of the
+     * {@linkplain #shared() shared} pool, as a fraction of their maximum heap.
+     */
+    public static final String HIGH_WATER_VARIABLE = "FASTEN_OPAL_WORKER_HIGH_WATER";
+
+    /**
+     * The environment variable specifying the options of the JVMs of the workers of the
+     * {@linkplain #shared() shared} pool (e.g., {@code -Xmx8g}), separated by spaces.
+     */
+    public static final String JVM_OPTIONS_VARIABLE = "FASTEN_OPAL_WORKER_JVM_OPTIONS";
+
+    /**
+     * The default maximum number of jobs of a worker.
+     */
+    public static final int DEFAULT_MAX_JOBS = 100;
+
+    /**
+     * The default heap high-water mark of workers, as a fraction of their maximum heap.
+     */
+    public static final double DEFAULT_HIGH_WATER = 0.75;
+
+    /**
+     * The time in seconds a worker is given to exit after its input is closed.
+     */
+    private static final long EXIT_TIMEOUT_SECONDS = 10;
+
+    private static CallGraphWorkerPool shared;
+
+    private final List<String> command;
+    private final int maxJobs;
+    private final double highWater;
+    private final Semaphore available;
+    private final ConcurrentLinkedDeque<Worker> idle = new ConcurrentLinkedDeque<>();
+    private volatile boolean closed;
+
+    private final LongAdder jobs = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder started = new LongAdder();
+    private final LongAdder recycled = new LongAdder();
+    private final LongAdder died = new LongAdder();
+
+    /**
+     * A child JVM, and the pipes to its standard input and output.
+     */
+    private static final class Worker {
+        final Process process;
+        final DataOutputStream in;
+        final DataInputStream out;
+        int jobs;
+
+        Worker(final Process process) {
+            this.process = process;
+            this.in = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+            this.out = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+        }
+
+        /**
+         * Closes the input of the worker, waits for it to exit, and kills it if it does not.
+         */
+        void stop() {
+            try {
+                in.close();
+                if (!process.waitFor(EXIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (IOException e) {
+                process.destroyForcibly();
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Creates a pool. The workers run on the JVM running the pool, with the same class path.
+     *
+     * @param workers    number of workers
+     * @param maxJobs    maximum number of jobs of a worker before it is recycled
+     * @param highWater  heap high-water mark of workers, as a fraction of their maximum heap,
+     *                   at which they are recycled
+     * @param jvmOptions options of the JVMs of the workers
+     */
+    public CallGraphWorkerPool(final int workers, final int maxJobs, final double highWater,
+                               final List<String> jvmOptions) {
+        if (workers <= 0 || maxJobs <= 0) {
+            throw new IllegalArgumentException("The number of workers and of jobs per worker "
+                    + "must be positive");
+        }
+        this.maxJobs = maxJobs;
+        this.highWater = highWater;
+        this.available = new Semaphore(workers, true);
+        this.command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(classPath());
+        command.add(CallGraphWorker.class.getName());
+    }
+
+    /**
+     * Returns the pool shared by the plug-ins of this JVM, if the environment variable
+     * {@value #WORKERS_VARIABLE} specifies a positive number of workers. The maximum number of
+     * jobs of a worker, its high-water mark and the options of its JVM are specified by
+     * {@value #JOBS_VARIABLE}, {@value #HIGH_WATER_VARIABLE} and {@value #JVM_OPTIONS_VARIABLE}.
+     * The pool is closed when this JVM shuts down.
+     *
+     * @return the shared pool, if any
+     */
+    public static synchronized Optional<CallGraphWorkerPool> shared() {
+        if (shared == null && System.getenv(WORKERS_VARIABLE) != null
+                && Integer.parseInt(System.getenv(WORKERS_VARIABLE)) > 0) {
+            final var workers = Integer.parseInt(System.getenv(WORKERS_VARIABLE));
+            final var maxJobs = System.getenv(JOBS_VARIABLE) != null
+                    ? Integer.parseInt(System.getenv(JOBS_VARIABLE)) : DEFAULT_MAX_JOBS;
+            final var highWater = System.getenv(HIGH_WATER_VARIABLE) != null
+                    ? Double.parseDouble(System.getenv(HIGH_WATER_VARIABLE)) : DEFAULT_HIGH_WATER;
+            final var jvmOptions = System.getenv(JVM_OPTIONS_VARIABLE) != null
+                    ? Arrays.asList(System.getenv(JVM_OPTIONS_VARIABLE).trim().split("\\s+"))
+                    : Collections.<String>emptyList();
+            shared = new CallGraphWorkerPool(workers, maxJobs, highWater, jvmOptions);
+            Runtime.getRuntime().addShutdownHook(new Thread(shared::close));
+            logger.info("Call graph worker pool with {} workers, recycled after {} jobs or at {} "
+                    + "of their heap", workers, maxJobs, highWater);
+        }
+        return Optional.ofNullable(shared);
+    }
+
+    /**
+     * Returns the class path of the workers: the location of this class (e.g., the JAR of the
+     * plug-in, which contains its dependencies), followed by the class path of this JVM.
+     *
+     * @return the class path of the workers
+     */
+    private static String classPath() {
+        final var classPath = System.getProperty("java.class.path");
+        try {
+            final var location = Paths.get(CallGraphWorkerPool.class.getProtectionDomain()
+                    .getCodeSource().getLocation().toURI()).toString();
+            return classPath.isEmpty() ? location : location + File.pathSeparator + classPath;
+        } catch (Exception e) {
+            return classPath;
+        }
+    }
+
+    /**
+     * Generates the call graph of a Maven coordinate on a worker, waiting for one to be
+     * available.
+     *
+     * @param coordinate Maven coordinate
+     * @param algorithm  algorithm for generating the call graph
+     * @param timestamp  timestamp of the release
+     * @return the call graph
+     * @throws FileNotFoundException if there is no JAR file for the coordinate
+     * @throws IOException           if the worker fails to generate the call graph, or dies
+     */
+    public ExtendedRevisionCallGraph generate(final MavenCoordinate coordinate,
+                                              final String algorithm, final long timestamp)
+            throws IOException {
+        if (closed) {
+            throw new IllegalStateException("The pool is closed");
+        }
+        try {
+            available.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a worker");
+        }
+        try {
+            var worker = idle.poll();
+            if (worker == null || !worker.process.isAlive()) {
+                worker = start();
+            }
+            jobs.increment();
+            try {
+                return generate(worker, coordinate, algorithm, timestamp);
+            } catch (IOException | RuntimeException e) {
+                failures.increment();
+                throw e;
+            }
+        } finally {
+            available.release();
+        }
+    }
+
+    /**
+     * Generates a call graph on a worker, and then recycles the worker or puts it back in the
+     * pool.
+     */
+    private ExtendedRevisionCallGraph generate(final Worker worker,
+                                               final MavenCoordinate coordinate,
+                                               final String algorithm, final long timestamp)
+            throws IOException {
+        final byte status;
+        final byte[] graph;
+        final String exception;
+        final String message;
+        final long usedHeap;
+        final long maxHeap;
+        try {
+            worker.in.writeUTF(coordinate.getGroupID());
+            worker.in.writeUTF(coordinate.getArtifactID());
+            worker.in.writeUTF(coordinate.getVersionConstraint());
+            worker.in.writeUTF(coordinate.getPackaging());
+            worker.in.writeInt(coordinate.getMavenRepos().size());
+            for (final var repo : coordinate.getMavenRepos()) {
+                worker.in.writeUTF(repo);
+            }
+            worker.in.writeLong(timestamp);
+            worker.in.writeUTF(algorithm);
+            worker.in.flush();
+
+            status = worker.out.readByte();
+            if (status == CallGraphWorker.OK) {
+                graph = new byte[worker.out.readInt()];
+                worker.out.readFully(graph);
+                exception = null;
+                message = null;
+            } else {
+                graph = null;
+                exception = worker.out.readUTF();
+                message = worker.out.readUTF();
+            }
+            usedHeap = worker.out.readLong();
+            maxHeap = worker.out.readLong();
+        } catch (IOException e) {
+            died.increment();
+            worker.process.destroyForcibly();
+            throw new IOException("Worker " + worker.process.pid() + " died while generating the "
+                    + "call graph of " + coordinate.getCoordinate(), e);
+        }
+
+        worker.jobs++;
+        if (closed || worker.jobs >= maxJobs || usedHeap >= highWater * maxHeap) {
+            logger.debug("Recycling worker {} after {} jobs with {} bytes of heap out of {}",
+                    worker.process.pid(), worker.jobs, usedHeap, maxHeap);
+            recycled.increment();
+            worker.stop();
+        } else {
+            idle.push(worker);
+            if (closed) {
+                close();
+            }
+        }
+
+        if (status == CallGraphWorker.OK) {
+            return CallGraphBinaryFormat.readExtendedRevisionCallGraph(
+                    new ByteArrayInputStream(graph));
+        }
+        if (FileNotFoundException.class.getName().equals(exception)) {
+            throw new FileNotFoundException(message);
+        }
+        throw new IOException(exception + ": " + message);
+    }
+
+    /**
+     * Starts a worker.
+     */
+    private Worker start() throws IOException {
+        final var process = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        started.increment();
+        logger.debug("Started worker {}", process.pid());
+        return new Worker(process);
+    }
+
+    /**
+     * Stops the idle workers, and makes busy workers stop after their current job.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Worker worker;
+        while ((worker = idle.poll()) != null) {
+            worker.stop();
+        }
+    }
+
+    public long jobs() {
+        return jobs.sum();
+    }
+
+    public long failures() {
+        return failures.sum();
+    }
+
+    public long started() {
+        return started.sum();
+    }
+
+    public long recycled() {
+        return recycled.sum();
+    }
+
+    public long died() {
+        return died.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "Jobs: " + jobs() + "; failures: " + failures() + "; workers started: " + started()
+                + "; recycled: " + recycled() + "; died: " + died();
+    }
+}
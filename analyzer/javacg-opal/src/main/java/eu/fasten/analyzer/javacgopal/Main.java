@@ -18,7 +18,9 @@
 
 package eu.fasten.analyzer.javacgopal;
 
+import eu.fasten.analyzer.javacgopal.data.AnalysisBudget;
 import eu.fasten.analyzer.javacgopal.data.CallGraphConstructor;
+import eu.fasten.analyzer.javacgopal.data.ClassFileCache;
 import eu.fasten.analyzer.javacgopal.data.MavenCoordinate;
 import eu.fasten.analyzer.javacgopal.data.PartialCallGraph;
 import eu.fasten.core.data.ExtendedRevisionCallGraph;
@@ -84,6 +86,19 @@ public class Main implements Runnable {
                 defaultValue = "CHA")
         String genAlgorithm;
 
+        @CommandLine.Option(names = {"-tb", "--timeBudget"},
+                paramLabel = "SECONDS",
+                description = "Time budget of the generation, after which a cheaper algorithm is"
+                        + " used (default: " + AnalysisBudget.TIME_VARIABLE + " or unlimited)")
+        Long timeBudget;
+
+        @CommandLine.Option(names = {"-ab", "--allocationBudget"},
+                paramLabel = "BYTES",
+                description = "Bytes the generation may allocate, after which a cheaper algorithm"
+                        + " is used; CHA has no allocation limit (default: "
+                        + AnalysisBudget.ALLOCATION_VARIABLE + " or unlimited)")
+        Long allocationBudget;
+
         @CommandLine.ArgGroup()
         Tools tools;
 
@@ -217,6 +232,8 @@ public class Main implements Runnable {
         final var art = generate(artifact, this.commands.computations.main,
                 commands.computations.genAlgorithm, true);
 
+        logger.info("Class-file cache: {}", ClassFileCache.shared());
+
         result = CallGraphMerger.mergeCallGraph(art, deps,
                 commands.computations.tools.merge.mergeAlgorithm);
 
@@ -251,19 +268,23 @@ public class Main implements Runnable {
 
         if (artifact instanceof File) {
             logger.info("Generating graph for {}", ((File) artifact).getAbsolutePath());
-            final var cg = new PartialCallGraph(
-                    new CallGraphConstructor((File) artifact, mainClass, algorithm));
+            final var constructor = new CallGraphConstructor((File) artifact, mainClass,
+                    algorithm, ClassFileCache.shared(), getBudget());
+            final var cg = new PartialCallGraph(constructor);
             revisionCallGraph =
                     ExtendedRevisionCallGraph.extendedBuilder().graph(cg.getGraph())
                             .product(cleanUpFileName((File) artifact))
-                            .version("").timestamp(0).cgGenerator("").forge("")
+                            .version("").timestamp(0)
+                            .cgGenerator("").forge("")
+                            .metadata(PartialCallGraph.generatorMetadata(constructor))
                             .classHierarchy(cg.getClassHierarchy()).nodeCount(cg.getNodeCount())
                             .build();
 
         } else {
             revisionCallGraph = PartialCallGraph
                     .createExtendedRevisionCallGraph((MavenCoordinate) artifact, mainClass,
-                            algorithm, Long.parseLong(this.commands.computations.timestamp));
+                            algorithm, Long.parseLong(this.commands.computations.timestamp),
+                            getBudget());
         }
 
         logger.info("Generated the call graph in {} seconds.", new DecimalFormat("#0.000")
@@ -275,6 +296,24 @@ public class Main implements Runnable {
         return revisionCallGraph;
     }
 
+    /**
+     * Get the budget of call graph generation, taking the limits that are not specified in the
+     * command line from the environment.
+     *
+     * @return budget of call graph generation
+     */
+    private AnalysisBudget getBudget() {
+        final var defaults = AnalysisBudget.fromEnvironment();
+        if (this.commands == null || this.commands.computations == null) {
+            return defaults;
+        }
+        final var timeBudget = this.commands.computations.timeBudget;
+        final var allocationBudget = this.commands.computations.allocationBudget;
+        return new AnalysisBudget(
+                timeBudget != null ? timeBudget * 1000 : defaults.getTimeMillis(),
+                allocationBudget != null ? allocationBudget : defaults.getAllocationBytes());
+    }
+
     private String cleanUpFileName(File artifact) {
         return artifact.getName().replace(".class", "").replace("$", "").replace(".jar", "");
     }
@@ -18,12 +18,17 @@
 
 package eu.fasten.analyzer.javacgopal;
 
+import eu.fasten.analyzer.javacgopal.data.AnalysisBudget;
+import eu.fasten.analyzer.javacgopal.data.ClassFileCache;
 import eu.fasten.analyzer.javacgopal.data.MavenCoordinate;
 import eu.fasten.analyzer.javacgopal.data.PartialCallGraph;
+import eu.fasten.core.data.CallGraphBinaryFormat;
 import eu.fasten.core.data.ExtendedRevisionCallGraph;
 import eu.fasten.core.plugins.KafkaPlugin;
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -45,8 +50,19 @@ public class OPALPlugin extends Plugin {
     @Extension
     public static class OPAL implements KafkaPlugin {
 
+        /**
+         * The environment variable specifying the algorithm generating call graphs ({@code CHA}
+         * by default). The budget of each generation is
+         * {@linkplain AnalysisBudget#fromEnvironment() specified by the environment}, too; when it
+         * is exceeded, a cheaper algorithm is used, and it is recorded in the metadata of the
+         * call graph.
+         */
+        public static final String ALGORITHM_VARIABLE = "FASTEN_OPAL_ALGORITHM";
+
         private final Logger logger = LoggerFactory.getLogger(getClass());
 
+        private final String algorithm = System.getenv(ALGORITHM_VARIABLE) != null
+                ? System.getenv(ALGORITHM_VARIABLE) : "CHA";
         private String consumeTopic = "fasten.maven.pkg";
         private Throwable pluginError;
         private ExtendedRevisionCallGraph graph;
@@ -89,6 +105,7 @@ public class OPALPlugin extends Plugin {
 
                 logger.info("Call graph successfully generated for {}!",
                         mavenCoordinate.getCoordinate());
+                logger.debug("Class-file cache: {}", ClassFileCache.shared());
 
             } catch (Exception e) {
                 setPluginError(e);
@@ -97,7 +114,38 @@ public class OPALPlugin extends Plugin {
         }
 
         /**
-         * Generate an ExtendedRevisionCallGraph.
+         * Estimates the cost of generating the call graph of a record as the size of its JAR
+         * file in the artifact cache. The repositories are not queried, as this method runs on
+         * the thread polling records; a JAR that is not cached has yet to be downloaded, and it
+         * may be arbitrarily large, so its record is deemed as expensive as possible.
+         *
+         * @param kafkaRecord Maven coordinate, possibly in the payload of the record
+         * @return the size in bytes of the JAR file, {@link Long#MAX_VALUE} if it is not cached,
+         *         or -1 if the record is not valid
+         */
+        @Override
+        public long estimateCost(String kafkaRecord) {
+            try {
+                var kafkaConsumedJson = new JSONObject(kafkaRecord);
+                if (kafkaConsumedJson.has("payload")) {
+                    kafkaConsumedJson = kafkaConsumedJson.getJSONObject("payload");
+                }
+                final var mavenCoordinate = new MavenCoordinate(
+                        kafkaConsumedJson.getString("groupId"),
+                        kafkaConsumedJson.getString("artifactId"),
+                        kafkaConsumedJson.getString("version"),
+                        kafkaConsumedJson.optString("packagingType", "jar"));
+                final var size = new MavenCoordinate.MavenResolver().cachedJarSize(mavenCoordinate);
+                return size < 0 ? Long.MAX_VALUE : size;
+            } catch (JSONException e) {
+                return -1;
+            }
+        }
+
+        /**
+         * Generate an ExtendedRevisionCallGraph. If the environment specifies a
+         * {@linkplain CallGraphWorkerPool#shared() shared worker pool}, the call graph is
+         * generated by a child JVM of the pool.
          *
          * @param mavenCoordinate Maven coordinate
          * @param timestamp       timestamp
@@ -106,9 +154,17 @@ public class OPALPlugin extends Plugin {
         public ExtendedRevisionCallGraph generateCallGraph(final MavenCoordinate mavenCoordinate,
                                                            final long timestamp) {
             try {
+                final var workerPool = CallGraphWorkerPool.shared();
+                if (workerPool.isPresent()) {
+                    final var graph = workerPool.get()
+                            .generate(mavenCoordinate, algorithm, timestamp);
+                    logger.debug("Call graph worker pool: {}", workerPool.get());
+                    return graph;
+                }
                 return PartialCallGraph
-                        .createExtendedRevisionCallGraph(mavenCoordinate, "", "CHA", timestamp);
-            } catch (FileNotFoundException e) {
+                        .createExtendedRevisionCallGraph(mavenCoordinate, "", algorithm,
+                                timestamp);
+            } catch (IOException e) {
                 setPluginError(e);
             }
             return null;
@@ -123,6 +179,34 @@ public class OPALPlugin extends Plugin {
             }
         }
 
+        @Override
+        public Optional<Object> produceObject() {
+            return Optional.ofNullable(graph);
+        }
+
+        @Override
+        public boolean produce(final Writer writer) throws IOException {
+            if (this.graph == null) {
+                return false;
+            }
+            graph.write(writer);
+            return true;
+        }
+
+        @Override
+        public boolean supportsBinaryOutput() {
+            return true;
+        }
+
+        @Override
+        public boolean produceBinary(final OutputStream outputStream) throws IOException {
+            if (this.graph == null) {
+                return false;
+            }
+            CallGraphBinaryFormat.write(graph, outputStream);
+            return true;
+        }
+
         @Override
         public String getOutputPath() {
             return outputPath;
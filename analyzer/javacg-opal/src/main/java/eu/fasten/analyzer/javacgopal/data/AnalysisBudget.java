@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.analyzer.javacgopal.data;
+
+/**
+ * Wall-clock and allocation budgets of a call-graph analysis. A zero budget is unlimited. The
+ * allocation budget bounds the bytes allocated by the thread running the analysis, whether or
+ * not they are still reachable, so it does not depend on other analyses running in the same JVM;
+ * it is not a bound on the live heap of the analysis, which is usually much smaller.
+ *
+ * <p>When a {@link CallGraphConstructor} exceeds its budget, the analysis is cancelled and
+ * retried with a cheaper algorithm; see
+ * {@link CallGraphConstructor#CallGraphConstructor(java.io.File, String, String, ClassFileCache,
+ * AnalysisBudget)}.
+ */
+public final class AnalysisBudget {
+
+    /**
+     * The environment variable specifying the {@linkplain #fromEnvironment() default} time budget
+     * in seconds.
+     */
+    public static final String TIME_VARIABLE = "FASTEN_OPAL_TIME_BUDGET";
+
+    /**
+     * The environment variable specifying the {@linkplain #fromEnvironment() default} allocation
+     * budget in bytes.
+     */
+    public static final String ALLOCATION_VARIABLE = "FASTEN_OPAL_ALLOCATION_BUDGET";
+
+    /**
+     * A budget without limits.
+     */
+    public static final AnalysisBudget UNLIMITED = new AnalysisBudget(0, 0);
+
+    private final long timeMillis;
+    private final long allocationBytes;
+
+    /**
+     * Creates a budget.
+     *
+     * @param timeMillis      the maximum wall-clock time of an analysis in milliseconds, or 0
+     * @param allocationBytes the maximum number of bytes allocated by an analysis, or 0
+     */
+    public AnalysisBudget(final long timeMillis, final long allocationBytes) {
+        if (timeMillis < 0 || allocationBytes < 0) {
+            throw new IllegalArgumentException("Negative budget: " + timeMillis + " ms, "
+                    + allocationBytes + " bytes");
+        }
+        this.timeMillis = timeMillis;
+        this.allocationBytes = allocationBytes;
+    }
+
+    /**
+     * Returns the budget specified by the environment variables {@value #TIME_VARIABLE} and
+     * {@value #ALLOCATION_VARIABLE}; a missing variable leaves the corresponding budget
+     * unlimited.
+     *
+     * @return the budget specified by the environment
+     */
+    public static AnalysisBudget fromEnvironment() {
+        final var time = System.getenv(TIME_VARIABLE) != null
+                ? Long.parseLong(System.getenv(TIME_VARIABLE)) * 1000 : 0;
+        final var allocation = System.getenv(ALLOCATION_VARIABLE) != null
+                ? Long.parseLong(System.getenv(ALLOCATION_VARIABLE)) : 0;
+        return new AnalysisBudget(time, allocation);
+    }
+
+    /**
+     * Returns this budget with no allocation limit, e.g., for the last fallback, which must
+     * produce a call graph whenever it fits in the heap.
+     *
+     * @return a budget with the same time limit and no allocation limit
+     */
+    public AnalysisBudget withoutAllocationLimit() {
+        return allocationBytes == 0 ? this : new AnalysisBudget(timeMillis, 0);
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    public long getAllocationBytes() {
+        return allocationBytes;
+    }
+
+    public boolean isUnlimited() {
+        return timeMillis == 0 && allocationBytes == 0;
+    }
+
+    @Override
+    public String toString() {
+        return (timeMillis == 0 ? "unlimited time" : timeMillis + " ms") + ", "
+                + (allocationBytes == 0 ? "unlimited allocation" : allocationBytes + " allocated bytes");
+    }
+}
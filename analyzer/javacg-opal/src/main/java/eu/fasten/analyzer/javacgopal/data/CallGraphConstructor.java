@@ -22,11 +22,22 @@ import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
 import com.typesafe.config.ConfigValueFactory;
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
 import java.net.URL;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import org.opalj.br.ClassFile;
 import org.opalj.br.analyses.Project;
+import org.opalj.br.fpcf.PropertyStoreKey$;
+import org.opalj.fpcf.PropertyStore;
 import org.opalj.log.ConsoleOPALLogger;
 import org.opalj.log.Fatal$;
 import org.opalj.log.GlobalLogContext$;
@@ -36,38 +47,121 @@ import org.opalj.tac.cg.CHACallGraphKey$;
 import org.opalj.tac.cg.CallGraph;
 import org.opalj.tac.cg.RTACallGraphKey$;
 import org.opalj.tac.cg.TypeBasedPointsToCallGraphKey$;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import scala.Tuple2;
+import scala.collection.Seq;
+import scala.collection.Traversable$;
 
 public class CallGraphConstructor {
 
+    private static final Logger logger = LoggerFactory.getLogger(CallGraphConstructor.class);
+
+    /**
+     * The period in milliseconds at which running analyses are checked against their budget.
+     */
+    private static final long WATCHDOG_PERIOD_MILLIS = 100;
+
+    /**
+     * Checks running analyses against their budget.
+     */
+    private static final ScheduledExecutorService watchdog =
+            Executors.newSingleThreadScheduledExecutor(r -> {
+                final var thread = new Thread(r, "opal-budget-watchdog");
+                thread.setDaemon(true);
+                return thread;
+            });
+
     private final Project<URL> project;
     private final CallGraph callGraph;
+    private final String requestedAlgorithm;
+    private final String algorithm;
 
     /**
      * Constructs a call graph given file, algorithm and a main class in case of application.
+     * Class files are taken from the {@linkplain ClassFileCache#shared() shared cache}, and the
+     * budget is {@linkplain AnalysisBudget#fromEnvironment() specified by the environment}.
      *
      * @param file      file of the package to analyze
      * @param mainClass main class of the package in case of application
      * @param algorithm algorithm for generating call graph
      */
     public CallGraphConstructor(final File file, final String mainClass, final String algorithm) {
+        this(file, mainClass, algorithm, ClassFileCache.shared());
+    }
+
+    /**
+     * Constructs a call graph given file, algorithm and a main class in case of application,
+     * taking class files from the given cache. The budget is
+     * {@linkplain AnalysisBudget#fromEnvironment() specified by the environment}.
+     *
+     * @param file           file of the package to analyze
+     * @param mainClass      main class of the package in case of application
+     * @param algorithm      algorithm for generating call graph
+     * @param classFileCache cache of parsed class files
+     */
+    public CallGraphConstructor(final File file, final String mainClass, final String algorithm,
+                                final ClassFileCache classFileCache) {
+        this(file, mainClass, algorithm, classFileCache, AnalysisBudget.fromEnvironment());
+    }
+
+    /**
+     * Constructs a call graph given file, algorithm and a main class in case of application,
+     * taking class files from the given cache, within the given budget.
+     *
+     * <p>If the analysis exceeds its budget, it is cancelled and retried on a fresh project with
+     * a cheaper algorithm: points-to analyses fall back to RTA, and RTA falls back to CHA. Each
+     * attempt has the whole budget, except that the last one (i.e., CHA) has no allocation limit,
+     * so that a call graph is produced whenever one fits in the heap. The algorithm that was actually used is returned by
+     * {@link #getAlgorithm()}, and the requested one by {@link #getRequestedAlgorithm()}.
+     *
+     * @param file           file of the package to analyze
+     * @param mainClass      main class of the package in case of application
+     * @param algorithm      algorithm for generating call graph
+     * @param classFileCache cache of parsed class files
+     * @param budget         budget of each analysis
+     * @throws BudgetExceededException if CHA, too, exceeds the time budget
+     */
+    public CallGraphConstructor(final File file, final String mainClass, final String algorithm,
+                                final ClassFileCache classFileCache, final AnalysisBudget budget) {
+        final var algorithms = fallbacks(algorithm);
         OPALLogger.updateLogger(GlobalLogContext$.MODULE$,
                 new ConsoleOPALLogger(false, Fatal$.MODULE$));
 
+        final Config config;
         if (mainClass == null || mainClass.isEmpty()) {
-            this.project = Project.apply(file);
-
+            config = ConfigFactory.load();
         } else {
-            final var log = Project.apply(file);
-            OPALLogger.updateLogger(log.logContext(),
-                    new ConsoleOPALLogger(false, Fatal$.MODULE$));
+            config = createConfig(mainClass);
+        }
 
-            this.project = Project
-                    .apply(file, log.logContext().successor(), createConfig(mainClass));
+        final Seq<Tuple2<ClassFile, URL>> classFiles;
+        try {
+            classFiles = classFileCache.get(file, config);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
 
-        OPALLogger.updateLogger(project.logContext(),
-                new ConsoleOPALLogger(false, Fatal$.MODULE$));
-        this.callGraph = generateCallGraph(project, algorithm);
+        Project<URL> project = null;
+        CallGraph callGraph = null;
+        int i = 0;
+        while (callGraph == null) {
+            project = createProject(classFiles, config);
+            try {
+                callGraph = generateCallGraph(project, algorithms.get(i),
+                        i == algorithms.size() - 1 ? budget.withoutAllocationLimit() : budget);
+            } catch (BudgetExceededException e) {
+                if (++i == algorithms.size()) {
+                    throw e;
+                }
+                logger.warn("{} on {}, falling back to {}", e.getMessage(), file,
+                        algorithms.get(i));
+            }
+        }
+        this.project = project;
+        this.callGraph = callGraph;
+        this.requestedAlgorithm = algorithm;
+        this.algorithm = algorithms.get(i);
     }
 
     public Project<URL> getProject() {
@@ -78,6 +172,65 @@ public class CallGraphConstructor {
         return callGraph;
     }
 
+    /**
+     * Returns the algorithm that generated the call graph, which differs from the requested one
+     * if the latter exceeded the budget.
+     *
+     * @return the algorithm that generated the call graph
+     */
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Returns the algorithm that was requested to generate the call graph.
+     *
+     * @return the requested algorithm
+     */
+    public String getRequestedAlgorithm() {
+        return requestedAlgorithm;
+    }
+
+    /**
+     * Creates an OPAL project for the given class files.
+     *
+     * @param classFiles class files of the project
+     * @param config     configuration of the project
+     * @return a new project
+     */
+    private static Project<URL> createProject(final Seq<Tuple2<ClassFile, URL>> classFiles,
+                                              final Config config) {
+        final Project<URL> project = Project.apply(classFiles,
+                Traversable$.MODULE$.<Tuple2<ClassFile, URL>>empty(),
+                true, Traversable$.MODULE$.<ClassFile>empty(), config,
+                new ConsoleOPALLogger(false, Fatal$.MODULE$));
+
+        OPALLogger.updateLogger(project.logContext(),
+                new ConsoleOPALLogger(false, Fatal$.MODULE$));
+        return project;
+    }
+
+    /**
+     * Returns the algorithms to try, in order, to generate a call graph with the given algorithm
+     * within a budget.
+     *
+     * @param algorithm the requested algorithm
+     * @return the requested algorithm, followed by cheaper ones
+     */
+    static List<String> fallbacks(final String algorithm) {
+        switch (algorithm) {
+            case "AllocationSiteBasedPointsTo":
+            case "TypeBasedPointsTo":
+                return List.of(algorithm, "RTA", "CHA");
+            case "RTA":
+                return List.of("RTA", "CHA");
+            case "CHA":
+                return List.of("CHA");
+            default:
+                throw new IllegalStateException("Unexpected value: " + algorithm);
+        }
+    }
+
     /**
      * Get configuration for call graph generator.
      *
@@ -128,4 +281,87 @@ public class CallGraphConstructor {
         }
         return result;
     }
+
+    /**
+     * Generates a call graph for a given project using given algorithm, cancelling the analysis
+     * if it exceeds the given budget. The analysis is cancelled by terminating the OPAL property
+     * store, so the project cannot be used afterwards.
+     *
+     * <p>The allocation budget is checked against the bytes allocated by the current thread,
+     * which runs the (sequential) property store. If the JVM cannot measure allocations per
+     * thread, the allocation budget is ignored.
+     *
+     * @param project {@link Project} the project to generate call graph for
+     * @param budget  budget of the analysis
+     * @return {@link CallGraph} resulting call graph
+     * @throws BudgetExceededException if the analysis exceeded the budget
+     */
+    private static CallGraph generateCallGraph(final Project<?> project, final String algorithm,
+                                               final AnalysisBudget budget) {
+        if (budget.isUnlimited()) {
+            return generateCallGraph(project, algorithm);
+        }
+        final PropertyStore propertyStore = project.get(PropertyStoreKey$.MODULE$);
+        final var threadId = Thread.currentThread().getId();
+        final var start = System.nanoTime();
+        final var startAllocated = allocatedBytes(threadId);
+        if (budget.getAllocationBytes() > 0 && startAllocated < 0) {
+            logger.warn("Allocations per thread cannot be measured: ignoring the allocation budget");
+        }
+        final var exceeded = new AtomicReference<String>();
+        final var check = watchdog.scheduleAtFixedRate(() -> {
+            String reason = null;
+            if (budget.getTimeMillis() > 0 && System.nanoTime() - start
+                    > TimeUnit.MILLISECONDS.toNanos(budget.getTimeMillis())) {
+                reason = "time budget of " + budget.getTimeMillis() + " ms";
+            } else if (budget.getAllocationBytes() > 0 && startAllocated >= 0
+                    && allocatedBytes(threadId) - startAllocated > budget.getAllocationBytes()) {
+                reason = "allocation budget of " + budget.getAllocationBytes() + " bytes";
+            }
+            if (reason != null && exceeded.compareAndSet(null, reason)) {
+                propertyStore.doTerminate_$eq(true);
+            }
+        }, WATCHDOG_PERIOD_MILLIS, WATCHDOG_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+        try {
+            return generateCallGraph(project, algorithm);
+        } catch (Exception e) {
+            // The property store signals termination by a (sneaky) InterruptedException
+            if (exceeded.get() == null) {
+                throw e;
+            }
+            propertyStore.shutdown();
+            throw new BudgetExceededException(algorithm + " exceeded the " + exceeded.get(), e);
+        } finally {
+            check.cancel(false);
+        }
+    }
+
+    /**
+     * Returns the bytes allocated so far by a thread.
+     *
+     * @param threadId the identifier of a live thread
+     * @return the bytes allocated by the thread, or -1 if the JVM cannot measure them
+     */
+    private static long allocatedBytes(final long threadId) {
+        final var threadMXBean = ManagementFactory.getThreadMXBean();
+        if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        final var allocations = (com.sun.management.ThreadMXBean) threadMXBean;
+        if (!allocations.isThreadAllocatedMemorySupported()
+                || !allocations.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        return allocations.getThreadAllocatedBytes(threadId);
+    }
+
+    /**
+     * Thrown when a call-graph analysis exceeds its {@link AnalysisBudget}.
+     */
+    public static class BudgetExceededException extends RuntimeException {
+
+        public BudgetExceededException(final String message, final Throwable cause) {
+            super(message, cause);
+        }
+    }
 }
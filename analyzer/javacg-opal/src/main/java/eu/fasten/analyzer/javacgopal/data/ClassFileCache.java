@@ -0,0 +1,314 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.analyzer.javacgopal.data;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.typesafe.config.Config;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.opalj.br.ClassFile;
+import org.opalj.br.analyses.Project;
+import org.opalj.log.GlobalLogContext$;
+import scala.Tuple2;
+import scala.collection.Seq;
+
+/**
+ * A thread-safe cache of the class files parsed by OPAL, indexed by the SHA-256 digest of the
+ * JAR they were read from, bounded by the overall number of cached class files.
+ *
+ * <p>Parsing is a significant part of the time spent building an OPAL {@link Project}. Projects
+ * cannot be reused across analyses, as they accumulate the results of each analysis, but class
+ * files are immutable, and OPAL itself shares them among projects. Thus, when the same JAR is
+ * analysed again (e.g., a dependency shared by several artifacts), its class files are taken from
+ * this cache, and only the project is rebuilt.
+ *
+ * <p>When the bound is exceeded, entries are evicted in least-recently-used order. Concurrent
+ * misses on the same JAR result in a single parse, and the cache keeps counters for hits, misses,
+ * parse time, parse time saved by hits and evictions. A cache with a bound of zero is disabled:
+ * JARs are parsed at each lookup, without even computing their digest.
+ *
+ * <p>As cached class files stay on the heap of long-running JVMs, the bound of the
+ * {@linkplain #shared() shared} cache is small by default, and it can be set (or the shared
+ * cache disabled) with the environment variable {@value #SIZE_VARIABLE}.
+ */
+public class ClassFileCache {
+
+    /**
+     * The environment variable specifying the maximum number of cached class files of the
+     * {@linkplain #shared() shared} cache; 0 disables the shared cache.
+     */
+    public static final String SIZE_VARIABLE = "FASTEN_OPAL_CLASS_FILE_CACHE";
+
+    /**
+     * The default maximum number of cached class files of the {@linkplain #shared() shared}
+     * cache.
+     */
+    public static final int DEFAULT_MAX_CLASS_FILES = 10_000;
+
+    /**
+     * The configuration key that makes OPAL rewrite invokedynamic instructions when reading class
+     * files: class files read with different values are cached separately.
+     */
+    private static final String REWRITE_INVOKEDYNAMIC =
+            "org.opalj.br.reader.ClassFileReader.Invokedynamic.rewrite";
+
+    private static final ClassFileCache shared = new ClassFileCache(
+            System.getenv(SIZE_VARIABLE) != null
+                    ? Long.parseLong(System.getenv(SIZE_VARIABLE)) : DEFAULT_MAX_CLASS_FILES);
+
+    /**
+     * The maximum overall number of cached class files.
+     */
+    private final long maxClassFiles;
+
+    /**
+     * The cached entries, in access order (the least recently used is the first one).
+     */
+    private final LinkedHashMap<String, Entry> cache = new LinkedHashMap<>(16, .75f, true);
+
+    /**
+     * Parses in progress, indexed by key.
+     */
+    private final ConcurrentHashMap<String, CompletableFuture<Entry>> loading =
+            new ConcurrentHashMap<>();
+
+    /**
+     * The current overall number of cached class files (guarded by {@code this}).
+     */
+    private long classFiles;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder parseTime = new LongAdder();
+    private final LongAdder savedTime = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * The class files of a JAR, and the time it took to parse them.
+     */
+    private static final class Entry {
+        final Seq<Tuple2<ClassFile, URL>> classFiles;
+        final long parseTime;
+
+        Entry(final Seq<Tuple2<ClassFile, URL>> classFiles, final long parseTime) {
+            this.classFiles = classFiles;
+            this.parseTime = parseTime;
+        }
+    }
+
+    /**
+     * Creates a cache.
+     *
+     * @param maxClassFiles the maximum overall number of cached class files
+     */
+    public ClassFileCache(final long maxClassFiles) {
+        if (maxClassFiles < 0) {
+            throw new IllegalArgumentException("Negative cache size: " + maxClassFiles);
+        }
+        this.maxClassFiles = maxClassFiles;
+    }
+
+    /**
+     * Returns the cache shared by all {@link CallGraphConstructor} instances of this JVM, whose
+     * maximum number of class files is specified by the environment variable
+     * {@value #SIZE_VARIABLE} ({@value #DEFAULT_MAX_CLASS_FILES} by default).
+     *
+     * @return the shared cache
+     */
+    public static ClassFileCache shared() {
+        return shared;
+    }
+
+    /**
+     * Returns the class files of a JAR, parsing them if necessary.
+     *
+     * @param file   a JAR file
+     * @param config the configuration of the class-file reader
+     * @return the class files of the JAR, with their sources
+     * @throws IOException in case the JAR cannot be read
+     */
+    public Seq<Tuple2<ClassFile, URL>> get(final File file, final Config config) throws IOException {
+        if (maxClassFiles == 0) {
+            misses.increment();
+            return parse(file, config).classFiles;
+        }
+        final var rewrite = config.hasPath(REWRITE_INVOKEDYNAMIC)
+                && config.getBoolean(REWRITE_INVOKEDYNAMIC);
+        final var key = Files.asByteSource(file).hash(Hashing.sha256()).toString()
+                + (rewrite ? "+indy" : "");
+
+        var entry = getIfPresent(key);
+        if (entry != null) {
+            hits.increment();
+            savedTime.add(entry.parseTime);
+            return entry.classFiles;
+        }
+
+        misses.increment();
+        final var future = new CompletableFuture<Entry>();
+        final var inProgress = loading.putIfAbsent(key, future);
+        if (inProgress != null) {
+            try {
+                return inProgress.join().classFiles;
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+        try {
+            // Another thread might have completed a parse between our lookup and our registration
+            entry = getIfPresent(key);
+            if (entry == null) {
+                entry = parse(file, config);
+                put(key, entry);
+            }
+            future.complete(entry);
+            return entry.classFiles;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key);
+        }
+    }
+
+    private Entry parse(final File file, final Config config) {
+        final long start = System.nanoTime();
+        final var reader = Project.JavaClassFileReader(GlobalLogContext$.MODULE$, config);
+        final var parsed = reader.ClassFiles(file, reader.defaultExceptionHandler());
+        final var entry = new Entry(parsed, System.nanoTime() - start);
+        parseTime.add(entry.parseTime);
+        return entry;
+    }
+
+    private synchronized Entry getIfPresent(final String key) {
+        return cache.get(key);
+    }
+
+    private synchronized void put(final String key, final Entry entry) {
+        // Entries larger than the cache are never cached
+        if (entry.classFiles.size() > maxClassFiles) {
+            return;
+        }
+        final var previous = cache.put(key, entry);
+        if (previous != null) {
+            classFiles -= previous.classFiles.size();
+        }
+        classFiles += entry.classFiles.size();
+        final var iterator = cache.values().iterator();
+        while (classFiles > maxClassFiles) {
+            classFiles -= iterator.next().classFiles.size();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Empties the cache; counters are not reset.
+     */
+    public synchronized void clear() {
+        cache.clear();
+        classFiles = 0;
+    }
+
+    /**
+     * Returns the number of cached JARs.
+     *
+     * @return the number of cached JARs
+     */
+    public synchronized int count() {
+        return cache.size();
+    }
+
+    /**
+     * Returns the overall number of cached class files.
+     *
+     * @return the number of cached class files
+     */
+    public synchronized long classFiles() {
+        return classFiles;
+    }
+
+    /**
+     * Returns the number of lookups that found the requested JAR in the cache.
+     *
+     * @return the number of hits
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of lookups that did not find the requested JAR in the cache.
+     *
+     * @return the number of misses
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the overall time spent parsing class files.
+     *
+     * @return the overall parse time in nanoseconds
+     */
+    public long parseTime() {
+        return parseTime.sum();
+    }
+
+    /**
+     * Returns the overall parse time saved by hits, that is, the sum of the parse times of the
+     * JARs found in the cache.
+     *
+     * @return the overall saved parse time in nanoseconds
+     */
+    public long savedTime() {
+        return savedTime.sum();
+    }
+
+    /**
+     * Returns the number of JARs evicted to keep the cache within its maximum size.
+     *
+     * @return the number of evictions
+     */
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        final long hits = hits();
+        final long misses = misses();
+        return "[jars: " + count() + " class files: " + classFiles() + "/" + maxClassFiles
+                + " hits: " + hits + " misses: " + misses + " hit ratio: "
+                + (hits + misses == 0 ? 0 : (double) hits / (hits + misses))
+                + " parse time: " + parseTime() / 1E6 + "ms saved parse time: "
+                + savedTime() / 1E6 + "ms evictions: " + evictions() + "]";
+    }
+}
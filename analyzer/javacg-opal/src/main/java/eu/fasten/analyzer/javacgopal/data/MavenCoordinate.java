@@ -18,12 +18,9 @@
 
 package eu.fasten.analyzer.javacgopal.data;
 
+import eu.fasten.core.maven.ArtifactCache;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.InputStream;
-import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -144,30 +141,45 @@ public class MavenCoordinate {
     }
 
     /**
-     * A set of methods for downloading POM and JAR files given Maven coordinates.
+     * A set of methods for downloading POM and JAR files given Maven coordinates. Files are
+     * cached in an {@link ArtifactCache}.
      */
     public static class MavenResolver {
         private static final Logger logger = LoggerFactory.getLogger(MavenResolver.class);
         private static final String[] packaging = {"jar", "war", "zip", "ear", "rar", "ejb"};
 
+        private final ArtifactCache artifactCache;
+
+        /**
+         * Creates a resolver using the {@linkplain ArtifactCache#shared() shared} artifact cache.
+         */
+        public MavenResolver() {
+            this(ArtifactCache.shared());
+        }
+
+        /**
+         * Creates a resolver using the given artifact cache.
+         *
+         * @param artifactCache artifact cache
+         */
+        public MavenResolver(final ArtifactCache artifactCache) {
+            this.artifactCache = artifactCache;
+        }
+
         /**
          * Download a JAR file indicated by the provided Maven coordinate.
          *
          * @param mavenCoordinate A Maven coordinate in the for "groupId:artifactId:version"
-         * @return A temporary file on the filesystem
+         * @return A file in the artifact cache, which must not be modified or deleted
          */
         public Optional<File> downloadJar(final MavenCoordinate mavenCoordinate)
                 throws FileNotFoundException {
             logger.debug("Downloading JAR for " + mavenCoordinate);
 
+            final var extension = extension(mavenCoordinate);
             for (var repo : mavenCoordinate.getMavenRepos()) {
-                Optional<File> jar;
-                if (Arrays.asList(packaging).contains(mavenCoordinate.getPackaging())) {
-                    jar = httpGetFile(mavenCoordinate
-                            .toProductUrl(repo, mavenCoordinate.getPackaging()));
-                } else {
-                    jar = httpGetFile(mavenCoordinate.toProductUrl(repo, "jar"));
-                }
+                final var jar = httpGetFile(repo, mavenCoordinate.getCoordinate(), extension,
+                        mavenCoordinate.toProductUrl(repo, extension));
                 if (jar.isPresent()) {
                     return jar;
                 }
@@ -176,20 +188,40 @@ public class MavenCoordinate {
         }
 
         /**
-         * Utility function that stores the contents of GET request to a temporary file.
+         * Returns the size of the JAR file indicated by the provided Maven coordinate if it is in
+         * the artifact cache. No request is made to the repositories, so this method is cheap
+         * enough to be called, e.g., on the thread polling records.
+         *
+         * @param mavenCoordinate A Maven coordinate in the for "groupId:artifactId:version"
+         * @return the size in bytes of the cached JAR file, or -1 if it is not cached
          */
-        private static Optional<File> httpGetFile(final String url) throws FileNotFoundException {
-            logger.debug("HTTP GET: " + url);
+        public long cachedJarSize(final MavenCoordinate mavenCoordinate) {
+            final var extension = extension(mavenCoordinate);
+            for (var repo : mavenCoordinate.getMavenRepos()) {
+                final var size = artifactCache.cachedSize(repo, mavenCoordinate.getCoordinate(),
+                        extension);
+                if (size >= 0) {
+                    return size;
+                }
+            }
+            return -1;
+        }
 
-            try {
-                final var packaging = url.substring(url.lastIndexOf("."));
-                final var tempFile = Files.createTempFile("fasten", packaging);
+        private static String extension(final MavenCoordinate mavenCoordinate) {
+            return Arrays.asList(packaging).contains(mavenCoordinate.getPackaging())
+                    ? mavenCoordinate.getPackaging() : "jar";
+        }
 
-                final InputStream in = new URL(url).openStream();
-                Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
-                in.close();
+        /**
+         * Utility function that returns the contents of GET request from the artifact cache.
+         */
+        private Optional<File> httpGetFile(final String repo, final String coordinate,
+                                           final String extension, final String url)
+                throws FileNotFoundException {
+            logger.debug("HTTP GET: " + url);
 
-                return Optional.of(new File(tempFile.toAbsolutePath().toString()));
+            try {
+                return Optional.of(artifactCache.get(repo, coordinate, extension, url));
             } catch (FileNotFoundException e) {
                 logger.error("Could not find URL: " + url);
                 throw e;
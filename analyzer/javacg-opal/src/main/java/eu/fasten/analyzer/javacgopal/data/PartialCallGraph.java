@@ -27,10 +27,17 @@ import eu.fasten.core.data.ExtendedRevisionCallGraph.Scope;
 import eu.fasten.core.data.ExtendedRevisionCallGraph.Type;
 import eu.fasten.core.data.FastenURI;
 import java.io.FileNotFoundException;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
+import org.opalj.br.DeclaredMethod;
 import org.opalj.br.Method;
 import org.opalj.br.ObjectType;
 import org.opalj.br.analyses.Project;
@@ -47,6 +54,11 @@ public class PartialCallGraph {
 
     private static final Logger logger = LoggerFactory.getLogger(PartialCallGraph.class);
 
+    /**
+     * The number of ranges of sources per thread when building the graph in parallel.
+     */
+    private static final int RANGES_PER_THREAD = 4;
+
     private final Map<Scope, Map<FastenURI, Type>> classHierarchy;
     private final Graph graph;
     private final int nodeCount;
@@ -58,13 +70,25 @@ public class PartialCallGraph {
      * @param constructor call graph constructor
      */
     public PartialCallGraph(CallGraphConstructor constructor) {
+        this(constructor, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Given a file, algorithm and main class (in case of application package)
+     * it creates a {@link PartialCallGraph} for it using OPAL, using the given number
+     * of threads to build the graph.
+     *
+     * @param constructor call graph constructor
+     * @param threads     number of threads
+     */
+    public PartialCallGraph(CallGraphConstructor constructor, int threads) {
         this.graph = new Graph();
 
         logger.info("Creating internal CHA");
         final var cha = createInternalCHA(constructor.getProject());
 
-        logger.info("Creating graph with external CHA");
-        createGraphWithExternalCHA(constructor.getCallGraph(), cha);
+        logger.info("Creating graph with external CHA using {} threads", threads);
+        createGraphWithExternalCHA(constructor.getCallGraph(), cha, threads);
 
         this.nodeCount = cha.getNodeCount();
         this.classHierarchy = cha.asURIHierarchy(constructor.getProject().classHierarchy());
@@ -84,7 +108,8 @@ public class PartialCallGraph {
 
     /**
      * Creates RevisionCallGraph using OPAL call graph generator for a given maven
-     * coordinate. It also sets the forge to "mvn".
+     * coordinate. It also sets the forge to "mvn". The budget of the analysis is
+     * {@linkplain AnalysisBudget#fromEnvironment() specified by the environment}.
      *
      * @param coordinate maven coordinate of the revision to be processed
      * @param timestamp  timestamp of the revision release
@@ -96,19 +121,58 @@ public class PartialCallGraph {
             final MavenCoordinate coordinate, final String mainClass,
             final String algorithm, final long timestamp)
             throws FileNotFoundException {
+        return createExtendedRevisionCallGraph(coordinate, mainClass, algorithm, timestamp,
+                AnalysisBudget.fromEnvironment());
+    }
+
+    /**
+     * Creates RevisionCallGraph using OPAL call graph generator for a given maven
+     * coordinate within the given budget. It also sets the forge to "mvn", the call graph
+     * generator to "OPAL", and the {@linkplain #generatorMetadata(CallGraphConstructor) metadata}
+     * to the algorithm that was actually used, which is cheaper than the given one if the latter
+     * exceeded the budget.
+     *
+     * @param coordinate maven coordinate of the revision to be processed
+     * @param timestamp  timestamp of the revision release
+     * @param budget     budget of the analysis
+     * @return RevisionCallGraph of the given coordinate.
+     * @throws FileNotFoundException in case there is no jar file for the given coordinate on the
+     *                               Maven central it throws this exception.
+     */
+    public static ExtendedRevisionCallGraph createExtendedRevisionCallGraph(
+            final MavenCoordinate coordinate, final String mainClass,
+            final String algorithm, final long timestamp, final AnalysisBudget budget)
+            throws FileNotFoundException {
         final var file = new MavenCoordinate.MavenResolver().downloadJar(coordinate)
             .orElseThrow(RuntimeException::new);
 
         logger.info("OPAL is analysing the artifact");
-        final var opalCG = new CallGraphConstructor(file, mainClass, algorithm);
+        final var opalCG = new CallGraphConstructor(file, mainClass, algorithm,
+                ClassFileCache.shared(), budget);
 
         final var partialCallGraph = new PartialCallGraph(opalCG);
 
-        return new ExtendedRevisionCallGraph("mvn", coordinate.getProduct(),
-                coordinate.getVersionConstraint(), timestamp,
-                partialCallGraph.getNodeCount(), "OPAL",
-                partialCallGraph.getClassHierarchy(),
-                partialCallGraph.getGraph());
+        return ExtendedRevisionCallGraph.extendedBuilder().forge("mvn")
+                .product(coordinate.getProduct()).version(coordinate.getVersionConstraint())
+                .timestamp(timestamp).nodeCount(partialCallGraph.getNodeCount())
+                .cgGenerator("OPAL").metadata(generatorMetadata(opalCG))
+                .classHierarchy(partialCallGraph.getClassHierarchy())
+                .graph(partialCallGraph.getGraph()).build();
+    }
+
+    /**
+     * Returns the metadata of a call graph describing its generation: the algorithm that was
+     * actually used and, if the requested algorithm exceeded the budget, the requested one.
+     *
+     * @param constructor call graph constructor
+     * @return the generation metadata
+     */
+    public static Map<String, Object> generatorMetadata(final CallGraphConstructor constructor) {
+        if (constructor.getAlgorithm().equals(constructor.getRequestedAlgorithm())) {
+            return Map.of("algorithm", constructor.getAlgorithm());
+        }
+        return Map.of("algorithm", constructor.getAlgorithm(),
+                "requestedAlgorithm", constructor.getRequestedAlgorithm());
     }
 
     /**
@@ -166,25 +230,73 @@ public class PartialCallGraph {
      * declared in the package that call external methods and add them to externalCHA of
      * a call hierarchy. Build a graph for both internal and external calls in parallel.
      *
-     * @param cg  call graph from OPAL generator
-     * @param cha class hierarchy
+     * @param cg      call graph from OPAL generator
+     * @param cha     class hierarchy
+     * @param threads number of threads
+     * @implNote Sources are split into consecutive ranges, and the sub-graphs of each range are
+     *     computed by a thread using a {@linkplain OPALClassHierarchy#fork() fork} of the class
+     *     hierarchy. Ranges are then {@linkplain OPALClassHierarchy#join joined} in order, so
+     *     external methods get the same IDs as in a sequential computation.
      */
-    private void createGraphWithExternalCHA(final CallGraph cg, final OPALClassHierarchy cha) {
+    private void createGraphWithExternalCHA(final CallGraph cg, final OPALClassHierarchy cha,
+                                            final int threads) {
+        final List<Object> sources = new ArrayList<>();
+        final List<DeclaredMethod> sourceDeclarations = new ArrayList<>();
         for (final var sourceDeclaration : JavaConverters
                 .asJavaIterable(cg.reachableMethods().toIterable())) {
 
             if (sourceDeclaration.hasMultipleDefinedMethods()) {
                 for (final var source : JavaConverters
                         .asJavaIterable(sourceDeclaration.definedMethods())) {
-                    cha.appendGraph(source, cg.calleesOf(sourceDeclaration), graph);
+                    sources.add(source);
+                    sourceDeclarations.add(sourceDeclaration);
                 }
             } else if (sourceDeclaration.hasSingleDefinedMethod()) {
-                cha.appendGraph(sourceDeclaration.definedMethod(),
-                        cg.calleesOf(sourceDeclaration), graph);
+                sources.add(sourceDeclaration.definedMethod());
+                sourceDeclarations.add(sourceDeclaration);
 
             } else if (sourceDeclaration.isVirtualOrHasSingleDefinedMethod()) {
-                cha.appendGraph(sourceDeclaration, cg.calleesOf(sourceDeclaration), graph);
+                sources.add(sourceDeclaration);
+                sourceDeclarations.add(sourceDeclaration);
+            }
+        }
+
+        final int ranges = Math.min(sources.size(), threads * RANGES_PER_THREAD);
+        if (threads <= 1 || ranges <= 1) {
+            for (int i = 0; i < sources.size(); i++) {
+                cha.appendGraph(sources.get(i), cg.calleesOf(sourceDeclarations.get(i)), graph);
+            }
+            return;
+        }
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            final List<OPALClassHierarchy> forks = new ArrayList<>(ranges);
+            final List<Future<Graph>> futures = new ArrayList<>(ranges);
+            for (int r = 0; r < ranges; r++) {
+                final int from = (int) ((long) r * sources.size() / ranges);
+                final int to = (int) ((long) (r + 1) * sources.size() / ranges);
+                final var fork = cha.fork();
+                forks.add(fork);
+                futures.add(executorService.submit(() -> {
+                    final var subGraphs = new Graph();
+                    for (int i = from; i < to; i++) {
+                        fork.appendGraph(sources.get(i), cg.calleesOf(sourceDeclarations.get(i)),
+                                subGraphs);
+                    }
+                    return subGraphs;
+                }));
+            }
+            for (int r = 0; r < ranges; r++) {
+                cha.join(forks.get(r), futures.get(r).get(), graph);
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executorService.shutdownNow();
         }
     }
 }
@@ -18,11 +18,13 @@
 
 package eu.fasten.analyzer.javacgopal.data.analysis;
 
+import eu.fasten.core.data.CallSiteMap;
 import eu.fasten.core.data.ExtendedRevisionCallGraph;
 import eu.fasten.core.data.ExtendedRevisionCallGraph.Graph;
 import eu.fasten.core.data.ExtendedRevisionCallGraph.Scope;
 import eu.fasten.core.data.ExtendedRevisionCallGraph.Type;
 import eu.fasten.core.data.FastenURI;
+import eu.fasten.core.data.PackedCallMap;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -69,7 +71,7 @@ public class OPALClassHierarchy {
         return externalCHA;
     }
 
-    public int getNodeCount() {
+    public synchronized int getNodeCount() {
         return nodeCount;
     }
 
@@ -100,12 +102,14 @@ public class OPALClassHierarchy {
 
     /**
      * Adds a method to the external CHA if the method doesn't already exist.
-     * Otherwise returns and ID of the existing method.
+     * Otherwise returns and ID of the existing method. This method is thread-safe, but IDs are
+     * assigned in order of arrival: to build graphs in parallel with deterministic IDs, use
+     * {@link #fork()} and {@link #join(OPALClassHierarchy, Graph, Graph)}.
      *
      * @param method method to add to external CHA
      * @return ID corresponding to the method
      */
-    public int addMethodToExternals(DeclaredMethod method) {
+    public synchronized int addMethodToExternals(DeclaredMethod method) {
         final var typeMethods = this.externalCHA
                 .getOrDefault(method.declaringClassType(), new HashMap<>());
 
@@ -119,6 +123,52 @@ public class OPALClassHierarchy {
         }
     }
 
+    /**
+     * Creates a class hierarchy sharing the internal CHA of this one, with an empty external CHA
+     * and the same node count. Sub-graphs can be computed concurrently, each with its own fork,
+     * and then {@linkplain #join(OPALClassHierarchy, Graph, Graph) joined} to this hierarchy.
+     *
+     * @return a fork of this class hierarchy
+     */
+    public synchronized OPALClassHierarchy fork() {
+        return new OPALClassHierarchy(this.internalCHA, new HashMap<>(), this.nodeCount);
+    }
+
+    /**
+     * Joins a graph computed with a {@linkplain #fork() fork} of this class hierarchy. The
+     * external methods of the fork are added to this hierarchy in the order in which they were
+     * added to the fork, and the IDs of the graph are renumbered accordingly before its calls are
+     * appended to the result graph. Thus, joining in order the graphs computed over consecutive
+     * ranges of sources yields the same IDs and calls as computing them sequentially.
+     *
+     * @param fork        a fork of this class hierarchy
+     * @param graph       a graph computed with the fork
+     * @param resultGraph the graph to append calls to
+     */
+    public synchronized void join(final OPALClassHierarchy fork, final Graph graph,
+                                  final Graph resultGraph) {
+        final int base = fork.nodeCount - fork.externalCHA.values().stream().mapToInt(Map::size).sum();
+        final var externals = new DeclaredMethod[fork.nodeCount - base];
+        for (final var typeMethods : fork.externalCHA.values()) {
+            for (final var entry : typeMethods.entrySet()) {
+                externals[entry.getValue() - base] = entry.getKey();
+            }
+        }
+        final int[] ids = new int[externals.length];
+        for (int i = 0; i < externals.length; i++) {
+            ids[i] = this.addMethodToExternals(externals[i]);
+        }
+
+        resultGraph.getInternalCalls().putAll(graph.getInternalCalls());
+        final var externalCalls = resultGraph.getExternalCalls();
+        for (final var call : graph.getExternalCalls().entrySet()) {
+            final int source = call.getKey().get(0);
+            final int target = call.getKey().get(1);
+            externalCalls.put(List.of(source < base ? source : ids[source - base],
+                    target < base ? target : ids[target - base]), call.getValue());
+        }
+    }
+
     /**
      * Get call keys from an internal class hierarchy.
      *
@@ -173,8 +223,8 @@ public class OPALClassHierarchy {
      * @param target            target method
      */
     public void putCalls(final Object source,
-                         final HashMap<List<Integer>, Map<Object, Object>> internalCalls,
-                         final HashMap<List<Integer>, Map<Object, Object>> externalCalls,
+                         final Map<List<Integer>, Map<Object, Object>> internalCalls,
+                         final Map<List<Integer>, Map<Object, Object>> externalCalls,
                          final DeclaredMethod targetDeclaration, Map<Object, Object> metadata,
                          final Method target) {
         if (source instanceof Method) {
@@ -184,7 +234,7 @@ public class OPALClassHierarchy {
             putExternalCall(source, externalCalls, targetDeclaration, metadata);
         }
         if (target.isConstructor()) {
-            externalCalls.put(this.getInternalCallKeys(target, target), new HashMap<>());
+            externalCalls.put(this.getInternalCallKeys(target, target), new CallSiteMap());
         }
     }
 
@@ -197,13 +247,12 @@ public class OPALClassHierarchy {
      * @param metadata          metadata to put along the call
      */
     public void putExternalCall(final Object source,
-                                final HashMap<List<Integer>, Map<Object, Object>> externalCalls,
+                                final Map<List<Integer>, Map<Object, Object>> externalCalls,
                                 final DeclaredMethod targetDeclaration,
                                 final Map<Object, Object> metadata) {
         final var call = this.getExternalCallKeys(source, targetDeclaration);
-        final var externalMetadata = externalCalls.getOrDefault(call, new HashMap<>());
+        final var externalMetadata = externalCalls.computeIfAbsent(call, k -> new CallSiteMap());
         externalMetadata.putAll(metadata);
-        externalCalls.put(call, externalMetadata);
     }
 
     /**
@@ -217,7 +266,7 @@ public class OPALClassHierarchy {
     public Map<Object, Object> getInternalMetadata(final Map<List<Integer>, Map<Object, Object>> ic,
                                                    final Map<Object, Object> metadata,
                                                    final List<Integer> call) {
-        final var internalMetadata = ic.getOrDefault(call, new HashMap<>());
+        final var internalMetadata = ic.getOrDefault(call, new CallSiteMap());
         internalMetadata.putAll(metadata);
         return internalMetadata;
     }
@@ -238,6 +287,7 @@ public class OPALClassHierarchy {
 
     /**
      * Given a source method and a list of targets return a sub-graph of ExtendedRevisionCallGraph.
+     * Calls are stored in {@link PackedCallMap}s, and call sites in {@link CallSiteMap}s.
      *
      * @param source  source method
      * @param targets list of targets
@@ -246,8 +296,8 @@ public class OPALClassHierarchy {
     public Graph getSubGraph(final Object source,
                              final Iterator<Tuple2<Object, Iterator<DeclaredMethod>>> targets) {
 
-        final var internalCalls = new HashMap<List<Integer>, Map<Object, Object>>();
-        final var externalCalls = new HashMap<List<Integer>, Map<Object, Object>>();
+        final var internalCalls = new PackedCallMap();
+        final var externalCalls = new PackedCallMap();
 
         if (targets != null) {
             for (final var opalCallSite : JavaConverters.asJavaIterable(targets.toIterable())) {
@@ -275,7 +325,7 @@ public class OPALClassHierarchy {
                 }
             }
         }
-        return new ExtendedRevisionCallGraph.Graph(internalCalls, externalCalls);
+        return new ExtendedRevisionCallGraph.Graph(internalCalls, externalCalls, new PackedCallMap());
     }
 
     /**
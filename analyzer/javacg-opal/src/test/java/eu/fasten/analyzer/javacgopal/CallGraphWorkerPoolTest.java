@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.analyzer.javacgopal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import eu.fasten.analyzer.javacgopal.data.MavenCoordinate;
+import java.io.FileNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CallGraphWorkerPoolTest {
+
+    @Test
+    void generateAndRecycle(@TempDir Path dir) throws Exception {
+        var jar = dir.resolve("repo/group/artifact/1.0/artifact-1.0.jar");
+        Files.createDirectories(jar.getParent());
+        try (var out = new JarOutputStream(Files.newOutputStream(jar))) {
+            out.putNextEntry(new JarEntry("name/space/SingleSourceToTarget.class"));
+            out.write(Files.readAllBytes(Paths.get(Objects.requireNonNull(Thread.currentThread()
+                    .getContextClassLoader().getResource("SingleSourceToTarget.class")).toURI())));
+        }
+        var repos = new ArrayList<>(Collections.singletonList(dir.resolve("repo").toUri().toString()));
+        var coordinate = new MavenCoordinate(repos, "group", "artifact", "1.0", "jar");
+        var missing = new MavenCoordinate(repos, "group", "missing", "1.0", "jar");
+
+        try (var pool = new CallGraphWorkerPool(1, 2, 1, List.of())) {
+            for (int i = 0; i < 3; i++) {
+                var cg = pool.generate(coordinate, "CHA", 1574072773);
+                assertFalse(cg.isCallGraphEmpty());
+                assertEquals("group:artifact", cg.product);
+                assertEquals("1.0", cg.version);
+                assertEquals(1574072773, cg.timestamp);
+                assertEquals("OPAL", cg.getCgGenerator());
+                assertEquals(Map.of("algorithm", "CHA"), cg.getMetadata());
+            }
+            assertEquals(3, pool.jobs());
+            assertEquals(2, pool.started());
+            assertEquals(1, pool.recycled());
+
+            assertThrows(FileNotFoundException.class, () -> pool.generate(missing, "CHA", 0));
+            assertEquals(1, pool.failures());
+            assertEquals(0, pool.died());
+        }
+    }
+
+    @Test
+    void invalidPool() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new CallGraphWorkerPool(0, 1, 1, List.of()));
+        assertThrows(IllegalArgumentException.class,
+                () -> new CallGraphWorkerPool(1, 0, 1, List.of()));
+    }
+}
@@ -24,6 +24,7 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
+import java.util.List;
 import java.util.Objects;
 import org.apache.commons.lang.StringUtils;
 import org.junit.jupiter.api.Test;
@@ -109,6 +110,7 @@ class CallGraphConstructorTest {
         assertNotNull(cg.getCallGraph());
         assertNotNull(cg.getProject());
         assertTrue(cg.getCallGraph().numEdges() > 0);
+        assertEquals("CHA", cg.getAlgorithm());
     }
 
     @Test
@@ -137,6 +139,43 @@ class CallGraphConstructorTest {
         assertTrue(cg.getCallGraph().numEdges() > 0);
     }
 
+    @Test
+    void constructWithinBudget() {
+        var file = new File(Objects.requireNonNull(Thread.currentThread().getContextClassLoader()
+                .getResource("SingleSourceToTarget.class"))
+                .getFile());
+
+        var cg = new CallGraphConstructor(file, "", "TypeBasedPointsTo", ClassFileCache.shared(),
+                new AnalysisBudget(600_000, 1L << 40));
+
+        assertEquals("TypeBasedPointsTo", cg.getAlgorithm());
+        assertEquals("TypeBasedPointsTo", cg.getRequestedAlgorithm());
+        assertTrue(cg.getCallGraph().numEdges() > 0);
+    }
+
+    @Test
+    void lastFallbackIgnoresAllocationBudget() {
+        var file = new File(Objects.requireNonNull(Thread.currentThread().getContextClassLoader()
+                .getResource("SingleSourceToTarget.class"))
+                .getFile());
+
+        var cg = new CallGraphConstructor(file, "", "CHA", ClassFileCache.shared(),
+                new AnalysisBudget(0, 1));
+
+        assertEquals("CHA", cg.getAlgorithm());
+        assertTrue(cg.getCallGraph().numEdges() > 0);
+    }
+
+    @Test
+    void fallbacks() {
+        assertEquals(List.of("AllocationSiteBasedPointsTo", "RTA", "CHA"),
+                CallGraphConstructor.fallbacks("AllocationSiteBasedPointsTo"));
+        assertEquals(List.of("TypeBasedPointsTo", "RTA", "CHA"),
+                CallGraphConstructor.fallbacks("TypeBasedPointsTo"));
+        assertEquals(List.of("RTA", "CHA"), CallGraphConstructor.fallbacks("RTA"));
+        assertEquals(List.of("CHA"), CallGraphConstructor.fallbacks("CHA"));
+    }
+
     @Test
     void constructWrongAlgorithm() {
         var file = new File(Objects.requireNonNull(Thread.currentThread().getContextClassLoader()
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.analyzer.javacgopal.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigValueFactory;
+import java.io.File;
+import java.io.IOException;
+import java.util.Objects;
+import org.junit.jupiter.api.Test;
+
+class ClassFileCacheTest {
+
+    private static File getFile() {
+        return new File(Objects.requireNonNull(Thread.currentThread().getContextClassLoader()
+                .getResource("SingleSourceToTarget.class"))
+                .getFile());
+    }
+
+    @Test
+    void get() throws IOException {
+        var cache = new ClassFileCache(100);
+        var config = ConfigFactory.load();
+
+        var first = cache.get(getFile(), config);
+        var second = cache.get(getFile(), config);
+
+        assertSame(first, second);
+        assertEquals(1, first.size());
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+        assertEquals(1, cache.count());
+        assertEquals(1, cache.classFiles());
+    }
+
+    @Test
+    void getRewritingInvokedynamic() throws IOException {
+        var cache = new ClassFileCache(100);
+        var config = ConfigFactory.load();
+
+        cache.get(getFile(), config.withValue(
+                "org.opalj.br.reader.ClassFileReader.Invokedynamic.rewrite",
+                ConfigValueFactory.fromAnyRef(true)));
+        cache.get(getFile(), config.withValue(
+                "org.opalj.br.reader.ClassFileReader.Invokedynamic.rewrite",
+                ConfigValueFactory.fromAnyRef(false)));
+
+        assertEquals(0, cache.hits());
+        assertEquals(2, cache.count());
+    }
+
+    @Test
+    void evictions() throws IOException {
+        var cache = new ClassFileCache(0);
+        var config = ConfigFactory.load();
+
+        cache.get(getFile(), config);
+        cache.get(getFile(), config);
+
+        assertEquals(0, cache.hits());
+        assertEquals(2, cache.misses());
+        assertEquals(0, cache.count());
+    }
+
+    @Test
+    void evictLeastRecentlyUsed() throws IOException {
+        var cache = new ClassFileCache(1);
+        var config = ConfigFactory.load();
+
+        cache.get(getFile(), config.withValue(
+                "org.opalj.br.reader.ClassFileReader.Invokedynamic.rewrite",
+                ConfigValueFactory.fromAnyRef(true)));
+        cache.get(getFile(), config);
+
+        assertEquals(1, cache.count());
+        assertEquals(1, cache.classFiles());
+        assertEquals(1, cache.evictions());
+    }
+
+    @Test
+    void disabled() throws IOException {
+        var cache = new ClassFileCache(0);
+        var config = ConfigFactory.load();
+
+        var first = cache.get(getFile(), config);
+        var second = cache.get(getFile(), config);
+
+        assertNotSame(first, second);
+        assertEquals(2, cache.misses());
+        assertEquals(0, cache.classFiles());
+        assertEquals(0, cache.evictions());
+    }
+
+    @Test
+    void negativeSize() {
+        assertThrows(IllegalArgumentException.class, () -> new ClassFileCache(-1));
+    }
+
+    @Test
+    void sharedByCallGraphConstructors() {
+        var cache = new ClassFileCache(100);
+
+        new CallGraphConstructor(getFile(), "", "CHA", cache);
+        var cg = new CallGraphConstructor(getFile(), "", "CHA", cache);
+
+        assertEquals(1, cache.hits());
+        assertEquals(1, cg.getProject().projectClassFilesCount());
+    }
+}
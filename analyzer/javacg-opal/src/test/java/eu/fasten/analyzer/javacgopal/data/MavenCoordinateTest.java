@@ -23,10 +23,15 @@ import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import eu.fasten.core.maven.ArtifactCache;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class MavenCoordinateTest {
 
@@ -116,4 +121,27 @@ class MavenCoordinateTest {
 
         assertTrue(resolver.downloadJar(coordinate).isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    void cachedJarSize(@TempDir Path dir) throws IOException {
+        var jar = dir.resolve("repo/group/artifact/1.0/artifact-1.0.jar");
+        Files.createDirectories(jar.getParent());
+        Files.write(jar, new byte[1234]);
+        var repo = dir.resolve("repo").toUri().toString();
+        var coordinate = new MavenCoordinate(new ArrayList<>(Collections.singletonList(repo)),
+                "group", "artifact", "1.0", "jar");
+        var missing = new MavenCoordinate(new ArrayList<>(Collections.singletonList(repo)),
+                "group", "missing", "1.0", "jar");
+
+        var cache = new ArtifactCache(dir.resolve("cache").toFile(), 1 << 20);
+        var resolver = new MavenCoordinate.MavenResolver(cache);
+
+        assertEquals(-1, resolver.cachedJarSize(coordinate));
+        assertEquals(0, cache.count());
+        assertEquals(-1, resolver.cachedJarSize(missing));
+
+        assertTrue(resolver.downloadJar(coordinate).isPresent());
+        Files.delete(jar);
+        assertEquals(1234, resolver.cachedJarSize(coordinate));
+    }
+}
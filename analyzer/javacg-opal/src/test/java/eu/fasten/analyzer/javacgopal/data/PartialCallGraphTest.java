@@ -29,6 +29,7 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
@@ -159,6 +160,8 @@ class PartialCallGraphTest {
         Assertions.assertEquals(new FastenJavaURI("fasten://mvn!org.slf4j:slf4j-api$1.7.29"), cg.uri);
         Assertions.assertEquals(new FastenJavaURI("fasten://org.slf4j:slf4j-api$1.7.29"), cg.forgelessUri);
         Assertions.assertEquals("org.slf4j:slf4j-api", cg.product);
+        Assertions.assertEquals("OPAL", cg.getCgGenerator());
+        Assertions.assertEquals(Map.of("algorithm", "CHA"), cg.getMetadata());
     }
 
     @Test
@@ -716,4 +716,33 @@ class OPALClassHierarchyTest {
         assertEquals("/some.package/typeName", ((HashMap<String, Object>) callSite.get("0")).get("receiver"));
         assertEquals("testType", ((HashMap<String, Object>) callSite.get("0")).get("type"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void forkAndJoin() {
+        var classHierarchy = new OPALClassHierarchy(new HashMap<>(), new HashMap<>(), 5);
+        var a = Mockito.mock(DeclaredMethod.class);
+        var b = Mockito.mock(DeclaredMethod.class);
+
+        var first = classHierarchy.fork();
+        var second = classHierarchy.fork();
+
+        var firstGraph = new ExtendedRevisionCallGraph.Graph();
+        firstGraph.getInternalCalls().put(List.of(1, 2), new HashMap<>());
+        firstGraph.getExternalCalls().put(List.of(1, first.addMethodToExternals(a)), new HashMap<>());
+
+        var secondGraph = new ExtendedRevisionCallGraph.Graph();
+        secondGraph.getExternalCalls().put(List.of(2, second.addMethodToExternals(b)), new HashMap<>());
+        secondGraph.getExternalCalls().put(List.of(3, second.addMethodToExternals(a)), new HashMap<>());
+
+        var result = new ExtendedRevisionCallGraph.Graph();
+        classHierarchy.join(first, firstGraph, result);
+        classHierarchy.join(second, secondGraph, result);
+
+        assertEquals(7, classHierarchy.getNodeCount());
+        assertEquals(1, result.getInternalCalls().size());
+        assertEquals(3, result.getExternalCalls().size());
+        Assertions.assertTrue(result.getExternalCalls().containsKey(List.of(1, 5)));
+        Assertions.assertTrue(result.getExternalCalls().containsKey(List.of(2, 6)));
+        Assertions.assertTrue(result.getExternalCalls().containsKey(List.of(3, 5)));
+    }
+}
@@ -18,7 +18,9 @@
 
 package eu.fasten.analyzer.metadataplugin;
 
+import eu.fasten.core.data.CallGraphBinaryFormat;
 import eu.fasten.core.data.ExtendedRevisionCallGraph;
+import eu.fasten.core.data.ExtendedRevisionCallGraphReader;
 import eu.fasten.core.data.metadatadb.MetadataDao;
 import eu.fasten.core.data.RevisionCallGraph;
 import eu.fasten.core.data.graphdb.GidGraph;
@@ -26,10 +28,13 @@ import eu.fasten.core.data.metadatadb.codegen.tables.records.CallablesRecord;
 import eu.fasten.core.data.metadatadb.codegen.tables.records.EdgesRecord;
 import eu.fasten.core.plugins.DBConnector;
 import eu.fasten.core.plugins.KafkaPlugin;
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Paths;
 import java.sql.Timestamp;
 import java.util.*;
@@ -56,7 +61,7 @@ public class MetadataDatabasePlugin extends Plugin {
     public static class MetadataDBExtension implements KafkaPlugin, DBConnector {
 
         private String consumerTopic = "fasten.OPAL.out";
-        private static DSLContext dslContext;
+        private DSLContext dslContext;
         private boolean processedRecord = false;
         private Throwable pluginError = null;
         private final Logger logger = LoggerFactory.getLogger(MetadataDBExtension.class.getName());
@@ -67,7 +72,7 @@ public class MetadataDatabasePlugin extends Plugin {
 
         @Override
         public void setDBConnection(DSLContext dslContext) {
-            MetadataDBExtension.dslContext = dslContext;
+            this.dslContext = dslContext;
         }
 
         @Override
@@ -85,6 +90,7 @@ public class MetadataDatabasePlugin extends Plugin {
             this.processedRecord = false;
             this.restartTransaction = false;
             this.pluginError = null;
+            this.gidGraph = null;
             var consumedJson = new JSONObject(record);
             if (consumedJson.has("payload")) {
                 consumedJson = consumedJson.getJSONObject("payload");
@@ -189,9 +195,10 @@ public class MetadataDatabasePlugin extends Plugin {
         private void consumeNewFormat(JSONObject consumedJson, String path) {
             final ExtendedRevisionCallGraph callgraph;
             if (!path.isEmpty()) {
-                try {
-                    JSONTokener tokener = new JSONTokener(new FileReader(path));
-                    callgraph = new ExtendedRevisionCallGraph(new JSONObject(tokener));
+                try (var input = new BufferedInputStream(new FileInputStream(path))) {
+                    callgraph = CallGraphBinaryFormat.isBinary(input)
+                            ? CallGraphBinaryFormat.readExtendedRevisionCallGraph(input)
+                            : ExtendedRevisionCallGraphReader.read(input);
                 } catch (JSONException | IOException e) {
                     logger.error("Error parsing JSON callgraph from path for '"
                             + Paths.get(path).getFileName() + "'", e);
@@ -210,6 +217,35 @@ public class MetadataDatabasePlugin extends Plugin {
                     return;
                 }
             }
+            saveCallGraph(callgraph);
+        }
+
+        /**
+         * Processes a callgraph object handed by another plug-in in the same JVM.
+         *
+         * @param object an {@link ExtendedRevisionCallGraph}
+         * @return true if the object is a callgraph of the new format
+         */
+        @Override
+        public boolean consumeObject(Object object) {
+            if (!(object instanceof ExtendedRevisionCallGraph)) {
+                return false;
+            }
+            this.processedRecord = false;
+            this.restartTransaction = false;
+            this.pluginError = null;
+            this.gidGraph = null;
+            saveCallGraph((ExtendedRevisionCallGraph) object);
+            return true;
+        }
+
+        /**
+         * Saves a callgraph of the new format to the database, restarting the transaction
+         * if needed.
+         *
+         * @param callgraph Callgraph to save
+         */
+        private void saveCallGraph(ExtendedRevisionCallGraph callgraph) {
             final var artifact = callgraph.product + "@" + callgraph.version;
             final String groupId;
             final String artifactId;
@@ -275,6 +311,25 @@ public class MetadataDatabasePlugin extends Plugin {
             }
         }
 
+        @Override
+        public Optional<Object> produceObject() {
+            return Optional.ofNullable(gidGraph);
+        }
+
+        @Override
+        public boolean supportsBinaryOutput() {
+            return true;
+        }
+
+        @Override
+        public boolean produceBinary(OutputStream outputStream) throws IOException {
+            if (gidGraph == null) {
+                return false;
+            }
+            CallGraphBinaryFormat.write(gidGraph, outputStream);
+            return true;
+        }
+
         @Override
         public String getOutputPath() {
             return outputPath;
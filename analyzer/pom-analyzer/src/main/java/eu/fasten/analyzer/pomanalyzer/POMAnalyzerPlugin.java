@@ -49,7 +49,7 @@ public class POMAnalyzerPlugin extends Plugin {
         private String consumerTopic = "fasten.mvn.pkg";
         private final Logger logger = LoggerFactory.getLogger(POMAnalyzer.class.getName());
         private Throwable pluginError = null;
-        private static DSLContext dslContext;
+        private DSLContext dslContext;
         private String artifact = null;
         private String group = null;
         private String version = null;
@@ -75,7 +75,7 @@ public class POMAnalyzerPlugin extends Plugin {
 
         @Override
         public void setDBConnection(DSLContext dslContext) {
-            POMAnalyzer.dslContext = dslContext;
+            this.dslContext = dslContext;
         }
 
         @Override
@@ -21,16 +21,13 @@ package eu.fasten.analyzer.pomanalyzer.pom;
 import eu.fasten.analyzer.pomanalyzer.pom.data.Dependency;
 import eu.fasten.analyzer.pomanalyzer.pom.data.DependencyData;
 import eu.fasten.analyzer.pomanalyzer.pom.data.DependencyManagement;
+import eu.fasten.core.maven.ArtifactCache;
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -48,6 +45,7 @@ import org.slf4j.LoggerFactory;
 public class DataExtractor {
 
     private List<String> mavenRepos;
+    private final ArtifactCache artifactCache;
     private static final Logger logger = LoggerFactory.getLogger(DataExtractor.class);
 
     private String mavenCoordinate = null;
@@ -55,9 +53,19 @@ public class DataExtractor {
     private Pair<String, Pair<Map<String, String>, List<DependencyManagement>>> resolutionMetadata = null;
 
     public DataExtractor() {
+        this(ArtifactCache.shared());
+    }
+
+    /**
+     * Creates a data extractor downloading POMs through the given artifact cache.
+     *
+     * @param artifactCache artifact cache
+     */
+    public DataExtractor(ArtifactCache artifactCache) {
         var repoHost = System.getenv("MVN_REPO") != null
                 ? System.getenv("MVN_REPO") : "https://repo.maven.apache.org/maven2/";
         this.mavenRepos = Collections.singletonList(repoHost);
+        this.artifactCache = artifactCache;
     }
 
     /**
@@ -442,7 +450,8 @@ public class DataExtractor {
             throws FileNotFoundException {
         for (var repo : this.getMavenRepos()) {
             var pomUrl = this.getPomUrl(artifactId, groupId, version, repo);
-            var pom = httpGetToFile(pomUrl).flatMap(DataExtractor::fileToString);
+            var pom = httpGetToFile(repo, groupId + ":" + artifactId + ":" + version, pomUrl)
+                    .flatMap(DataExtractor::fileToString);
             if (pom.isPresent()) {
                 this.mavenCoordinate = groupId + ":" + artifactId + ":" + version;
                 this.pomContents = pom.get();
@@ -466,16 +475,13 @@ public class DataExtractor {
     }
 
     /**
-     * Utility function that stores the contents of GET request to a temporary file.
+     * Utility function that returns the contents of GET request from the artifact cache.
      */
-    private static Optional<File> httpGetToFile(String url) throws FileNotFoundException {
+    private Optional<File> httpGetToFile(String repo, String coordinate, String url)
+            throws FileNotFoundException {
         logger.debug("HTTP GET: " + url);
         try {
-            final var tempFile = Files.createTempFile("fasten", ".pom");
-            final InputStream in = new URL(url).openStream();
-            Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
-            in.close();
-            return Optional.of(new File(tempFile.toAbsolutePath().toString()));
+            return Optional.of(artifactCache.get(repo, coordinate, "pom", url));
         } catch (FileNotFoundException e) {
             logger.error("Could not find URL: " + url);
             throw e;
@@ -19,9 +19,15 @@
 package eu.fasten.analyzer.pomanalyzer.pom;
 
 import eu.fasten.analyzer.pomanalyzer.pom.data.DependencyData;
+import eu.fasten.core.maven.ArtifactCache;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 public class DataExtractorTest {
@@ -288,4 +294,21 @@ public class DataExtractorTest {
         assertEquals(expectedSourcesUrl, actualSourcesUrl);
         assertEquals(expectedPackagingType, actualPackagingType);
     }
+
+    @Test
+    public void extractPackagingTypeFromFileSystemRepositoryTest(@TempDir Path tempDir) throws IOException {
+        var pomDir = tempDir.resolve("repo/org/example/example/1.0");
+        Files.createDirectories(pomDir);
+        Files.writeString(pomDir.resolve("example-1.0.pom"), "<project>"
+                + "<groupId>org.example</groupId><artifactId>example</artifactId>"
+                + "<version>1.0</version><packaging>war</packaging></project>");
+        var cache = new ArtifactCache(tempDir.resolve("cache").toFile(), 1 << 20);
+        var extractor = new DataExtractor(cache);
+        extractor.setMavenRepos(List.of(tempDir.resolve("repo").toUri().toString()));
+
+        assertEquals("war", extractor.extractPackagingType("org.example", "example", "1.0"));
+        assertEquals("war", new DataExtractor(cache).extractPackagingType("org.example", "example", "1.0"));
+        assertEquals(1, cache.misses());
+        assertEquals(1, cache.hits());
+    }
 }
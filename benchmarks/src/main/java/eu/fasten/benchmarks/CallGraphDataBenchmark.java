@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.benchmarks;
+
+import eu.fasten.core.data.KnowledgeBase;
+import eu.fasten.core.data.KnowledgeBase.CallGraphData;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rocksdb.RocksDBException;
+
+/**
+ * Loading of call-graph data from a knowledge base with no cache, that is, a RocksDB read followed
+ * by Kryo decoding of the graphs and of the GID maps.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CallGraphDataBenchmark {
+
+    @Param({"20"})
+    public int graphs;
+
+    @Param({"1000"})
+    public int averageSize;
+
+    private SyntheticKnowledgeBase syntheticKnowledgeBase;
+    private KnowledgeBase kb;
+    private KnowledgeBase.CallGraph[] callGraphs;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, RocksDBException, ClassNotFoundException {
+        syntheticKnowledgeBase = new SyntheticKnowledgeBase(graphs, averageSize, 0);
+        kb = syntheticKnowledgeBase.open(true, 0);
+        callGraphs = kb.callGraphs.values().toArray(new KnowledgeBase.CallGraph[0]);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        kb.close();
+        syntheticKnowledgeBase.close();
+    }
+
+    @Benchmark
+    public CallGraphData decode() {
+        final var callGraph = callGraphs[next++ % callGraphs.length];
+        return callGraph.callGraphData();
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.benchmarks;
+
+import eu.fasten.core.data.CallGraphBinaryFormat;
+import eu.fasten.core.data.ExtendedRevisionCallGraph;
+import eu.fasten.core.data.ExtendedRevisionCallGraphReader;
+import it.unimi.dsi.util.XoRoShiRo128PlusPlusRandomGenerator;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.math3.random.RandomGenerator;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing of extended revision call graphs from their JSON representation, both through a JSON
+ * tree and with an {@link ExtendedRevisionCallGraphReader}, and from their
+ * {@linkplain CallGraphBinaryFormat binary representation}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExtendedRevisionCallGraphBenchmark {
+
+    /**
+     * The number of methods of each synthetic type.
+     */
+    private static final int METHODS_PER_TYPE = 8;
+
+    @Param({"1000", "10000"})
+    public int methods;
+
+    private String json;
+    private byte[] binary;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        json = syntheticJSON(methods, new XoRoShiRo128PlusPlusRandomGenerator(0)).toString();
+        final var outputStream = new ByteArrayOutputStream();
+        CallGraphBinaryFormat.write(read(), outputStream);
+        binary = outputStream.toByteArray();
+    }
+
+    /**
+     * Generates the JSON representation of a pseudorandom extended revision call graph, with about
+     * two internal calls and one external call per method.
+     *
+     * @param methods the number of internal methods.
+     * @param random  the random object used for the generation.
+     * @return the JSON representation of an extended revision call graph.
+     */
+    public static JSONObject syntheticJSON(final int methods, final RandomGenerator random) {
+        final int externalMethods = Math.max(1, methods / 10);
+        final var internalTypes = new JSONObject();
+        final var externalTypes = new JSONObject();
+        for (int i = 0; i < methods + externalMethods; i++) {
+            final boolean internal = i < methods;
+            final int type = internal ? i / METHODS_PER_TYPE : (i - methods) / METHODS_PER_TYPE;
+            final String typeURI = internal ? "/internal.package" + type % 16 + "/C" + type : "/external.package/E" + type;
+            final var types = internal ? internalTypes : externalTypes;
+            if (!types.has(typeURI)) {
+                types.put(typeURI, new JSONObject()
+                        .put("sourceFile", internal ? "C" + type + ".java" : "")
+                        .put("methods", new JSONObject())
+                        .put("superClasses", new JSONArray().put("/java.lang/Object"))
+                        .put("superInterfaces", new JSONArray())
+                        .put("access", "public")
+                        .put("final", false));
+            }
+            final var metadata = internal ? Map.of("access", "public", "defined", true, "first", i, "last", i + 10) : Map.of();
+            types.getJSONObject(typeURI).getJSONObject("methods").put(Integer.toString(i), new JSONObject()
+                    .put("uri", typeURI + ".m" + i + "(%2Fjava.lang%2FString)%2Fjava.lang%2FVoidType")
+                    .put("metadata", metadata));
+        }
+
+        final var internalCalls = new JSONArray();
+        final var externalCalls = new JSONArray();
+        for (int i = 0; i < methods; i++) {
+            for (int j = 0; j < 2; j++) internalCalls.put(call(i, random.nextInt(methods), random));
+            externalCalls.put(call(i, methods + random.nextInt(externalMethods), random));
+        }
+
+        return new JSONObject()
+                .put("forge", "mvn")
+                .put("product", "org.example:synthetic")
+                .put("version", "1.0")
+                .put("generator", "OPAL")
+                .put("timestamp", 0)
+                .put("nodes", methods + externalMethods)
+                .put("cha", new JSONObject()
+                        .put("internalTypes", internalTypes)
+                        .put("externalTypes", externalTypes)
+                        .put("resolvedTypes", new JSONObject()))
+                .put("graph", new JSONObject()
+                        .put("internalCalls", internalCalls)
+                        .put("externalCalls", externalCalls)
+                        .put("resolvedCalls", new JSONArray()));
+    }
+
+    private static JSONArray call(final int source, final int target, final RandomGenerator random) {
+        final var callSite = new JSONObject()
+                .put("line", random.nextInt(1000))
+                .put("type", "invokevirtual")
+                .put("receiver", "/java.lang/Object");
+        return new JSONArray()
+                .put(Integer.toString(source))
+                .put(Integer.toString(target))
+                .put(new JSONObject().put(Integer.toString(random.nextInt(100)), callSite));
+    }
+
+    @Benchmark
+    public ExtendedRevisionCallGraph parse() {
+        return new ExtendedRevisionCallGraph(new JSONObject(json));
+    }
+
+    @Benchmark
+    public ExtendedRevisionCallGraph read() {
+        return ExtendedRevisionCallGraphReader.read(new StringReader(json));
+    }
+
+    @Benchmark
+    public ExtendedRevisionCallGraph readBinary() throws IOException {
+        return CallGraphBinaryFormat.readExtendedRevisionCallGraph(new ByteArrayInputStream(binary));
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.benchmarks;
+
+import eu.fasten.core.data.FastenJavaURI;
+import eu.fasten.core.data.FastenURI;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing of FASTEN URIs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FastenURIBenchmark {
+
+    private static final String[] URIS = {
+        "fasten://mvn!org.slf4j:slf4j-api$1.7.30/org.slf4j/LoggerFactory.getLogger(%2Fjava.lang%2FClass)Logger",
+        "fasten://mvn!com.google.guava:guava$28.1-jre/com.google.common.collect/ImmutableList.of(%2Fjava.lang%2FObject%25255B%25255D)ImmutableList",
+        "fasten://mvn!org.json:json$20180813/org.json/JSONObject.%3Cinit%3E(%2Fjava.lang%2FString)%2Fjava.lang%2FVoidType",
+        "fasten://mvn!junit:junit$4.12/org.junit/Assert.assertEquals(%2Fjava.lang%2FObject,%2Fjava.lang%2FObject)%2Fjava.lang%2FVoidType",
+    };
+
+    private static final String[] JAVA_URIS = {
+        "/org.slf4j/LoggerFactory.getLogger(%2Fjava.lang%2FClass)Logger",
+        "/com.google.common.collect/ImmutableList.of(%2Fjava.lang%2FObject%25255B%25255D)ImmutableList",
+        "/org.json/JSONObject.%3Cinit%3E(%2Fjava.lang%2FString)%2Fjava.lang%2FVoidType",
+        "/org.junit/Assert.assertEquals(%2Fjava.lang%2FObject,%2Fjava.lang%2FObject)%2Fjava.lang%2FVoidType",
+    };
+
+    private int next;
+
+    @Benchmark
+    public FastenURI createFastenURI() {
+        return FastenURI.create(URIS[next++ & 3]);
+    }
+
+    @Benchmark
+    public FastenJavaURI createFastenJavaURI() {
+        return FastenJavaURI.create(JAVA_URIS[next++ & 3]);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.benchmarks;
+
+import eu.fasten.core.data.graphdb.CallGraphData;
+import eu.fasten.core.data.graphdb.RocksDao;
+import eu.fasten.core.index.CallGraphGenerator;
+import it.unimi.dsi.util.XoRoShiRo128PlusPlusRandomGenerator;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.math3.distribution.BinomialDistribution;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rocksdb.RocksDBException;
+
+/**
+ * Storage and retrieval of call graphs in the graph database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RocksDaoBenchmark {
+
+    @Param({"20"})
+    public int graphs;
+
+    @Param({"1000"})
+    public int averageSize;
+
+    private File dbDir;
+    private RocksDao rocksDao;
+    private final List<List<Long>> nodes = new ArrayList<>();
+    private final List<List<List<Long>>> edges = new ArrayList<>();
+    private final List<Integer> numInternal = new ArrayList<>();
+    private long nextIndex;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, RocksDBException {
+        final var random = new XoRoShiRo128PlusPlusRandomGenerator(0);
+        final var sizeDistribution = new BinomialDistribution(random, 5 * averageSize, 0.2);
+        final var outdegreeDistribution = new BinomialDistribution(random, 4, 0.5);
+        long firstGID = 0;
+        for (int i = 0; i < graphs; i++) {
+            final var graph = CallGraphGenerator.preferentialAttachmentDAG(sizeDistribution.sample(), 1, outdegreeDistribution, random);
+            final int n = graph.numNodes();
+            final var graphNodes = new ArrayList<Long>(n);
+            for (int x = 0; x < n; x++) graphNodes.add(firstGID + x);
+            final var graphEdges = new ArrayList<List<Long>>();
+            for (int x = 0; x < n; x++) {
+                for (final var s = graph.successors(x); s.hasNext(); ) graphEdges.add(List.of(firstGID + x, firstGID + s.nextInt()));
+            }
+            nodes.add(graphNodes);
+            edges.add(graphEdges);
+            // The last tenth of the nodes are considered external
+            numInternal.add(n - n / 10);
+            firstGID += n;
+        }
+
+        dbDir = Files.createTempDirectory(RocksDaoBenchmark.class.getSimpleName()).toFile();
+        rocksDao = new RocksDao(dbDir.toString());
+        for (int i = 0; i < graphs; i++) save();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        rocksDao.close();
+        FileUtils.deleteDirectory(dbDir);
+    }
+
+    @Benchmark
+    public void save() throws IOException, RocksDBException {
+        final int i = (int) (nextIndex % graphs);
+        rocksDao.saveToRocksDb(nextIndex++, nodes.get(i), numInternal.get(i), edges.get(i));
+    }
+
+    @Benchmark
+    public CallGraphData getGraphData() throws RocksDBException {
+        return rocksDao.getGraphData(next++ % graphs);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.benchmarks;
+
+import eu.fasten.core.data.KnowledgeBase;
+import eu.fasten.core.data.KnowledgeBase.CallGraph;
+import eu.fasten.core.data.RevisionCallGraph;
+import eu.fasten.core.index.CallGraphGenerator;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.util.XoRoShiRo128PlusPlusRandomGenerator;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.math3.distribution.BinomialDistribution;
+import org.apache.commons.math3.distribution.EnumeratedIntegerDistribution;
+import org.apache.commons.math3.distribution.GeometricDistribution;
+import org.apache.commons.math3.random.RandomGenerator;
+import org.json.JSONObject;
+import org.rocksdb.RocksDBException;
+
+/**
+ * A knowledge base populated with pseudorandom call graphs from {@link CallGraphGenerator}, stored
+ * in a temporary directory that is deleted on {@link #close()}.
+ */
+public class SyntheticKnowledgeBase implements Closeable {
+
+    /**
+     * The directory of the knowledge base.
+     */
+    public final File kbDir;
+    /**
+     * The knowledge-base metadata file.
+     */
+    public final File kbMeta;
+
+    /**
+     * Generates and indexes pseudorandom call graphs.
+     *
+     * @param graphs      the number of call graphs.
+     * @param averageSize the average number of nodes of a call graph.
+     * @param seed        the seed of the pseudorandom generator.
+     */
+    public SyntheticKnowledgeBase(final int graphs, final int averageSize, final long seed)
+            throws IOException, RocksDBException, ClassNotFoundException {
+        final var tempDir = Files.createTempDirectory(SyntheticKnowledgeBase.class.getSimpleName()).toFile();
+        kbDir = new File(tempDir, "kb");
+        kbMeta = new File(tempDir, "kb.meta");
+
+        final var random = new XoRoShiRo128PlusPlusRandomGenerator(seed);
+        final var generator = generate(graphs, averageSize, random);
+        final var kb = KnowledgeBase.getInstance(kbDir.toString(), kbMeta.toString(), false);
+        for (int i = 0; i < graphs; i++) {
+            final var json = new JSONObject(CallGraphGenerator.graph2String(generator, i, random));
+            kb.add(new RevisionCallGraph(json), i);
+        }
+        kb.close();
+    }
+
+    /**
+     * Generates pseudorandom call graphs with the same distributions used by
+     * {@link CallGraphGenerator#main(String[])}, but with a given average size.
+     *
+     * @param graphs      the number of call graphs.
+     * @param averageSize the average number of nodes of a call graph.
+     * @param random      the random object used for the generation.
+     * @return a generator containing the call graphs.
+     */
+    public static CallGraphGenerator generate(final int graphs, final int averageSize, final RandomGenerator random) {
+        final var generator = new CallGraphGenerator();
+        generator.generate(graphs,
+                new BinomialDistribution(random, 5 * averageSize, 0.2), // Graph size distribution
+                new EnumeratedIntegerDistribution(random, new int[]{1}, new double[]{1}), // Initial graph size distribution
+                new BinomialDistribution(random, 4, 0.5), // Internal outdegree distribution
+                new GeometricDistribution(random, .5), // External outdegree distribution
+                new EnumeratedIntegerDistribution(random, new int[]{5}, new double[]{1}), // Dependency outdegree distribution
+                random);
+        return generator;
+    }
+
+    /**
+     * Opens the knowledge base.
+     *
+     * @param readOnly  whether to open the knowledge base in read-only mode.
+     * @param cacheSize the maximum size in bytes of the cache of call-graph data.
+     * @return the knowledge base.
+     */
+    public KnowledgeBase open(final boolean readOnly, final long cacheSize)
+            throws RocksDBException, ClassNotFoundException, IOException {
+        return KnowledgeBase.getInstance(kbDir.toString(), kbMeta.toString(), readOnly, cacheSize);
+    }
+
+    /**
+     * Returns the signatures of randomly chosen internal nodes of a knowledge base.
+     *
+     * @param kb     a knowledge base.
+     * @param n      the number of signatures.
+     * @param random the random object used to choose the nodes.
+     * @return the signatures of <code>n</code> randomly chosen internal nodes.
+     */
+    public static long[] sampleSignatures(final KnowledgeBase kb, final int n, final RandomGenerator random) {
+        final long[] callGraphIndex = kb.callGraphs.keySet().toLongArray();
+        final var signatures = new LongArrayList(n);
+        while (signatures.size() < n) {
+            final long index = callGraphIndex[random.nextInt(callGraphIndex.length)];
+            final CallGraph callGraph = kb.callGraphs.get(index);
+            if (callGraph.nInternal == 0) continue;
+            final long gid = callGraph.callGraphData().LID2GID[random.nextInt(callGraph.nInternal)];
+            signatures.add(KnowledgeBase.signature(gid, index));
+        }
+        return signatures.toLongArray();
+    }
+
+    @Override
+    public void close() throws IOException {
+        FileUtils.deleteDirectory(kbDir.getParentFile());
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.core.data;
+
+import com.martiansoftware.jsap.FlaggedOption;
+import com.martiansoftware.jsap.JSAP;
+import com.martiansoftware.jsap.JSAPException;
+import com.martiansoftware.jsap.JSAPResult;
+import com.martiansoftware.jsap.Parameter;
+import com.martiansoftware.jsap.SimpleJSAP;
+import com.martiansoftware.jsap.UnflaggedOption;
+import it.unimi.dsi.fastutil.io.FastByteArrayInputStream;
+import it.unimi.dsi.fastutil.io.FastByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Compares the size of JSON and {@linkplain CallGraphBinaryFormat binary} representations of
+ * revision call graphs, and the time needed to read and write them.
+ *
+ * <p>Each file given on the command line must contain the JSON representation of an
+ * {@link ExtendedRevisionCallGraph}. JSON is read with an {@link ExtendedRevisionCallGraphReader}
+ * and written with {@link ExtendedRevisionCallGraph#write(java.io.Writer)}; all reads and writes
+ * happen in memory, so the timings do not include disk I/O.
+ */
+public class BinaryFormatComparison {
+
+    public static void main(final String[] args) throws JSAPException, IOException {
+        final SimpleJSAP jsap = new SimpleJSAP(BinaryFormatComparison.class.getName(),
+                "Compares the JSON and binary representations of revision call graphs.",
+                new Parameter[]{
+                        new FlaggedOption("rounds", JSAP.INTEGER_PARSER, "5", JSAP.NOT_REQUIRED, 'r', "rounds", "The number of rounds (the first one is a warm-up round)."),
+                        new UnflaggedOption("files", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, JSAP.GREEDY, "JSON revision call graphs."),
+                });
+
+        final JSAPResult jsapResult = jsap.parse(args);
+        if (jsap.messagePrinted()) {
+            return;
+        }
+
+        final String[] files = jsapResult.getStringArray("files");
+        final int rounds = jsapResult.getInt("rounds");
+        final ExtendedRevisionCallGraph[] graphs = new ExtendedRevisionCallGraph[files.length];
+        long jsonSize = 0;
+        long binarySize = 0;
+        for (int i = 0; i < files.length; i++) {
+            try (var inputStream = new FileInputStream(files[i])) {
+                graphs[i] = ExtendedRevisionCallGraphReader.read(inputStream);
+            }
+            final long json = toJSON(graphs[i]).length;
+            final long binary = toBinary(graphs[i]).length;
+            System.out.printf("%s\tJSON: %d bytes\tBinary: %d bytes\tRatio: %.2fx\n", files[i], json, binary, (double) json / binary);
+            jsonSize += json;
+            binarySize += binary;
+        }
+        System.out.printf("Total\tJSON: %d bytes\tBinary: %d bytes\tRatio: %.2fx\n", jsonSize, binarySize, (double) jsonSize / binarySize);
+
+        final byte[][] json = new byte[graphs.length][];
+        final byte[][] binary = new byte[graphs.length][];
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < graphs.length; i++) {
+                json[i] = toJSON(graphs[i]);
+            }
+            final double jsonWrite = (System.nanoTime() - start) / 1E9;
+
+            start = System.nanoTime();
+            for (int i = 0; i < graphs.length; i++) {
+                binary[i] = toBinary(graphs[i]);
+            }
+            final double binaryWrite = (System.nanoTime() - start) / 1E9;
+
+            start = System.nanoTime();
+            for (final byte[] b : json) {
+                ExtendedRevisionCallGraphReader.read(new FastByteArrayInputStream(b));
+            }
+            final double jsonRead = (System.nanoTime() - start) / 1E9;
+
+            start = System.nanoTime();
+            for (final byte[] b : binary) {
+                CallGraphBinaryFormat.readExtendedRevisionCallGraph(new FastByteArrayInputStream(b));
+            }
+            final double binaryRead = (System.nanoTime() - start) / 1E9;
+
+            System.out.printf("Round: %d%s\tWrite JSON: %.3fs\tWrite binary: %.3fs (%.2fx)\tRead JSON: %.3fs\tRead binary: %.3fs (%.2fx)\n",
+                    round, round == 0 ? " (warm-up)" : "", jsonWrite, binaryWrite, jsonWrite / binaryWrite, jsonRead, binaryRead, jsonRead / binaryRead);
+        }
+    }
+
+    private static byte[] toJSON(final ExtendedRevisionCallGraph graph) throws IOException {
+        final var outputStream = new FastByteArrayOutputStream();
+        graph.write(outputStream);
+        final byte[] result = new byte[outputStream.length];
+        System.arraycopy(outputStream.array, 0, result, 0, result.length);
+        return result;
+    }
+
+    private static byte[] toBinary(final ExtendedRevisionCallGraph graph) throws IOException {
+        final var outputStream = new FastByteArrayOutputStream();
+        CallGraphBinaryFormat.write(graph, outputStream);
+        final byte[] result = new byte[outputStream.length];
+        System.arraycopy(outputStream.array, 0, result, 0, result.length);
+        return result;
+    }
+}
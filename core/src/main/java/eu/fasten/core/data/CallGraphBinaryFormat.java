@@ -0,0 +1,689 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.core.data;
+
+import com.google.common.collect.HashBiMap;
+import eu.fasten.core.data.graphdb.GidGraph;
+import eu.fasten.core.data.metadatadb.codegen.tables.records.EdgesRecord;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.io.FastBufferedInputStream;
+import it.unimi.dsi.fastutil.io.FastBufferedOutputStream;
+import it.unimi.dsi.fastutil.io.FastByteArrayOutputStream;
+import it.unimi.dsi.fastutil.objects.Object2IntLinkedOpenHashMap;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import org.jooq.JSONB;
+import org.json.JSONObject;
+
+/**
+ * A compact, versioned binary interchange format for {@link ExtendedRevisionCallGraph} and
+ * {@link GidGraph} instances, alternative to their JSON representation.
+ *
+ * <p>A file starts with the {@linkplain #MAGIC magic bytes} {@code FCG}, followed by a byte
+ * specifying the kind of graph ({@link #EXTENDED_REVISION_CALL_GRAPH} or {@link #GID_GRAPH}) and
+ * by a byte containing the {@linkplain #VERSION version} of the format; consumers can thus
+ * {@linkplain #isBinary(InputStream) tell} binary files from JSON ones by their first bytes.
+ *
+ * <p>The header is followed by two dictionaries: a string table, containing every string of the
+ * graph (URIs, names, metadata keys and string values) exactly once, and a table of map
+ * <em>shapes</em>, that is, of the sequences of keys of the metadata maps, so that keys such as
+ * {@code receiver}, {@code type} and {@code line} are not repeated for every call site. Strings
+ * and shapes are then referred to by index (string indices start from one, as zero denotes
+ * {@code null}).
+ *
+ * <p>All integers are written as variable-length (7 bits per byte) natural numbers; signed
+ * quantities are first mapped to natural numbers by zig-zag coding. Calls are sorted by source
+ * and target and written by columns: sources are gap-coded, targets are coded as differences with
+ * the previous target with the same source (or with the source itself), and call-site metadata
+ * follow as separate columns of program counters and values. The graph-level metadata of an
+ * {@link ExtendedRevisionCallGraph} follow its calls.
+ *
+ * <p>Metadata values may be {@code null}, booleans, integers, longs, floating-point numbers,
+ * strings, lists and maps with string keys; any other value causes an
+ * {@link IllegalArgumentException}.
+ */
+public final class CallGraphBinaryFormat {
+
+    /**
+     * The magic bytes opening a binary file.
+     */
+    public static final byte[] MAGIC = {'F', 'C', 'G'};
+    /**
+     * The kind byte of an {@link ExtendedRevisionCallGraph}.
+     */
+    public static final byte EXTENDED_REVISION_CALL_GRAPH = 'E';
+    /**
+     * The kind byte of a {@link GidGraph}.
+     */
+    public static final byte GID_GRAPH = 'G';
+    /**
+     * The current version of the format.
+     */
+    public static final byte VERSION = 1;
+    /**
+     * The customary extension of binary files.
+     */
+    public static final String EXTENSION = ".fcg";
+
+    private static final int NULL = 0;
+    private static final int FALSE = 1;
+    private static final int TRUE = 2;
+    private static final int INT = 3;
+    private static final int LONG = 4;
+    private static final int DOUBLE = 5;
+    private static final int STRING = 6;
+    private static final int LIST = 7;
+    private static final int MAP = 8;
+
+    private CallGraphBinaryFormat() {
+    }
+
+    /**
+     * Returns whether an input stream contains a binary graph. The stream must support
+     * {@linkplain InputStream#mark(int) marks}, and it is reset to its original position.
+     *
+     * @param inputStream an input stream supporting marks
+     * @return true if the stream starts with the {@linkplain #MAGIC magic bytes}
+     * @throws IOException if an I/O error occurs while reading
+     */
+    public static boolean isBinary(final InputStream inputStream) throws IOException {
+        if (!inputStream.markSupported()) {
+            throw new IllegalArgumentException("The input stream does not support marks");
+        }
+        inputStream.mark(MAGIC.length);
+        try {
+            for (final byte b : MAGIC) {
+                if (inputStream.read() != b) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            inputStream.reset();
+        }
+    }
+
+    /**
+     * Writes an {@link ExtendedRevisionCallGraph} in binary format.
+     *
+     * @param graph        the revision call graph
+     * @param outputStream the output stream; it is flushed, but not closed
+     * @throws IOException if an I/O error occurs while writing
+     */
+    public static void write(final ExtendedRevisionCallGraph graph, final OutputStream outputStream)
+            throws IOException {
+        write(EXTENDED_REVISION_CALL_GRAPH, encoder -> writeBody(graph, encoder), outputStream);
+    }
+
+    /**
+     * Writes a {@link GidGraph} in binary format.
+     *
+     * @param graph        the GID graph
+     * @param outputStream the output stream; it is flushed, but not closed
+     * @throws IOException if an I/O error occurs while writing
+     */
+    public static void write(final GidGraph graph, final OutputStream outputStream) throws IOException {
+        write(GID_GRAPH, encoder -> writeBody(graph, encoder), outputStream);
+    }
+
+    /**
+     * Reads an {@link ExtendedRevisionCallGraph} in binary format.
+     *
+     * @param inputStream the input stream
+     * @return the revision call graph
+     * @throws IOException if an I/O error occurs while reading, or the input is not a binary
+     *                     revision call graph
+     */
+    public static ExtendedRevisionCallGraph readExtendedRevisionCallGraph(final InputStream inputStream)
+            throws IOException {
+        final var decoder = readHeader(EXTENDED_REVISION_CALL_GRAPH, inputStream);
+        final var forge = decoder.readString();
+        final var product = decoder.readString();
+        final var version = decoder.readString();
+        final var generator = decoder.readString();
+        final long timestamp = decoder.readLong();
+        final int nodeCount = decoder.readNat();
+
+        final Map<ExtendedRevisionCallGraph.Scope, Map<FastenURI, ExtendedRevisionCallGraph.Type>> cha =
+                new HashMap<>();
+        for (final var scope : ExtendedRevisionCallGraph.Scope.values()) {
+            final int types = decoder.readNat();
+            final Map<FastenURI, ExtendedRevisionCallGraph.Type> map = new HashMap<>();
+            for (int i = 0; i < types; i++) {
+                final var uri = FastenURI.create(decoder.readString());
+                final var sourceFile = decoder.readString();
+                final var access = decoder.readString();
+                final boolean isFinal = decoder.in.readBoolean();
+                final var superClasses = new LinkedList<FastenURI>();
+                for (int j = decoder.readNat(); j-- != 0; ) {
+                    superClasses.add(FastenURI.create(decoder.readString()));
+                }
+                final var superInterfaces = new ArrayList<FastenURI>();
+                for (int j = decoder.readNat(); j-- != 0; ) {
+                    superInterfaces.add(FastenURI.create(decoder.readString()));
+                }
+                final HashBiMap<Integer, ExtendedRevisionCallGraph.Node> methods = HashBiMap.create();
+                int id = 0;
+                for (int j = decoder.readNat(); j-- != 0; ) {
+                    id += decoder.readInt();
+                    final var methodURI = FastenURI.create(decoder.readString());
+                    methods.put(id, new ExtendedRevisionCallGraph.Node(methodURI, decoder.readMap()));
+                }
+                map.put(uri, new ExtendedRevisionCallGraph.Type(sourceFile, methods, superClasses,
+                        superInterfaces, access, isFinal));
+            }
+            cha.put(scope, map);
+        }
+
+        final var internalCalls = readCalls(decoder);
+        final var externalCalls = readCalls(decoder);
+        final var resolvedCalls = readCalls(decoder);
+        final Map<String, Object> metadata = decoder.readMap();
+
+        return ExtendedRevisionCallGraph.extendedBuilder()
+                .forge(forge).product(product).version(version).cgGenerator(generator).metadata(metadata)
+                .timestamp(timestamp).nodeCount(nodeCount).classHierarchy(cha)
+                .graph(new ExtendedRevisionCallGraph.Graph(internalCalls, externalCalls, resolvedCalls))
+                .build();
+    }
+
+    /**
+     * Reads a {@link GidGraph} in binary format.
+     *
+     * @param inputStream the input stream
+     * @return the GID graph
+     * @throws IOException if an I/O error occurs while reading, or the input is not a binary GID
+     *                     graph
+     */
+    public static GidGraph readGidGraph(final InputStream inputStream) throws IOException {
+        final var decoder = readHeader(GID_GRAPH, inputStream);
+        final long index = decoder.readLong();
+        final var product = decoder.readString();
+        final var version = decoder.readString();
+        final int numInternalNodes = decoder.readNat();
+
+        final int numNodes = decoder.readNat();
+        final List<Long> nodes = new ArrayList<>(numNodes);
+        long gid = 0;
+        for (int i = 0; i < numNodes; i++) {
+            gid += decoder.readLong();
+            nodes.add(gid);
+        }
+
+        final int numEdges = decoder.readNat();
+        final long[] sources = new long[numEdges];
+        long source = 0;
+        for (int i = 0; i < numEdges; i++) {
+            source += decoder.readLong();
+            sources[i] = source;
+        }
+        final List<EdgesRecord> edges = new ArrayList<>(numEdges);
+        for (int i = 0; i < numEdges; i++) {
+            edges.add(new EdgesRecord(sources[i], sources[i] + decoder.readLong(), JSONB.valueOf("")));
+        }
+        return new GidGraph(index, product, version, nodes, numInternalNodes, edges);
+    }
+
+    private interface Body {
+        void write(Encoder encoder) throws IOException;
+    }
+
+    /**
+     * Writes a graph. The body is encoded in memory first, assigning indices to strings and
+     * shapes as they are met, and then written after the dictionaries.
+     */
+    private static void write(final byte kind, final Body body, final OutputStream outputStream)
+            throws IOException {
+        final var bodyBytes = new FastByteArrayOutputStream();
+        final var encoder = new Encoder(new DataOutputStream(bodyBytes));
+        body.write(encoder);
+        encoder.out.flush();
+
+        final var out = new DataOutputStream(new FastBufferedOutputStream(outputStream));
+        final var header = new Encoder(out);
+        out.write(MAGIC);
+        out.writeByte(kind);
+        out.writeByte(VERSION);
+        header.writeNat(encoder.strings.size());
+        for (final var string : encoder.strings.keySet()) {
+            final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            header.writeNat(bytes.length);
+            out.write(bytes);
+        }
+        header.writeNat(encoder.shapes.size());
+        for (final var shape : encoder.shapes.keySet()) {
+            header.writeNat(shape.size());
+            for (final var key : shape) {
+                header.writeNat(encoder.strings.getInt(key) + 1);
+            }
+        }
+        out.write(bodyBytes.array, 0, bodyBytes.length);
+        out.flush();
+    }
+
+    private static void writeBody(final ExtendedRevisionCallGraph graph, final Encoder encoder)
+            throws IOException {
+        encoder.writeString(graph.forge);
+        encoder.writeString(graph.product);
+        encoder.writeString(graph.version);
+        encoder.writeString(graph.getCgGenerator());
+        encoder.writeLong(graph.timestamp);
+        encoder.writeNat(graph.getNodeCount());
+
+        for (final var scope : ExtendedRevisionCallGraph.Scope.values()) {
+            final var types = graph.getClassHierarchy().get(scope);
+            encoder.writeNat(types.size());
+            for (final var entry : types.entrySet()) {
+                final var type = entry.getValue();
+                encoder.writeString(entry.getKey().toString());
+                encoder.writeString(type.getSourceFileName());
+                encoder.writeString(type.getAccess());
+                encoder.out.writeBoolean(type.isFinal());
+                encoder.writeNat(type.getSuperClasses().size());
+                for (final var superClass : type.getSuperClasses()) {
+                    encoder.writeString(superClass.toString());
+                }
+                encoder.writeNat(type.getSuperInterfaces().size());
+                for (final var superInterface : type.getSuperInterfaces()) {
+                    encoder.writeString(superInterface.toString());
+                }
+                final var ids = type.getMethods().keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+                encoder.writeNat(ids.length);
+                int previous = 0;
+                for (final int id : ids) {
+                    encoder.writeInt(id - previous);
+                    previous = id;
+                    final var node = type.getMethods().get(id);
+                    encoder.writeString(node.getUri().toString());
+                    encoder.writeMap(node.getMetadata());
+                }
+            }
+        }
+
+        writeCalls(graph.getGraph().getInternalCalls(), encoder);
+        writeCalls(graph.getGraph().getExternalCalls(), encoder);
+        writeCalls(graph.getGraph().getResolvedCalls(), encoder);
+        encoder.writeMap(graph.getMetadata());
+    }
+
+    private static void writeBody(final GidGraph graph, final Encoder encoder) throws IOException {
+        encoder.writeLong(graph.getIndex());
+        encoder.writeString(graph.getProduct());
+        encoder.writeString(graph.getVersion());
+        encoder.writeNat(graph.getNumInternalNodes());
+
+        encoder.writeNat(graph.getNodes().size());
+        long previous = 0;
+        for (final long gid : graph.getNodes()) {
+            encoder.writeLong(gid - previous);
+            previous = gid;
+        }
+
+        final var edges = graph.getEdges();
+        encoder.writeNat(edges.size());
+        previous = 0;
+        for (final var edge : edges) {
+            encoder.writeLong(edge.get(0) - previous);
+            previous = edge.get(0);
+        }
+        for (final var edge : edges) {
+            encoder.writeLong(edge.get(1) - edge.get(0));
+        }
+    }
+
+    private static void writeCalls(final Map<List<Integer>, Map<Object, Object>> calls,
+                                   final Encoder encoder) throws IOException {
+        final int n = calls.size();
+        final int[] sources = new int[n];
+        final int[] targets = new int[n];
+        final List<Map<Object, Object>> callSites = new ArrayList<>(n);
+        int i = 0;
+        for (final var entry : calls.entrySet()) {
+            sources[i] = entry.getKey().get(0);
+            targets[i++] = entry.getKey().get(1);
+            callSites.add(entry.getValue());
+        }
+        final int[] perm = new int[n];
+        for (i = 0; i < n; i++) {
+            perm[i] = i;
+        }
+        IntArrays.quickSort(perm, (x, y) -> sources[x] != sources[y]
+                ? Integer.compare(sources[x], sources[y]) : Integer.compare(targets[x], targets[y]));
+
+        encoder.writeNat(n);
+        int previousSource = 0;
+        for (final int c : perm) {
+            encoder.writeInt(sources[c] - previousSource);
+            previousSource = sources[c];
+        }
+        previousSource = -1;
+        int previousTarget = 0;
+        for (final int c : perm) {
+            encoder.writeInt(targets[c] - (sources[c] == previousSource ? previousTarget : sources[c]));
+            previousSource = sources[c];
+            previousTarget = targets[c];
+        }
+        for (final int c : perm) {
+            encoder.writeNat(callSites.get(c).size());
+        }
+        for (final int c : perm) {
+            for (final var pc : callSites.get(c).keySet()) {
+                encoder.writeValue(pc);
+            }
+        }
+        for (final int c : perm) {
+            for (final var metadata : callSites.get(c).values()) {
+                encoder.writeValue(metadata);
+            }
+        }
+    }
+
+    private static Map<List<Integer>, Map<Object, Object>> readCalls(final Decoder decoder) throws IOException {
+        final int n = decoder.readNat();
+        final int[] sources = new int[n];
+        final int[] targets = new int[n];
+        int source = 0;
+        for (int i = 0; i < n; i++) {
+            source += decoder.readInt();
+            sources[i] = source;
+        }
+        for (int i = 0; i < n; i++) {
+            final int base = i > 0 && sources[i] == sources[i - 1] ? targets[i - 1] : sources[i];
+            targets[i] = base + decoder.readInt();
+        }
+        final int[] sizes = new int[n];
+        for (int i = 0; i < n; i++) {
+            sizes[i] = decoder.readNat();
+        }
+        final Object[][] pcs = new Object[n][];
+        for (int i = 0; i < n; i++) {
+            pcs[i] = new Object[sizes[i]];
+            for (int j = 0; j < sizes[i]; j++) {
+                pcs[i][j] = decoder.readValue();
+            }
+        }
+        final var calls = new PackedCallMap(n);
+        for (int i = 0; i < n; i++) {
+            final Map<Object, Object> callSite = new CallSiteMap();
+            for (int j = 0; j < sizes[i]; j++) {
+                callSite.put(pcs[i][j], decoder.readValue());
+            }
+            calls.put(sources[i], targets[i], callSite);
+        }
+        return calls;
+    }
+
+    private static Decoder readHeader(final byte kind, final InputStream inputStream) throws IOException {
+        final var in = new DataInputStream(new FastBufferedInputStream(inputStream));
+        for (final byte b : MAGIC) {
+            if (in.readByte() != b) {
+                throw new IOException("Not a binary FASTEN graph");
+            }
+        }
+        final byte actualKind = in.readByte();
+        if (actualKind != kind) {
+            throw new IOException("Expected a graph of kind '" + (char) kind + "', found '" + (char) actualKind + "'");
+        }
+        final byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported format version " + version + " (expected " + VERSION + ")");
+        }
+
+        final var decoder = new Decoder(in);
+        decoder.strings = new String[decoder.readNat()];
+        for (int i = 0; i < decoder.strings.length; i++) {
+            final byte[] bytes = new byte[decoder.readNat()];
+            in.readFully(bytes);
+            decoder.strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        decoder.shapes = new String[decoder.readNat()][];
+        for (int i = 0; i < decoder.shapes.length; i++) {
+            decoder.shapes[i] = new String[decoder.readNat()];
+            for (int j = 0; j < decoder.shapes[i].length; j++) {
+                decoder.shapes[i][j] = decoder.readString();
+            }
+        }
+        return decoder;
+    }
+
+    /**
+     * Writes natural numbers, zig-zag coded integers, dictionary-coded strings and metadata
+     * values. Strings and shapes are added to the dictionaries the first time they are met.
+     */
+    private static final class Encoder {
+        private final DataOutputStream out;
+        private final Object2IntLinkedOpenHashMap<String> strings = new Object2IntLinkedOpenHashMap<>();
+        private final Object2IntLinkedOpenHashMap<List<String>> shapes = new Object2IntLinkedOpenHashMap<>();
+        private List<String> lastShape;
+        private int lastShapeIndex;
+
+        private Encoder(final DataOutputStream out) {
+            this.out = out;
+            strings.defaultReturnValue(-1);
+            shapes.defaultReturnValue(-1);
+        }
+
+        private void writeNat(long x) throws IOException {
+            while ((x & ~0x7FL) != 0) {
+                out.writeByte((int) (x & 0x7F) | 0x80);
+                x >>>= 7;
+            }
+            out.writeByte((int) x);
+        }
+
+        private void writeLong(final long x) throws IOException {
+            writeNat((x << 1) ^ (x >> 63));
+        }
+
+        private void writeInt(final int x) throws IOException {
+            writeNat(((x << 1) ^ (x >> 31)) & 0xFFFFFFFFL);
+        }
+
+        private void writeString(final String s) throws IOException {
+            writeNat(s == null ? 0 : index(strings, s) + 1);
+        }
+
+        private <K> int index(final Object2IntLinkedOpenHashMap<K> dictionary, final K key) {
+            final int index = dictionary.getInt(key);
+            if (index != -1) {
+                return index;
+            }
+            dictionary.put(key, dictionary.size());
+            return dictionary.size() - 1;
+        }
+
+        private void writeMap(final Map<?, ?> map) throws IOException {
+            writeNat(shape(map));
+            for (final var value : map.values()) {
+                writeValue(value);
+            }
+        }
+
+        /**
+         * Returns the index of the shape of a map. Consecutive maps often have the same shape,
+         * so the last shape is checked first.
+         */
+        private int shape(final Map<?, ?> map) {
+            if (lastShape != null && lastShape.size() == map.size()) {
+                int i = 0;
+                for (final var key : map.keySet()) {
+                    if (!lastShape.get(i).equals(key)) {
+                        break;
+                    }
+                    i++;
+                }
+                if (i == map.size()) {
+                    return lastShapeIndex;
+                }
+            }
+            final List<String> shape = new ArrayList<>(map.size());
+            for (final var key : map.keySet()) {
+                if (!(key instanceof String)) {
+                    throw new IllegalArgumentException("Metadata keys must be strings: " + key);
+                }
+                shape.add((String) key);
+            }
+            for (final var key : shape) {
+                index(strings, key);
+            }
+            lastShape = shape;
+            lastShapeIndex = index(shapes, shape);
+            return lastShapeIndex;
+        }
+
+        private void writeValue(final Object value) throws IOException {
+            if (value == null || value == JSONObject.NULL) {
+                out.writeByte(NULL);
+            } else if (value instanceof Boolean) {
+                out.writeByte((Boolean) value ? TRUE : FALSE);
+            } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                out.writeByte(INT);
+                writeInt(((Number) value).intValue());
+            } else if (value instanceof Long) {
+                out.writeByte(LONG);
+                writeLong((Long) value);
+            } else if (value instanceof Double || value instanceof Float) {
+                out.writeByte(DOUBLE);
+                out.writeDouble(((Number) value).doubleValue());
+            } else if (value instanceof String) {
+                out.writeByte(STRING);
+                writeString((String) value);
+            } else if (value instanceof List) {
+                out.writeByte(LIST);
+                writeNat(((List<?>) value).size());
+                for (final var element : (List<?>) value) {
+                    writeValue(element);
+                }
+            } else if (value instanceof Map) {
+                out.writeByte(MAP);
+                writeMap((Map<?, ?>) value);
+            } else {
+                throw new IllegalArgumentException("Unsupported metadata value " + value + " (" + value.getClass() + ")");
+            }
+        }
+    }
+
+    /**
+     * Reads what an {@link Encoder} writes.
+     */
+    private static final class Decoder {
+        private final DataInputStream in;
+        private String[] strings;
+        private String[][] shapes;
+
+        private Decoder(final DataInputStream in) {
+            this.in = in;
+        }
+
+        private long readNatLong() throws IOException {
+            long x = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                final int b = in.read();
+                if (b == -1) {
+                    throw new EOFException();
+                }
+                x |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return x;
+                }
+            }
+            throw new IOException("Malformed variable-length integer");
+        }
+
+        private int readNat() throws IOException {
+            final long x = readNatLong();
+            if (x > Integer.MAX_VALUE) {
+                throw new IOException("Natural number out of range: " + x);
+            }
+            return (int) x;
+        }
+
+        private long readLong() throws IOException {
+            final long x = readNatLong();
+            return (x >>> 1) ^ -(x & 1);
+        }
+
+        private int readInt() throws IOException {
+            final int x = (int) readNatLong();
+            return (x >>> 1) ^ -(x & 1);
+        }
+
+        private String readString() throws IOException {
+            final int index = readNat();
+            if (index > strings.length) {
+                throw new IOException("String index out of range: " + index);
+            }
+            return index == 0 ? null : strings[index - 1];
+        }
+
+        private Map<String, Object> readMap() throws IOException {
+            final int index = readNat();
+            if (index >= shapes.length) {
+                throw new IOException("Shape index out of range: " + index);
+            }
+            final var shape = shapes[index];
+            final Map<String, Object> map = new HashMap<>();
+            for (final var key : shape) {
+                map.put(key, readValue());
+            }
+            return map;
+        }
+
+        private Object readValue() throws IOException {
+            final int tag = in.readByte();
+            switch (tag) {
+                case NULL:
+                    return null;
+                case FALSE:
+                    return Boolean.FALSE;
+                case TRUE:
+                    return Boolean.TRUE;
+                case INT:
+                    return readInt();
+                case LONG:
+                    return readLong();
+                case DOUBLE:
+                    return in.readDouble();
+                case STRING:
+                    return readString();
+                case LIST:
+                    final int size = readNat();
+                    final List<Object> list = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                        list.add(readValue());
+                    }
+                    return list;
+                case MAP:
+                    return readMap();
+                default:
+                    throw new IOException("Unknown value tag " + tag);
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package eu.fasten.core.data;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+
+import eu.fasten.core.data.KnowledgeBase.CallGraphData;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+
+/**
+ * A thread-safe cache of {@link CallGraphData} instances, indexed by revision index, bounded by the
+ * overall {@linkplain CallGraphData#size size} of the cached entries.
+ *
+ * <p>
+ * When the bound is exceeded, entries are evicted in least-recently-used order. Concurrent misses on
+ * the same revision index result in a single load, and the cache keeps counters for hits, misses,
+ * loads, load time and evictions, so that its size can be tuned for each deployment.
+ */
+public class CallGraphDataCache {
+	/** The maximum overall size in bytes of the cached entries. */
+	private final long maxSize;
+	/** The cached entries, in access order (the least recently used is the first one). */
+	private final Long2ObjectLinkedOpenHashMap<CallGraphData> cache = new Long2ObjectLinkedOpenHashMap<>();
+	/** Loads in progress, indexed by revision index. */
+	private final ConcurrentHashMap<Long, CompletableFuture<CallGraphData>> loading = new ConcurrentHashMap<>();
+	/** The current overall size in bytes of the cached entries (guarded by <code>this</code>). */
+	private long size;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder loads = new LongAdder();
+	private final LongAdder loadTime = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Creates a cache.
+	 *
+	 * @param maxSize the maximum overall size in bytes of the cached entries.
+	 */
+	public CallGraphDataCache(final long maxSize) {
+		if (maxSize < 0) throw new IllegalArgumentException("Negative cache size: " + maxSize);
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Returns the call-graph data associated with a revision index, loading them if necessary.
+	 *
+	 * <p>
+	 * The loader is invoked outside of any lock; if several threads miss on the same revision index at
+	 * the same time, only one of them invokes the loader, and the others wait for its result.
+	 *
+	 * @param index a revision index.
+	 * @param loader a function loading the call-graph data of a given revision index.
+	 * @return the call-graph data associated with <code>index</code>.
+	 */
+	public CallGraphData get(final long index, final LongFunction<CallGraphData> loader) {
+		CallGraphData callGraphData = getIfPresent(index);
+		if (callGraphData != null) {
+			hits.increment();
+			return callGraphData;
+		}
+
+		misses.increment();
+		final CompletableFuture<CallGraphData> future = new CompletableFuture<>();
+		final CompletableFuture<CallGraphData> inProgress = loading.putIfAbsent(Long.valueOf(index), future);
+		if (inProgress != null) {
+			try {
+				return inProgress.join();
+			} catch (final CompletionException e) {
+				if (e.getCause() instanceof RuntimeException) throw (RuntimeException)e.getCause();
+				throw e;
+			}
+		}
+
+		try {
+			// Another thread might have completed a load between our lookup and our registration
+			callGraphData = getIfPresent(index);
+			if (callGraphData == null) {
+				final long start = System.nanoTime();
+				callGraphData = loader.apply(index);
+				loadTime.add(System.nanoTime() - start);
+				loads.increment();
+				put(index, callGraphData);
+			}
+			future.complete(callGraphData);
+			return callGraphData;
+		} catch (final RuntimeException e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			loading.remove(Long.valueOf(index));
+		}
+	}
+
+	private synchronized CallGraphData getIfPresent(final long index) {
+		return cache.getAndMoveToLast(index);
+	}
+
+	private synchronized void put(final long index, final CallGraphData callGraphData) {
+		// Entries larger than the cache are never cached
+		if (callGraphData.size > maxSize) return;
+		final CallGraphData previous = cache.putAndMoveToLast(index, callGraphData);
+		if (previous != null) size -= previous.size;
+		size += callGraphData.size;
+		while (size > maxSize) {
+			size -= cache.removeFirst().size;
+			evictions.increment();
+		}
+	}
+
+	/** Empties the cache; counters are not reset. */
+	public synchronized void clear() {
+		cache.clear();
+		size = 0;
+	}
+
+	/**
+	 * Returns the maximum overall size in bytes of the cached entries.
+	 *
+	 * @return the maximum overall size in bytes of the cached entries.
+	 */
+	public long maxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Returns the current overall size in bytes of the cached entries.
+	 *
+	 * @return the current overall size in bytes of the cached entries.
+	 */
+	public synchronized long size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of cached entries.
+	 *
+	 * @return the number of cached entries.
+	 */
+	public synchronized int count() {
+		return cache.size();
+	}
+
+	/**
+	 * Returns the number of lookups that found the requested entry in the cache.
+	 *
+	 * @return the number of hits.
+	 */
+	public long hits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Returns the number of lookups that did not find the requested entry in the cache.
+	 *
+	 * @return the number of misses.
+	 */
+	public long misses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Returns the number of entries loaded.
+	 *
+	 * @return the number of loads.
+	 */
+	public long loads() {
+		return loads.sum();
+	}
+
+	/**
+	 * Returns the overall time spent loading entries.
+	 *
+	 * @return the overall load time in nanoseconds.
+	 */
+	public long loadTime() {
+		return loadTime.sum();
+	}
+
+	/**
+	 * Returns the number of entries evicted to keep the cache within its maximum size.
+	 *
+	 * @return the number of evictions.
+	 */
+	public long evictions() {
+		return evictions.sum();
+	}
+
+	@Override
+	public String toString() {
+		final long hits = hits(), misses = misses(), loads = loads();
+		return "[entries: " + count() + " size: " + size() + "/" + maxSize + " hits: " + hits + " misses: " + misses
+				+ " hit ratio: " + (hits + misses == 0 ? 0 : (double)hits / (hits + misses)) + " loads: " + loads
+				+ " average load time: " + (loads == 0 ? 0 : loadTime() / loads / 1E6) + "ms evictions: " + evictions() + "]";
+	}
+}
@@ -0,0 +1,302 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.core.data;
+
+import it.unimi.dsi.fastutil.booleans.BooleanArrays;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.objects.ObjectArrays;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The call-site metadata of a call, that is, a map from program counters to maps with keys
+ * {@code line}, {@code type} and {@code receiver}, stored in struct-of-arrays form.
+ *
+ * <p>Instead of a {@link HashMap} per call site, program counters, line numbers, invocation types
+ * and receivers are kept in parallel arrays; types and receivers are interned, as the same few
+ * values occur in most calls of a graph. Program counters can be {@link Integer} keys (as in call
+ * graphs read from JSON) or {@link String} keys (as in call graphs generated by OPAL): the type of
+ * each key is preserved, so lookups behave exactly as with a {@link HashMap}. Entries that do not
+ * have this form are kept in a fallback {@link HashMap}.
+ *
+ * <p>The call-site maps returned by {@link #get(Object)} and by iteration are new
+ * {@link HashMap} instances: modifying them does not modify this map, and entries returned by
+ * iteration do not support {@link Map.Entry#setValue(Object)}.
+ */
+public class CallSiteMap extends AbstractMap<Object, Object> {
+
+    private static final String LINE = "line";
+    private static final String TYPE = "type";
+    private static final String RECEIVER = "receiver";
+    private static final String[] EMPTY_STRING_ARRAY = new String[0];
+
+    /**
+     * The number of call sites stored in the arrays.
+     */
+    private int size;
+
+    private int[] pcs = IntArrays.EMPTY_ARRAY;
+    private boolean[] stringPcs = BooleanArrays.EMPTY_ARRAY;
+    private int[] lines = IntArrays.EMPTY_ARRAY;
+    private String[] types = EMPTY_STRING_ARRAY;
+    private String[] receivers = EMPTY_STRING_ARRAY;
+
+    /**
+     * Entries that are not call sites of the expected form, or {@code null}.
+     */
+    private HashMap<Object, Object> other;
+
+    /**
+     * Creates an empty call-site map.
+     */
+    public CallSiteMap() {
+    }
+
+    /**
+     * Creates a call-site map containing the entries of a given map.
+     *
+     * @param map a map from program counters to call sites
+     */
+    public CallSiteMap(final Map<?, ?> map) {
+        putAll(map);
+    }
+
+    /**
+     * Returns the program counter corresponding to a key, or -1 if the key is not a program
+     * counter (i.e., a nonnegative {@link Integer}, or its canonical {@link String}
+     * representation).
+     */
+    private static int pc(final Object key) {
+        if (key instanceof Integer) {
+            final int pc = (Integer) key;
+            return pc >= 0 ? pc : -1;
+        }
+        if (key instanceof String) {
+            final var s = (String) key;
+            if (s.isEmpty() || s.length() > 10) {
+                return -1;
+            }
+            int pc = 0;
+            for (int i = 0; i < s.length(); i++) {
+                final char c = s.charAt(i);
+                if (c < '0' || c > '9' || (c == '0' && i == 0 && s.length() > 1)) {
+                    return -1;
+                }
+                final long next = pc * 10L + (c - '0');
+                if (next > Integer.MAX_VALUE) {
+                    return -1;
+                }
+                pc = (int) next;
+            }
+            return pc;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns whether a value is a call site that can be stored in the arrays.
+     */
+    private static boolean isCallSite(final Object value) {
+        if (!(value instanceof Map)) {
+            return false;
+        }
+        final var map = (Map<?, ?>) value;
+        return map.size() == 3 && map.get(LINE) instanceof Integer
+                && map.get(TYPE) instanceof String && map.get(RECEIVER) instanceof String;
+    }
+
+    private int indexOf(final Object key) {
+        final int pc = pc(key);
+        if (pc == -1) {
+            return -1;
+        }
+        final boolean stringPc = key instanceof String;
+        for (int i = 0; i < size; i++) {
+            if (pcs[i] == pc && stringPcs[i] == stringPc) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private Object key(final int i) {
+        return stringPcs[i] ? Integer.toString(pcs[i]) : Integer.valueOf(pcs[i]);
+    }
+
+    private HashMap<String, Object> callSite(final int i) {
+        final var callSite = new HashMap<String, Object>(4);
+        callSite.put(LINE, lines[i]);
+        callSite.put(TYPE, types[i]);
+        callSite.put(RECEIVER, receivers[i]);
+        return callSite;
+    }
+
+    private void set(final int i, final Object key, final Map<?, ?> callSite) {
+        pcs[i] = pc(key);
+        stringPcs[i] = key instanceof String;
+        lines[i] = (Integer) callSite.get(LINE);
+        types[i] = ((String) callSite.get(TYPE)).intern();
+        receivers[i] = ((String) callSite.get(RECEIVER)).intern();
+    }
+
+    private void removeAt(final int i) {
+        final int moved = size - i - 1;
+        System.arraycopy(pcs, i + 1, pcs, i, moved);
+        System.arraycopy(stringPcs, i + 1, stringPcs, i, moved);
+        System.arraycopy(lines, i + 1, lines, i, moved);
+        System.arraycopy(types, i + 1, types, i, moved);
+        System.arraycopy(receivers, i + 1, receivers, i, moved);
+        size--;
+        types[size] = null;
+        receivers[size] = null;
+    }
+
+    @Override
+    public int size() {
+        return size + (other == null ? 0 : other.size());
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return indexOf(key) != -1 || (other != null && other.containsKey(key));
+    }
+
+    @Override
+    public Object get(final Object key) {
+        final int i = indexOf(key);
+        if (i != -1) {
+            return callSite(i);
+        }
+        return other == null ? null : other.get(key);
+    }
+
+    @Override
+    public Object put(final Object key, final Object value) {
+        final int i = indexOf(key);
+        final Object old = i != -1 ? callSite(i) : null;
+        if (pc(key) != -1 && isCallSite(value)) {
+            if (i != -1) {
+                set(i, key, (Map<?, ?>) value);
+                return old;
+            }
+            final Object previous = other == null ? null : other.remove(key);
+            pcs = IntArrays.grow(pcs, size + 1);
+            stringPcs = BooleanArrays.grow(stringPcs, size + 1);
+            lines = IntArrays.grow(lines, size + 1);
+            types = ObjectArrays.grow(types, size + 1);
+            receivers = ObjectArrays.grow(receivers, size + 1);
+            set(size++, key, (Map<?, ?>) value);
+            return previous;
+        }
+        if (i != -1) {
+            removeAt(i);
+        }
+        if (other == null) {
+            other = new HashMap<>();
+        }
+        final Object previous = other.put(key, value);
+        return i != -1 ? old : previous;
+    }
+
+    @Override
+    public Object remove(final Object key) {
+        final int i = indexOf(key);
+        if (i != -1) {
+            final Object old = callSite(i);
+            removeAt(i);
+            return old;
+        }
+        return other == null ? null : other.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        pcs = IntArrays.EMPTY_ARRAY;
+        stringPcs = BooleanArrays.EMPTY_ARRAY;
+        lines = IntArrays.EMPTY_ARRAY;
+        types = EMPTY_STRING_ARRAY;
+        receivers = EMPTY_STRING_ARRAY;
+        other = null;
+    }
+
+    @Override
+    public Set<Entry<Object, Object>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public int size() {
+                return CallSiteMap.this.size();
+            }
+
+            @Override
+            public Iterator<Entry<Object, Object>> iterator() {
+                return new Iterator<>() {
+                    /** The index of the next call site in the arrays. */
+                    private int next;
+                    /** The index in the arrays of the last returned call site, or -1. */
+                    private int last = -1;
+                    private Iterator<Entry<Object, Object>> otherIterator;
+
+                    private Iterator<Entry<Object, Object>> otherIterator() {
+                        if (otherIterator == null && other != null) {
+                            otherIterator = other.entrySet().iterator();
+                        }
+                        return otherIterator;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < size || (otherIterator() != null && otherIterator.hasNext());
+                    }
+
+                    @Override
+                    public Entry<Object, Object> next() {
+                        if (next < size) {
+                            last = next++;
+                            return new SimpleImmutableEntry<>(key(last), callSite(last));
+                        }
+                        if (otherIterator() == null) {
+                            throw new NoSuchElementException();
+                        }
+                        last = -1;
+                        return otherIterator.next();
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (last != -1) {
+                            removeAt(last);
+                            next = last;
+                            last = -1;
+                        } else if (otherIterator != null) {
+                            otherIterator.remove();
+                        } else {
+                            throw new IllegalStateException();
+                        }
+                    }
+                };
+            }
+        };
+    }
+}
@@ -20,6 +20,12 @@ package eu.fasten.core.data;
 
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -31,6 +37,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -93,6 +100,11 @@ public class ExtendedRevisionCallGraph {
      * Keeps the name of call graph generator that generated this revision call graph.
      */
     private final String cgGenerator;
+    /**
+     * Additional information about how this revision call graph was generated (e.g., the
+     * algorithm used by the generator); possibly empty, never {@code null}.
+     */
+    private final Map<String, Object> metadata;
 
     /**
      * Creates {@link ExtendedRevisionCallGraph} with the given data.
@@ -119,6 +131,7 @@ public class ExtendedRevisionCallGraph {
         this.uri = FastenURI.create("fasten://" + forge + "!" + product + "$" + version);
         this.forgelessUri = FastenURI.create("fasten://" + product + "$" + version);
         this.cgGenerator = cgGenerator;
+        this.metadata = Map.of();
         this.classHierarchy = classHierarchy;
         this.nodeCount = nodeCount;
         this.graph = graph;
@@ -137,6 +150,7 @@ public class ExtendedRevisionCallGraph {
         this.uri = FastenURI.create("fasten://" + forge + "!" + product + "$" + version);
         this.forgelessUri = FastenURI.create("fasten://" + product + "$" + version);
         this.cgGenerator = builder.cgGenerator;
+        this.metadata = builder.metadata;
         this.classHierarchy = builder.classHierarchy;
         this.graph = builder.graph;
         this.nodeCount = builder.nodeCount;
@@ -155,6 +169,8 @@ public class ExtendedRevisionCallGraph {
         this.uri = FastenURI.create("fasten://" + forge + "!" + product + "$" + version);
         this.forgelessUri = FastenURI.create("fasten://" + product + "$" + version);
         this.cgGenerator = json.getString("generator");
+        final var metadata = json.optJSONObject("metadata");
+        this.metadata = metadata == null ? Map.of() : metadata.toMap();
         this.graph = new Graph(json.getJSONObject("graph"));
         this.classHierarchy = getCHAFromJSON(json.getJSONObject("cha"));
         this.nodeCount = json.getInt("nodes");
@@ -164,6 +180,10 @@ public class ExtendedRevisionCallGraph {
         return cgGenerator;
     }
 
+    public Map<String, Object> getMetadata() {
+        return metadata;
+    }
+
     public Map<Scope, Map<FastenURI, Type>> getClassHierarchy() {
         return classHierarchy;
     }
@@ -294,6 +314,9 @@ public class ExtendedRevisionCallGraph {
         result.put("product", product);
         result.put("version", version);
         result.put("generator", cgGenerator);
+        if (!metadata.isEmpty()) {
+            result.put("metadata", metadata);
+        }
         if (timestamp >= 0) {
             result.put("timestamp", timestamp);
         }
@@ -304,6 +327,66 @@ public class ExtendedRevisionCallGraph {
         return result;
     }
 
+    /**
+     * Writes the JSON representation of this {@link ExtendedRevisionCallGraph} to a writer.
+     *
+     * <p>The result is equivalent to {@code toJSON().toString()}, but the JSON tree of the whole
+     * call graph is never built: types and calls are serialized one at a time, so the memory
+     * needed does not depend on the size of the call graph. The result can be read back with an
+     * {@link ExtendedRevisionCallGraphReader}.
+     *
+     * @param writer the writer; it is flushed, but not closed
+     * @throws IOException if an I/O error occurs while writing
+     */
+    public void write(final Writer writer) throws IOException {
+        try {
+            final var json = new JSONWriter(writer);
+            json.object();
+            json.key("forge").value(forge);
+            json.key("product").value(product);
+            json.key("version").value(version);
+            json.key("generator").value(cgGenerator);
+            if (!metadata.isEmpty()) {
+                json.key("metadata").value(new JSONObject(metadata));
+            }
+            if (timestamp >= 0) {
+                json.key("timestamp").value(timestamp);
+            }
+            json.key("cha").object();
+            for (final var scope : Scope.values()) {
+                json.key(scope.toString()).object();
+                for (final var entry : classHierarchy.get(scope).entrySet()) {
+                    json.key(entry.getKey().toString()).value(entry.getValue().toJSON());
+                }
+                json.endObject();
+            }
+            json.endObject();
+            json.key("graph");
+            graph.write(json);
+            json.key("nodes").value(nodeCount);
+            json.endObject();
+        } catch (final JSONException e) {
+            // JSONWriter wraps I/O errors
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+        writer.flush();
+    }
+
+    /**
+     * Writes the UTF-8 encoded JSON representation of this {@link ExtendedRevisionCallGraph} to
+     * an output stream.
+     *
+     * @param outputStream the output stream; it is flushed, but not closed
+     * @throws IOException if an I/O error occurs while writing
+     * @see #write(Writer)
+     */
+    public void write(final OutputStream outputStream) throws IOException {
+        write(new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)));
+    }
+
     /**
      * Builder for {@link ExtendedRevisionCallGraph}.
      */
@@ -313,6 +396,7 @@ public class ExtendedRevisionCallGraph {
         private String product;
         private String version;
         private String cgGenerator;
+        private Map<String, Object> metadata = Map.of();
         private long timestamp;
         private Map<Scope, Map<FastenURI, Type>> classHierarchy;
         private Graph graph;
@@ -346,6 +430,11 @@ public class ExtendedRevisionCallGraph {
             return this;
         }
 
+        public ExtendedBuilder metadata(final Map<String, Object> metadata) {
+            this.metadata = metadata;
+            return this;
+        }
+
         public ExtendedBuilder timestamp(final long timestamp) {
             this.timestamp = timestamp;
             return this;
@@ -423,12 +512,13 @@ public class ExtendedRevisionCallGraph {
         }
 
         /**
-         * Creates {@link Graph} with all fields empty.
+         * Creates {@link Graph} with all fields empty. Calls are stored in
+         * {@link PackedCallMap}s.
          */
         public Graph() {
-            this.internalCalls = new HashMap<>();
-            this.externalCalls = new HashMap<>();
-            this.resolvedCalls = new HashMap<>();
+            this.internalCalls = new PackedCallMap();
+            this.externalCalls = new PackedCallMap();
+            this.resolvedCalls = new PackedCallMap();
         }
 
         public Map<List<Integer>, Map<Object, Object>> getInternalCalls() {
@@ -460,7 +550,7 @@ public class ExtendedRevisionCallGraph {
          */
         public Map<List<Integer>, Map<Object, Object>> getCall(final JSONArray call) {
             final var callTypeJson = call.getJSONObject(2);
-            final Map<Object, Object> callSite = new HashMap<>();
+            final Map<Object, Object> callSite = new CallSiteMap();
             for (String key : callTypeJson.keySet()) {
                 final var pc = Integer.valueOf(key);
                 callSite.put(pc, callTypeJson.getJSONObject(key).toMap());
@@ -478,8 +568,8 @@ public class ExtendedRevisionCallGraph {
          */
         private Map<List<Integer>, Map<Object, Object>> extractCalls(JSONObject graph, String key) {
             final var internalCalls = graph.getJSONArray(key);
-            final Map<List<Integer>, Map<Object, Object>> result = new HashMap<>();
             final int numberOfArcs = internalCalls.length();
+            final var result = new PackedCallMap(numberOfArcs);
             for (int i = 0; i < numberOfArcs; i++) {
                 result.putAll(getCall(internalCalls.getJSONArray(i)));
             }
@@ -533,6 +623,33 @@ public class ExtendedRevisionCallGraph {
             result.put("resolvedCalls", resolvedCallsJSON);
             return result;
         }
+
+        /**
+         * Writes the JSON representation of this {@link Graph} to a {@link JSONWriter}, one call
+         * at a time.
+         *
+         * @param writer the JSON writer
+         */
+        public void write(final JSONWriter writer) {
+            writer.object();
+            writeCalls(writer, "internalCalls", this.internalCalls);
+            writeCalls(writer, "externalCalls", this.externalCalls);
+            writeCalls(writer, "resolvedCalls", this.resolvedCalls);
+            writer.endObject();
+        }
+
+        private static void writeCalls(final JSONWriter writer, final String key,
+                                       final Map<List<Integer>, Map<Object, Object>> calls) {
+            writer.key(key).array();
+            for (final var entry : calls.entrySet()) {
+                writer.array()
+                        .value(entry.getKey().get(0).toString())
+                        .value(entry.getKey().get(1).toString())
+                        .value(new JSONObject(entry.getValue()))
+                        .endArray();
+            }
+            writer.endArray();
+        }
     }
 
     public static class Node {
@@ -0,0 +1,326 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.core.data;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A streaming reader for the JSON representation of an {@link ExtendedRevisionCallGraph}.
+ *
+ * <p>{@link ExtendedRevisionCallGraph#ExtendedRevisionCallGraph(JSONObject)} needs the whole
+ * JSON tree of a call graph in memory, which for large revisions takes several times the size of
+ * the JSON text. This reader pulls tokens from a {@link Reader} instead, and materializes only
+ * one {@linkplain ExtendedRevisionCallGraph.Type type} or one call at a time, passing it to a
+ * {@link Handler}. Consumers that do not need the whole call graph (e.g., because they store
+ * callables and edges as they go) can thus process revisions of any size.
+ *
+ * <p>{@link #read(Reader)} uses a handler that builds an {@link ExtendedRevisionCallGraph}
+ * incrementally; the result is identical to the one obtained from the JSON tree.
+ */
+public class ExtendedRevisionCallGraphReader {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExtendedRevisionCallGraphReader.class);
+
+    /**
+     * Scope of calls.
+     */
+    public enum CallScope {
+        internalCalls,
+        externalCalls,
+        resolvedCalls
+    }
+
+    /**
+     * Receives the content of a revision call graph as it is read.
+     *
+     * <p>Keys of a JSON object are unordered, so no assumption can be made on the order in which
+     * attributes, types and calls are passed to a handler.
+     */
+    public interface Handler {
+
+        /**
+         * Receives a top-level scalar attribute of the revision call graph (e.g., {@code forge},
+         * {@code product}, {@code version}, {@code generator}, {@code timestamp} or
+         * {@code nodes}).
+         *
+         * @param key   the name of the attribute
+         * @param value the value of the attribute, as returned by {@link JSONTokener#nextValue()}
+         */
+        default void attribute(final String key, final Object value) {
+        }
+
+        /**
+         * Receives a type of the class hierarchy.
+         *
+         * @param scope the scope of the type
+         * @param uri   the URI of the type
+         * @param type  the type
+         */
+        default void type(final ExtendedRevisionCallGraph.Scope scope, final FastenURI uri,
+                          final ExtendedRevisionCallGraph.Type type) {
+        }
+
+        /**
+         * Receives a call of the graph.
+         *
+         * @param scope    the scope of the call
+         * @param source   the id of the calling method
+         * @param target   the id of the called method
+         * @param callSite the metadata of the call, indexed by program counter
+         */
+        default void call(final CallScope scope, final int source, final int target,
+                          final Map<Object, Object> callSite) {
+        }
+    }
+
+    private ExtendedRevisionCallGraphReader() {
+    }
+
+    /**
+     * Reads an {@link ExtendedRevisionCallGraph} from a reader.
+     *
+     * @param reader a reader containing the JSON representation of a revision call graph
+     * @return the revision call graph
+     * @throws JSONException if the JSON text is malformed or some required attribute is missing
+     */
+    public static ExtendedRevisionCallGraph read(final Reader reader) throws JSONException {
+        final var builder = new BuildingHandler();
+        read(reader, builder);
+        return builder.build();
+    }
+
+    /**
+     * Reads an {@link ExtendedRevisionCallGraph} from a UTF-8 encoded input stream.
+     *
+     * @param inputStream an input stream containing the JSON representation of a revision call
+     *                    graph
+     * @return the revision call graph
+     * @throws JSONException if the JSON text is malformed or some required attribute is missing
+     */
+    public static ExtendedRevisionCallGraph read(final InputStream inputStream) throws JSONException {
+        return read(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads the JSON representation of a revision call graph from a reader, passing its content
+     * to a handler.
+     *
+     * @param reader  a reader containing the JSON representation of a revision call graph
+     * @param handler the handler receiving attributes, types and calls
+     * @throws JSONException if the JSON text is malformed
+     */
+    public static void read(final Reader reader, final Handler handler) throws JSONException {
+        final var tokener = new JSONTokener(reader);
+        readObject(tokener, key -> {
+            switch (key) {
+                case "cha":
+                    readObject(tokener, scope -> readTypes(tokener, scope, handler));
+                    break;
+                case "graph":
+                    readObject(tokener, scope -> readCalls(tokener, scope, handler));
+                    break;
+                default:
+                    handler.attribute(key, tokener.nextValue());
+            }
+        });
+    }
+
+    /**
+     * Reads the JSON representation of a revision call graph from a UTF-8 encoded input stream,
+     * passing its content to a handler.
+     *
+     * @param inputStream an input stream containing the JSON representation of a revision call
+     *                    graph
+     * @param handler     the handler receiving attributes, types and calls
+     * @throws JSONException if the JSON text is malformed
+     */
+    public static void read(final InputStream inputStream, final Handler handler) throws JSONException {
+        read(new InputStreamReader(inputStream, StandardCharsets.UTF_8), handler);
+    }
+
+    private static void readTypes(final JSONTokener tokener, final String key, final Handler handler) {
+        final ExtendedRevisionCallGraph.Scope scope;
+        try {
+            scope = ExtendedRevisionCallGraph.Scope.valueOf(key);
+        } catch (final IllegalArgumentException e) {
+            tokener.nextValue();
+            return;
+        }
+        readObject(tokener, uri -> {
+            final var type = new ExtendedRevisionCallGraph.Type(nextObject(tokener));
+            handler.type(scope, FastenURI.create(uri), type);
+        });
+    }
+
+    private static void readCalls(final JSONTokener tokener, final String key, final Handler handler) {
+        final CallScope scope;
+        try {
+            scope = CallScope.valueOf(key);
+        } catch (final IllegalArgumentException e) {
+            tokener.nextValue();
+            return;
+        }
+        readArray(tokener, () -> {
+            final var value = tokener.nextValue();
+            if (!(value instanceof JSONArray)) {
+                throw tokener.syntaxError("A call must be a JSONArray");
+            }
+            final var call = (JSONArray) value;
+            final var callSiteJSON = call.getJSONObject(2);
+            final Map<Object, Object> callSite = new CallSiteMap();
+            for (final var pc : callSiteJSON.keySet()) {
+                callSite.put(Integer.valueOf(pc), callSiteJSON.getJSONObject(pc).toMap());
+            }
+            handler.call(scope, Integer.parseInt(call.getString(0)),
+                    Integer.parseInt(call.getString(1)), callSite);
+        });
+    }
+
+    private static JSONObject nextObject(final JSONTokener tokener) {
+        final var value = tokener.nextValue();
+        if (!(value instanceof JSONObject)) {
+            throw tokener.syntaxError("A type must be a JSONObject");
+        }
+        return (JSONObject) value;
+    }
+
+    /**
+     * Reads a JSON object, invoking a consumer for each key. The consumer must read the
+     * corresponding value from the tokener.
+     */
+    private static void readObject(final JSONTokener tokener, final Consumer<String> valueReader) {
+        if (tokener.nextClean() != '{') {
+            throw tokener.syntaxError("A JSONObject text must begin with '{'");
+        }
+        if (tokener.nextClean() == '}') {
+            return;
+        }
+        tokener.back();
+        for (;;) {
+            final char c = tokener.nextClean();
+            if (c != '"' && c != '\'') {
+                throw tokener.syntaxError("A JSONObject key must be a string");
+            }
+            final var key = tokener.nextString(c);
+            if (tokener.nextClean() != ':') {
+                throw tokener.syntaxError("Expected a ':' after a key");
+            }
+            valueReader.accept(key);
+            switch (tokener.nextClean()) {
+                case ',':
+                    break;
+                case '}':
+                    return;
+                default:
+                    throw tokener.syntaxError("Expected a ',' or '}'");
+            }
+        }
+    }
+
+    /**
+     * Reads a JSON array, invoking a runnable for each element. The runnable must read the
+     * element from the tokener.
+     */
+    private static void readArray(final JSONTokener tokener, final Runnable elementReader) {
+        if (tokener.nextClean() != '[') {
+            throw tokener.syntaxError("A JSONArray text must start with '['");
+        }
+        if (tokener.nextClean() == ']') {
+            return;
+        }
+        tokener.back();
+        for (;;) {
+            elementReader.run();
+            switch (tokener.nextClean()) {
+                case ',':
+                    break;
+                case ']':
+                    return;
+                default:
+                    throw tokener.syntaxError("Expected a ',' or ']'");
+            }
+        }
+    }
+
+    /**
+     * A handler building an {@link ExtendedRevisionCallGraph}.
+     */
+    private static final class BuildingHandler implements Handler {
+
+        private final JSONObject attributes = new JSONObject();
+        private final Map<ExtendedRevisionCallGraph.Scope, Map<FastenURI, ExtendedRevisionCallGraph.Type>> classHierarchy =
+                Map.of(ExtendedRevisionCallGraph.Scope.internalTypes, new HashMap<>(),
+                        ExtendedRevisionCallGraph.Scope.externalTypes, new HashMap<>(),
+                        ExtendedRevisionCallGraph.Scope.resolvedTypes, new HashMap<>());
+        private final Map<CallScope, PackedCallMap> calls =
+                Map.of(CallScope.internalCalls, new PackedCallMap(),
+                        CallScope.externalCalls, new PackedCallMap(),
+                        CallScope.resolvedCalls, new PackedCallMap());
+
+        @Override
+        public void attribute(final String key, final Object value) {
+            attributes.put(key, value);
+        }
+
+        @Override
+        public void type(final ExtendedRevisionCallGraph.Scope scope, final FastenURI uri,
+                         final ExtendedRevisionCallGraph.Type type) {
+            classHierarchy.get(scope).put(uri, type);
+        }
+
+        @Override
+        public void call(final CallScope scope, final int source, final int target,
+                         final Map<Object, Object> callSite) {
+            calls.get(scope).put(source, target, callSite);
+        }
+
+        private ExtendedRevisionCallGraph build() {
+            long timestamp = -1;
+            if (attributes.has("timestamp")) {
+                timestamp = attributes.getLong("timestamp");
+            } else {
+                logger.warn("No timestamp provided: assuming -1");
+            }
+            return ExtendedRevisionCallGraph.extendedBuilder()
+                    .forge(attributes.getString("forge"))
+                    .product(attributes.getString("product"))
+                    .version(attributes.getString("version"))
+                    .cgGenerator(attributes.getString("generator"))
+                    .metadata(attributes.has("metadata") ? attributes.getJSONObject("metadata").toMap() : Map.of())
+                    .timestamp(timestamp)
+                    .nodeCount(attributes.getInt("nodes"))
+                    .classHierarchy(classHierarchy)
+                    .graph(new ExtendedRevisionCallGraph.Graph(calls.get(CallScope.internalCalls),
+                            calls.get(CallScope.externalCalls), calls.get(CallScope.resolvedCalls)))
+                    .build();
+        }
+    }
+}
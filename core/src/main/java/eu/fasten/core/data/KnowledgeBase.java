@@ -20,19 +20,22 @@ package eu.fasten.core.data;
 
 import java.io.Closeable;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.Serializable;
-import java.lang.ref.SoftReference;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Properties;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.LongConsumer;
 
 import org.apache.commons.lang3.tuple.Pair;
 import org.rocksdb.ColumnFamilyDescriptor;
@@ -42,6 +45,7 @@ import org.rocksdb.CompressionType;
 import org.rocksdb.DBOptions;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -53,6 +57,7 @@ import com.esotericsoftware.kryo.serializers.JavaSerializer;
 import com.google.common.primitives.Longs;
 
 import eu.fasten.core.index.BVGraphSerializer;
+import eu.fasten.core.index.InMemoryBVGraph;
 import it.unimi.dsi.bits.LongArrayBitVector;
 import it.unimi.dsi.fastutil.HashCommon;
 import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
@@ -79,6 +84,7 @@ import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import it.unimi.dsi.fastutil.objects.ObjectIterator;
 import it.unimi.dsi.fastutil.objects.ObjectLinkedOpenHashSet;
 import it.unimi.dsi.fastutil.objects.ObjectList;
+import it.unimi.dsi.fastutil.objects.ObjectLists;
 import it.unimi.dsi.io.InputBitStream;
 import it.unimi.dsi.io.NullInputStream;
 import it.unimi.dsi.lang.MutableString;
@@ -102,6 +108,11 @@ import it.unimi.dsi.webgraph.Transform;
  *         to its internal nodes, and LIDs from <var>a</var> (inclusive) to <var>a</var>+<var>b</var> (exclusive) correspond to its external nodes;
  *       <li>for internal nodes only: through the JSON identifier, that is the integer used to identify that node within the JSON object that represents that call graph.
  *   </ul>
+ *
+ *   <p>Once opened {@linkplain #getInstance(String, String, boolean) read-only}, a knowledge base can be
+ *   queried concurrently by any number of threads: every visit works on its own {@linkplain CallGraphData#copy() copies}
+ *   of the call-graph data, and the only shared mutable structure is the thread-safe {@linkplain CallGraphDataCache cache}
+ *   of call-graph data.
  */
 public class KnowledgeBase implements Serializable, Closeable {
 	private static final long serialVersionUID = 1L;
@@ -158,10 +169,7 @@ public class KnowledgeBase implements Serializable, Closeable {
 		 * @return the {@link FastenURI} corresponding to this node.
 		 */
 		public FastenURI toFastenURI() {
-			final FastenURI genericURI = KnowledgeBase.this.gid2URI(gid);
-			if (genericURI == null) return null;
-			final CallGraph callGraph = callGraphs.get(index);
-			return FastenURI.create(callGraph.forge, callGraph.product, callGraph.version, genericURI.getRawNamespace(), genericURI.getRawEntity());
+			return KnowledgeBase.this.toFastenURI(KnowledgeBase.this.gid2URI(gid), index);
 		}
 
 		public long signature() {
@@ -217,8 +225,23 @@ public class KnowledgeBase implements Serializable, Closeable {
 	/** The knowledged base is read-only. */
 	private boolean readOnly;
 
-	/** The {@link Kryo} object used to serialize data to the database. */
-	private transient Kryo kryo;
+	/** The per-thread {@link Kryo} objects used to serialize data to the database. */
+	private transient ThreadLocal<Kryo> kryo;
+
+	/** The default maximum overall size in bytes of the cache of call-graph data: a quarter of the maximum heap size. */
+	public static final long DEFAULT_CACHE_SIZE = Runtime.getRuntime().maxMemory() / 4;
+
+	/** The cache of call-graph data, indexed by revision index. */
+	private transient CallGraphDataCache callGraphDataCache;
+
+	/** The maximum number of call-graph data copies kept by a single visit. */
+	private static final int MAX_VISIT_COPIES = 1024;
+
+	/** The maximum number of frontier nodes expanded by a single task during a parallel visit. */
+	private static final int PARALLEL_VISIT_CHUNK_SIZE = 1024;
+
+	/** The number of nodes resolved by a single batched read when iterating over a {@link NamedResult}. */
+	private static final int NAMED_RESULT_CHUNK_SIZE = 1024;
 
 	/**
 	 * The pathname of the file containing the metadata of this knowledge base.
@@ -241,7 +264,11 @@ public class KnowledgeBase implements Serializable, Closeable {
 	/** The next GID available. */
 	private long nextGID;
 
+	/** If not <code>null</code>, a dictionary used in place of the database to map GIDs to URIs and back. */
+	private transient URIDictionary uriDictionary;
+
 	private FastenURI gid2URI(final long gid) {
+		if (uriDictionary != null) return uriDictionary.gid2URI(gid);
 		byte[] result;
 		try {
 			result = callGraphDB.get(gid2uriFamilyHandle, Longs.toByteArray(gid));
@@ -253,6 +280,7 @@ public class KnowledgeBase implements Serializable, Closeable {
 	}
 
 	private long uri2GID(final FastenURI uri) {
+		if (uriDictionary != null) return uriDictionary.uri2GID(uri);
 		byte[] result;
 		try {
 			result = callGraphDB.get(uri2gidFamilyHandle, uri.toString().getBytes(StandardCharsets.UTF_8));
@@ -263,6 +291,126 @@ public class KnowledgeBase implements Serializable, Closeable {
 		return Longs.fromByteArray(result);
 	}
 
+	/**
+	 * Returns the generic URIs corresponding to a list of GIDs, using a single batched read from the
+	 * database.
+	 *
+	 * @param gids a list of GIDs.
+	 * @return a list, parallel to <code>gids</code>, containing the corresponding generic URIs, or
+	 *         <code>null</code> for unknown GIDs.
+	 */
+	public ObjectList<FastenURI> gid2URIs(final LongList gids) {
+		if (uriDictionary != null) {
+			final ObjectArrayList<FastenURI> result = new ObjectArrayList<>(gids.size());
+			for (final long gid : gids) result.add(uriDictionary.gid2URI(gid));
+			return result;
+		}
+		final List<byte[]> keys = new ArrayList<>(gids.size());
+		for (final long gid : gids) keys.add(Longs.toByteArray(gid));
+		final List<byte[]> values;
+		try {
+			values = keys.isEmpty() ? Collections.emptyList() : callGraphDB.multiGetAsList(Collections.nCopies(keys.size(), gid2uriFamilyHandle), keys);
+		} catch (final RocksDBException e) {
+			throw new RuntimeException(e);
+		}
+		final ObjectArrayList<FastenURI> result = new ObjectArrayList<>(values.size());
+		for (final byte[] value : values) result.add(value == null ? null : FastenURI.create(new String(value, StandardCharsets.UTF_8)));
+		return result;
+	}
+
+	/**
+	 * Returns the GIDs corresponding to a list of generic URIs, using a single batched read from the
+	 * database.
+	 *
+	 * @param uris a list of generic URIs.
+	 * @return a list, parallel to <code>uris</code>, containing the corresponding GIDs, or -1 for
+	 *         unknown URIs.
+	 */
+	public LongList uri2GIDs(final List<FastenURI> uris) {
+		if (uriDictionary != null) {
+			final LongArrayList result = new LongArrayList(uris.size());
+			for (final FastenURI uri : uris) result.add(uriDictionary.uri2GID(uri));
+			return result;
+		}
+		final List<byte[]> keys = new ArrayList<>(uris.size());
+		for (final FastenURI uri : uris) keys.add(uri.toString().getBytes(StandardCharsets.UTF_8));
+		final List<byte[]> values;
+		try {
+			values = keys.isEmpty() ? Collections.emptyList() : callGraphDB.multiGetAsList(Collections.nCopies(keys.size(), uri2gidFamilyHandle), keys);
+		} catch (final RocksDBException e) {
+			throw new RuntimeException(e);
+		}
+		final LongArrayList result = new LongArrayList(values.size());
+		for (final byte[] value : values) result.add(value == null ? -1 : Longs.fromByteArray(value));
+		return result;
+	}
+
+	/**
+	 * Makes this knowledge base use a dictionary in place of the database to map GIDs to URIs and back.
+	 *
+	 * <p>The dictionary must have been built from this knowledge base using
+	 * {@link #buildURIDictionary(int)}, and it can be used only if the knowledge base is read-only, as
+	 * dictionaries are immutable.
+	 *
+	 * @param uriDictionary a dictionary built from this knowledge base, or <code>null</code> to go back to
+	 *            the database.
+	 */
+	public void useURIDictionary(final URIDictionary uriDictionary) {
+		if (uriDictionary != null && !readOnly) throw new IllegalStateException("URI dictionaries can be used only by read-only knowledge bases");
+		this.uriDictionary = uriDictionary;
+	}
+
+	/**
+	 * Builds a {@link URIDictionary} containing all URIs of this knowledge base.
+	 *
+	 * @param ratio the ratio of the front-coded list of URIs.
+	 * @return a dictionary that can be {@linkplain #useURIDictionary(URIDictionary) used} in place of
+	 *         the database.
+	 */
+	public URIDictionary buildURIDictionary(final int ratio) throws IOException {
+		final LongArrayList gids = new LongArrayList();
+		final ObjectArrayList<String> uris = new ObjectArrayList<>();
+		try (final RocksIterator iterator = callGraphDB.newIterator(gid2uriFamilyHandle)) {
+			for (iterator.seekToFirst(); iterator.isValid(); iterator.next()) {
+				gids.add(Longs.fromByteArray(iterator.key()));
+				uris.add(new String(iterator.value(), StandardCharsets.UTF_8));
+			}
+		}
+		return new URIDictionary(gids.toLongArray(), uris.toArray(new String[0]), ratio);
+	}
+
+	/**
+	 * Returns the {@link FastenURI FastenURIs} corresponding to a list of nodes, using a single batched
+	 * read from the database.
+	 *
+	 * @param nodes a list of nodes.
+	 * @return a list, parallel to <code>nodes</code>, containing the {@link FastenURI} corresponding to
+	 *         each node, or <code>null</code> for nodes with an unknown GID.
+	 * @see Node#toFastenURI()
+	 */
+	public ObjectList<FastenURI> toFastenURIs(final List<Node> nodes) {
+		final LongArrayList gids = new LongArrayList(nodes.size());
+		for (final Node node : nodes) gids.add(node.gid);
+		final ObjectList<FastenURI> genericURIs = gid2URIs(gids);
+		final ObjectArrayList<FastenURI> result = new ObjectArrayList<>(nodes.size());
+		for (int i = 0; i < nodes.size(); i++) result.add(toFastenURI(genericURIs.get(i), nodes.get(i).index));
+		return result;
+	}
+
+	/**
+	 * Qualifies a generic URI with the forge, product and version of a revision.
+	 *
+	 * @param genericURI a generic URI, or <code>null</code>.
+	 * @param index a revision index.
+	 * @return the {@link FastenURI} of <code>genericURI</code> in the revision with given index, or
+	 *         <code>null</code> if <code>genericURI</code> is <code>null</code>.
+	 */
+	private FastenURI toFastenURI(final FastenURI genericURI, final long index) {
+		if (genericURI == null) return null;
+		final CallGraph callGraph = callGraphs.get(index);
+		return FastenURI.create(callGraph.forge, callGraph.product, callGraph.version, genericURI.getRawNamespace(), genericURI.getRawEntity());
+	}
+
 	/** Instances of this class contain the data relative to a call graph that are stored in the database. */
 	public static final class CallGraphData implements DirectedGraph {
 		/** The call graph. */
@@ -279,6 +427,8 @@ public class KnowledgeBase implements Serializable, Closeable {
 		public final Long2IntOpenHashMap GID2LID;
 		/** A cached copy of the set of external nodes (TODO: immutable? slower but safer). */
 		private final LongOpenHashSet externalNodes;
+		/** The number of internal nodes (LIDs smaller than this value are internal). */
+		private final int nInternal;
 		/** The size in bytes of the RocksDB entry. */
 		public final int size;
 
@@ -291,9 +441,35 @@ public class KnowledgeBase implements Serializable, Closeable {
 			this.LID2GID = LID2GID;
 			this.GID2LID = GID2LID;
 			this.externalNodes = new LongOpenHashSet(Arrays.copyOfRange(LID2GID, nInternal, LID2GID.length));
+			this.nInternal = nInternal;
 			this.size = size;
 		}
 
+		private CallGraphData(final CallGraphData callGraphData) {
+			this.graph = callGraphData.graph.copy();
+			this.transpose = callGraphData.transpose.copy();
+			this.graphProperties = callGraphData.graphProperties;
+			this.transposeProperties = callGraphData.transposeProperties;
+			this.LID2GID = callGraphData.LID2GID;
+			this.GID2LID = callGraphData.GID2LID;
+			this.externalNodes = callGraphData.externalNodes;
+			this.nInternal = callGraphData.nInternal;
+			this.size = callGraphData.size;
+		}
+
+		/**
+		 * Returns a lightweight copy of this call-graph data.
+		 *
+		 * <p>Like {@link ImmutableGraph} instances, call-graph data are not thread-safe. The copy shares all
+		 * data with this instance, but it can be navigated by a thread different from the one navigating this
+		 * instance.
+		 *
+		 * @return a lightweight copy of this call-graph data.
+		 */
+		public CallGraphData copy() {
+			return new CallGraphData(this);
+		}
+
 		@Override
 		public int numNodes() {
 			return graph.numNodes();
@@ -306,22 +482,46 @@ public class KnowledgeBase implements Serializable, Closeable {
 
 		@Override
 		public LongList successors(final long node) {
-			final int lid = GID2LID.get(node);
-			if (lid < 0) throw new IllegalArgumentException("GID " + node + " does not exist");
-			final int outdegree = graph.outdegree(lid);
-			final LongArrayList gidList = new LongArrayList(outdegree);
-			for (final int s: graph.successorArray(lid)) gidList.add(LID2GID[s]);
+			final LongArrayList gidList = new LongArrayList(graph.outdegree(lid(node)));
+			forEachSuccessor(node, gidList::add);
 			return gidList;
 		}
 
 		@Override
 		public LongList predecessors(final long node) {
+			final LongArrayList gidList = new LongArrayList(transpose.outdegree(lid(node)));
+			forEachPredecessor(node, gidList::add);
+			return gidList;
+		}
+
+		/**
+		 * Applies an action to the successors of a node, without building intermediate collections.
+		 *
+		 * @param node the GID of a node.
+		 * @param action an action that will be applied to the GID of each successor.
+		 * @see #successors(long)
+		 */
+		public void forEachSuccessor(final long node, final LongConsumer action) {
+			final LazyIntIterator successors = graph.successors(lid(node));
+			for (int s; (s = successors.nextInt()) != -1;) action.accept(LID2GID[s]);
+		}
+
+		/**
+		 * Applies an action to the predecessors of a node, without building intermediate collections.
+		 *
+		 * @param node the GID of a node.
+		 * @param action an action that will be applied to the GID of each predecessor.
+		 * @see #predecessors(long)
+		 */
+		public void forEachPredecessor(final long node, final LongConsumer action) {
+			final LazyIntIterator predecessors = transpose.successors(lid(node));
+			for (int s; (s = predecessors.nextInt()) != -1;) action.accept(LID2GID[s]);
+		}
+
+		private int lid(final long node) {
 			final int lid = GID2LID.get(node);
 			if (lid < 0) throw new IllegalArgumentException("GID " + node + " does not exist");
-			final int indegree = transpose.outdegree(lid);
-			final LongArrayList gidList = new LongArrayList(indegree);
-			for (final int s: transpose.successorArray(lid)) gidList.add(LID2GID[s]);
-			return gidList;
+			return lid;
 		}
 
 		@Override
@@ -388,47 +588,39 @@ public class KnowledgeBase implements Serializable, Closeable {
 	}
 
 	/**
-	 * Instances represent call graphs and the associated metadata. Each call
-	 * graph corresponds to a specific release (product, version, forge), and
-	 * has a unique revision index. Its nodes are divided into internal nodes
-	 * and external nodes (the former have smaller values, the latter have
-	 * larger values). Each node number is called a local identifier (LID); LIDs
-	 * are mapped to global identifiers (GIDs). External nodes have no outgoing
-	 * arcs.
+	 * The first phase of the creation of a {@link CallGraph}: the assignment of GIDs to the nodes of a
+	 * {@link RevisionCallGraph}, and the corresponding updates of the maps of the knowledge base (e.g.
+	 * {@link KnowledgeBase#GIDAppearsIn}).
+	 *
+	 * <p>This is the only phase of the creation of a call graph that accesses the maps of the knowledge
+	 * base, so instances must be created while holding the lock on the knowledge base. The second, more
+	 * expensive phase (compression and serialization) is performed by the {@link CallGraph} constructor
+	 * and can proceed in parallel for different revisions.
 	 */
-	public class CallGraph implements Serializable {
-		private static final long serialVersionUID = 1L;
-		/**
-		 * Number of internal nodes (first {@link #nInternal} GIDs in
-		 * {@link #LID2GID}).
-		 */
-		public final int nInternal;
-		/** The product described in this call graph. */
-		public final String product;
-		/** The version described in this call graph. */
-		public final String version;
-		/** The forge described in this call graph. */
-		public final String forge;
-		/** The revision index of this call graph. */
-		public final long index;
-		/**
-		 * An array of two graphs: the call graph (index 0) and its transpose
-		 * (index 1).
-		 */
-		@SuppressWarnings("null")
-
-		private transient SoftReference<CallGraphData> callGraphData;
+	private final class GIDAssignment {
+		/** The product described in the call graph. */
+		private final String product;
+		/** The version described in the call graph. */
+		private final String version;
+		/** The forge described in the call graph. */
+		private final String forge;
+		/** The revision index of the call graph. */
+		private final long index;
+		/** The number of internal nodes (the first {@link #nInternal} temporary indices). */
+		private final int nInternal;
+		/** Maps temporary indices to GIDs. */
+		private final long[] temporary2GID;
+		/** The arcs of the call graph, as consecutive pairs of temporary indices. */
+		private final IntArrayList arcs = new IntArrayList();
 
 		// ALERT unsynchronized update of Knowledge Base maps.
 		/**
-		 * Creates a call graph from a {@link RevisionCallGraph}. All
-		 * maps of the knowledge base (e.g. {@link KnowledgeBase#GIDAppearsIn})
-		 * are updated appropriately. The graphs are stored in the database.
+		 * Assigns GIDs to the nodes of a revision call graph, updating the maps of the knowledge base.
 		 *
 		 * @param g the revision call graph.
 		 * @param index the revision index.
 		 */
-		protected CallGraph(final RevisionCallGraph g, final long index) throws IOException, RocksDBException {
+		private GIDAssignment(final RevisionCallGraph g, final long index) {
 			product = g.product;
 			version = g.version;
 			forge = g.forge;
@@ -459,10 +651,12 @@ public class KnowledgeBase implements Serializable, Closeable {
 
 			// Enumerate all external arcs, add the target URIs to the global maps if necessary. Note that they don't have a JSON id.
 			// While performing the enumeration, we check that their generic URIs don't appear already among those of internal nodes.
+			final LongArrayList externalTargetGIDs = new LongArrayList();
 			for(final Pair<Integer, FastenURI> e : g.getGraph().getExternalCalls().keySet()) {
 				final FastenURI uri = e.getValue();
 				final FastenURI genericUri = FastenURI.createSchemeless(null, null, null, uri.getRawNamespace(), uri.getRawEntity());
 				final long gid = addURI(genericUri);
+				externalTargetGIDs.add(gid);
 				if (internalGIDs.contains(gid)) LOGGER.error("GID " + gid + " (URL " + uri + ") appears both as an internal and as an external node: considering it internal");
 				else {
 					addGidRev(GIDCalledBy, gid, index);
@@ -471,7 +665,7 @@ public class KnowledgeBase implements Serializable, Closeable {
 			}
 
 			// Now compute the map from temporary indices to GIDs (all GIDs are in the global maps, by now)
-			final long[] temporary2GID = new long[internalGIDs.size() + externalGIDs.size()];
+			temporary2GID = new long[internalGIDs.size() + externalGIDs.size()];
 			LongIterators.unwrap(internalGIDs.iterator(), temporary2GID);
 			LongIterators.unwrap(externalGIDs.iterator(), temporary2GID, nInternal, temporary2GID.length - nInternal);
 			// Compute the reverse map
@@ -483,55 +677,99 @@ public class KnowledgeBase implements Serializable, Closeable {
 				// disjoint by construction
 			}
 
-			// Create, store and load compressed versions of the graph and of the transpose.
-
-			// First create the graph as an ArrayListMutableGraph
-			final ArrayListMutableGraph mutableGraph = new ArrayListMutableGraph(temporary2GID.length);
-
 			// Add arcs between internal nodes
 			for(final List<Integer> a : g.getGraph().getInternalCalls()) {
-
-				final int jsonSource = a.get(0).intValue();
-				final int jsonTarget = a.get(1).intValue();
-
-				try {
-					mutableGraph.addArc(jsonId2Temporary.get(jsonSource), jsonId2Temporary.get(jsonTarget));
-				} catch (final IllegalArgumentException e) {
-					LOGGER.error("Duplicate arc " + gid2URI(temporary2GID[jsonId2Temporary.get(jsonSource)]) + " -> " + gid2URI(temporary2GID[jsonId2Temporary.get(jsonSource)]));
-				}
+				arcs.add(jsonId2Temporary.get(a.get(0).intValue()));
+				arcs.add(jsonId2Temporary.get(a.get(1).intValue()));
 			}
 
 			// Add external calls
+			int i = 0;
 			for(final Pair<Integer, FastenURI> a : g.getGraph().getExternalCalls().keySet()) {
+				arcs.add(jsonId2Temporary.get(a.getLeft().intValue()));
+				arcs.add(GID2Temporary.get(externalTargetGIDs.getLong(i++)));
+			}
+		}
+	}
+
+	/**
+	 * Instances represent call graphs and the associated metadata. Each call
+	 * graph corresponds to a specific release (product, version, forge), and
+	 * has a unique revision index. Its nodes are divided into internal nodes
+	 * and external nodes (the former have smaller values, the latter have
+	 * larger values). Each node number is called a local identifier (LID); LIDs
+	 * are mapped to global identifiers (GIDs). External nodes have no outgoing
+	 * arcs.
+	 */
+	public class CallGraph implements Serializable {
+		private static final long serialVersionUID = 1L;
+		/**
+		 * Number of internal nodes (first {@link #nInternal} GIDs in
+		 * {@link #LID2GID}).
+		 */
+		public final int nInternal;
+		/** The product described in this call graph. */
+		public final String product;
+		/** The version described in this call graph. */
+		public final String version;
+		/** The forge described in this call graph. */
+		public final String forge;
+		/** The revision index of this call graph. */
+		public final long index;
+
+		/**
+		 * Creates a call graph from a {@link RevisionCallGraph}. All
+		 * maps of the knowledge base (e.g. {@link KnowledgeBase#GIDAppearsIn})
+		 * are updated appropriately. The graphs are stored in the database.
+		 *
+		 * <p>This constructor must be called while holding the lock on the knowledge base.
+		 *
+		 * @param g the revision call graph.
+		 * @param index the revision index.
+		 */
+		protected CallGraph(final RevisionCallGraph g, final long index) throws IOException, RocksDBException {
+			this(new GIDAssignment(g, index));
+		}
+
+		/**
+		 * Creates a call graph whose GIDs have already been assigned, and stores its graphs in the database.
+		 *
+		 * <p>This constructor does not access the maps of the knowledge base, and thus it does not need
+		 * to be called while holding the lock on the knowledge base.
+		 *
+		 * @param assignment the GIDs assigned to the nodes of the call graph.
+		 */
+		private CallGraph(final GIDAssignment assignment) throws IOException, RocksDBException {
+			product = assignment.product;
+			version = assignment.version;
+			forge = assignment.forge;
+			index = assignment.index;
+			nInternal = assignment.nInternal;
+			final long[] temporary2GID = assignment.temporary2GID;
 
-				final int jsonSource = a.getLeft().intValue();
-				final FastenURI targetUri = a.getRight();
-				final FastenURI genericTargetUri = FastenURI.createSchemeless(null, null, null, targetUri.getRawNamespace(), targetUri.getRawEntity());
-				final long targetGID = addURI(genericTargetUri);
+			// Create, store and load compressed versions of the graph and of the transpose.
 
+			// First create the graph as an ArrayListMutableGraph
+			final ArrayListMutableGraph mutableGraph = new ArrayListMutableGraph(temporary2GID.length);
+			final int[] arcs = assignment.arcs.elements();
+			for (int i = 0; i < assignment.arcs.size(); i += 2) {
 				try {
-					mutableGraph.addArc(jsonId2Temporary.get(jsonSource), GID2Temporary.get(targetGID));
+					mutableGraph.addArc(arcs[i], arcs[i + 1]);
 				} catch (final IllegalArgumentException e) {
-					LOGGER.error("Duplicate arc " + gid2URI(temporary2GID[jsonId2Temporary.get(jsonSource)]) + " -> " + genericTargetUri);
+					LOGGER.error("Duplicate arc " + gid2URI(temporary2GID[arcs[i]]) + " -> " + gid2URI(temporary2GID[arcs[i + 1]]));
 				}
 			}
 
-			final File f = File.createTempFile(KnowledgeBase.class.getSimpleName(), ".tmpgraph");
-
 			final Properties graphProperties = new Properties(), transposeProperties = new Properties();
-			FileInputStream propertyFile;
 
-			// Compress, load and serialize graph
-			final int[] bfsperm = bfsperm(mutableGraph.immutableView(), -1, internalGIDs.size());
+			// Compress and serialize graph (in memory, no temporary files)
+			final int[] bfsperm = bfsperm(mutableGraph.immutableView(), -1, nInternal);
 			final ImmutableGraph graph = Transform.map(mutableGraph.immutableView(), bfsperm);
-			BVGraph.store(graph, f.toString());
-			propertyFile = new FileInputStream(f + BVGraph.PROPERTIES_EXTENSION);
-			graphProperties.load(propertyFile);
-			propertyFile.close();
 
+			final Kryo kryo = KnowledgeBase.this.kryo.get();
 			final FastByteArrayOutputStream fbaos = new FastByteArrayOutputStream();
 			final ByteBufferOutput bbo = new ByteBufferOutput(fbaos);
-			kryo.writeObject(bbo, BVGraph.load(f.toString()));
+			kryo.writeObject(bbo, InMemoryBVGraph.compress(graph, graphProperties));
 
 			// Compute LIDs according to the current node renumbering based on BFS
 			final long[] LID2GID = new long[temporary2GID.length];
@@ -543,13 +781,8 @@ public class KnowledgeBase implements Serializable, Closeable {
 			for (int i = 0; i < temporary2GID.length; i++)
 				GID2LID.put(LID2GID[i], i);
 
-			// Compress, load and serialize transpose graph
-			BVGraph.store(Transform.transpose(graph), f.toString());
-			propertyFile = new FileInputStream(f + BVGraph.PROPERTIES_EXTENSION);
-			transposeProperties.load(propertyFile);
-			propertyFile.close();
-
-			kryo.writeObject(bbo, BVGraph.load(f.toString()));
+			// Compress and serialize transpose graph
+			kryo.writeObject(bbo, InMemoryBVGraph.compress(Transform.transpose(graph), transposeProperties));
 
 			// Write out properties
 			kryo.writeObject(bbo, graphProperties);
@@ -563,29 +796,32 @@ public class KnowledgeBase implements Serializable, Closeable {
 
 			// Write to DB
 			callGraphDB.put(defaultHandle, Longs.toByteArray(index), 0, 8, fbaos.array, 0, fbaos.length);
-
-			new File(f.toString() + BVGraph.PROPERTIES_EXTENSION).delete();
-			new File(f.toString() + BVGraph.OFFSETS_EXTENSION).delete();
-			new File(f.toString() + BVGraph.GRAPH_EXTENSION).delete();
-			f.delete();
 		}
 
 		/**
-		 * Returns the call graph and its transpose in a 2-element array. The
-		 * graphs are cached, and read from the database if needed.
+		 * Returns the call graph data. The data are cached, and read from the database if needed.
 		 *
-		 * @return an array containing the call graph and its transpose.
+		 * <p>This method is thread-safe, but the returned instance is shared: threads navigating the
+		 * graphs concurrently must do so on {@linkplain CallGraphData#copy() copies}.
+		 *
+		 * @return the call graph data.
+		 * @see KnowledgeBase#callGraphDataCache()
 		 */
 		public CallGraphData callGraphData() {
-			if (callGraphData != null) {
-				final var callGraphData = this.callGraphData.get();
-				if (callGraphData != null) return callGraphData;
-			}
+			return callGraphDataCache.get(index, x -> loadCallGraphData());
+		}
+
+		/**
+		 * Reads the call graph data from the database.
+		 *
+		 * @return the call graph data.
+		 */
+		private CallGraphData loadCallGraphData() {
 			try {
 				final byte[] buffer = callGraphDB.get(Longs.toByteArray(index));
 				final Input input = new Input(buffer);
 				int size = input.available();
-				assert kryo != null;
+				final Kryo kryo = KnowledgeBase.this.kryo.get();
 				final var graphs = new ImmutableGraph[] { kryo.readObject(input, BVGraph.class), kryo.readObject(input, BVGraph.class) };
 				final Properties[] properties = new Properties[] { kryo.readObject(input, Properties.class), kryo.readObject(input, Properties.class) };
 				final long[] LID2GID = kryo.readObject(input, long[].class);
@@ -599,9 +835,7 @@ public class KnowledgeBase implements Serializable, Closeable {
 				for (int i = 0; i < n; i++) GID2LID.put(LID2GID[i], i);
 				*/
 
-				final CallGraphData callGraphData = new CallGraphData(graphs[0], graphs[1], properties[0], properties[1], LID2GID, GID2LID, nInternal, size);
-				this.callGraphData = new SoftReference<>(callGraphData);
-				return callGraphData;
+				return new CallGraphData(graphs[0], graphs[1], properties[0], properties[1], LID2GID, GID2LID, nInternal, size);
 			} catch (final RocksDBException | IOException e) {
 				throw new RuntimeException(e);
 			}
@@ -625,6 +859,9 @@ public class KnowledgeBase implements Serializable, Closeable {
 	/**
 	 * Wraps a set of nodes, and allows one to iterate over it with an iterator
 	 * that returns the {@link FastenURI} of the node each time.
+	 *
+	 * <p>The iterator resolves nodes in chunks of {@link #NAMED_RESULT_CHUNK_SIZE} nodes, using
+	 * a single {@linkplain #toFastenURIs(List) batched read} from the database for each chunk.
 	 */
 	private final class NamedResult extends AbstractObjectCollection<FastenURI> {
 		private final ObjectLinkedOpenHashSet<Node> reaches;
@@ -653,22 +890,38 @@ public class KnowledgeBase implements Serializable, Closeable {
 			final ObjectIterator<Node> iterator = reaches.iterator();
 			return new ObjectIterator<>() {
 
+				private final ObjectArrayList<Node> chunk = new ObjectArrayList<>();
+				private ObjectList<FastenURI> uris = ObjectLists.emptyList();
+				private int pos;
+
 				@Override
 				public boolean hasNext() {
-					return iterator.hasNext();
+					return pos < uris.size() || iterator.hasNext();
 				}
 
 				@Override
 				public FastenURI next() {
-					return iterator.next().toFastenURI();
+					if (pos == uris.size()) {
+						if (!iterator.hasNext()) throw new NoSuchElementException();
+						chunk.clear();
+						while (iterator.hasNext() && chunk.size() < NAMED_RESULT_CHUNK_SIZE) chunk.add(iterator.next());
+						uris = toFastenURIs(chunk);
+						pos = 0;
+					}
+					return uris.get(pos++);
 				}
 			};
 		}
 	}
 
-	/** Initializes the kryo instance used for serialization. */
+	/** Initializes the per-thread kryo instances used for serialization. */
 	private void initKryo() {
-		kryo = new Kryo();
+		kryo = ThreadLocal.withInitial(KnowledgeBase::createKryo);
+	}
+
+	/** Creates a kryo instance suitable for the serialization of call-graph data. */
+	private static Kryo createKryo() {
+		final Kryo kryo = new Kryo();
 		kryo.register(BVGraph.class, new BVGraphSerializer(kryo));
 		kryo.register(byte[].class);
 		kryo.register(InputBitStream.class);
@@ -678,6 +931,7 @@ public class KnowledgeBase implements Serializable, Closeable {
 		kryo.register(Properties.class);
 		kryo.register(long[].class);
 		kryo.register(Long2IntOpenHashMap.class);
+		return kryo;
 	}
 
 	/**
@@ -714,8 +968,33 @@ public class KnowledgeBase implements Serializable, Closeable {
 		this.callGraphDB = db;
 	}
 
-	@SuppressWarnings("resource")
+	/**
+	 * Returns a knowledge base, using a cache of call-graph data of {@linkplain #DEFAULT_CACHE_SIZE default size}.
+	 *
+	 * @param kbDir the directory of the RocksDB instance containing the knowledge base.
+	 * @param kbMetadataPathname the file containing the knowledge base metadata.
+	 * @param readOnly whether the knowledge base is read-only.
+	 * @return a knowledge base.
+	 * @see #getInstance(String, String, boolean, long)
+	 */
 	public static KnowledgeBase getInstance(final String kbDir, final String kbMetadataPathname, final boolean readOnly) throws RocksDBException, ClassNotFoundException, IOException {
+		return getInstance(kbDir, kbMetadataPathname, readOnly, DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * Returns a knowledge base.
+	 *
+	 * <p>If both the RocksDB directory and the metadata file exist, the knowledge base is loaded;
+	 * if none exists, a new, empty knowledge base is created.
+	 *
+	 * @param kbDir the directory of the RocksDB instance containing the knowledge base.
+	 * @param kbMetadataPathname the file containing the knowledge base metadata.
+	 * @param readOnly whether the knowledge base is read-only.
+	 * @param cacheSize the maximum overall size in bytes of the cache of call-graph data.
+	 * @return a knowledge base.
+	 */
+	@SuppressWarnings("resource")
+	public static KnowledgeBase getInstance(final String kbDir, final String kbMetadataPathname, final boolean readOnly, final long cacheSize) throws RocksDBException, ClassNotFoundException, IOException {
 		final boolean metadataExists = new File(kbMetadataPathname).exists();
 		final boolean kbDirExists = new File(kbDir).exists();
 		if (metadataExists != kbDirExists) throw new IllegalArgumentException("Either both or none of the knowledge-base directory and metadata must exist");
@@ -737,9 +1016,19 @@ public class KnowledgeBase implements Serializable, Closeable {
 			kb.gid2uriFamilyHandle = columnFamilyHandles.get(1);
 			kb.uri2gidFamilyHandle = columnFamilyHandles.get(2);
 		} else kb = new KnowledgeBase(db, columnFamilyHandles.get(0), columnFamilyHandles.get(1), columnFamilyHandles.get(2), kbMetadataPathname, readOnly);
+		kb.callGraphDataCache = new CallGraphDataCache(cacheSize);
 		return kb;
 	}
 
+	/**
+	 * Returns the cache of call-graph data of this knowledge base, which can be used to monitor its efficiency.
+	 *
+	 * @return the cache of call-graph data.
+	 */
+	public CallGraphDataCache callGraphDataCache() {
+		return callGraphDataCache;
+	}
+
 	/**
 	 * Adds a given revision index to the set associated to the given gid.
 	 *
@@ -778,6 +1067,29 @@ public class KnowledgeBase implements Serializable, Closeable {
 		}
 	}
 
+	/**
+	 * Returns the call-graph data of a given revision that must be used by a visit.
+	 *
+	 * <p>Visits never navigate the shared instance returned by {@link CallGraph#callGraphData()}, but rather
+	 * a {@linkplain CallGraphData#copy() copy} that is private to the visit, so that concurrent visits share
+	 * no mutable state.
+	 *
+	 * @param index a revision index.
+	 * @param copies the copies of call-graph data owned by the visit, indexed by revision index.
+	 * @return a copy of the call-graph data of the revision with given index, private to the visit.
+	 */
+	private CallGraphData callGraphData(final long index, final Long2ObjectOpenHashMap<CallGraphData> copies) {
+		CallGraphData callGraphData = copies.get(index);
+		if (callGraphData == null) {
+			// Do not pin in memory all graphs touched by large visits
+			if (copies.size() >= MAX_VISIT_COPIES) copies.clear();
+			final CallGraph callGraph = callGraphs.get(index);
+			assert callGraph != null;
+			copies.put(index, callGraphData = callGraph.callGraphData().copy());
+		}
+		return callGraphData;
+	}
+
 	/**
 	 * Returns the successors of a given node.
 	 *
@@ -798,12 +1110,14 @@ public class KnowledgeBase implements Serializable, Closeable {
 	 *         </ul>
 	 */
 	public ObjectList<Node> successors(final Node node) {
+		return successors(node, new Long2ObjectOpenHashMap<>());
+	}
+
+	private ObjectList<Node> successors(final Node node, final Long2ObjectOpenHashMap<CallGraphData> copies) {
 		final long gid = node.gid;
 		final long index = node.index;
-		final CallGraph callGraph = callGraphs.get(index);
-		assert callGraph != null;
 
-		final CallGraphData callGraphData = callGraph.callGraphData();
+		final CallGraphData callGraphData = callGraphData(index, copies);
 		final LongList successors = callGraphData.successors(gid);
 
 		final ObjectList<Node> result = new ObjectArrayList<>();
@@ -829,24 +1143,47 @@ public class KnowledgeBase implements Serializable, Closeable {
 	 * @see #successors(Node)
 	 */
 	public LongList successors(final long nodeSig) {
-		final long gid = gid(nodeSig);
-		final long index = index(nodeSig);
-		final CallGraph callGraph = callGraphs.get(index);
-		assert callGraph != null;
-
-		final CallGraphData callGraphData = callGraph.callGraphData();
-		final LongList successors = callGraphData.successors(gid);
+		return successors(nodeSig, new Long2ObjectOpenHashMap<>());
+	}
 
+	private LongList successors(final long nodeSig, final Long2ObjectOpenHashMap<CallGraphData> copies) {
 		final LongArrayList result = new LongArrayList();
+		forEachSuccessor(nodeSig, result::add, copies);
+		return result;
+	}
 
-		/* In the successor case, internal nodes can be added directly... */
-		for (final long x : successors)
-			if (callGraphData.isExternal(x))
-				for (final LongIterator revisions = GIDAppearsIn.get(x).iterator(); revisions.hasNext();)
-					result.add(signature(x, revisions.nextLong()));
-			else result.add(signature(x, index));
+	/**
+	 * Applies an action to the successors of a given node by signature.
+	 *
+	 * <p>This method enumerates the same signatures as {@link #successors(long)}, in the same order, but it
+	 * walks directly the underlying compressed graph, without building intermediate collections. To
+	 * perform several calls in a visit, use a {@link Navigator}, which will reuse the call-graph data
+	 * touched by previous calls.
+	 *
+	 * @param nodeSig a node signature.
+	 * @param action an action that will be applied to the signature of each successor.
+	 * @see #successors(long)
+	 */
+	public void forEachSuccessor(final long nodeSig, final LongConsumer action) {
+		forEachSuccessor(nodeSig, action, new Long2ObjectOpenHashMap<>());
+	}
 
-		return result;
+	private void forEachSuccessor(final long nodeSig, final LongConsumer action, final Long2ObjectOpenHashMap<CallGraphData> copies) {
+		final long index = index(nodeSig);
+
+		final CallGraphData callGraphData = callGraphData(index, copies);
+		final long[] LID2GID = callGraphData.LID2GID;
+		final int nInternal = callGraphData.nInternal;
+		final LazyIntIterator successors = callGraphData.graph.successors(callGraphData.lid(gid(nodeSig)));
+
+		for (int s; (s = successors.nextInt()) != -1;) {
+			final long x = LID2GID[s];
+			/* In the successor case, internal nodes can be added directly... */
+			if (s >= nInternal)
+				for (final LongIterator revisions = GIDAppearsIn.get(x).iterator(); revisions.hasNext();)
+					action.accept(signature(x, revisions.nextLong()));
+			else action.accept(signature(x, index));
+		}
 	}
 
 	/**
@@ -865,12 +1202,14 @@ public class KnowledgeBase implements Serializable, Closeable {
 	 *         </ul>
 	 */
 	public ObjectList<Node> predecessors(final Node node) {
+		return predecessors(node, new Long2ObjectOpenHashMap<>());
+	}
+
+	private ObjectList<Node> predecessors(final Node node, final Long2ObjectOpenHashMap<CallGraphData> copies) {
 		final long gid = node.gid;
 		final long index = node.index;
-		final CallGraph callGraph = callGraphs.get(index);
-		assert callGraph != null;
 
-		final CallGraphData callGraphData = callGraph.callGraphData();
+		final CallGraphData callGraphData = callGraphData(index, copies);
 		final LongList predecessors = callGraphData.predecessors(gid);
 
 		final ObjectList<Node> result = new ObjectArrayList<>();
@@ -887,7 +1226,7 @@ public class KnowledgeBase implements Serializable, Closeable {
 		 */
 		for (final LongIterator revisions = GIDCalledBy.get(gid).iterator(); revisions.hasNext();) {
 			final long revIndex = revisions.nextLong();
-			final CallGraphData precCallGraphData = callGraphs.get(revIndex).callGraphData();
+			final CallGraphData precCallGraphData = callGraphData(revIndex, copies);
 			for (final long y: precCallGraphData.predecessors(gid)) result.add(new Node(y, revIndex));
 		}
 
@@ -906,20 +1245,43 @@ public class KnowledgeBase implements Serializable, Closeable {
 	 * @see #predecessor(Node)
 	 */
 	public LongList predecessors(final long nodeSig) {
+		return predecessors(nodeSig, new Long2ObjectOpenHashMap<>());
+	}
+
+	private LongList predecessors(final long nodeSig, final Long2ObjectOpenHashMap<CallGraphData> copies) {
+		final LongArrayList result = new LongArrayList();
+		forEachPredecessor(nodeSig, result::add, copies);
+		return result;
+	}
+
+	/**
+	 * Applies an action to the predecessors of a given node by signature.
+	 *
+	 * <p>This method enumerates the same signatures as {@link #predecessors(long)}, in the same order, but
+	 * it walks directly the underlying compressed graphs, without building intermediate collections. To
+	 * perform several calls in a visit, use a {@link Navigator}, which will reuse the call-graph data
+	 * touched by previous calls.
+	 *
+	 * @param nodeSig a node signature.
+	 * @param action an action that will be applied to the signature of each predecessor.
+	 * @see #predecessors(long)
+	 */
+	public void forEachPredecessor(final long nodeSig, final LongConsumer action) {
+		forEachPredecessor(nodeSig, action, new Long2ObjectOpenHashMap<>());
+	}
+
+	private void forEachPredecessor(final long nodeSig, final LongConsumer action, final Long2ObjectOpenHashMap<CallGraphData> copies) {
 		final long gid = gid(nodeSig);
 		final long index = index(nodeSig);
-		final CallGraph callGraph = callGraphs.get(index);
-		assert callGraph != null;
 
-		final CallGraphData callGraphData = callGraph.callGraphData();
-		final LongList predecessors = callGraphData.predecessors(gid);
-
-		final LongArrayList result = new LongArrayList();
+		final CallGraphData callGraphData = callGraphData(index, copies);
+		final long[] LID2GID = callGraphData.LID2GID;
+		final LazyIntIterator predecessors = callGraphData.transpose.successors(callGraphData.lid(gid));
 
 		/* In the successor case, internal nodes can be added directly... */
-		for (final long x : predecessors) {
-			assert callGraphData.isInternal(x);
-			result.add(signature(x, index));
+		for (int x; (x = predecessors.nextInt()) != -1;) {
+			assert x < callGraphData.nInternal;
+			action.accept(signature(LID2GID[x], index));
 		}
 
 		/*
@@ -928,11 +1290,59 @@ public class KnowledgeBase implements Serializable, Closeable {
 		 */
 		for (final LongIterator revisions = GIDCalledBy.get(gid).iterator(); revisions.hasNext();) {
 			final long revIndex = revisions.nextLong();
-			final CallGraphData precCallGraphData = callGraphs.get(revIndex).callGraphData();
-			for (final long y : precCallGraphData.predecessors(gid)) result.add(signature(y, revIndex));
+			final CallGraphData precCallGraphData = callGraphData(revIndex, copies);
+			final long[] precLID2GID = precCallGraphData.LID2GID;
+			final LazyIntIterator precPredecessors = precCallGraphData.transpose.successors(precCallGraphData.lid(gid));
+			for (int y; (y = precPredecessors.nextInt()) != -1;) action.accept(signature(precLID2GID[y], revIndex));
 		}
+	}
 
-		return result;
+	/**
+	 * A navigator over the nodes of this knowledge base, identified by signature.
+	 *
+	 * <p>A navigator keeps private {@linkplain CallGraphData#copy() copies} of the call-graph data it has
+	 * touched, so that a sequence of calls to {@link #forEachSuccessor(long, LongConsumer)} and
+	 * {@link #forEachPredecessor(long, LongConsumer)} (e.g., a visit) does not pay the cost of setting
+	 * up the call-graph data at each call. Like the call-graph data it uses, a navigator is not
+	 * thread-safe: concurrent visits must use different navigators.
+	 *
+	 * @see KnowledgeBase#navigator()
+	 */
+	public final class Navigator {
+		private final Long2ObjectOpenHashMap<CallGraphData> copies = new Long2ObjectOpenHashMap<>();
+
+		private Navigator() {}
+
+		/**
+		 * Applies an action to the successors of a given node by signature.
+		 *
+		 * @param nodeSig a node signature.
+		 * @param action an action that will be applied to the signature of each successor.
+		 * @see KnowledgeBase#forEachSuccessor(long, LongConsumer)
+		 */
+		public void forEachSuccessor(final long nodeSig, final LongConsumer action) {
+			KnowledgeBase.this.forEachSuccessor(nodeSig, action, copies);
+		}
+
+		/**
+		 * Applies an action to the predecessors of a given node by signature.
+		 *
+		 * @param nodeSig a node signature.
+		 * @param action an action that will be applied to the signature of each predecessor.
+		 * @see KnowledgeBase#forEachPredecessor(long, LongConsumer)
+		 */
+		public void forEachPredecessor(final long nodeSig, final LongConsumer action) {
+			KnowledgeBase.this.forEachPredecessor(nodeSig, action, copies);
+		}
+	}
+
+	/**
+	 * Returns a new {@link Navigator} over this knowledge base.
+	 *
+	 * @return a new navigator, to be used by a single thread.
+	 */
+	public Navigator navigator() {
+		return new Navigator();
 	}
 
 	/**
@@ -979,8 +1389,9 @@ public class KnowledgeBase implements Serializable, Closeable {
 	 * @return the set of all nodes for which there is a directed path from
 	 *         <code>start</code> to that node.
 	 */
-	public synchronized ObjectLinkedOpenHashSet<Node> reaches(final Node start) {
+	public ObjectLinkedOpenHashSet<Node> reaches(final Node start) {
 		final ObjectLinkedOpenHashSet<Node> result = new ObjectLinkedOpenHashSet<>();
+		final Long2ObjectOpenHashMap<CallGraphData> copies = new Long2ObjectOpenHashMap<>();
 		// Visit queue
 		final ObjectArrayFIFOQueue<Node> queue = new ObjectArrayFIFOQueue<>();
 		queue.enqueue(start);
@@ -988,7 +1399,7 @@ public class KnowledgeBase implements Serializable, Closeable {
 
 		while (!queue.isEmpty()) {
 			final Node node = queue.dequeue();
-			for (final Node s : successors(node)) if (!result.contains(s)) {
+			for (final Node s : successors(node, copies)) if (!result.contains(s)) {
 				queue.enqueue(s);
 				result.add(s);
 			}
@@ -1004,20 +1415,18 @@ public class KnowledgeBase implements Serializable, Closeable {
 	 * @return the set of all node signatures for which there is a directed path from
 	 *         <code>startSig</code> to that node.
 	 */
-	public synchronized LongSet reaches(final long startSig) {
+	public LongSet reaches(final long startSig) {
 		final LongOpenHashSet result = new LongOpenHashSet();
+		final Long2ObjectOpenHashMap<CallGraphData> copies = new Long2ObjectOpenHashMap<>();
 		// Visit queue
 		final LongArrayFIFOQueue queue = new LongArrayFIFOQueue();
 		queue.enqueue(startSig);
 		result.add(startSig);
 
-		while (!queue.isEmpty()) {
-			final long nodeSig = queue.dequeueLong();
-			for (final long s : successors(nodeSig)) if (!result.contains(s)) {
-				queue.enqueue(s);
-				result.add(s);
-			}
-		}
+		final LongConsumer enqueueIfNew = s -> {
+			if (result.add(s)) queue.enqueue(s);
+		};
+		while (!queue.isEmpty()) forEachSuccessor(queue.dequeueLong(), enqueueIfNew, copies);
 
 		return result;
 	}
@@ -1042,8 +1451,9 @@ public class KnowledgeBase implements Serializable, Closeable {
 	 * @return the set of all nodes for which there is a directed path from that node to
 	 *         <code>start</code>.
 	 */
-	public synchronized ObjectLinkedOpenHashSet<Node> coreaches(final Node start) {
+	public ObjectLinkedOpenHashSet<Node> coreaches(final Node start) {
 		final ObjectLinkedOpenHashSet<Node> result = new ObjectLinkedOpenHashSet<>();
+		final Long2ObjectOpenHashMap<CallGraphData> copies = new Long2ObjectOpenHashMap<>();
 		// Visit queue
 		final ObjectArrayFIFOQueue<Node> queue = new ObjectArrayFIFOQueue<>();
 		queue.enqueue(start);
@@ -1051,7 +1461,7 @@ public class KnowledgeBase implements Serializable, Closeable {
 
 		while (!queue.isEmpty()) {
 			final Node node = queue.dequeue();
-			for (final Node s : predecessors(node)) if (!result.contains(s)) {
+			for (final Node s : predecessors(node, copies)) if (!result.contains(s)) {
 				queue.enqueue(s);
 				result.add(s);
 			}
@@ -1068,7 +1478,7 @@ public class KnowledgeBase implements Serializable, Closeable {
 	 * @param fastenURI the starting node.
 	 * @return all the nodes that can be coreached from <code>fastenURI</code>.
 	 */
-	public synchronized Collection<FastenURI> coreaches(final FastenURI fastenURI) {
+	public Collection<FastenURI> coreaches(final FastenURI fastenURI) {
 		final Node start = fastenURI2Node(fastenURI);
 		if (start == null) return null;
 		return new NamedResult(coreaches(start));
@@ -1082,19 +1492,104 @@ public class KnowledgeBase implements Serializable, Closeable {
 	 * @return the set of all node signatures for which there is a directed path from that node to
 	 *         <code>startSig</code>.
 	 */
-	public synchronized LongSet coreaches(final long startSig) {
+	public LongSet coreaches(final long startSig) {
 		final LongOpenHashSet result = new LongOpenHashSet();
+		final Long2ObjectOpenHashMap<CallGraphData> copies = new Long2ObjectOpenHashMap<>();
 		// Visit queue
 		final LongArrayFIFOQueue queue = new LongArrayFIFOQueue();
 		queue.enqueue(startSig);
 		result.add(startSig);
 
-		while (!queue.isEmpty()) {
-			final long nodeSig = queue.dequeueLong();
-			for (final long s : predecessors(nodeSig)) if (!result.contains(s)) {
-				queue.enqueue(s);
-				result.add(s);
+		final LongConsumer enqueueIfNew = s -> {
+			if (result.add(s)) queue.enqueue(s);
+		};
+		while (!queue.isEmpty()) forEachPredecessor(queue.dequeueLong(), enqueueIfNew, copies);
+
+		return result;
+	}
+
+	/**
+	 * The set of all node signatures that are reachable from the signature <code>startSig</code>,
+	 * computed by a parallel visit.
+	 *
+	 * <p>This method returns the same set as {@link #reaches(long)}, but it performs a level-synchronous
+	 * breadth-first visit in which the frontier is expanded in parallel using the given pool.
+	 *
+	 * @param startSig the starting node signature.
+	 * @param pool the pool used to expand the frontier.
+	 * @return the set of all node signatures for which there is a directed path from
+	 *         <code>startSig</code> to that node.
+	 * @see #reaches(long)
+	 */
+	public LongSet reaches(final long startSig, final ForkJoinPool pool) {
+		return parallelVisit(startSig, pool, true);
+	}
+
+	/**
+	 * The set of all node signatures that are coreachable from <code>startSig</code>, computed by a
+	 * parallel visit.
+	 *
+	 * <p>This method returns the same set as {@link #coreaches(long)}, but it performs a level-synchronous
+	 * breadth-first visit in which the frontier is expanded in parallel using the given pool.
+	 *
+	 * @param startSig the starting node signature.
+	 * @param pool the pool used to expand the frontier.
+	 * @return the set of all node signatures for which there is a directed path from that node to
+	 *         <code>startSig</code>.
+	 * @see #coreaches(long)
+	 */
+	public LongSet coreaches(final long startSig, final ForkJoinPool pool) {
+		return parallelVisit(startSig, pool, false);
+	}
+
+	/**
+	 * Performs a level-synchronous parallel visit.
+	 *
+	 * <p>At each level, the nodes of the frontier are grouped by revision index, and each group
+	 * (split into chunks of at most {@link #PARALLEL_VISIT_CHUNK_SIZE} nodes, if necessary) is expanded
+	 * by a separate task, so that the call-graph data of each revision is copied once per level rather
+	 * than once per node. The results of the tasks are then merged sequentially into the visited set,
+	 * yielding the next frontier.
+	 *
+	 * @param startSig the starting node signature.
+	 * @param pool the pool used to expand the frontier.
+	 * @param forward whether to follow successors (true) or predecessors (false).
+	 * @return the set of visited node signatures.
+	 */
+	private LongSet parallelVisit(final long startSig, final ForkJoinPool pool, final boolean forward) {
+		final LongOpenHashSet result = new LongOpenHashSet();
+		result.add(startSig);
+		LongArrayList frontier = LongArrayList.wrap(new long[] { startSig });
+
+		while (!frontier.isEmpty()) {
+			// Group the frontier by revision index
+			final Long2ObjectOpenHashMap<LongArrayList> index2Frontier = new Long2ObjectOpenHashMap<>();
+			for (final long nodeSig : frontier) {
+				LongArrayList group = index2Frontier.get(index(nodeSig));
+				if (group == null) index2Frontier.put(index(nodeSig), group = new LongArrayList());
+				group.add(nodeSig);
+			}
+
+			final ObjectArrayList<ForkJoinTask<LongArrayList>> tasks = new ObjectArrayList<>();
+			for (final LongArrayList group : index2Frontier.values()) {
+				for (int from = 0; from < group.size(); from += PARALLEL_VISIT_CHUNK_SIZE) {
+					final LongList chunk = group.subList(from, Math.min(group.size(), from + PARALLEL_VISIT_CHUNK_SIZE));
+					tasks.add(pool.submit(() -> {
+						final Long2ObjectOpenHashMap<CallGraphData> copies = new Long2ObjectOpenHashMap<>();
+						final LongArrayList expanded = new LongArrayList();
+						final LongConsumer add = expanded::add;
+						for (final long nodeSig : chunk)
+							if (forward) forEachSuccessor(nodeSig, add, copies);
+							else forEachPredecessor(nodeSig, add, copies);
+						return expanded;
+					}));
+				}
 			}
+
+			final LongArrayList nextFrontier = new LongArrayList();
+			for (final ForkJoinTask<LongArrayList> task : tasks)
+				for (final long s : task.join()) if (result.add(s)) nextFrontier.add(s);
+			frontier = nextFrontier;
 		}
 
 		return result;
@@ -1103,14 +1598,27 @@ public class KnowledgeBase implements Serializable, Closeable {
 	/**
 	 * Adds a new {@link CallGraph} to the list of all call graphs.
 	 *
+	 * <p>This method can be called concurrently by several threads: only the assignment of GIDs and the
+	 * update of the maps of the knowledge base are serialized, whereas the compression and serialization
+	 * of the graphs, which are the most expensive part of the process, proceed in parallel. The knowledge
+	 * base must not be queried while call graphs are being added.
+	 *
 	 * @param g the revision call graph from which the call graph will be created.
 	 * @param index the revision index to which the new call graph will be associated.
 	 * @throws IOException
 	 * @throws RocksDBException
 	 */
-	public synchronized void add(final RevisionCallGraph g, final long index) throws IOException, RocksDBException {
+	public void add(final RevisionCallGraph g, final long index) throws IOException, RocksDBException {
 		if (readOnly) throw new IllegalStateException();
-		callGraphs.put(index, new CallGraph(g, index));
+		final GIDAssignment assignment;
+		// Only the assignment of GIDs and the update of the maps need to be serialized
+		synchronized (this) {
+			assignment = new GIDAssignment(g, index);
+		}
+		final CallGraph callGraph = new CallGraph(assignment);
+		synchronized (this) {
+			callGraphs.put(index, callGraph);
+		}
 	}
 
 	@Override
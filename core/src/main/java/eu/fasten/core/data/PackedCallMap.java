@@ -0,0 +1,314 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.core.data;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMaps;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A map from calls to their metadata, as in {@link ExtendedRevisionCallGraph.Graph}, in which
+ * calls are stored as packed {@code long} keys.
+ *
+ * <p>A call from {@code source} to {@code target} is {@linkplain #key(int, int) packed} as
+ * {@code source << 32 | target} in a {@link Long2ObjectOpenHashMap}, so that there is no
+ * two-element {@link List} per call and no boxing of the node ids. Callers aware of this class
+ * can use the primitive methods (e.g., {@link #get(int, int)} and {@link #put(int, int, Map)}), or
+ * iterate over the {@linkplain #calls() backing map}; for all other callers, this class is a
+ * {@link Map} with keys of the form {@code [source, target]}, like the maps it replaces. Keys
+ * returned by iteration are immutable lists created on the fly.
+ *
+ * <p>Metadata are stored as they are given; use a {@link CallSiteMap} for a compact
+ * representation of call sites.
+ */
+public class PackedCallMap extends AbstractMap<List<Integer>, Map<Object, Object>> {
+
+    private final Long2ObjectOpenHashMap<Map<Object, Object>> calls;
+
+    /**
+     * Creates an empty map.
+     */
+    public PackedCallMap() {
+        this.calls = new Long2ObjectOpenHashMap<>();
+    }
+
+    /**
+     * Creates an empty map with a given expected number of calls.
+     *
+     * @param expected the expected number of calls
+     */
+    public PackedCallMap(final int expected) {
+        this.calls = new Long2ObjectOpenHashMap<>(expected);
+    }
+
+    /**
+     * Creates a map containing the calls of a given map.
+     *
+     * @param map a map from calls to their metadata
+     */
+    public PackedCallMap(final Map<List<Integer>, Map<Object, Object>> map) {
+        this(map.size());
+        putAll(map);
+    }
+
+    /**
+     * Packs a call into a {@code long} key.
+     *
+     * @param source the source of the call
+     * @param target the target of the call
+     * @return the packed call
+     */
+    public static long key(final int source, final int target) {
+        return (long) source << 32 | target & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Returns the source of a packed call.
+     *
+     * @param key a packed call
+     * @return the source of the call
+     */
+    public static int source(final long key) {
+        return (int) (key >>> 32);
+    }
+
+    /**
+     * Returns the target of a packed call.
+     *
+     * @param key a packed call
+     * @return the target of the call
+     */
+    public static int target(final long key) {
+        return (int) key;
+    }
+
+    /**
+     * Returns whether an object is a call, that is, a list of two {@link Integer}s.
+     */
+    private static boolean isCall(final Object key) {
+        if (!(key instanceof List)) {
+            return false;
+        }
+        final var list = (List<?>) key;
+        return list.size() == 2 && list.get(0) instanceof Integer && list.get(1) instanceof Integer;
+    }
+
+    private static long key(final Object call) {
+        final var list = (List<?>) call;
+        return key((Integer) list.get(0), (Integer) list.get(1));
+    }
+
+    /**
+     * Returns the backing map from packed calls to their metadata. Changes to the returned map
+     * are reflected in this map, and vice versa.
+     *
+     * @return the backing map
+     */
+    public Long2ObjectMap<Map<Object, Object>> calls() {
+        return calls;
+    }
+
+    /**
+     * Returns the metadata of a call.
+     *
+     * @param source the source of the call
+     * @param target the target of the call
+     * @return the metadata of the call, or {@code null}
+     */
+    public Map<Object, Object> get(final int source, final int target) {
+        return calls.get(key(source, target));
+    }
+
+    /**
+     * Associates metadata with a call.
+     *
+     * @param source   the source of the call
+     * @param target   the target of the call
+     * @param metadata the metadata of the call
+     * @return the previous metadata of the call, or {@code null}
+     */
+    public Map<Object, Object> put(final int source, final int target,
+                                   final Map<Object, Object> metadata) {
+        return calls.put(key(source, target), metadata);
+    }
+
+    /**
+     * Returns whether this map contains a call.
+     *
+     * @param source the source of the call
+     * @param target the target of the call
+     * @return true if this map contains the call
+     */
+    public boolean containsKey(final int source, final int target) {
+        return calls.containsKey(key(source, target));
+    }
+
+    /**
+     * Removes a call.
+     *
+     * @param source the source of the call
+     * @param target the target of the call
+     * @return the metadata of the removed call, or {@code null}
+     */
+    public Map<Object, Object> remove(final int source, final int target) {
+        return calls.remove(key(source, target));
+    }
+
+    @Override
+    public int size() {
+        return calls.size();
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return isCall(key) && calls.containsKey(key(key));
+    }
+
+    @Override
+    public Map<Object, Object> get(final Object key) {
+        return isCall(key) ? calls.get(key(key)) : null;
+    }
+
+    @Override
+    public Map<Object, Object> put(final List<Integer> key, final Map<Object, Object> value) {
+        if (!isCall(key)) {
+            throw new IllegalArgumentException("A call must be a list of two integers: " + key);
+        }
+        return calls.put(key(key), value);
+    }
+
+    @Override
+    public Map<Object, Object> remove(final Object key) {
+        return isCall(key) ? calls.remove(key(key)) : null;
+    }
+
+    @Override
+    public void putAll(final Map<? extends List<Integer>, ? extends Map<Object, Object>> map) {
+        if (map instanceof PackedCallMap) {
+            calls.putAll(((PackedCallMap) map).calls);
+        } else {
+            super.putAll(map);
+        }
+    }
+
+    @Override
+    public void clear() {
+        calls.clear();
+    }
+
+    @Override
+    public Set<Entry<List<Integer>, Map<Object, Object>>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public int size() {
+                return calls.size();
+            }
+
+            @Override
+            public boolean contains(final Object o) {
+                if (!(o instanceof Entry)) {
+                    return false;
+                }
+                final var entry = (Entry<?, ?>) o;
+                return containsKey(entry.getKey())
+                        && Objects.equals(get(entry.getKey()), entry.getValue());
+            }
+
+            @Override
+            public Iterator<Entry<List<Integer>, Map<Object, Object>>> iterator() {
+                final var iterator = Long2ObjectMaps.fastIterator(calls);
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Entry<List<Integer>, Map<Object, Object>> next() {
+                        final var entry = iterator.next();
+                        return new CallEntry(entry.getLongKey(), entry.getValue());
+                    }
+
+                    @Override
+                    public void remove() {
+                        iterator.remove();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * An entry of this map, whose key is unpacked when requested.
+     */
+    private final class CallEntry implements Entry<List<Integer>, Map<Object, Object>> {
+
+        private final long key;
+        private Map<Object, Object> value;
+
+        private CallEntry(final long key, final Map<Object, Object> value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public List<Integer> getKey() {
+            return List.of(source(key), target(key));
+        }
+
+        @Override
+        public Map<Object, Object> getValue() {
+            return value;
+        }
+
+        @Override
+        public Map<Object, Object> setValue(final Map<Object, Object> value) {
+            final var old = this.value;
+            this.value = value;
+            calls.put(key, value);
+            return old;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            final var entry = (Entry<?, ?>) o;
+            return getKey().equals(entry.getKey()) && Objects.equals(value, entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ Objects.hashCode(value);
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + value;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package eu.fasten.core.data;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Arrays;
+
+import org.rocksdb.RocksDBException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.martiansoftware.jsap.FlaggedOption;
+import com.martiansoftware.jsap.JSAP;
+import com.martiansoftware.jsap.JSAPException;
+import com.martiansoftware.jsap.JSAPResult;
+import com.martiansoftware.jsap.Parameter;
+import com.martiansoftware.jsap.SimpleJSAP;
+import com.martiansoftware.jsap.UnflaggedOption;
+
+import it.unimi.dsi.bits.TransformationStrategies;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.io.BinIO;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.lang.MutableString;
+import it.unimi.dsi.sux4j.mph.GOV3Function;
+import it.unimi.dsi.util.FrontCodedStringList;
+
+/**
+ * An immutable, in-memory dictionary between GIDs and generic URIs.
+ *
+ * <p>
+ * The dictionary is an alternative to the {@link KnowledgeBase#GID2URI} and
+ * {@link KnowledgeBase#URI2GID} column families of a knowledge base. URIs are sorted lexicographically
+ * and stored in a {@link FrontCodedStringList}, so the long common prefixes of URIs in the same
+ * namespace are stored only once. A {@linkplain GOV3Function static function} maps each URI to its
+ * lexicographical rank (i.e., it acts as a monotone minimal perfect hash function), and two arrays
+ * map ranks to GIDs and back. Membership is verified against the stored URI, so lookups of unknown URIs
+ * are answered correctly.
+ *
+ * <p>
+ * A dictionary is built offline from an existing knowledge base using the {@link #main(String[])}
+ * method of this class, and it can then be {@linkplain KnowledgeBase#useURIDictionary(URIDictionary)
+ * used} by read-only knowledge bases in place of the database. Instances are thread-safe.
+ */
+public class URIDictionary implements Serializable {
+	private static final long serialVersionUID = 1L;
+	private static final Logger LOGGER = LoggerFactory.getLogger(URIDictionary.class);
+
+	/** The default ratio of the front-coded list of URIs. */
+	public static final int DEFAULT_RATIO = 32;
+
+	/** The URIs, in lexicographical order. */
+	private final FrontCodedStringList uris;
+	/** Maps each URI to its lexicographical rank. */
+	private final GOV3Function<CharSequence> uri2Rank;
+	/** Maps each lexicographical rank to the GID of the corresponding URI. */
+	private final long[] rank2GID;
+	/** Maps each GID to the lexicographical rank of the corresponding URI, or -1 for missing GIDs. */
+	private final int[] gid2Rank;
+
+	/**
+	 * Builds a dictionary.
+	 *
+	 * @param gids a list of distinct GIDs.
+	 * @param uris a list of distinct generic URIs, parallel to <code>gids</code>.
+	 * @param ratio the ratio of the front-coded list of URIs.
+	 */
+	public URIDictionary(final long[] gids, final String[] uris, final int ratio) throws IOException {
+		if (gids.length != uris.length) throw new IllegalArgumentException("The number of GIDs (" + gids.length + ") and the number of URIs (" + uris.length + ") differ");
+		final int n = gids.length;
+		final int[] perm = new int[n];
+		for (int i = 0; i < n; i++) perm[i] = i;
+		IntArrays.parallelQuickSort(perm, (x, y) -> uris[x].compareTo(uris[y]));
+
+		final ObjectArrayList<String> sorted = new ObjectArrayList<>(n);
+		for (final int p : perm) sorted.add(uris[p]);
+		this.uris = new FrontCodedStringList(sorted, ratio, true);
+		// Keys are mapped to their ordinal position, that is, to their lexicographical rank
+		this.uri2Rank = new GOV3Function.Builder<CharSequence>().keys(sorted).transform(TransformationStrategies.utf16()).build();
+
+		long maxGID = -1;
+		for (final long gid : gids) maxGID = Math.max(maxGID, gid);
+		if (maxGID >= Integer.MAX_VALUE) throw new IllegalArgumentException("GID too large: " + maxGID);
+		rank2GID = new long[n];
+		gid2Rank = new int[(int)(maxGID + 1)];
+		Arrays.fill(gid2Rank, -1);
+		for (int r = 0; r < n; r++) {
+			rank2GID[r] = gids[perm[r]];
+			if (gid2Rank[(int)rank2GID[r]] != -1) throw new IllegalArgumentException("Duplicate GID: " + rank2GID[r]);
+			gid2Rank[(int)rank2GID[r]] = r;
+		}
+	}
+
+	/**
+	 * Returns the number of URIs in this dictionary.
+	 *
+	 * @return the number of URIs in this dictionary.
+	 */
+	public int size() {
+		return rank2GID.length;
+	}
+
+	/**
+	 * Returns the generic URI corresponding to a GID.
+	 *
+	 * @param gid a GID.
+	 * @return the corresponding generic URI, or <code>null</code> if <code>gid</code> is unknown.
+	 */
+	public FastenURI gid2URI(final long gid) {
+		if (gid < 0 || gid >= gid2Rank.length) return null;
+		final int rank = gid2Rank[(int)gid];
+		if (rank == -1) return null;
+		return FastenURI.create(uris.get(rank).toString());
+	}
+
+	/**
+	 * Returns the GID corresponding to a generic URI.
+	 *
+	 * @param uri a generic URI.
+	 * @return the corresponding GID, or -1 if <code>uri</code> is unknown.
+	 */
+	public long uri2GID(final FastenURI uri) {
+		final String s = uri.toString();
+		final long rank = uri2Rank.getLong(s);
+		if (rank < 0 || rank >= rank2GID.length) return -1;
+		final MutableString candidate = new MutableString(s.length());
+		uris.get((int)rank, candidate);
+		return candidate.equals(s) ? rank2GID[(int)rank] : -1;
+	}
+
+	public static void main(final String[] args) throws JSAPException, ClassNotFoundException, RocksDBException, IOException {
+		final SimpleJSAP jsap = new SimpleJSAP(URIDictionary.class.getName(),
+				"Builds an in-memory dictionary between GIDs and URIs for a prototype knowledge base.",
+				new Parameter[] {
+						new FlaggedOption("ratio", JSAP.INTEGER_PARSER, Integer.toString(DEFAULT_RATIO), JSAP.NOT_REQUIRED, 'r', "ratio", "The ratio of the front-coded list of URIs."),
+						new UnflaggedOption("kb", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, JSAP.NOT_GREEDY, "The directory of the RocksDB instance containing the knowledge base." ),
+						new UnflaggedOption("kbmeta", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, JSAP.NOT_GREEDY, "The file containing the knowledge base metadata." ),
+						new UnflaggedOption("dictionary", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, JSAP.NOT_GREEDY, "The file where the dictionary will be stored." ),
+		});
+
+		final JSAPResult jsapResult = jsap.parse(args);
+		if ( jsap.messagePrinted() ) return;
+
+		final String kbDir = jsapResult.getString("kb");
+		if (!new File(kbDir).exists()) throw new IllegalArgumentException("No such directory: " + kbDir);
+		final String kbMetadataFilename = jsapResult.getString("kbmeta");
+		if (!new File(kbMetadataFilename).exists()) throw new IllegalArgumentException("No such file: " + kbMetadataFilename);
+		LOGGER.info("Loading KnowledgeBase metadata");
+		final KnowledgeBase kb = KnowledgeBase.getInstance(kbDir, kbMetadataFilename, true);
+
+		LOGGER.info("Building dictionary");
+		final URIDictionary uriDictionary = kb.buildURIDictionary(jsapResult.getInt("ratio"));
+		LOGGER.info("Storing dictionary of " + uriDictionary.size() + " URIs");
+		BinIO.storeObject(uriDictionary, jsapResult.getString("dictionary"));
+
+		LOGGER.info("Closing KnowledgeBase");
+		kb.close();
+	}
+}
@@ -4,8 +4,8 @@ import java.util.Arrays;
 import java.util.Properties;
 
 import eu.fasten.core.data.DirectedGraph;
-import eu.fasten.core.data.GOV3LongFunction;
 import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.longs.Long2LongFunction;
 import it.unimi.dsi.fastutil.longs.LongArrayList;
 import it.unimi.dsi.fastutil.longs.LongList;
 import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
@@ -25,13 +25,13 @@ public class CallGraphData implements DirectedGraph {
 	/** Maps LIDs to GIDs. */
 	public final long[] LID2GID;
 	/** Inverse to {@link #LID2GID}: maps GIDs to LIDs. */
-	public final GOV3LongFunction GID2LID;
+	public final Long2LongFunction GID2LID;
 	/** A cached copy of the set of external nodes (TODO: immutable? slower but safer). */
 	private final LongOpenHashSet externalNodes;
-	/** The size in bytes of the RocksDB entry. */
+	/** The size in bytes of the stored entry. */
 	public final int size;
 
-	public CallGraphData(final ImmutableGraph graph, final ImmutableGraph transpose, final Properties graphProperties, final Properties transposeProperties, final long[] LID2GID, final GOV3LongFunction GID2LID, final int nInternal, final int size) {
+	public CallGraphData(final ImmutableGraph graph, final ImmutableGraph transpose, final Properties graphProperties, final Properties transposeProperties, final long[] LID2GID, final Long2LongFunction GID2LID, final int nInternal, final int size) {
 		super();
 		this.graph = graph;
 		this.transpose = transpose;
@@ -55,7 +55,7 @@ public class CallGraphData implements DirectedGraph {
 
 	@Override
 	public LongList successors(final long node) {
-		final int lid = (int)GID2LID.getLong(node);
+		final int lid = (int)GID2LID.get(node);
 		if (lid < 0 || lid >= numNodes() || LID2GID[lid] != node) throw new IllegalArgumentException("GID " + node + " does not exist");
 		final int outdegree = graph.outdegree(lid);
 		final LongArrayList gidList = new LongArrayList(outdegree);
@@ -65,7 +65,7 @@ public class CallGraphData implements DirectedGraph {
 
 	@Override
 	public LongList predecessors(final long node) {
-		final int lid = (int)GID2LID.getLong(node);
+		final int lid = (int)GID2LID.get(node);
 		if (lid < 0 || lid >= numNodes() || LID2GID[lid] != node) throw new IllegalArgumentException("GID " + node + " does not exist");
 		final int indegree = transpose.outdegree(lid);
 		final LongArrayList gidList = new LongArrayList(indegree);
@@ -0,0 +1,279 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.core.data.graphdb;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.fasten.core.index.InMemoryBVGraph;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.io.FastByteArrayOutputStream;
+import it.unimi.dsi.fastutil.longs.Long2LongFunction;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.io.ByteBufferInputStream;
+import it.unimi.dsi.webgraph.BVGraph;
+import it.unimi.dsi.webgraph.ImmutableGraph;
+import it.unimi.dsi.webgraph.Transform;
+
+/**
+ * An append-only store of call graphs in a memory-mapped file.
+ *
+ * <p>
+ * This class is an alternative to storing Kryo-serialized call graphs in RocksDB (see
+ * {@link RocksDao}). Graphs are appended to a single data file, {@value #DATA_FILE}, and their
+ * position is recorded in an offset index, {@value #INDEX_FILE}, which is loaded in memory when the
+ * store is opened. Each entry contains the map from LIDs to GIDs, the LIDs sorted by GID, the graph
+ * and its transpose in the {@linkplain InMemoryBVGraph#write raw BVGraph format}, and their
+ * properties.
+ *
+ * <p>
+ * The data file is memory-mapped in segments of {@value #SEGMENT_BYTES} bytes; the mapping of a segment
+ * extends past its end, so that it contains all entries (up to about 1 GiB) starting in the segment,
+ * and it is replaced only when an entry is retrieved that was appended after the segment was mapped.
+ * When {@linkplain #get(long) retrieving} a graph, the graphs are opened in mapped mode directly over
+ * slices of the mapping: there is no deserialization, and the only data copied to the heap is the map
+ * from LIDs to GIDs. The inverse map from GIDs to LIDs is a binary search over the sorted LIDs in the
+ * mapped buffer.
+ *
+ * <p>
+ * Appends are synchronized; retrieval is thread-safe, and it synchronizes only to look up the entry
+ * (and, when needed, to map its segment).
+ */
+public class MappedGraphStore implements Closeable {
+
+    /** The name of the data file. */
+    public static final String DATA_FILE = "graphs.data";
+    /** The name of the offset-index file. */
+    public static final String INDEX_FILE = "graphs.index";
+    /** The size in bytes of an entry of the offset index (index, offset and length). */
+    private static final int INDEX_ENTRY_SIZE = 3 * Long.BYTES;
+    /** The size in bytes of a segment of the data file. */
+    private static final long SEGMENT_BYTES = 1L << 30;
+
+    private final Logger logger = LoggerFactory.getLogger(MappedGraphStore.class.getName());
+    private final FileChannel dataChannel;
+    private final DataOutputStream indexOutput;
+    /** Maps graph indices to the offset of the corresponding entry in the data file. */
+    private final Long2LongOpenHashMap index2Offset;
+    /** Maps graph indices to the length of the corresponding entry in the data file. */
+    private final Long2LongOpenHashMap index2Length;
+    /** The mappings of the segments of the data file, or {@code null} for segments not mapped yet. */
+    private final ObjectArrayList<ByteBuffer> segments = new ObjectArrayList<>();
+
+    /**
+     * Opens (or creates) a store.
+     *
+     * @param dir the directory containing the store.
+     * @throws IOException if there was a problem opening the data or index files
+     */
+    public MappedGraphStore(final File dir) throws IOException {
+        dir.mkdirs();
+        index2Offset = new Long2LongOpenHashMap();
+        index2Offset.defaultReturnValue(-1);
+        index2Length = new Long2LongOpenHashMap();
+
+        final File indexFile = new File(dir, INDEX_FILE);
+        final long dataLength = new File(dir, DATA_FILE).length();
+        long indexLength = 0;
+        if (indexFile.exists()) {
+            try (final RandomAccessFile index = new RandomAccessFile(indexFile, "rw")) {
+                final long entries = index.length() / INDEX_ENTRY_SIZE;
+                for (long i = 0; i < entries; i++) {
+                    final long graphIndex = index.readLong();
+                    final long offset = index.readLong();
+                    final long length = index.readLong();
+                    if (offset + length > dataLength) break;
+                    index2Offset.put(graphIndex, offset);
+                    index2Length.put(graphIndex, length);
+                    indexLength += INDEX_ENTRY_SIZE;
+                }
+                // Drops entries that were not completely written
+                if (index.length() != indexLength) {
+                    logger.warn("Truncating offset index " + indexFile + " from " + index.length() + " to " + indexLength + " bytes");
+                    index.setLength(indexLength);
+                }
+            }
+        }
+
+        dataChannel = new RandomAccessFile(new File(dir, DATA_FILE), "rw").getChannel();
+        indexOutput = new DataOutputStream(new FileOutputStream(indexFile, true));
+    }
+
+    /**
+     * Appends a graph to this store. If a graph with the same index was already present, it will be
+     * replaced (but its space in the data file will not be reclaimed).
+     *
+     * @param index       Index of the graph
+     * @param graph       the graph, with LIDs such that internal nodes come first
+     * @param numInternal Number of internal nodes
+     * @param LID2GID     Map from LIDs to GIDs
+     * @throws IOException if there was a problem writing to files
+     */
+    public synchronized void append(final long index, final ImmutableGraph graph, final int numInternal, final long[] LID2GID) throws IOException {
+        final int n = graph.numNodes();
+        if (LID2GID.length != n) throw new IllegalArgumentException("The graph has " + n + " nodes, but " + LID2GID.length + " GIDs were provided");
+        final FastByteArrayOutputStream fbaos = new FastByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(fbaos);
+        out.writeInt(n);
+        out.writeInt(numInternal);
+        for (final long gid : LID2GID) out.writeLong(gid);
+        final int[] sortedLIDs = new int[n];
+        for (int i = 0; i < n; i++) sortedLIDs[i] = i;
+        IntArrays.quickSort(sortedLIDs, (x, y) -> Long.compare(LID2GID[x], LID2GID[y]));
+        for (final int lid : sortedLIDs) out.writeInt(lid);
+
+        final Properties graphProperties = new Properties(), transposeProperties = new Properties();
+        InMemoryBVGraph.write(graph, graphProperties, out);
+        InMemoryBVGraph.write(Transform.transpose(graph), transposeProperties, out);
+        writeProperties(graphProperties, out);
+        writeProperties(transposeProperties, out);
+        out.flush();
+
+        // Data are written before the index, so the index never points past the end of the data
+        final long offset = dataChannel.size();
+        final ByteBuffer buffer = ByteBuffer.wrap(fbaos.array, 0, fbaos.length);
+        for (long position = offset; buffer.hasRemaining();) position += dataChannel.write(buffer, position);
+        indexOutput.writeLong(index);
+        indexOutput.writeLong(offset);
+        indexOutput.writeLong(fbaos.length);
+        indexOutput.flush();
+        index2Offset.put(index, offset);
+        index2Length.put(index, fbaos.length);
+    }
+
+    private static void writeProperties(final Properties properties, final DataOutputStream out) throws IOException {
+        final FastByteArrayOutputStream fbaos = new FastByteArrayOutputStream();
+        properties.store(fbaos, null);
+        out.writeInt(fbaos.length);
+        out.write(fbaos.array, 0, fbaos.length);
+    }
+
+    private static Properties readProperties(final ByteBuffer buffer) throws IOException {
+        final int length = buffer.getInt();
+        final ByteBuffer slice = buffer.slice();
+        slice.limit(length);
+        buffer.position(buffer.position() + length);
+        final Properties properties = new Properties();
+        properties.load(new ByteBufferInputStream(slice));
+        return properties;
+    }
+
+    /**
+     * Returns whether this store contains a graph.
+     *
+     * @param index Index of the graph
+     * @return true if this store contains a graph with the given index.
+     */
+    public synchronized boolean contains(final long index) {
+        return index2Offset.containsKey(index);
+    }
+
+    /**
+     * Retrieves a graph from this store, mapping it in memory.
+     *
+     * @param index Index of the graph
+     * @return the graph data, or {@code null} if there is no graph with the given index
+     * @throws IOException if there was a problem mapping the data file
+     */
+    public CallGraphData get(final long index) throws IOException {
+        final long offset, length;
+        final ByteBuffer buffer;
+        synchronized (this) {
+            offset = index2Offset.get(index);
+            if (offset == -1) return null;
+            length = index2Length.get(index);
+            buffer = map(offset, length);
+        }
+
+        final int n = buffer.getInt();
+        final int numInternal = buffer.getInt();
+        final long[] LID2GID = new long[n];
+        buffer.asLongBuffer().get(LID2GID);
+        buffer.position(buffer.position() + n * Long.BYTES);
+        final IntBuffer sortedLIDs = buffer.slice().asIntBuffer();
+        sortedLIDs.limit(n);
+        buffer.position(buffer.position() + n * Integer.BYTES);
+
+        final Long2LongFunction GID2LID = gid -> {
+            // Binary search on the LIDs sorted by GID
+            int from = 0, to = n - 1;
+            while (from <= to) {
+                final int mid = (from + to) >>> 1;
+                final int lid = sortedLIDs.get(mid);
+                final long midGID = LID2GID[lid];
+                if (midGID < gid) from = mid + 1;
+                else if (midGID > gid) to = mid - 1;
+                else return lid;
+            }
+            return -1;
+        };
+
+        final BVGraph graph = InMemoryBVGraph.map(buffer);
+        final BVGraph transpose = InMemoryBVGraph.map(buffer);
+        final Properties graphProperties = readProperties(buffer);
+        final Properties transposeProperties = readProperties(buffer);
+        return new CallGraphData(graph, transpose, graphProperties, transposeProperties, LID2GID, GID2LID, numInternal, (int)length);
+    }
+
+    /**
+     * Returns a buffer containing an entry of the data file, mapping its segment if it was not
+     * mapped yet, or if it was mapped before the entry was appended. Must be called while
+     * synchronizing on this store.
+     *
+     * @param offset the offset of the entry
+     * @param length the length of the entry
+     * @return a buffer whose content is the entry
+     */
+    private ByteBuffer map(final long offset, final long length) throws IOException {
+        final int segment = (int)(offset / SEGMENT_BYTES);
+        final long base = segment * SEGMENT_BYTES;
+        final long end = offset - base + length;
+        // Entries too large to fit in the mapping of their segment are mapped by themselves
+        if (end > Integer.MAX_VALUE) return dataChannel.map(MapMode.READ_ONLY, offset, length);
+        if (segments.size() <= segment) segments.size(segment + 1);
+        ByteBuffer mapped = segments.get(segment);
+        if (mapped == null || mapped.capacity() < end) {
+            mapped = dataChannel.map(MapMode.READ_ONLY, base, Math.min(dataChannel.size() - base, Integer.MAX_VALUE));
+            segments.set(segment, mapped);
+        }
+        final ByteBuffer buffer = mapped.duplicate();
+        buffer.position((int)(offset - base)).limit((int)end);
+        return buffer.slice();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        indexOutput.close();
+        dataChannel.close();
+        segments.clear();
+    }
+}
@@ -19,9 +19,8 @@
 package eu.fasten.core.data.graphdb;
 
 import java.io.Closeable;
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -46,8 +45,8 @@ import com.esotericsoftware.kryo.serializers.JavaSerializer;
 import com.google.common.primitives.Longs;
 
 import eu.fasten.core.data.GOV3LongFunction;
-import eu.fasten.core.data.KnowledgeBase;
 import eu.fasten.core.index.BVGraphSerializer;
+import eu.fasten.core.index.InMemoryBVGraph;
 import eu.fasten.core.index.LayeredLabelPropagation;
 import it.unimi.dsi.Util;
 import it.unimi.dsi.fastutil.io.FastByteArrayOutputStream;
@@ -64,7 +63,10 @@ public class RocksDao implements Closeable {
 
     private final RocksDB rocksDb;
     private final ColumnFamilyHandle defaultHandle;
-    private Kryo kryo;
+    /** If not {@code null}, graphs are stored in this memory-mapped store instead of RocksDB. */
+    private final MappedGraphStore mappedGraphStore;
+    /** Kryo instances are not thread-safe, and the DAO may be shared by several workers. */
+    private final ThreadLocal<Kryo> kryo = ThreadLocal.withInitial(RocksDao::createKryo);
     private final Logger logger = LoggerFactory.getLogger(RocksDao.class.getName());
 
     /**
@@ -84,11 +86,24 @@ public class RocksDao implements Closeable {
         final List<ColumnFamilyHandle> columnFamilyHandles = new ArrayList<>();
         this.rocksDb = RocksDB.open(dbOptions, dbDir, cfDescriptors, columnFamilyHandles);
         this.defaultHandle = columnFamilyHandles.get(0);
-        initKryo();
+        this.mappedGraphStore = null;
     }
 
-    private void initKryo() {
-        kryo = new Kryo();
+    /**
+     * Constructor of RocksDao (Database Access Object) using a {@link MappedGraphStore} in place of
+     * RocksDB: graphs are appended to a memory-mapped file and retrieved with no deserialization.
+     *
+     * @param mappedGraphStore the graph store; it will be closed when this RocksDao is closed
+     */
+    public RocksDao(final MappedGraphStore mappedGraphStore) {
+        this.rocksDb = null;
+        this.defaultHandle = null;
+        this.mappedGraphStore = mappedGraphStore;
+    }
+
+    /** Creates a kryo instance suitable for the serialization of call-graph data. */
+    private static Kryo createKryo() {
+        final Kryo kryo = new Kryo();
         kryo.register(BVGraph.class, new BVGraphSerializer(kryo));
 		kryo.register(Boolean.class);
         kryo.register(byte[].class);
@@ -100,6 +115,7 @@ public class RocksDao implements Closeable {
         kryo.register(long[].class);
         kryo.register(Long2IntOpenHashMap.class);
 		kryo.register(GOV3LongFunction.class, new JavaSerializer());
+        return kryo;
     }
 
     /**
@@ -150,11 +166,9 @@ public class RocksDao implements Closeable {
                 logger.error("Duplicate arc (" + sourceId + " -> " + targetId + ")", e);
             }
         }
-        final var file = File.createTempFile(KnowledgeBase.class.getSimpleName(), ".tmpgraph");
         final var graphProperties = new Properties();
         final var transposeProperties = new Properties();
-        FileInputStream propertyFile;
-        // Compress, load and serialize graph
+        // Compress and serialize graph (in memory, no temporary files)
 
 		final ImmutableGraph unpermutedGraph = mutableGraph.immutableView();
 		final int numNodes = unpermutedGraph.numNodes();
@@ -172,27 +186,24 @@ public class RocksDao implements Closeable {
 		Util.invertPermutationInPlace(sorted);
 
 		final ImmutableGraph graph = Transform.map(unpermutedGraph, sorted);
-        BVGraph.store(graph, file.toString());
-        propertyFile = new FileInputStream(file + BVGraph.PROPERTIES_EXTENSION);
-        graphProperties.load(propertyFile);
-        propertyFile.close();
-        final FastByteArrayOutputStream fbaos = new FastByteArrayOutputStream();
-        final ByteBufferOutput bbo = new ByteBufferOutput(fbaos);
-        kryo.writeObject(bbo, Boolean.TRUE);
-        kryo.writeObject(bbo, BVGraph.load(file.toString()));
         // Compute LIDs according to the current node renumbering based on BFS
         final long[] LID2GID = new long[temporary2GID.length];
         for (int x = 0; x < temporary2GID.length; x++) {
 			LID2GID[sorted[x]] = temporary2GID[x];
         }
+        if (mappedGraphStore != null) {
+            mappedGraphStore.append(index, graph, numInternal, LID2GID);
+            return;
+        }
 
+        final Kryo kryo = this.kryo.get();
+        final FastByteArrayOutputStream fbaos = new FastByteArrayOutputStream();
+        final ByteBufferOutput bbo = new ByteBufferOutput(fbaos);
+        kryo.writeObject(bbo, Boolean.TRUE);
+        kryo.writeObject(bbo, InMemoryBVGraph.compress(graph, graphProperties));
 		final GOV3LongFunction GID2LID = new GOV3LongFunction.Builder().keys(LongArrayList.wrap(LID2GID)).build();
-        // Compress, load and serialize transpose graph
-        BVGraph.store(Transform.transpose(graph), file.toString());
-        propertyFile = new FileInputStream(file + BVGraph.PROPERTIES_EXTENSION);
-        transposeProperties.load(propertyFile);
-        propertyFile.close();
-        kryo.writeObject(bbo, BVGraph.load(file.toString()));
+        // Compress and serialize transpose graph
+        kryo.writeObject(bbo, InMemoryBVGraph.compress(Transform.transpose(graph), transposeProperties));
         kryo.writeObject(bbo, numInternal);
         // Write out properties
         kryo.writeObject(bbo, graphProperties);
@@ -203,14 +214,10 @@ public class RocksDao implements Closeable {
         bbo.flush();
         // Write to DB
         rocksDb.put(defaultHandle, Longs.toByteArray(index), 0, 8, fbaos.array, 0, fbaos.length);
-        new File(file.toString() + BVGraph.PROPERTIES_EXTENSION).delete();
-        new File(file.toString() + BVGraph.OFFSETS_EXTENSION).delete();
-        new File(file.toString() + BVGraph.GRAPH_EXTENSION).delete();
-        file.delete();
     }
 
     /**
-     * Retrieves graph data from RocksDB database.
+     * Retrieves graph data from RocksDB database (or from the memory-mapped graph store).
      *
      * @param index Index of the graph
      * @return CallGraphData stored in the database
@@ -218,9 +225,16 @@ public class RocksDao implements Closeable {
      */
 	public CallGraphData getGraphData(final long index)
             throws RocksDBException {
+        if (mappedGraphStore != null) {
+            try {
+                return mappedGraphStore.get(index);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
         final byte[] buffer = rocksDb.get(Longs.toByteArray(index));
         final Input input = new Input(buffer);
-        assert kryo != null;
+        final Kryo kryo = this.kryo.get();
 		final boolean compressed = kryo.readObject(input, Boolean.class).booleanValue();
 
         final var graphs = new ImmutableGraph[]{
@@ -235,11 +249,18 @@ public class RocksDao implements Closeable {
         final long[] LID2GID = kryo.readObject(input, long[].class);
 		final GOV3LongFunction GID2LID = kryo.readObject(input, GOV3LongFunction.class);
 		return new CallGraphData(graphs[0], graphs[1], properties[0], properties[1],
-                LID2GID, GID2LID, numInternal, buffer.length);
+                LID2GID, GID2LID::getLong, numInternal, buffer.length);
     }
 
     @Override
     public void close() {
+        if (mappedGraphStore != null) {
+            try {
+                mappedGraphStore.close();
+            } catch (final IOException e) {
+                logger.error("Error closing graph store", e);
+            }
+        }
         if (defaultHandle != null) {
             defaultHandle.close();
         }
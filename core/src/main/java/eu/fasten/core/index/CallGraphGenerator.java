@@ -248,7 +248,15 @@ public class CallGraphGenerator {
 		}
 	}
 
-	private static String graph2String(final CallGraphGenerator callGraphGenerator, final int i, final RandomGenerator randomGenerator) {
+	/** Returns the JSON representation of a generated call graph, in the format accepted by
+	 *  {@link eu.fasten.core.data.RevisionCallGraph#RevisionCallGraph(org.json.JSONObject)}.
+	 *
+	 * @param callGraphGenerator a generator on which {@link #generate(int, IntegerDistribution, IntegerDistribution, IntegerDistribution, IntegerDistribution, IntegerDistribution, RandomGenerator)} has been called.
+	 * @param i the index of a generated call graph.
+	 * @param randomGenerator the random object used to shuffle the calls.
+	 * @return the JSON representation of the <code>i</code>-th call graph.
+	 */
+	public static String graph2String(final CallGraphGenerator callGraphGenerator, final int i, final RandomGenerator randomGenerator) {
 		final ArrayListMutableGraph g = callGraphGenerator.rcgs[i];
 		final StringBuilder sb = new StringBuilder();
 		sb.append("{\n");
@@ -0,0 +1,138 @@
+package eu.fasten.core.index;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+import com.martiansoftware.jsap.FlaggedOption;
+import com.martiansoftware.jsap.JSAP;
+import com.martiansoftware.jsap.JSAPException;
+import com.martiansoftware.jsap.JSAPResult;
+import com.martiansoftware.jsap.Parameter;
+import com.martiansoftware.jsap.SimpleJSAP;
+
+import it.unimi.dsi.util.XoRoShiRo128PlusPlusRandom;
+import it.unimi.dsi.webgraph.ArrayListMutableGraph;
+import it.unimi.dsi.webgraph.BVGraph;
+import it.unimi.dsi.webgraph.ImmutableGraph;
+import it.unimi.dsi.webgraph.Transform;
+
+/**
+ * Compares the time needed to obtain compressed {@link BVGraph} instances (and their properties)
+ * from call graphs by means of temporary files, as {@link eu.fasten.core.data.KnowledgeBase} used to
+ * do, and by means of an {@link InMemoryBVGraph}.
+ *
+ * <p>
+ * The benchmark uses random graphs with the size and the locality of typical call graphs: most arcs
+ * point to nearby nodes. Each graph and its transpose are compressed, as it happens when a call graph
+ * is added to a knowledge base.
+ */
+public class CompressionBenchmark {
+
+	/**
+	 * Compresses a graph using a temporary file, the way {@link BVGraph} is meant to be used.
+	 *
+	 * @param graph a graph.
+	 * @param properties a property set that will be filled with the properties of the compressed graph.
+	 * @return the compressed graph.
+	 */
+	public static BVGraph compressWithTemporaryFile(final ImmutableGraph graph, final Properties properties) throws IOException {
+		final File f = File.createTempFile(CompressionBenchmark.class.getSimpleName(), ".tmpgraph");
+		BVGraph.store(graph, f.toString());
+		final FileInputStream propertyFile = new FileInputStream(f + BVGraph.PROPERTIES_EXTENSION);
+		properties.load(propertyFile);
+		propertyFile.close();
+		final BVGraph bvGraph = BVGraph.load(f.toString());
+		new File(f.toString() + BVGraph.PROPERTIES_EXTENSION).delete();
+		new File(f.toString() + BVGraph.OFFSETS_EXTENSION).delete();
+		new File(f.toString() + BVGraph.GRAPH_EXTENSION).delete();
+		f.delete();
+		return bvGraph;
+	}
+
+	private static ImmutableGraph randomGraph(final int n, final int outdegree, final XoRoShiRo128PlusPlusRandom random) {
+		final ArrayListMutableGraph graph = new ArrayListMutableGraph(n);
+		for (int x = 0; x < n; x++) {
+			for (int i = random.nextInt(2 * outdegree + 1); i-- != 0;) {
+				final int y = random.nextInt(4) == 0 ? random.nextInt(n) : Math.min(n - 1, Math.max(0, x + random.nextInt(64) - 32));
+				try {
+					graph.addArc(x, y);
+				} catch (final IllegalArgumentException e) {
+					// Duplicate arc
+				}
+			}
+		}
+		return graph.immutableView();
+	}
+
+	public static void main(final String[] args) throws JSAPException, IOException {
+		final SimpleJSAP jsap = new SimpleJSAP(CompressionBenchmark.class.getName(),
+				"Compares the compression of call graphs through temporary files with in-memory compression.",
+				new Parameter[] {
+						new FlaggedOption("graphs", JSAP.INTEGER_PARSER, "1000", JSAP.NOT_REQUIRED, 'g', "graphs", "The number of random graphs."),
+						new FlaggedOption("nodes", JSAP.INTEGER_PARSER, "1000", JSAP.NOT_REQUIRED, 'n', "nodes", "The number of nodes of each graph."),
+						new FlaggedOption("outdegree", JSAP.INTEGER_PARSER, "4", JSAP.NOT_REQUIRED, 'd', "outdegree", "The average outdegree of each graph."),
+						new FlaggedOption("rounds", JSAP.INTEGER_PARSER, "5", JSAP.NOT_REQUIRED, 'r', "rounds", "The number of rounds (the first one is a warm-up round)."),
+		});
+
+		final JSAPResult jsapResult = jsap.parse(args);
+		if ( jsap.messagePrinted() ) return;
+
+		final int n = jsapResult.getInt("nodes");
+		final int outdegree = jsapResult.getInt("outdegree");
+		final int rounds = jsapResult.getInt("rounds");
+		final XoRoShiRo128PlusPlusRandom random = new XoRoShiRo128PlusPlusRandom(0);
+		final ImmutableGraph[] graphs = new ImmutableGraph[jsapResult.getInt("graphs")];
+		final ImmutableGraph[] transposes = new ImmutableGraph[graphs.length];
+		long arcs = 0;
+		for (int i = 0; i < graphs.length; i++) {
+			graphs[i] = randomGraph(n, outdegree, random);
+			transposes[i] = new ArrayListMutableGraph(Transform.transpose(graphs[i])).immutableView();
+			arcs += graphs[i].numArcs();
+		}
+
+		for (int round = 0; round < rounds; round++) {
+			long start = System.nanoTime();
+			long arcDifference = 0;
+			for (int i = 0; i < graphs.length; i++) {
+				final Properties properties = new Properties();
+				compressWithTemporaryFile(graphs[i], properties);
+				compressWithTemporaryFile(transposes[i], properties);
+				arcDifference += Long.parseLong(properties.getProperty("arcs"));
+			}
+			final double fileElapsed = (System.nanoTime() - start) / 1E9;
+
+			start = System.nanoTime();
+			for (int i = 0; i < graphs.length; i++) {
+				final Properties properties = new Properties();
+				InMemoryBVGraph.compress(graphs[i], properties);
+				InMemoryBVGraph.compress(transposes[i], properties);
+				arcDifference -= Long.parseLong(properties.getProperty("arcs"));
+			}
+			final double memoryElapsed = (System.nanoTime() - start) / 1E9;
+
+			if (arcDifference != 0) throw new AssertionError("Different number of arcs");
+			System.out.printf("Round: %d%s\tGraphs: %d\tArcs: %d\tTemporary files: %.3fs (%.2f graphs/s)\tIn memory: %.3fs (%.2f graphs/s)\tSpeedup: %.2fx\n",
+					round, round == 0 ? " (warm-up)" : "", graphs.length, arcs, fileElapsed, graphs.length / fileElapsed, memoryElapsed, graphs.length / memoryElapsed, fileElapsed / memoryElapsed);
+		}
+	}
+}
@@ -24,6 +24,7 @@ import static eu.fasten.core.data.KnowledgeBase.index;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.function.LongConsumer;
 
 import org.apache.commons.lang3.mutable.MutableLong;
 import org.rocksdb.RocksDBException;
@@ -41,6 +42,7 @@ import com.martiansoftware.jsap.UnflaggedOption;
 import eu.fasten.core.data.KnowledgeBase;
 import eu.fasten.core.data.KnowledgeBase.CallGraph;
 import eu.fasten.core.data.KnowledgeBase.CallGraphData;
+import eu.fasten.core.data.KnowledgeBase.Navigator;
 import eu.fasten.core.data.KnowledgeBase.Node;
 import it.unimi.dsi.fastutil.ints.IntArrayFIFOQueue;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
@@ -99,27 +101,28 @@ public class GlobalVisitStats {
 
 		pl.start("Visiting reachable nodes...");
 
-		while (!queue.isEmpty()) {
-			final long node = queue.dequeueLong();
-
-			for (final long s : kb.successors(node)) if (!result.contains(s)) {
-				p = kb.callGraphs.get(index(s)).product;
-				final long gid = gid(s);
-				if (badGIDs.contains(gid)) continue;
-				final String targetNameSpace = kb.new Node(gid, index(s)).toFastenURI().getRawNamespace();
-				if (targetNameSpace.startsWith("java.") || targetNameSpace.startsWith("javax.") || targetNameSpace.startsWith("jdk.")) {
-					badGIDs.add(gid);
-					continue;
-				}
-				revs = product2Revs.get(p);
-				if (revs == null) product2Revs.put(p, revs = new IntOpenHashSet());
-				if (revs.contains(index(s)) || revs.size() < maxRevs) {
-					queue.enqueue(s);
-					result.add(s);
-					//System.out.println(kb.new Node(gid(node), index(node)).toFastenURI() + " -> " + kb.new Node(gid(s), index(s)).toFastenURI());
-					if (revs.add(index(s))) totRevs.increment();
-				}
+		final Navigator navigator = kb.navigator();
+		final LongConsumer visit = s -> {
+			if (result.contains(s)) return;
+			final String product = kb.callGraphs.get(index(s)).product;
+			final long gid = gid(s);
+			if (badGIDs.contains(gid)) return;
+			final String targetNameSpace = kb.new Node(gid, index(s)).toFastenURI().getRawNamespace();
+			if (targetNameSpace.startsWith("java.") || targetNameSpace.startsWith("javax.") || targetNameSpace.startsWith("jdk.")) {
+				badGIDs.add(gid);
+				return;
+			}
+			IntOpenHashSet productRevs = product2Revs.get(product);
+			if (productRevs == null) product2Revs.put(product, productRevs = new IntOpenHashSet());
+			if (productRevs.contains(index(s)) || productRevs.size() < maxRevs) {
+				queue.enqueue(s);
+				result.add(s);
+				if (productRevs.add(index(s))) totRevs.increment();
 			}
+		};
+
+		while (!queue.isEmpty()) {
+			navigator.forEachSuccessor(queue.dequeueLong(), visit);
 			pl.lightUpdate();
 		}
 
@@ -152,22 +155,24 @@ public class GlobalVisitStats {
 			}
 		};
 		pl.start("Visiting coreachable nodes...");
-		while (!queue.isEmpty()) {
-			final long node = queue.dequeueLong();
-
-			for (final long s : kb.predecessors(node)) if (!result.contains(s)) {
-				p = kb.callGraphs.get(index(s)).product;
-				final String targetNameSpace = kb.new Node(gid(s), index(s)).toFastenURI().getRawNamespace();
-				if (targetNameSpace.startsWith("java.") || targetNameSpace.startsWith("javax.") || targetNameSpace.startsWith("jdk.")) continue;
-				revs = product2Revs.get(p);
-				if (revs == null) product2Revs.put(p, revs = new IntOpenHashSet());
-				if (revs.contains(index(s)) || revs.size() < maxRevs) {
-					queue.enqueue(s);
-					result.add(s);
-					//System.out.println(kb.new Node(gid(node), index(node)).toFastenURI() + " -> " + kb.new Node(gid(s), index(s)).toFastenURI());
-					if (revs.add(index(s))) totRevs.increment();
-				}
+
+		final Navigator navigator = kb.navigator();
+		final LongConsumer visit = s -> {
+			if (result.contains(s)) return;
+			final String product = kb.callGraphs.get(index(s)).product;
+			final String targetNameSpace = kb.new Node(gid(s), index(s)).toFastenURI().getRawNamespace();
+			if (targetNameSpace.startsWith("java.") || targetNameSpace.startsWith("javax.") || targetNameSpace.startsWith("jdk.")) return;
+			IntOpenHashSet productRevs = product2Revs.get(product);
+			if (productRevs == null) product2Revs.put(product, productRevs = new IntOpenHashSet());
+			if (productRevs.contains(index(s)) || productRevs.size() < maxRevs) {
+				queue.enqueue(s);
+				result.add(s);
+				if (productRevs.add(index(s))) totRevs.increment();
 			}
+		};
+
+		while (!queue.isEmpty()) {
+			navigator.forEachPredecessor(queue.dequeueLong(), visit);
 			pl.lightUpdate();
 		}
 
@@ -0,0 +1,420 @@
+package eu.fasten.core.index;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Properties;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.io.FastByteArrayOutputStream;
+import it.unimi.dsi.fastutil.longs.AbstractLongBigList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongBigList;
+import it.unimi.dsi.io.ByteBufferInputStream;
+import it.unimi.dsi.io.NullOutputStream;
+import it.unimi.dsi.io.OutputBitStream;
+import it.unimi.dsi.sux4j.util.EliasFanoMonotoneLongBigList;
+import it.unimi.dsi.webgraph.BVGraph;
+import it.unimi.dsi.webgraph.ImmutableGraph;
+import it.unimi.dsi.webgraph.NodeIterator;
+
+/**
+ * Compresses graphs in the {@link BVGraph} format entirely in memory.
+ *
+ * <p>
+ * {@link BVGraph#store(ImmutableGraph, CharSequence)} can only write to files, so obtaining a
+ * {@link BVGraph} instance from an {@link ImmutableGraph} usually requires storing the graph in a
+ * temporary file, reading back its properties and {@linkplain BVGraph#load(CharSequence) loading} it.
+ * The {@link #compress(ImmutableGraph, Properties)} method of this class produces directly the
+ * compressed bit stream and the offsets, with no disk I/O, and returns an in-memory {@link BVGraph}
+ * equivalent to the one that would be loaded from disk (the graph bit stream is actually
+ * identical).
+ *
+ * <p>
+ * The compression algorithm is the one of {@link BVGraph}, with default parameters. This class
+ * extends {@link BVGraph} only to access its coding methods: instances returned by
+ * {@link #compress(ImmutableGraph, Properties)} are plain {@link BVGraph} instances, and can be
+ * serialized by a {@link BVGraphSerializer}.
+ *
+ * <p>
+ * Graphs can also be {@linkplain #write(ImmutableGraph, Properties, DataOutput) written} in a raw
+ * format and {@linkplain #map(ByteBuffer) mapped} back from a byte buffer with no deserialization.
+ */
+public class InMemoryBVGraph extends BVGraph {
+	private static final long serialVersionUID = 1L;
+
+	/** Successor lists of the nodes in the current window (a cyclic buffer). */
+	private final int[][] list;
+	/** Lengths of the lists in {@link #list}. */
+	private final int[] listLen;
+	/** Number of references in the reference chain of each list in {@link #list}. */
+	private final int[] refCount;
+	/** Temporary storage for the blocks computed by {@link #diffComp}. */
+	private final IntArrayList blocks = new IntArrayList();
+	/** Temporary storage for the extra nodes computed by {@link #diffComp}. */
+	private final IntArrayList extras = new IntArrayList();
+	/** Temporary storage for the left extremes of intervals. */
+	private final IntArrayList left = new IntArrayList();
+	/** Temporary storage for the lengths of intervals. */
+	private final IntArrayList len = new IntArrayList();
+	/** Temporary storage for residuals. */
+	private final IntArrayList residuals = new IntArrayList();
+	/** The number of arcs copied from reference lists. */
+	private long copiedArcs;
+	/** The number of arcs coded by means of intervals. */
+	private long intervalisedArcs;
+	/** The sum of the reference distances. */
+	private long totRef;
+
+	private InMemoryBVGraph() {
+		windowSize = DEFAULT_WINDOW_SIZE;
+		maxRefCount = DEFAULT_MAX_REF_COUNT;
+		minIntervalLength = DEFAULT_MIN_INTERVAL_LENGTH;
+		zetaK = DEFAULT_ZETA_K;
+		outdegreeCoding = GAMMA;
+		blockCoding = GAMMA;
+		residualCoding = ZETA;
+		referenceCoding = UNARY;
+		blockCountCoding = GAMMA;
+		offsetCoding = GAMMA;
+		offsetType = 1;
+		isMemory = true;
+		cachedNode = Integer.MIN_VALUE;
+
+		final int cyclicBufferSize = windowSize + 1;
+		list = new int[cyclicBufferSize][IntArrays.EMPTY_ARRAY.length];
+		listLen = new int[cyclicBufferSize];
+		refCount = new int[cyclicBufferSize];
+	}
+
+	/**
+	 * Compresses a graph in memory.
+	 *
+	 * @param graph a graph.
+	 * @return an in-memory {@link BVGraph} with the same nodes and arcs of <code>graph</code>.
+	 */
+	public static BVGraph compress(final ImmutableGraph graph) {
+		return compress(graph, new Properties());
+	}
+
+	/**
+	 * Compresses a graph in memory, filling a set of properties.
+	 *
+	 * @param graph a graph.
+	 * @param properties a property set that will be filled with the main properties (in the sense of
+	 *            {@link ImmutableGraph}) of the compressed graph.
+	 * @return an in-memory {@link BVGraph} with the same nodes and arcs of <code>graph</code>.
+	 */
+	public static BVGraph compress(final ImmutableGraph graph, final Properties properties) {
+		try {
+			final InMemoryBVGraph compressor = new InMemoryBVGraph();
+			final long[] offsets = compressor.compressInternal(graph);
+			compressor.offsets = new EliasFanoMonotoneLongBigList(LongArrayList.wrap(offsets));
+			compressor.fillProperties(properties, offsets[compressor.n]);
+			// Returns a plain BVGraph sharing all data with the compressor
+			return compressor.copy();
+		} catch (final IOException e) {
+			// Cannot happen, as all output happens in memory
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Compresses a graph and writes it to a {@link DataOutput} in a raw format that can be
+	 * {@linkplain #map(ByteBuffer) mapped} back with no deserialization.
+	 *
+	 * <p>
+	 * The format contains the number of nodes (an integer), the number of arcs (a long), the length in
+	 * bytes of the graph bit stream (a long), the graph bit stream, and the bit offsets of each
+	 * successor list, plus the overall length in bits of the bit stream (<var>n</var>&nbsp;+&nbsp;1
+	 * longs), in {@link DataOutput} byte order.
+	 *
+	 * @param graph a graph.
+	 * @param properties a property set that will be filled with the main properties of the compressed
+	 *            graph.
+	 * @param out a data output.
+	 */
+	public static void write(final ImmutableGraph graph, final Properties properties, final DataOutput out) throws IOException {
+		final InMemoryBVGraph compressor = new InMemoryBVGraph();
+		final long[] offsets = compressor.compressInternal(graph);
+		compressor.fillProperties(properties, offsets[compressor.n]);
+		out.writeInt(compressor.n);
+		out.writeLong(compressor.m);
+		out.writeLong(compressor.graphMemory.length);
+		out.write(compressor.graphMemory);
+		for (final long offset : offsets) out.writeLong(offset);
+	}
+
+	/**
+	 * Returns a {@link BVGraph} reading a graph {@linkplain #write(ImmutableGraph, Properties, DataOutput)
+	 * written in raw format} directly from a byte buffer (usually, a memory-mapped file).
+	 *
+	 * <p>
+	 * Neither the graph bit stream nor the offsets are copied: the returned graph is in mapped mode,
+	 * and reads its data from slices of the given buffer. The position of the buffer is advanced past
+	 * the end of the graph.
+	 *
+	 * @param buffer a byte buffer positioned at the start of a graph in raw format.
+	 * @return a {@link BVGraph} backed by <code>buffer</code>.
+	 */
+	public static BVGraph map(final ByteBuffer buffer) {
+		final InMemoryBVGraph mapped = new InMemoryBVGraph();
+		mapped.isMemory = false;
+		mapped.isMapped = true;
+		mapped.n = buffer.getInt();
+		mapped.m = buffer.getLong();
+		final long length = buffer.getLong();
+		if (length > Integer.MAX_VALUE) throw new IllegalArgumentException("Graph bit stream too long: " + length + " bytes");
+		final ByteBuffer graphBuffer = buffer.slice();
+		graphBuffer.limit((int)length);
+		mapped.mappedGraphStream = new ByteBufferInputStream(graphBuffer);
+		buffer.position(buffer.position() + (int)length);
+		mapped.offsets = new ByteBufferLongBigList(buffer.slice(), mapped.n + 1);
+		buffer.position(buffer.position() + (mapped.n + 1) * Long.BYTES);
+		// Returns a plain BVGraph sharing all data with this instance
+		return mapped.copy();
+	}
+
+	/** A read-only {@link LongBigList} view of a sequence of longs in a byte buffer. */
+	private static final class ByteBufferLongBigList extends AbstractLongBigList {
+		private final ByteBuffer buffer;
+		private final long size;
+
+		private ByteBufferLongBigList(final ByteBuffer buffer, final long size) {
+			this.buffer = buffer;
+			this.size = size;
+		}
+
+		@Override
+		public long getLong(final long index) {
+			return buffer.getLong((int)(index * Long.BYTES));
+		}
+
+		@Override
+		public long size64() {
+			return size;
+		}
+	}
+
+	/**
+	 * Compresses a graph, setting the graph bit stream, the number of nodes and the number of arcs.
+	 *
+	 * @param graph a graph.
+	 * @return the offsets of the successor lists, followed by the length in bits of the bit stream.
+	 */
+	private long[] compressInternal(final ImmutableGraph graph) throws IOException {
+		n = graph.numNodes();
+		final int cyclicBufferSize = windowSize + 1;
+		final FastByteArrayOutputStream fbaos = new FastByteArrayOutputStream();
+		final OutputBitStream graphObs = new OutputBitStream(fbaos, 0);
+		final OutputBitStream bitCount = new OutputBitStream(NullOutputStream.getInstance(), 0);
+		final long[] offsets = new long[n + 1];
+
+		m = 0;
+		final NodeIterator nodeIterator = graph.nodeIterator();
+		for (int i = 0; i < n; i++) {
+			final int currNode = nodeIterator.nextInt();
+			final int outd = nodeIterator.outdegree();
+			final int currIdx = currNode % cyclicBufferSize;
+			final int[] successors = nodeIterator.successorArray();
+
+			// We copy the current successor list into the buffer
+			list[currIdx] = IntArrays.grow(list[currIdx], outd, 0);
+			System.arraycopy(successors, 0, list[currIdx], 0, outd);
+			listLen[currIdx] = outd;
+
+			offsets[i] = graphObs.writtenBits();
+			writeOutdegree(graphObs, outd);
+			m += outd;
+
+			if (outd > 0) {
+				if (windowSize > 0) {
+					long bestComp = Long.MAX_VALUE;
+					int bestCand = -1, bestRef = -1;
+
+					// Cycle on the reference window and try each reference
+					refCount[currIdx] = -1;
+					for (int r = 0; r < cyclicBufferSize; r++) {
+						final int cand = (currNode - r + cyclicBufferSize) % cyclicBufferSize;
+						if (refCount[cand] < maxRefCount && listLen[cand] != 0) {
+							final long diffComp = diffComp(bitCount, currNode, r, list[cand], listLen[cand], list[currIdx], listLen[currIdx], false);
+							if (diffComp < bestComp) {
+								bestComp = diffComp;
+								bestCand = cand;
+								bestRef = r;
+							}
+						}
+					}
+
+					assert bestCand >= 0;
+					refCount[currIdx] = refCount[bestCand] + 1;
+					diffComp(graphObs, currNode, bestRef, list[bestCand], listLen[bestCand], list[currIdx], listLen[currIdx], true);
+					totRef += bestRef;
+				} else diffComp(graphObs, currNode, 0, list[currIdx], 0, list[currIdx], listLen[currIdx], true);
+			}
+		}
+
+		offsets[n] = graphObs.writtenBits();
+		graphObs.flush();
+
+		graphMemory = Arrays.copyOf(fbaos.array, fbaos.length);
+		return offsets;
+	}
+
+	/**
+	 * Compresses a successor list differentially with respect to a reference list, and returns the
+	 * number of bits written.
+	 *
+	 * @param obs the output bit stream.
+	 * @param currNode the current node.
+	 * @param ref the reference (0 if no reference is used).
+	 * @param refList the reference list.
+	 * @param refLen the length of the reference list.
+	 * @param currList the current list.
+	 * @param currLen the current list length.
+	 * @param forReal whether we are actually compressing (and thus statistics must be updated).
+	 * @return the number of bits written.
+	 */
+	private long diffComp(final OutputBitStream obs, final int currNode, final int ref, final int[] refList, int refLen, final int[] currList, final int currLen, final boolean forReal) throws IOException {
+		final long writtenBitsAtStart = obs.writtenBits();
+
+		// We build the list of blocks copied and the list of extra entries
+		int j = 0, k = 0, prev = 0, currBlockLen = 0;
+		boolean copying = true;
+
+		if (ref == 0) refLen = 0;
+
+		blocks.clear();
+		extras.clear();
+
+		while (j < currLen && k < refLen) {
+			if (copying) {
+				if (currList[j] > refList[k]) {
+					// While copying we trespassed the current element of the reference list: we stop copying
+					blocks.add(currBlockLen);
+					copying = false;
+					currBlockLen = 0;
+				} else if (currList[j] < refList[k]) extras.add(currList[j++]);
+				else {
+					j++;
+					k++;
+					currBlockLen++;
+					if (forReal) copiedArcs++;
+				}
+			} else {
+				if (currList[j] < refList[k]) extras.add(currList[j++]);
+				else if (currList[j] > refList[k]) {
+					k++;
+					currBlockLen++;
+				} else {
+					// We found a match: we flush the current block and start a new copying phase
+					blocks.add(currBlockLen);
+					copying = true;
+					currBlockLen = 0;
+				}
+			}
+		}
+
+		// The last block is recorded only if we were copying and we did not reach the end of the reference list
+		if (copying && k < refLen) blocks.add(currBlockLen);
+
+		// Missing elements are added to the extra list
+		while (j < currLen) extras.add(currList[j++]);
+
+		final int[] block = blocks.elements();
+		final int blockCount = blocks.size();
+		final int extraCount = extras.size();
+
+		if (windowSize > 0) writeReference(obs, ref);
+
+		if (ref != 0) {
+			writeBlockCount(obs, blockCount);
+			if (blockCount > 0) {
+				writeBlock(obs, block[0]);
+				for (int i = 1; i < blockCount; i++) writeBlock(obs, block[i] - 1);
+			}
+		}
+
+		if (extraCount > 0) {
+			final int[] residual;
+			final int residualCount;
+
+			if (minIntervalLength != NO_INTERVALS) {
+				left.clear();
+				len.clear();
+				residuals.clear();
+				final int intervalCount = intervalize(extras, minIntervalLength, left, len, residuals);
+				obs.writeGamma(intervalCount);
+
+				for (int i = 0; i < intervalCount; i++) {
+					if (i == 0) obs.writeLongGamma(int2nat((long)(prev = left.getInt(i)) - currNode));
+					else obs.writeGamma(left.getInt(i) - prev - 1);
+					final int currIntLen = len.getInt(i);
+					prev += currIntLen;
+					if (forReal) intervalisedArcs += currIntLen;
+					obs.writeGamma(currIntLen - minIntervalLength);
+				}
+
+				residual = residuals.elements();
+				residualCount = residuals.size();
+			} else {
+				residual = extras.elements();
+				residualCount = extras.size();
+			}
+
+			if (residualCount != 0) {
+				writeResidual(obs, int2nat((long)(prev = residual[0]) - currNode));
+				for (int i = 1; i < residualCount; i++) {
+					if (residual[i] == prev) throw new IllegalArgumentException("Repeated successor " + prev + " in successor list of node " + currNode);
+					writeResidual(obs, residual[i] - prev - 1);
+					prev = residual[i];
+				}
+			}
+		}
+
+		return obs.writtenBits() - writtenBitsAtStart;
+	}
+
+	private static long int2nat(final long x) {
+		return x << 1 ^ x >> Long.SIZE - 1;
+	}
+
+	private void fillProperties(final Properties properties, final long bits) {
+		properties.setProperty("graphclass", BVGraph.class.getName());
+		properties.setProperty("version", Integer.toString(BVGRAPH_VERSION));
+		properties.setProperty("nodes", Integer.toString(n));
+		properties.setProperty("arcs", Long.toString(m));
+		properties.setProperty("windowsize", Integer.toString(windowSize));
+		properties.setProperty("maxrefcount", Integer.toString(maxRefCount));
+		properties.setProperty("minintervallength", Integer.toString(minIntervalLength));
+		properties.setProperty("zetak", Integer.toString(zetaK));
+		properties.setProperty("compressionflags", "");
+		properties.setProperty("copiedarcs", Long.toString(copiedArcs));
+		properties.setProperty("intervalisedarcs", Long.toString(intervalisedArcs));
+		properties.setProperty("residualarcs", Long.toString(m - copiedArcs - intervalisedArcs));
+		properties.setProperty("bitspernode", n == 0 ? "0" : Double.toString((double)bits / n));
+		properties.setProperty("bitsperlink", m == 0 ? "0" : Double.toString((double)bits / m));
+		properties.setProperty("avgref", n == 0 ? "0" : Double.toString((double)totRef / n));
+	}
+}
@@ -27,6 +27,7 @@ import java.util.Collections;
 import java.util.Properties;
 import java.util.UUID;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
@@ -53,6 +54,9 @@ import com.martiansoftware.jsap.UnflaggedOption;
 
 import eu.fasten.core.data.RevisionCallGraph;
 import eu.fasten.core.data.KnowledgeBase;
+import eu.fasten.core.transport.LocalLog;
+import eu.fasten.core.transport.LocalLogConsumer;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 /** A sample in-memory indexer that reads, compresses and stores in memory
  *  graphs stored in JSON format and answers to impact queries.
  *
@@ -61,6 +65,8 @@ public class Indexer {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(Indexer.class);
 	private final KnowledgeBase kb;
+	/** The number of threads used to parse, compress and store call graphs. */
+	private final int threads;
 
 
 	/** Creates an indexer using the given database instance.
@@ -68,7 +74,42 @@ public class Indexer {
 	 * @param db the database instance used by this indexer.
 	 */
 	public Indexer(final KnowledgeBase kb) {
+		this(kb, 1);
+	}
+
+	/** Creates an indexer using the given database instance and a given number of threads.
+	 *
+	 * <p>Call graphs are parsed, compressed and stored in parallel; revision indices are nonetheless
+	 * assigned in input order.
+	 *
+	 * @param db the database instance used by this indexer.
+	 * @param threads the number of threads used to index call graphs.
+	 */
+	public Indexer(final KnowledgeBase kb, final int threads) {
+		if (threads < 1) throw new IllegalArgumentException("Invalid number of threads: " + threads);
 		this.kb = kb;
+		this.threads = threads;
+	}
+
+	/** Waits for the completion of a list of indexing tasks, propagating their exceptions.
+	 *
+	 * @param futures a list of indexing tasks.
+	 */
+	private static void waitFor(final ObjectArrayList<Future<Void>> futures) throws IOException, RocksDBException {
+		try {
+			for (final Future<Void> future : futures) future.get();
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof IOException) throw (IOException)cause;
+			if (cause instanceof RocksDBException) throw (RocksDBException)cause;
+			if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+			throw new RuntimeException(cause);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} finally {
+			for (final Future<Void> future : futures) future.cancel(true);
+		}
 	}
 
 	private final boolean[] stopIndexing = new boolean[1];
@@ -78,31 +119,40 @@ public class Indexer {
 		return Executors.newSingleThreadExecutor().submit(() -> {
 			long index = kb.size();
 			long nIndexed = 0;
+			final ExecutorService executorService = Executors.newFixedThreadPool(threads);
 			try {
 				while(!stopIndexing[0]) {
 					final ConsumerRecords<String, String> records = consumer.poll(Duration.ofDays(356));
 
+					// Records of a poll are indexed in parallel
+					final ObjectArrayList<Future<Void>> futures = new ObjectArrayList<>();
 					for (final ConsumerRecord<String, String> record : records) {
 						if (stopIndexing[0]) break;
-						final JSONObject json = new JSONObject(record.value());
-						try {
-							LOGGER.debug("Getting new record with key " + record.key());
-							kb.add(new RevisionCallGraph(json), index++);
-							nIndexed++;
-							if (nIndexed >= max) {
-								stopIndexing[0] = true;
-								break;
+						final long recordIndex = index++;
+						futures.add(executorService.submit(() -> {
+							final JSONObject json = new JSONObject(record.value());
+							try {
+								LOGGER.debug("Getting new record with key " + record.key());
+								kb.add(new RevisionCallGraph(json), recordIndex);
+							} catch(final IllegalArgumentException e) {
+								e.printStackTrace(System.err);
+								throw new RuntimeException(e);
 							}
-						} catch(final IllegalArgumentException e) {
-							e.printStackTrace(System.err);
-							throw new RuntimeException(e);
+							return null;
+						}));
+						nIndexed++;
+						if (nIndexed >= max) {
+							stopIndexing[0] = true;
+							break;
 						}
 					}
+					waitFor(futures);
 				}
 
 				return null;
 			}
 			finally {
+				executorService.shutdownNow();
 				consumer.close();
 			}
 		});
@@ -111,14 +161,25 @@ public class Indexer {
 	public void index(final long max, final String... files) throws JSONException, IOException, RocksDBException {
 		long index = kb.size();
 		long nIndexed = 0;
-		for(final String file: files) {
-			LOGGER.debug("Parsing " + file);
-			final FileReader reader = new FileReader(file);
-			final JSONObject json = new JSONObject(new JSONTokener(reader));
-			kb.add(new RevisionCallGraph(json), index++);
-			nIndexed++;
-			if (nIndexed >= max)  break;
-			reader.close();
+		final ExecutorService executorService = Executors.newFixedThreadPool(threads);
+		final ObjectArrayList<Future<Void>> futures = new ObjectArrayList<>();
+		try {
+			for(final String file: files) {
+				final long fileIndex = index++;
+				futures.add(executorService.submit(() -> {
+					LOGGER.debug("Parsing " + file);
+					try (final FileReader reader = new FileReader(file)) {
+						final JSONObject json = new JSONObject(new JSONTokener(reader));
+						kb.add(new RevisionCallGraph(json), fileIndex);
+					}
+					return null;
+				}));
+				nIndexed++;
+				if (nIndexed >= max)  break;
+			}
+			waitFor(futures);
+		} finally {
+			executorService.shutdownNow();
 		}
 	}
 
@@ -130,7 +191,9 @@ public class Indexer {
 						new FlaggedOption("topic", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, 't', "topic", "A kafka topic containing the input." ),
 						new FlaggedOption("host", JSAP.STRING_PARSER, "localhost", JSAP.NOT_REQUIRED, 'h', "host", "The host of the Kafka server." ),
 						new FlaggedOption("port", JSAP.INTEGER_PARSER, "30001", JSAP.NOT_REQUIRED, 'p', "port", "The port of the Kafka server." ),
+						new FlaggedOption("log", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, 'l', "local-log", "The directory of a local log (see LocalLog) containing the topic, to be used instead of a Kafka server." ),
 						new FlaggedOption("max", JSAP.LONG_PARSER, String.valueOf(Long.MAX_VALUE), JSAP.NOT_REQUIRED, 'm', "max", "The maximum number of call graphs that will be indexed." ),
+						new FlaggedOption("threads", JSAP.INTEGER_PARSER, Integer.toString(Runtime.getRuntime().availableProcessors()), JSAP.NOT_REQUIRED, 'T', "threads", "The number of indexing threads." ),
 						new UnflaggedOption("kb", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, JSAP.NOT_GREEDY, "The directory of the RocksDB instance containing the knowledge base." ),
 						new UnflaggedOption("kbmeta", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, JSAP.NOT_GREEDY, "The file containing the knowledge base metadata." ),
 						new UnflaggedOption("filename", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, JSAP.GREEDY, "The name of the file containing the JSON object." ),
@@ -147,24 +210,29 @@ public class Indexer {
 
 		final KnowledgeBase kb = KnowledgeBase.getInstance(kbDir, kbMetadataFilename, false);
 
-		final Indexer indexer = new Indexer(kb);
+		final Indexer indexer = new Indexer(kb, jsapResult.getInt("threads"));
 
 		final long max = jsapResult.getLong("max");
 
 		final Consumer<String, String> consumer;
 		if (jsapResult.userSpecified("topic")) {
-			// Kafka indexing
+			// Topic indexing, from Kafka or from a local log
 			final String topic = jsapResult.getString("topic");
-			final Properties props = new Properties();
-			props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, jsapResult.getString("host") + ":" + Integer.toString(jsapResult.getInt("port")));
-			props.put(ConsumerConfig.GROUP_ID_CONFIG, UUID.randomUUID().toString()); // We want to have a random consumer group.
-			props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
-			props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
-			props.put("auto.offset.reset", "earliest");
-			props.put("max.poll.records", Integer.toString(Integer.MAX_VALUE));
-			consumer = new KafkaConsumer<>(props);
+			final LocalLog log = jsapResult.userSpecified("log") ? new LocalLog(new File(jsapResult.getString("log"))) : null;
+			if (log != null) consumer = new LocalLogConsumer(log, UUID.randomUUID().toString(), Integer.MAX_VALUE);
+			else {
+				final Properties props = new Properties();
+				props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, jsapResult.getString("host") + ":" + Integer.toString(jsapResult.getInt("port")));
+				props.put(ConsumerConfig.GROUP_ID_CONFIG, UUID.randomUUID().toString()); // We want to have a random consumer group.
+				props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+				props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+				props.put("auto.offset.reset", "earliest");
+				props.put("max.poll.records", Integer.toString(Integer.MAX_VALUE));
+				consumer = new KafkaConsumer<>(props);
+			}
 			final Future<Void> future = indexer.index(max, consumer, topic);
 			future.get(); // Wait for indexing to complete
+			if (log != null) log.close();
 		} else
 			// File indexing
 			indexer.index(max, jsapResult.getStringArray("filename"));
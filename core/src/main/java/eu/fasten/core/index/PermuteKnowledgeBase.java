@@ -19,7 +19,6 @@ package eu.fasten.core.index;
  */
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -112,8 +111,6 @@ public class PermuteKnowledgeBase {
 		pl.itemsName = "graphs";
 		pl.count = kb.size();
 		pl.start("Permuting graphs...");
-		final String f = File.createTempFile(PermuteKnowledgeBase.class.getSimpleName(), ".tmpgraph").toString();
-
 		final RocksIterator iterator = db.newIterator(columnFamilyHandles.get(0));
 
 		for(iterator.seekToFirst(); iterator.isValid(); iterator.next()) {
@@ -150,15 +147,10 @@ public class PermuteKnowledgeBase {
 			graph = new ArrayListMutableGraph(Transform.map(graph, sorted)).immutableView();
 			transpose = new ArrayListMutableGraph(Transform.map(transpose, sorted)).immutableView();
 
-			BVGraph.store(graph, f.toString());
-			FileInputStream propertyFile = new FileInputStream(f + BVGraph.PROPERTIES_EXTENSION);
 			final Properties graphProperties = new Properties();
-			graphProperties.load(propertyFile);
-			propertyFile.close();
-
 			final FastByteArrayOutputStream fbaos = new FastByteArrayOutputStream();
 			final ByteBufferOutput bbo = new ByteBufferOutput(fbaos);
-			kryo.writeObject(bbo, BVGraph.load(f.toString()));
+			kryo.writeObject(bbo, InMemoryBVGraph.compress(graph, graphProperties));
 
 			// Compute LIDs according to the current node renumbering based on BFS
 			final long[] LID2GID = new long[origLID2GID.length];
@@ -169,14 +161,9 @@ public class PermuteKnowledgeBase {
 			for (int x = 0; x < origLID2GID.length; x++) LID2GID[sorted[x]] = origLID2GID[x];
 			for (int j = 0; j < origLID2GID.length; j++) GID2LID.put(LID2GID[j], j);
 
-			// Compress, load and serialize transpose graph
-			BVGraph.store(transpose, f.toString());
-			propertyFile = new FileInputStream(f + BVGraph.PROPERTIES_EXTENSION);
+			// Compress and serialize transpose graph
 			final Properties transposeProperties = new Properties();
-			transposeProperties.load(propertyFile);
-			propertyFile.close();
-
-			kryo.writeObject(bbo, BVGraph.load(f.toString()));
+			kryo.writeObject(bbo, InMemoryBVGraph.compress(transpose, transposeProperties));
 
 			// Write out properties
 			kryo.writeObject(bbo, graphProperties);
@@ -196,10 +183,6 @@ public class PermuteKnowledgeBase {
 
 		db.close();
 		pl.done();
-		new File(f.toString());
-		new File(f.toString() + BVGraph.PROPERTIES_EXTENSION).delete();
-		new File(f.toString() + BVGraph.OFFSETS_EXTENSION).delete();
-		new File(f.toString() + BVGraph.GRAPH_EXTENSION).delete();
 	}
 
 }
@@ -0,0 +1,142 @@
+package eu.fasten.core.index;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.rocksdb.RocksDBException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.martiansoftware.jsap.FlaggedOption;
+import com.martiansoftware.jsap.JSAP;
+import com.martiansoftware.jsap.JSAPException;
+import com.martiansoftware.jsap.JSAPResult;
+import com.martiansoftware.jsap.Parameter;
+import com.martiansoftware.jsap.SimpleJSAP;
+import com.martiansoftware.jsap.Switch;
+import com.martiansoftware.jsap.UnflaggedOption;
+
+import eu.fasten.core.data.KnowledgeBase;
+import eu.fasten.core.data.KnowledgeBase.CallGraph;
+import eu.fasten.core.data.KnowledgeBase.CallGraphData;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMaps;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.util.XoRoShiRo128PlusPlusRandom;
+
+/**
+ * Measures the throughput (queries per second) of (co)reachability queries on a read-only knowledge
+ * base as the number of querying threads grows.
+ *
+ * <p>
+ * The same set of randomly chosen starting nodes is visited using 1, 2, 4, &hellip; threads, up to the
+ * specified maximum; the first pass is a warm-up pass that populates the cache of call-graph data.
+ */
+public class ReachabilityThroughput {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ReachabilityThroughput.class);
+
+	/**
+	 * Visits in parallel the given starting nodes.
+	 *
+	 * @param kb the knowledge base.
+	 * @param startSigs the signatures of the starting nodes.
+	 * @param threads the number of threads.
+	 * @param backward whether to compute coreachable sets instead of reachable sets.
+	 * @return the overall number of nodes found by the visits.
+	 */
+	public static long visit(final KnowledgeBase kb, final long[] startSigs, final int threads, final boolean backward) throws InterruptedException, ExecutionException {
+		final AtomicInteger next = new AtomicInteger();
+		final AtomicLong found = new AtomicLong();
+		final ExecutorService executorService = Executors.newFixedThreadPool(threads);
+		final ObjectArrayList<Future<?>> futures = new ObjectArrayList<>();
+		for (int t = 0; t < threads; t++) futures.add(executorService.submit(() -> {
+			for (int i; (i = next.getAndIncrement()) < startSigs.length;)
+				found.addAndGet(backward ? kb.coreaches(startSigs[i]).size() : kb.reaches(startSigs[i]).size());
+		}));
+		executorService.shutdown();
+		for (final Future<?> future : futures) future.get();
+		return found.get();
+	}
+
+	public static void main(final String[] args) throws JSAPException, ClassNotFoundException, RocksDBException, IOException, InterruptedException, ExecutionException {
+		final SimpleJSAP jsap = new SimpleJSAP(ReachabilityThroughput.class.getName(),
+				"Measures the throughput of concurrent (co)reachability queries on a prototype knowledge base.",
+				new Parameter[] {
+						new FlaggedOption("n", JSAP.INTEGER_PARSER, "1000", JSAP.NOT_REQUIRED, 'n', "n", "The number of starting nodes for visits."),
+						new FlaggedOption("threads", JSAP.INTEGER_PARSER, Integer.toString(Runtime.getRuntime().availableProcessors()), JSAP.NOT_REQUIRED, 't', "threads", "The maximum number of querying threads."),
+						new FlaggedOption("cacheSize", JSAP.LONG_PARSER, Long.toString(KnowledgeBase.DEFAULT_CACHE_SIZE), JSAP.NOT_REQUIRED, 'c', "cache-size", "The maximum size in bytes of the cache of call-graph data."),
+						new Switch("backward", 'b', "backward", "Compute coreachable sets instead of reachable sets."),
+						new UnflaggedOption("kb", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, JSAP.NOT_GREEDY, "The directory of the RocksDB instance containing the knowledge base." ),
+						new UnflaggedOption("kbmeta", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, JSAP.NOT_GREEDY, "The file containing the knowledge base metadata." ),
+		});
+
+		final JSAPResult jsapResult = jsap.parse(args);
+		if ( jsap.messagePrinted() ) return;
+
+		final int n = jsapResult.getInt("n");
+		final int maxThreads = jsapResult.getInt("threads");
+		final boolean backward = jsapResult.getBoolean("backward");
+		final String kbDir = jsapResult.getString("kb");
+		if (!new File(kbDir).exists()) throw new IllegalArgumentException("No such directory: " + kbDir);
+		final String kbMetadataFilename = jsapResult.getString("kbmeta");
+		if (!new File(kbMetadataFilename).exists()) throw new IllegalArgumentException("No such file: " + kbMetadataFilename);
+		LOGGER.info("Loading KnowledgeBase metadata");
+		final KnowledgeBase kb = KnowledgeBase.getInstance(kbDir, kbMetadataFilename, true, jsapResult.getLong("cacheSize"));
+		LOGGER.info("Number of graphs: " + kb.callGraphs.size());
+
+		final XoRoShiRo128PlusPlusRandom random = new XoRoShiRo128PlusPlusRandom(0);
+		// Starting nodes are internal, so only graphs with internal nodes can be chosen
+		final LongArrayList nonEmpty = new LongArrayList();
+		for (final Long2ObjectMap.Entry<CallGraph> e : Long2ObjectMaps.fastIterable(kb.callGraphs)) if (e.getValue().nInternal != 0) nonEmpty.add(e.getLongKey());
+		if (nonEmpty.isEmpty()) throw new IllegalArgumentException("The knowledge base contains no call graph with internal nodes");
+		final long[] callGraphIndex = nonEmpty.toLongArray();
+		final long[] startSigs = new long[n];
+		for (int i = 0; i < n; i++) {
+			final long index = callGraphIndex[random.nextInt(callGraphIndex.length)];
+			final CallGraph callGraph = kb.callGraphs.get(index);
+			final CallGraphData callGraphData = callGraph.callGraphData();
+			startSigs[i] = KnowledgeBase.signature(callGraphData.LID2GID[random.nextInt(callGraph.nInternal)], index);
+		}
+
+		LOGGER.info("Warming up");
+		visit(kb, startSigs, maxThreads, backward);
+
+		for (int threads = 1;; threads = Math.min(2 * threads, maxThreads)) {
+			final long start = System.nanoTime();
+			final long found = visit(kb, startSigs, threads, backward);
+			final double elapsed = (System.nanoTime() - start) / 1E9;
+			System.out.printf("Threads: %d\tQueries: %d\tNodes: %d\tElapsed: %.3fs\tQueries/s: %.2f\n", threads, n, found, elapsed, n / elapsed);
+			System.out.println("Cache: " + kb.callGraphDataCache());
+			if (threads == maxThreads) break;
+		}
+
+		LOGGER.info("Closing KnowledgeBase");
+		kb.close();
+	}
+}
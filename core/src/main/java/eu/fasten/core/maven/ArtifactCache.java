@@ -0,0 +1,472 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.core.maven;
+
+import com.google.common.hash.Hashing;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A size-bounded, on-disk cache of Maven artifacts (JARs, POMs, etc.), shared by the analyzers
+ * that download them.
+ *
+ * <p>An artifact is identified by a repository, a coordinate and an extension, and it is stored in
+ * the cache directory in a file whose name is the SHA-256 digest of its identifier, followed by
+ * the extension. Downloads are written to a temporary file in the cache directory, which is
+ * atomically renamed when complete: thus, a cached file is always complete, and several processes
+ * can share the same directory.
+ *
+ * <p>When the overall size of the cached files exceeds the bound, files are deleted in
+ * least-recently-used order. The last-modified time of files is updated when they are used, so
+ * that the order survives restarts. Files used within a grace period are never deleted, as callers
+ * (possibly in other processes sharing the directory) might still be reading them: the cache thus
+ * exceeds its bound temporarily if more data than the bound is in use. Files returned by
+ * {@link #get(String, String, String, String)} must not be modified or deleted by callers, and
+ * should not be used for longer than the grace period.
+ *
+ * <p>Snapshot artifacts (i.e., whose coordinate contains {@value #SNAPSHOT}) change over time, so
+ * they are downloaded again at each request; the cached file is just replaced.
+ *
+ * <p>Repositories are accessed through {@link URL}s, so a directory laid out as a Maven repository
+ * can be used as a repository, e.g., for offline tests, by means of a {@code file:} URL.
+ */
+public class ArtifactCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArtifactCache.class);
+
+    /**
+     * The environment variable specifying the directory of the {@linkplain #shared() shared}
+     * cache.
+     */
+    public static final String DIRECTORY_VARIABLE = "FASTEN_ARTIFACT_CACHE";
+
+    /**
+     * The environment variable specifying the maximum size in bytes of the
+     * {@linkplain #shared() shared} cache.
+     */
+    public static final String SIZE_VARIABLE = "FASTEN_ARTIFACT_CACHE_SIZE";
+
+    /**
+     * The default maximum size in bytes of the {@linkplain #shared() shared} cache.
+     */
+    public static final long DEFAULT_MAX_SIZE = 10L << 30;
+
+    /**
+     * The environment variable specifying the grace period in seconds of the
+     * {@linkplain #shared() shared} cache.
+     */
+    public static final String GRACE_VARIABLE = "FASTEN_ARTIFACT_CACHE_GRACE";
+
+    /**
+     * The default grace period in milliseconds during which used files are not deleted.
+     */
+    public static final long DEFAULT_GRACE_MILLIS = 60 * 60 * 1000L;
+
+    /**
+     * The marker of snapshot versions, which are never served from the cache.
+     */
+    public static final String SNAPSHOT = "-SNAPSHOT";
+
+    /**
+     * The extension of files being downloaded.
+     */
+    private static final String PART_EXTENSION = ".part";
+
+    private static ArtifactCache shared;
+
+    private final File dir;
+    private final long maxSize;
+    private final long graceMillis;
+
+    /**
+     * The sizes of the cached files, indexed by name, in access order (the least recently used is
+     * the first one).
+     */
+    private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(16, .75f, true);
+
+    /**
+     * Downloads in progress, indexed by name.
+     */
+    private final ConcurrentHashMap<String, CompletableFuture<File>> downloading =
+            new ConcurrentHashMap<>();
+
+    /**
+     * The current overall size in bytes of the cached files (guarded by {@code this}).
+     */
+    private long size;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder downloadedBytes = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Opens (or creates) a cache with the {@linkplain #DEFAULT_GRACE_MILLIS default grace period}.
+     * Files already in the directory are part of the cache.
+     *
+     * @param dir     the cache directory
+     * @param maxSize the maximum overall size in bytes of the cached files
+     * @throws IOException if the directory cannot be created or listed
+     */
+    public ArtifactCache(final File dir, final long maxSize) throws IOException {
+        this(dir, maxSize, DEFAULT_GRACE_MILLIS);
+    }
+
+    /**
+     * Opens (or creates) a cache. Files already in the directory are part of the cache, except
+     * for partial downloads older than the grace period, which have been left behind by
+     * interrupted processes and are deleted.
+     *
+     * @param dir         the cache directory
+     * @param maxSize     the maximum overall size in bytes of the cached files
+     * @param graceMillis the time in milliseconds after its last use during which a file is not
+     *                    deleted
+     * @throws IOException if the directory cannot be created or listed
+     */
+    public ArtifactCache(final File dir, final long maxSize, final long graceMillis)
+            throws IOException {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Negative cache size: " + maxSize);
+        }
+        if (graceMillis < 0) {
+            throw new IllegalArgumentException("Negative grace period: " + graceMillis);
+        }
+        this.dir = dir;
+        this.maxSize = maxSize;
+        this.graceMillis = graceMillis;
+        Files.createDirectories(dir.toPath());
+
+        final var files = dir.listFiles(File::isFile);
+        if (files == null) {
+            throw new IOException("Cannot list " + dir);
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        final long now = System.currentTimeMillis();
+        synchronized (this) {
+            for (final var file : files) {
+                if (!file.getName().endsWith(PART_EXTENSION)) {
+                    index.put(file.getName(), file.length());
+                    size += file.length();
+                } else if (now - file.lastModified() >= graceMillis) {
+                    // Another process sharing the directory might still be writing recent ones
+                    logger.debug("Deleting partial download {}", file);
+                    Files.deleteIfExists(file.toPath());
+                }
+            }
+            evict();
+        }
+    }
+
+    /**
+     * Returns the cache shared by the analyzers of this JVM. Its directory and maximum size are
+     * specified by the environment variables {@value #DIRECTORY_VARIABLE} and
+     * {@value #SIZE_VARIABLE}, and its grace period by {@value #GRACE_VARIABLE}; by default, it is
+     * {@code fasten-artifacts} in the temporary directory, with a maximum size of
+     * {@value #DEFAULT_MAX_SIZE} bytes and a grace period of {@value #DEFAULT_GRACE_MILLIS} ms.
+     *
+     * @return the shared cache
+     */
+    public static synchronized ArtifactCache shared() {
+        if (shared == null) {
+            final var dir = System.getenv(DIRECTORY_VARIABLE) != null
+                    ? new File(System.getenv(DIRECTORY_VARIABLE))
+                    : new File(System.getProperty("java.io.tmpdir"), "fasten-artifacts");
+            final var maxSize = System.getenv(SIZE_VARIABLE) != null
+                    ? Long.parseLong(System.getenv(SIZE_VARIABLE)) : DEFAULT_MAX_SIZE;
+            final var graceMillis = System.getenv(GRACE_VARIABLE) != null
+                    ? Long.parseLong(System.getenv(GRACE_VARIABLE)) * 1000 : DEFAULT_GRACE_MILLIS;
+            try {
+                shared = new ArtifactCache(dir, maxSize, graceMillis);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            logger.info("Artifact cache in {} with maximum size {}", dir, maxSize);
+        }
+        return shared;
+    }
+
+    /**
+     * Returns the name of the file caching an artifact.
+     *
+     * @param repo       the repository of the artifact
+     * @param coordinate the coordinate of the artifact
+     * @param extension  the extension of the artifact
+     * @return the name of the file caching the artifact
+     */
+    public static String fileName(final String repo, final String coordinate,
+                                  final String extension) {
+        return Hashing.sha256()
+                .hashString(repo + "\n" + coordinate + "\n" + extension, StandardCharsets.UTF_8)
+                + "." + extension;
+    }
+
+    /**
+     * Returns a cached artifact, downloading it if necessary.
+     *
+     * <p>If several threads miss on the same artifact at the same time, only one of them downloads
+     * it, and the others wait for its result. Snapshot artifacts always miss.
+     *
+     * @param repo       the repository of the artifact
+     * @param coordinate the coordinate of the artifact
+     * @param extension  the extension of the artifact
+     * @param url        the URL of the artifact in the repository
+     * @return the cached file
+     * @throws java.io.FileNotFoundException if the artifact does not exist
+     * @throws IOException                   if the artifact cannot be downloaded or cached
+     */
+    public File get(final String repo, final String coordinate, final String extension,
+                    final String url) throws IOException {
+        final var name = fileName(repo, coordinate, extension);
+        final boolean snapshot = coordinate.contains(SNAPSHOT);
+        var file = snapshot ? null : lookup(name);
+        if (file != null) {
+            hits.increment();
+            return file;
+        }
+
+        misses.increment();
+        final var future = new CompletableFuture<File>();
+        final var inProgress = downloading.putIfAbsent(name, future);
+        if (inProgress != null) {
+            try {
+                return inProgress.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+        try {
+            // Another thread might have completed a download between our lookup and our registration
+            file = snapshot ? null : lookup(name);
+            if (file == null) {
+                file = download(name, url);
+            }
+            future.complete(file);
+            return file;
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            downloading.remove(name);
+        }
+    }
+
+    /**
+     * Returns the size of a cached artifact, without downloading it or updating the access order.
+     *
+     * @param repo       the repository of the artifact
+     * @param coordinate the coordinate of the artifact
+     * @param extension  the extension of the artifact
+     * @return the size in bytes of the cached file, or -1 if the artifact is not cached
+     */
+    public long cachedSize(final String repo, final String coordinate, final String extension) {
+        final var file = new File(dir, fileName(repo, coordinate, extension));
+        return file.isFile() ? file.length() : -1;
+    }
+
+    private File download(final String name, final String url) throws IOException {
+        logger.debug("Downloading {}", url);
+        final var target = new File(dir, name).toPath();
+        final Path temp = Files.createTempFile(dir.toPath(), name, PART_EXTENSION);
+        try {
+            try (InputStream in = new URL(url).openStream()) {
+                Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            final long length = Files.size(temp);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            downloadedBytes.add(length);
+            add(name, length);
+            return target.toFile();
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Returns the file caching an artifact, or {@code null}, updating the access order.
+     */
+    private synchronized File lookup(final String name) {
+        final var file = new File(dir, name);
+        final var length = index.get(name);
+        if (!file.exists()) {
+            // The file has been deleted externally
+            if (length != null) {
+                index.remove(name);
+                size -= length;
+            }
+            return null;
+        }
+        if (length == null) {
+            // The file has been added by another process sharing the directory
+            add(name, file.length());
+        }
+        if (!file.setLastModified(System.currentTimeMillis())) {
+            logger.debug("Cannot update the last-modified time of {}", file);
+        }
+        return file;
+    }
+
+    private synchronized void add(final String name, final long length) {
+        final var previous = index.put(name, length);
+        if (previous != null) {
+            size -= previous;
+        }
+        size += length;
+        evict();
+    }
+
+    /**
+     * Deletes least-recently-used files until the cache is within its bound, skipping files used
+     * within the grace period. The most recently used file is never deleted, as it is about to be
+     * returned to a caller.
+     */
+    private synchronized void evict() {
+        final long now = System.currentTimeMillis();
+        final var iterator = index.entrySet().iterator();
+        while (size > maxSize && index.size() > 1 && iterator.hasNext()) {
+            final var entry = iterator.next();
+            final var file = new File(dir, entry.getKey());
+            // The last-modified time is shared with other processes using the directory
+            if (now - file.lastModified() < graceMillis) {
+                continue;
+            }
+            if (!file.delete() && file.exists()) {
+                logger.warn("Cannot delete {}", file);
+            }
+            size -= entry.getValue();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Returns the cache directory.
+     *
+     * @return the cache directory
+     */
+    public File getDirectory() {
+        return dir;
+    }
+
+    /**
+     * Returns the maximum overall size in bytes of the cached files.
+     *
+     * @return the maximum overall size in bytes of the cached files
+     */
+    public long maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the time in milliseconds after its last use during which a file is not deleted.
+     *
+     * @return the grace period in milliseconds
+     */
+    public long graceMillis() {
+        return graceMillis;
+    }
+
+    /**
+     * Returns the current overall size in bytes of the cached files.
+     *
+     * @return the current overall size in bytes of the cached files
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of cached files.
+     *
+     * @return the number of cached files
+     */
+    public synchronized int count() {
+        return index.size();
+    }
+
+    /**
+     * Returns the number of lookups that found the requested artifact in the cache.
+     *
+     * @return the number of hits
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of lookups that did not find the requested artifact in the cache.
+     *
+     * @return the number of misses
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the overall number of bytes downloaded.
+     *
+     * @return the overall number of bytes downloaded
+     */
+    public long downloadedBytes() {
+        return downloadedBytes.sum();
+    }
+
+    /**
+     * Returns the number of files deleted to keep the cache within its maximum size.
+     *
+     * @return the number of evictions
+     */
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "[directory: " + dir + " files: " + count() + " size: " + size() + "/" + maxSize
+                + " hits: " + hits() + " misses: " + misses() + " downloaded bytes: "
+                + downloadedBytes() + " evictions: " + evictions() + "]";
+    }
+}
@@ -18,8 +18,17 @@
 
 package eu.fasten.core.plugins;
 
+import eu.fasten.core.data.CallGraphBinaryFormat;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Optional;
+import org.json.JSONException;
+import org.json.JSONObject;
 
 public interface KafkaPlugin extends FastenPlugin {
     /**
@@ -55,6 +64,111 @@ public interface KafkaPlugin extends FastenPlugin {
      */
     Optional<String> produce();
 
+    /**
+     * Writes the result of the computation to a writer. This method is used in place of
+     * {@link #produce()} when results are written to files, so that plug-ins with large results
+     * can stream them instead of building a string. The default implementation writes the
+     * result of {@link #produce()}.
+     *
+     * @param writer the writer the result must be written to
+     * @return true if a result was written; false if there is no result
+     * @throws IOException if an I/O error occurs while writing
+     */
+    default boolean produce(Writer writer) throws IOException {
+        var result = produce();
+        if (result.isEmpty()) {
+            return false;
+        }
+        writer.write(result.get());
+        return true;
+    }
+
+    /**
+     * Returns whether this plug-in writes the result of the computation in the binary format of
+     * {@link CallGraphBinaryFormat}, rather than in JSON, when binary output is requested.
+     *
+     * @return true if {@link #produceBinary(OutputStream)} writes the binary format
+     */
+    default boolean supportsBinaryOutput() {
+        return false;
+    }
+
+    /**
+     * Writes the result of the computation to an output stream in the binary format of
+     * {@link CallGraphBinaryFormat} if {@link #supportsBinaryOutput()} returns true. This method
+     * is used in place of {@link #produce(Writer)} when binary output has been requested. The
+     * default implementation writes the result of {@link #produce(Writer)} encoded in UTF-8.
+     *
+     * @param outputStream the output stream the result must be written to; it is flushed, but
+     *                     not closed
+     * @return true if a result was written; false if there is no result
+     * @throws IOException if an I/O error occurs while writing
+     */
+    default boolean produceBinary(OutputStream outputStream) throws IOException {
+        var writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+        var written = produce(writer);
+        writer.flush();
+        return written;
+    }
+
+    /**
+     * Estimates the cost of consuming a record, so that the FASTEN server can schedule records by
+     * cost. The estimate is usually the size in bytes of the data the record refers to. It must be
+     * cheap to compute compared to {@link #consume(String)}, and it must not depend on or change
+     * the state of the record being consumed, as it may be called while another record is being
+     * consumed. The default implementation returns the size of the file in the {@code dir} field
+     * of the record (or of its payload), where the server writes the results of plug-ins, or the
+     * length of the record if there is no such field.
+     *
+     * @param record the record
+     * @return the estimated cost, or -1 if it cannot be estimated
+     */
+    default long estimateCost(String record) {
+        try {
+            var json = new JSONObject(record);
+            var payload = json.optJSONObject("payload");
+            if (payload != null) {
+                json = payload;
+            }
+            var path = json.optString("dir");
+            if (path.isEmpty()) {
+                return record.length();
+            }
+            var file = new File(path);
+            return file.isFile() ? file.length() : -1;
+        } catch (JSONException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Processes an object produced by {@link #produceObject()} of another plug-in running in the
+     * same JVM, instead of a record. This avoids encoding the result of a plug-in to JSON and
+     * parsing it back when plug-ins are chained in a pipeline. Like {@link #consume(String)},
+     * this method returns only when the object has been processed. Whether an object is
+     * supported must depend only on its class. The default implementation does not support any
+     * object.
+     *
+     * @param object the object to process
+     * @return true if the object has been processed; false if this plug-in does not support
+     *         objects of this type, in which case the result of {@link #produce()} of the other
+     *         plug-in will be {@linkplain #consume(String) consumed} instead
+     */
+    default boolean consumeObject(Object object) {
+        return false;
+    }
+
+    /**
+     * Returns the result of the computation as an object, which can be handed to the
+     * {@link #consumeObject(Object)} method of another plug-in running in the same JVM. The
+     * default implementation returns no object.
+     *
+     * @return optional result of the computation
+     */
+    default Optional<Object> produceObject() {
+        return Optional.empty();
+    }
+
     /**
      * Returns a relative path to a file, the result of processing
      * a record should be written to. THe path has the following hierarchy:
@@ -0,0 +1,598 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.core.transport;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.common.record.TimestampType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.martiansoftware.jsap.FlaggedOption;
+import com.martiansoftware.jsap.JSAP;
+import com.martiansoftware.jsap.JSAPException;
+import com.martiansoftware.jsap.JSAPResult;
+import com.martiansoftware.jsap.Parameter;
+import com.martiansoftware.jsap.SimpleJSAP;
+import com.martiansoftware.jsap.UnflaggedOption;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+/**
+ * A durable log of key/value records stored in local files, organized in topics, with committed
+ * offsets for each consumer group.
+ *
+ * <p>
+ * This class is a stand-in for a Kafka broker on single-node installations and in tests:
+ * {@link LocalLogConsumer} and {@link LocalLogProducer} implement the Kafka client interfaces
+ * {@link Consumer} and {@link Producer} on top of a log, so code written against those interfaces
+ * runs unchanged on either transport. Each topic has a single partition.
+ *
+ * <p>
+ * A topic is a subdirectory of the log directory containing a sequence of segment files, each
+ * named after the offset of its first record (e.g., {@code 00000000000000000000.log}). A record is
+ * stored as the length of its content, the CRC-32 of its content and the content itself, that is,
+ * the timestamp, the key and the value. A new segment is started when the last one would exceed
+ * the segment size. When a topic is opened its segments are scanned, and the log is truncated at
+ * the first incomplete or corrupted record: records that were not completely written before a
+ * crash are thus discarded, as are all the following ones.
+ *
+ * <p>
+ * An in-memory sparse index records the position of one record every {@value #INDEX_INTERVAL}.
+ * Reads start from the nearest indexed record, and decode keys and values directly from a
+ * memory mapping of the segment, which is replaced only when the segment has grown since it was
+ * mapped; a read returns as many records as requested, crossing segments if necessary.
+ *
+ * <p>
+ * Appends are written to the segment files, but they are not forced to disk until
+ * {@link #flush()} is called, so that a batch of appends shares a single synchronization. The
+ * committed offset of a group is stored, as a decimal number, in a file in the topic directory,
+ * which is atomically replaced at each commit.
+ *
+ * <p>
+ * This class is thread-safe. A log directory can be opened by a single process at a time: a lock
+ * on the file {@value #LOCK_FILE} is held until the log is closed.
+ */
+public class LocalLog implements Closeable {
+
+    /** The default maximum size in bytes of a segment. */
+    public static final long DEFAULT_SEGMENT_BYTES = 64L << 20;
+    /** The extension of segment files. */
+    public static final String SEGMENT_EXTENSION = ".log";
+    /** The extension of committed-offset files. */
+    public static final String OFFSET_EXTENSION = ".offset";
+    /** The name of the lock file in the log directory. */
+    public static final String LOCK_FILE = ".lock";
+    /** The number of records between two entries of the sparse index. */
+    private static final int INDEX_INTERVAL = 64;
+    /** The size of the record header: the length of the content and its CRC-32. */
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+    /** The size of the fixed part of the content: the timestamp and the lengths of key and value. */
+    private static final int FIXED_CONTENT_BYTES = Long.BYTES + 2 * Integer.BYTES;
+    /** The topic names accepted by Kafka, which are also valid file names. */
+    private static final Pattern TOPIC_NAME = Pattern.compile("[a-zA-Z0-9._-]+");
+
+    private final Logger logger = LoggerFactory.getLogger(LocalLog.class.getName());
+    private final File dir;
+    private final long segmentBytes;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    /** The topics opened so far, indexed by name. */
+    private final Map<String, Topic> topics = new HashMap<>();
+    /** The number of records appended since the log was opened; readers wait for it to change. */
+    private long appends;
+    private boolean closed;
+
+    /** A segment file, with its sparse index. */
+    private static final class Segment {
+        /** The offset of the first record of this segment. */
+        private final long base;
+        private final FileChannel channel;
+        /** The positions of the records whose offset, relative to {@link #base}, is a multiple of {@link #INDEX_INTERVAL}. */
+        private final LongArrayList index = new LongArrayList();
+        /** The size in bytes of the valid part of the segment. */
+        private long size;
+        /** The number of records in the segment. */
+        private int records;
+        /** A read-only mapping of (a prefix of) the valid part of the segment, or {@code null}. */
+        private ByteBuffer mapped;
+
+        private Segment(final File file, final long base) throws IOException {
+            this.base = base;
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        /**
+         * Scans the segment, building its index, and truncates it at the first incomplete or
+         * corrupted record.
+         *
+         * @return true if the segment was truncated.
+         */
+        private boolean recover() throws IOException {
+            final long length = channel.size();
+            long position = 0;
+            if (length > 0) {
+                final ByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, length);
+                final CRC32 crc = new CRC32();
+                while (length - position >= HEADER_BYTES) {
+                    final int contentLength = buffer.getInt((int)position);
+                    final int checksum = buffer.getInt((int)position + Integer.BYTES);
+                    if (contentLength < FIXED_CONTENT_BYTES || contentLength > length - position - HEADER_BYTES) break;
+                    final ByteBuffer content = buffer.duplicate();
+                    content.limit((int)position + HEADER_BYTES + contentLength).position((int)position + HEADER_BYTES);
+                    crc.reset();
+                    crc.update(content);
+                    if ((int)crc.getValue() != checksum) break;
+                    if (records % INDEX_INTERVAL == 0) index.add(position);
+                    records++;
+                    position += HEADER_BYTES + contentLength;
+                }
+            }
+            size = position;
+            if (position == length) return false;
+            channel.truncate(position);
+            return true;
+        }
+
+        /**
+         * Returns a read-only mapping of the valid part of the segment, mapping it again only if
+         * the segment has grown since it was last mapped.
+         */
+        private ByteBuffer map() throws IOException {
+            if (mapped == null || mapped.capacity() < size) mapped = channel.map(MapMode.READ_ONLY, 0, Math.min(size, Integer.MAX_VALUE));
+            return mapped;
+        }
+    }
+
+    /** A topic, that is, a sequence of segments. All methods must be called while synchronizing on the topic. */
+    private final class Topic {
+        private final String name;
+        private final File dir;
+        private final ArrayList<Segment> segments = new ArrayList<>();
+        /** The offset of the next record that will be appended. */
+        private long endOffset;
+
+        private Topic(final String name) throws IOException {
+            this.name = name;
+            this.dir = new File(LocalLog.this.dir, name);
+            dir.mkdirs();
+            final File[] files = dir.listFiles((d, f) -> f.endsWith(SEGMENT_EXTENSION));
+            if (files == null) throw new IOException("Cannot list the segments of topic " + name + " in " + dir);
+            Arrays.sort(files);
+            boolean truncated = false;
+            for (final File file : files) {
+                if (truncated) {
+                    logger.warn("Deleting segment " + file + ", which follows a truncated segment");
+                    Files.delete(file.toPath());
+                    continue;
+                }
+                final long base;
+                try {
+                    base = Long.parseLong(file.getName().substring(0, file.getName().length() - SEGMENT_EXTENSION.length()));
+                } catch (final NumberFormatException e) {
+                    throw new IOException("Invalid segment name " + file);
+                }
+                if (segments.isEmpty()) endOffset = base;
+                else if (base != endOffset) throw new IOException("Segment " + file + " starts at offset " + base + ", but the previous segment ends at offset " + endOffset);
+                final Segment segment = new Segment(file, base);
+                final long length = segment.channel.size();
+                if (truncated = segment.recover()) logger.warn("Truncated segment " + file + " from " + length + " to " + segment.size + " bytes");
+                segments.add(segment);
+                endOffset += segment.records;
+            }
+            if (segments.isEmpty()) segments.add(new Segment(segmentFile(0), 0));
+        }
+
+        private File segmentFile(final long base) {
+            return new File(dir, String.format("%020d", base) + SEGMENT_EXTENSION);
+        }
+
+        private Segment last() {
+            return segments.get(segments.size() - 1);
+        }
+
+        /** Returns the segment containing the given offset, which must be between the beginning and the end offset. */
+        private Segment segment(final long offset) {
+            int from = 0, to = segments.size() - 1;
+            while (from < to) {
+                final int mid = (from + to + 1) >>> 1;
+                if (segments.get(mid).base <= offset) from = mid;
+                else to = mid - 1;
+            }
+            return segments.get(from);
+        }
+
+        private long append(final ByteBuffer record) throws IOException {
+            Segment segment = last();
+            if (segment.size > 0 && segment.size + record.remaining() > segmentBytes) {
+                // Sealed segments are never written again, so they are forced once
+                segment.channel.force(false);
+                segment = new Segment(segmentFile(endOffset), endOffset);
+                segments.add(segment);
+            }
+            long position = segment.size;
+            while (record.hasRemaining()) position += segment.channel.write(record, position);
+            if (segment.records % INDEX_INTERVAL == 0) segment.index.add(segment.size);
+            segment.records++;
+            segment.size = position;
+            return endOffset++;
+        }
+    }
+
+    /**
+     * Opens (or creates) a log with the {@linkplain #DEFAULT_SEGMENT_BYTES default segment size}.
+     *
+     * @param dir the directory containing the log.
+     * @throws IOException if the directory cannot be created or it is in use by another process.
+     */
+    public LocalLog(final File dir) throws IOException {
+        this(dir, DEFAULT_SEGMENT_BYTES);
+    }
+
+    /**
+     * Opens (or creates) a log.
+     *
+     * @param dir          the directory containing the log.
+     * @param segmentBytes the maximum size in bytes of a segment (a segment containing a single
+     *                     record can be larger); at most 1 GiB.
+     * @throws IOException if the directory cannot be created or it is in use by another process.
+     */
+    public LocalLog(final File dir, final long segmentBytes) throws IOException {
+        if (segmentBytes <= 0 || segmentBytes > 1L << 30) throw new IllegalArgumentException("Invalid segment size: " + segmentBytes);
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        dir.mkdirs();
+        if (!dir.isDirectory()) throw new IOException("Cannot create log directory " + dir);
+        lockChannel = FileChannel.open(new File(dir, LOCK_FILE).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = lockChannel.tryLock();
+        } catch (final OverlappingFileLockException e) {
+            // The log is already open in this process
+            lock = null;
+        }
+        this.lock = lock;
+        if (lock == null) {
+            lockChannel.close();
+            throw new IOException("The log in " + dir + " is in use by another process");
+        }
+    }
+
+    /**
+     * Returns a topic, opening it if necessary.
+     *
+     * @param name the name of the topic.
+     * @return the topic.
+     */
+    private synchronized Topic topic(final String name) throws IOException {
+        if (closed) throw new IllegalStateException("The log in " + dir + " is closed");
+        Topic topic = topics.get(name);
+        if (topic == null) {
+            if (!TOPIC_NAME.matcher(name).matches() || name.equals(".") || name.equals("..")) throw new IllegalArgumentException("Invalid topic name: " + name);
+            topics.put(name, topic = new Topic(name));
+        }
+        return topic;
+    }
+
+    /**
+     * Appends a record to a topic. The record is readable as soon as this method returns, but it is
+     * not guaranteed to be on disk until the next {@link #flush()}.
+     *
+     * @param topic     the topic.
+     * @param key       the key of the record, or {@code null}.
+     * @param value     the value of the record, or {@code null}.
+     * @param timestamp the timestamp of the record.
+     * @return the offset of the record.
+     * @throws IOException if there was a problem writing the record.
+     */
+    public long append(final String topic, final String key, final String value, final long timestamp) throws IOException {
+        final byte[] keyBytes = key == null ? null : key.getBytes(StandardCharsets.UTF_8);
+        final byte[] valueBytes = value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+        final long contentLength = FIXED_CONTENT_BYTES + (keyBytes == null ? 0L : keyBytes.length) + (valueBytes == null ? 0L : valueBytes.length);
+        if (contentLength > Integer.MAX_VALUE - HEADER_BYTES) throw new IllegalArgumentException("Record too large: " + contentLength + " bytes");
+
+        final ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + (int)contentLength);
+        record.putInt((int)contentLength).putInt(0).putLong(timestamp);
+        record.putInt(keyBytes == null ? -1 : keyBytes.length);
+        if (keyBytes != null) record.put(keyBytes);
+        record.putInt(valueBytes == null ? -1 : valueBytes.length);
+        if (valueBytes != null) record.put(valueBytes);
+        final CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER_BYTES, (int)contentLength);
+        record.putInt(Integer.BYTES, (int)crc.getValue());
+        record.flip();
+
+        final Topic t = topic(topic);
+        final long offset;
+        synchronized (t) {
+            offset = t.append(record);
+        }
+        synchronized (this) {
+            appends++;
+            notifyAll();
+        }
+        return offset;
+    }
+
+    /**
+     * Reads records from a topic.
+     *
+     * @param topic      the topic.
+     * @param offset     the offset of the first record to read.
+     * @param maxRecords the maximum number of records to read.
+     * @return the records starting at the given offset (possibly none, if the offset is the end
+     *         offset of the topic).
+     * @throws IOException if there was a problem reading the segments.
+     */
+    public List<ConsumerRecord<String, String>> read(final String topic, long offset, final int maxRecords) throws IOException {
+        final Topic t = topic(topic);
+        final List<ConsumerRecord<String, String>> records = new ArrayList<>();
+        while (records.size() < maxRecords) {
+            final Segment segment;
+            final ByteBuffer mapped;
+            final long indexed, position, segmentEnd;
+            synchronized (t) {
+                if (offset < t.segments.get(0).base || offset > t.endOffset) throw new IllegalArgumentException("Offset " + offset + " out of range [" + t.segments.get(0).base + ".." + t.endOffset + "] for topic " + topic);
+                if (offset == t.endOffset) break;
+                segment = t.segment(offset);
+                indexed = segment.base + (offset - segment.base) / INDEX_INTERVAL * INDEX_INTERVAL;
+                position = segment.index.getLong((int)((offset - segment.base) / INDEX_INTERVAL));
+                mapped = segment.map();
+                segmentEnd = segment.base + segment.records;
+            }
+
+            // The valid part of a segment is never modified, so it can be read without synchronization
+            final ByteBuffer buffer = mapped.duplicate();
+            buffer.position((int)position);
+            for (long o = indexed; o < offset; o++) buffer.position(buffer.position() + HEADER_BYTES + buffer.getInt(buffer.position()));
+            for (; offset < segmentEnd && records.size() < maxRecords; offset++) {
+                final int contentLength = buffer.getInt();
+                final int start = buffer.position() + Integer.BYTES;
+                buffer.position(start);
+                final long timestamp = buffer.getLong();
+                final int keyLength = buffer.getInt();
+                final String key = decode(buffer, keyLength);
+                final int valueLength = buffer.getInt();
+                final String value = decode(buffer, valueLength);
+                buffer.position(start + contentLength);
+                records.add(new ConsumerRecord<>(topic, 0, offset, timestamp, TimestampType.CREATE_TIME, ConsumerRecord.NULL_CHECKSUM, keyLength, valueLength, key, value));
+            }
+        }
+        return records;
+    }
+
+    private static String decode(final ByteBuffer buffer, final int length) {
+        if (length == -1) return null;
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the offset of the first record of a topic.
+     *
+     * @param topic the topic.
+     * @return the offset of the first record of the topic.
+     */
+    public long beginningOffset(final String topic) throws IOException {
+        final Topic t = topic(topic);
+        synchronized (t) {
+            return t.segments.get(0).base;
+        }
+    }
+
+    /**
+     * Returns the offset that the next record appended to a topic will have.
+     *
+     * @param topic the topic.
+     * @return the end offset of the topic.
+     */
+    public long endOffset(final String topic) throws IOException {
+        final Topic t = topic(topic);
+        synchronized (t) {
+            return t.endOffset;
+        }
+    }
+
+    /**
+     * Returns the names of the topics of this log, including those on disk that have not been
+     * opened yet.
+     *
+     * @return the names of the topics of this log, sorted.
+     */
+    public synchronized Set<String> topics() {
+        final Set<String> names = new TreeSet<>(topics.keySet());
+        final File[] subdirs = dir.listFiles(File::isDirectory);
+        if (subdirs != null) for (final File subdir : subdirs) if (TOPIC_NAME.matcher(subdir.getName()).matches()) names.add(subdir.getName());
+        return names;
+    }
+
+    private Path offsetFile(final Topic topic, final String group) {
+        return new File(topic.dir, URLEncoder.encode(group, StandardCharsets.UTF_8) + OFFSET_EXTENSION).toPath();
+    }
+
+    /**
+     * Commits the offset of a consumer group for a topic, that is, the offset of the next record
+     * the group will read. The offset is forced to disk before this method returns.
+     *
+     * @param topic  the topic.
+     * @param group  the consumer group.
+     * @param offset the offset to commit.
+     * @throws IOException if there was a problem writing the offset.
+     */
+    public void commit(final String topic, final String group, final long offset) throws IOException {
+        final Topic t = topic(topic);
+        synchronized (t) {
+            if (offset < 0 || offset > t.endOffset) throw new IllegalArgumentException("Offset " + offset + " out of range [0.." + t.endOffset + "] for topic " + topic);
+            final Path file = offsetFile(t, group);
+            final Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (final FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                final ByteBuffer buffer = ByteBuffer.wrap(Long.toString(offset).getBytes(StandardCharsets.US_ASCII));
+                while (buffer.hasRemaining()) channel.write(buffer);
+                channel.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * Returns the committed offset of a consumer group for a topic.
+     *
+     * @param topic the topic.
+     * @param group the consumer group.
+     * @return the committed offset, or an empty optional if the group never committed an offset for
+     *         the topic.
+     * @throws IOException if there was a problem reading the offset.
+     */
+    public OptionalLong committed(final String topic, final String group) throws IOException {
+        final Topic t = topic(topic);
+        synchronized (t) {
+            final Path file = offsetFile(t, group);
+            if (!Files.exists(file)) return OptionalLong.empty();
+            return OptionalLong.of(Long.parseLong(new String(Files.readAllBytes(file), StandardCharsets.US_ASCII).trim()));
+        }
+    }
+
+    /**
+     * Returns the number of records appended since this log was opened.
+     *
+     * @return the number of records appended since this log was opened.
+     */
+    synchronized long appends() {
+        return appends;
+    }
+
+    /**
+     * Waits until a record is appended, this log is closed, {@link #wakeUp()} is called, or a timeout
+     * expires, whichever comes first.
+     *
+     * @param appends       the number of appends returned by {@link #appends()} before checking for
+     *                      new records; if it already changed, this method returns immediately.
+     * @param timeoutMillis the timeout in milliseconds.
+     */
+    synchronized void awaitAppend(final long appends, final long timeoutMillis) throws InterruptedException {
+        if (this.appends == appends && !closed && timeoutMillis > 0) wait(timeoutMillis);
+    }
+
+    /** Wakes up all threads waiting in {@link #awaitAppend(long, long)}. */
+    synchronized void wakeUp() {
+        notifyAll();
+    }
+
+    /**
+     * Forces all appended records to disk.
+     *
+     * @throws IOException if there was a problem forcing the segments.
+     */
+    public void flush() throws IOException {
+        final List<Topic> opened;
+        synchronized (this) {
+            opened = new ArrayList<>(topics.values());
+        }
+        for (final Topic topic : opened) {
+            synchronized (topic) {
+                topic.last().channel.force(false);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        final List<Topic> opened;
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            notifyAll();
+            opened = new ArrayList<>(topics.values());
+        }
+        for (final Topic topic : opened) {
+            synchronized (topic) {
+                topic.last().channel.force(false);
+                for (final Segment segment : topic.segments) segment.channel.close();
+            }
+        }
+        lock.release();
+        lockChannel.close();
+    }
+
+    public static void main(final String[] args) throws JSAPException, IOException {
+        final SimpleJSAP jsap = new SimpleJSAP(LocalLog.class.getName(),
+                "Appends the lines of some files (or of the standard input) to a topic of a local log, e.g., to pre-load the input topics of a FASTEN server running without Kafka. As a log can be opened by a single process at a time, the server must not be running.",
+                new Parameter[] {
+                        new FlaggedOption("topic", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, 't', "topic", "The topic the lines will be appended to."),
+                        new FlaggedOption("segment", JSAP.LONG_PARSER, Long.toString(DEFAULT_SEGMENT_BYTES), JSAP.NOT_REQUIRED, 's', "segment-bytes", "The maximum size in bytes of a segment."),
+                        new UnflaggedOption("log", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, JSAP.NOT_GREEDY, "The directory of the log."),
+                        new UnflaggedOption("filename", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, JSAP.GREEDY, "The files whose lines will be appended (standard input if none is given)."),
+        });
+
+        final JSAPResult jsapResult = jsap.parse(args);
+        if ( jsap.messagePrinted() ) return;
+
+        final String topic = jsapResult.getString("topic");
+        long lines = 0;
+        try (final LocalLog log = new LocalLog(new File(jsapResult.getString("log")), jsapResult.getLong("segment"))) {
+            final String[] filenames = jsapResult.getStringArray("filename");
+            if (filenames.length == 0) lines += append(log, topic, System.in);
+            for (final String filename : filenames) {
+                try (final InputStream input = new FileInputStream(filename)) {
+                    lines += append(log, topic, input);
+                }
+            }
+            log.flush();
+            System.err.println("Appended " + lines + " records to topic " + topic + "; end offset: " + log.endOffset(topic));
+        }
+    }
+
+    private static long append(final LocalLog log, final String topic, final InputStream input) throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        long lines = 0;
+        for (String line; (line = reader.readLine()) != null; lines++) log.append(topic, null, line, System.currentTimeMillis());
+        return lines;
+    }
+}
@@ -0,0 +1,456 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.core.transport;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.clients.consumer.OffsetCommitCallback;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.InterruptException;
+import org.apache.kafka.common.errors.WakeupException;
+
+/**
+ * A {@link Consumer} reading from a {@link LocalLog}.
+ *
+ * <p>
+ * Each topic has a single partition, numbered 0. A consumer belongs to a consumer group, whose
+ * committed offsets are stored in the log; when a partition is assigned, consumption starts from
+ * the committed offset of the group or, if there is none, from the beginning of the topic (i.e.,
+ * as with {@code auto.offset.reset=earliest}). Offsets are committed only explicitly, and several
+ * consumers of the same group do not share partitions: each reads all subscribed topics.
+ *
+ * <p>
+ * {@link #poll(Duration)} returns as soon as some records are available in the assigned,
+ * non-paused partitions, and otherwise waits for appends until the timeout expires. As in
+ * {@link org.apache.kafka.clients.consumer.KafkaConsumer}, the rebalance listener is invoked by
+ * {@link #poll(Duration)} (and by {@link #unsubscribe()}), and instances are not thread-safe, with
+ * the exception of {@link #wakeup()}. Methods that have no meaning for a local log, such as
+ * {@link #offsetsForTimes(Map)}, throw an {@link UnsupportedOperationException}.
+ */
+public class LocalLogConsumer implements Consumer<String, String> {
+
+    private final LocalLog log;
+    private final String group;
+    private final int maxPollRecords;
+    private final AtomicBoolean wakeup = new AtomicBoolean();
+    /** The current positions, indexed by assigned partition. */
+    private final Map<TopicPartition, Long> positions = new LinkedHashMap<>();
+    private final Set<TopicPartition> paused = new LinkedHashSet<>();
+    private Set<String> subscription = Collections.emptySet();
+    private ConsumerRebalanceListener listener;
+    /** The partitions of the current subscription that have not been assigned yet by {@link #poll(Duration)}. */
+    private Set<TopicPartition> pendingAssignment = Collections.emptySet();
+    private boolean closed;
+
+    /**
+     * Creates a consumer.
+     *
+     * @param log            the log the consumer reads from; it is not closed by {@link #close()}.
+     * @param group          the consumer group.
+     * @param maxPollRecords the maximum number of records returned by a call to {@link #poll(Duration)}.
+     */
+    public LocalLogConsumer(final LocalLog log, final String group, final int maxPollRecords) {
+        if (maxPollRecords <= 0) throw new IllegalArgumentException("The maximum number of records per poll must be positive");
+        this.log = log;
+        this.group = group;
+        this.maxPollRecords = maxPollRecords;
+    }
+
+    private void ensureOpen() {
+        if (closed) throw new IllegalStateException("This consumer has already been closed.");
+    }
+
+    private void ensureAssigned(final TopicPartition partition) {
+        if (!positions.containsKey(partition)) throw new IllegalStateException("No current assignment for partition " + partition);
+    }
+
+    private static TopicPartition partition(final String topic) {
+        return new TopicPartition(topic, 0);
+    }
+
+    private static void checkPartition(final TopicPartition partition) {
+        if (partition.partition() != 0) throw new IllegalArgumentException("Topics of a local log have a single partition: " + partition);
+    }
+
+    /** Sets the position of an assigned partition to the committed offset of the group, or to the beginning of the topic. */
+    private void resetPosition(final TopicPartition partition) throws IOException {
+        final OptionalLong committed = log.committed(partition.topic(), group);
+        positions.put(partition, committed.isPresent() ? committed.getAsLong() : log.beginningOffset(partition.topic()));
+    }
+
+    @Override
+    public Set<TopicPartition> assignment() {
+        ensureOpen();
+        return Collections.unmodifiableSet(new LinkedHashSet<>(positions.keySet()));
+    }
+
+    @Override
+    public Set<String> subscription() {
+        ensureOpen();
+        return Collections.unmodifiableSet(subscription);
+    }
+
+    @Override
+    public void subscribe(final Collection<String> topics) {
+        subscribe(topics, null);
+    }
+
+    @Override
+    public void subscribe(final Collection<String> topics, final ConsumerRebalanceListener listener) {
+        ensureOpen();
+        unsubscribe();
+        this.subscription = new LinkedHashSet<>(topics);
+        this.listener = listener;
+        this.pendingAssignment = subscription.stream().map(LocalLogConsumer::partition).collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    @Override
+    public void subscribe(final Pattern pattern, final ConsumerRebalanceListener listener) {
+        subscribe(log.topics().stream().filter(t -> pattern.matcher(t).matches()).collect(Collectors.toList()), listener);
+    }
+
+    @Override
+    public void subscribe(final Pattern pattern) {
+        subscribe(pattern, null);
+    }
+
+    @Override
+    public void assign(final Collection<TopicPartition> partitions) {
+        ensureOpen();
+        unsubscribe();
+        try {
+            for (final TopicPartition partition : partitions) {
+                checkPartition(partition);
+                resetPosition(partition);
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void unsubscribe() {
+        ensureOpen();
+        if (listener != null && !positions.isEmpty()) listener.onPartitionsRevoked(assignment());
+        positions.clear();
+        paused.clear();
+        subscription = Collections.emptySet();
+        pendingAssignment = Collections.emptySet();
+        listener = null;
+    }
+
+    @Override
+    public ConsumerRecords<String, String> poll(final Duration timeout) {
+        ensureOpen();
+        if (positions.isEmpty() && pendingAssignment.isEmpty()) throw new IllegalStateException("Consumer is not subscribed to any topics or assigned any partitions");
+        final long deadline = System.nanoTime() + timeout.toNanos();
+        try {
+            if (!pendingAssignment.isEmpty()) {
+                for (final TopicPartition partition : pendingAssignment) resetPosition(partition);
+                final Set<TopicPartition> assigned = pendingAssignment;
+                pendingAssignment = Collections.emptySet();
+                if (listener != null) listener.onPartitionsAssigned(assigned);
+            }
+            for (;;) {
+                if (wakeup.getAndSet(false)) throw new WakeupException();
+                final long appends = log.appends();
+                final Map<TopicPartition, List<ConsumerRecord<String, String>>> records = new HashMap<>();
+                int count = 0;
+                for (final Map.Entry<TopicPartition, Long> e : positions.entrySet()) {
+                    if (count == maxPollRecords) break;
+                    if (paused.contains(e.getKey())) continue;
+                    final List<ConsumerRecord<String, String>> read = log.read(e.getKey().topic(), e.getValue(), maxPollRecords - count);
+                    if (read.isEmpty()) continue;
+                    records.put(e.getKey(), read);
+                    e.setValue(e.getValue() + read.size());
+                    count += read.size();
+                }
+                if (count > 0) return new ConsumerRecords<>(records);
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) return ConsumerRecords.empty();
+                log.awaitAppend(appends, Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining)));
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (final InterruptedException e) {
+            throw new InterruptException(e);
+        }
+    }
+
+    @Override
+    @Deprecated
+    public ConsumerRecords<String, String> poll(final long timeout) {
+        return poll(Duration.ofMillis(timeout));
+    }
+
+    @Override
+    public void commitSync() {
+        commitSync(positions.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, e -> new OffsetAndMetadata(e.getValue()))));
+    }
+
+    @Override
+    public void commitSync(final Duration timeout) {
+        commitSync();
+    }
+
+    @Override
+    public void commitSync(final Map<TopicPartition, OffsetAndMetadata> offsets) {
+        ensureOpen();
+        try {
+            for (final Map.Entry<TopicPartition, OffsetAndMetadata> e : offsets.entrySet()) {
+                checkPartition(e.getKey());
+                log.commit(e.getKey().topic(), group, e.getValue().offset());
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void commitSync(final Map<TopicPartition, OffsetAndMetadata> offsets, final Duration timeout) {
+        commitSync(offsets);
+    }
+
+    @Override
+    public void commitAsync() {
+        commitAsync(null);
+    }
+
+    @Override
+    public void commitAsync(final OffsetCommitCallback callback) {
+        commitAsync(positions.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, e -> new OffsetAndMetadata(e.getValue()))), callback);
+    }
+
+    /** Commits synchronously, and then invokes the callback. */
+    @Override
+    public void commitAsync(final Map<TopicPartition, OffsetAndMetadata> offsets, final OffsetCommitCallback callback) {
+        Exception exception = null;
+        try {
+            commitSync(offsets);
+        } catch (final RuntimeException e) {
+            if (callback == null) throw e;
+            exception = e;
+        }
+        if (callback != null) callback.onComplete(offsets, exception);
+    }
+
+    @Override
+    public void seek(final TopicPartition partition, final long offset) {
+        ensureOpen();
+        ensureAssigned(partition);
+        if (offset < 0) throw new IllegalArgumentException("Seek offset must not be a negative number");
+        positions.put(partition, offset);
+    }
+
+    @Override
+    public void seek(final TopicPartition partition, final OffsetAndMetadata offsetAndMetadata) {
+        seek(partition, offsetAndMetadata.offset());
+    }
+
+    @Override
+    public void seekToBeginning(final Collection<TopicPartition> partitions) {
+        ensureOpen();
+        beginningOffsets(partitions.isEmpty() ? positions.keySet() : partitions).forEach(this::seek);
+    }
+
+    @Override
+    public void seekToEnd(final Collection<TopicPartition> partitions) {
+        ensureOpen();
+        endOffsets(partitions.isEmpty() ? positions.keySet() : partitions).forEach(this::seek);
+    }
+
+    @Override
+    public long position(final TopicPartition partition) {
+        ensureOpen();
+        ensureAssigned(partition);
+        return positions.get(partition);
+    }
+
+    @Override
+    public long position(final TopicPartition partition, final Duration timeout) {
+        return position(partition);
+    }
+
+    @Override
+    public OffsetAndMetadata committed(final TopicPartition partition) {
+        ensureOpen();
+        checkPartition(partition);
+        try {
+            final OptionalLong committed = log.committed(partition.topic(), group);
+            return committed.isPresent() ? new OffsetAndMetadata(committed.getAsLong()) : null;
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public OffsetAndMetadata committed(final TopicPartition partition, final Duration timeout) {
+        return committed(partition);
+    }
+
+    @Override
+    public Map<MetricName, ? extends Metric> metrics() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public List<PartitionInfo> partitionsFor(final String topic) {
+        ensureOpen();
+        return List.of(new PartitionInfo(topic, 0, null, new Node[0], new Node[0]));
+    }
+
+    @Override
+    public List<PartitionInfo> partitionsFor(final String topic, final Duration timeout) {
+        return partitionsFor(topic);
+    }
+
+    @Override
+    public Map<String, List<PartitionInfo>> listTopics() {
+        ensureOpen();
+        return log.topics().stream().collect(Collectors.toMap(t -> t, this::partitionsFor));
+    }
+
+    @Override
+    public Map<String, List<PartitionInfo>> listTopics(final Duration timeout) {
+        return listTopics();
+    }
+
+    @Override
+    public Set<TopicPartition> paused() {
+        ensureOpen();
+        return Collections.unmodifiableSet(new LinkedHashSet<>(paused));
+    }
+
+    @Override
+    public void pause(final Collection<TopicPartition> partitions) {
+        ensureOpen();
+        for (final TopicPartition partition : partitions) {
+            ensureAssigned(partition);
+            paused.add(partition);
+        }
+    }
+
+    @Override
+    public void resume(final Collection<TopicPartition> partitions) {
+        ensureOpen();
+        for (final TopicPartition partition : partitions) {
+            ensureAssigned(partition);
+            paused.remove(partition);
+        }
+    }
+
+    @Override
+    public Map<TopicPartition, OffsetAndTimestamp> offsetsForTimes(final Map<TopicPartition, Long> timestampsToSearch) {
+        throw new UnsupportedOperationException("Local logs do not index records by timestamp");
+    }
+
+    @Override
+    public Map<TopicPartition, OffsetAndTimestamp> offsetsForTimes(final Map<TopicPartition, Long> timestampsToSearch, final Duration timeout) {
+        return offsetsForTimes(timestampsToSearch);
+    }
+
+    @Override
+    public Map<TopicPartition, Long> beginningOffsets(final Collection<TopicPartition> partitions) {
+        ensureOpen();
+        final Map<TopicPartition, Long> offsets = new LinkedHashMap<>();
+        try {
+            for (final TopicPartition partition : partitions) {
+                checkPartition(partition);
+                offsets.put(partition, log.beginningOffset(partition.topic()));
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return offsets;
+    }
+
+    @Override
+    public Map<TopicPartition, Long> beginningOffsets(final Collection<TopicPartition> partitions, final Duration timeout) {
+        return beginningOffsets(partitions);
+    }
+
+    @Override
+    public Map<TopicPartition, Long> endOffsets(final Collection<TopicPartition> partitions) {
+        ensureOpen();
+        final Map<TopicPartition, Long> offsets = new LinkedHashMap<>();
+        try {
+            for (final TopicPartition partition : partitions) {
+                checkPartition(partition);
+                offsets.put(partition, log.endOffset(partition.topic()));
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return offsets;
+    }
+
+    @Override
+    public Map<TopicPartition, Long> endOffsets(final Collection<TopicPartition> partitions, final Duration timeout) {
+        return endOffsets(partitions);
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        unsubscribe();
+        closed = true;
+    }
+
+    @Override
+    @Deprecated
+    public void close(final long timeout, final TimeUnit unit) {
+        close();
+    }
+
+    @Override
+    public void close(final Duration timeout) {
+        close();
+    }
+
+    @Override
+    public void wakeup() {
+        wakeup.set(true);
+        log.wakeUp();
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.core.transport;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+
+/**
+ * A {@link Producer} appending to a {@link LocalLog}.
+ *
+ * <p>
+ * Records are appended when they are sent, so the future returned by
+ * {@link #send(ProducerRecord, Callback)} is already completed and the callback has already been
+ * invoked when the method returns. As with Kafka, records are durable only after {@link #flush()},
+ * which forces the log to disk. This class is thread-safe; transactions are not supported.
+ */
+public class LocalLogProducer implements Producer<String, String> {
+
+    private final LocalLog log;
+
+    /**
+     * Creates a producer.
+     *
+     * @param log the log the producer appends to; it is not closed by {@link #close()}.
+     */
+    public LocalLogProducer(final LocalLog log) {
+        this.log = log;
+    }
+
+    @Override
+    public Future<RecordMetadata> send(final ProducerRecord<String, String> record) {
+        return send(record, null);
+    }
+
+    @Override
+    public Future<RecordMetadata> send(final ProducerRecord<String, String> record, final Callback callback) {
+        RecordMetadata metadata = null;
+        KafkaException exception = null;
+        try {
+            if (record.partition() != null && record.partition() != 0) throw new IllegalArgumentException("Topics of a local log have a single partition: " + record.partition());
+            final long timestamp = record.timestamp() != null ? record.timestamp() : System.currentTimeMillis();
+            final long offset = log.append(record.topic(), record.key(), record.value(), timestamp);
+            // Serialized sizes are not tracked
+            metadata = new RecordMetadata(new TopicPartition(record.topic(), 0), offset, 0, timestamp, null, -1, -1);
+        } catch (final IOException | IllegalArgumentException | IllegalStateException e) {
+            exception = new KafkaException("Cannot append to topic " + record.topic(), e);
+        }
+        if (callback != null) callback.onCompletion(metadata, exception);
+        final CompletableFuture<RecordMetadata> future = new CompletableFuture<>();
+        if (exception == null) future.complete(metadata);
+        else future.completeExceptionally(exception);
+        return future;
+    }
+
+    @Override
+    public void flush() {
+        try {
+            log.flush();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public List<PartitionInfo> partitionsFor(final String topic) {
+        return List.of(new PartitionInfo(topic, 0, null, new Node[0], new Node[0]));
+    }
+
+    @Override
+    public Map<MetricName, ? extends Metric> metrics() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+
+    @Override
+    public void close(final Duration timeout) {
+        close();
+    }
+
+    @Override
+    public void initTransactions() {
+        throw new UnsupportedOperationException("Local logs do not support transactions");
+    }
+
+    @Override
+    public void beginTransaction() {
+        throw new UnsupportedOperationException("Local logs do not support transactions");
+    }
+
+    @Override
+    public void sendOffsetsToTransaction(final Map<TopicPartition, OffsetAndMetadata> offsets, final String consumerGroupId) {
+        throw new UnsupportedOperationException("Local logs do not support transactions");
+    }
+
+    @Override
+    public void commitTransaction() {
+        throw new UnsupportedOperationException("Local logs do not support transactions");
+    }
+
+    @Override
+    public void abortTransaction() {
+        throw new UnsupportedOperationException("Local logs do not support transactions");
+    }
+}
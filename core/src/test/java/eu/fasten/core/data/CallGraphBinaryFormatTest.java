@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.core.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import eu.fasten.core.data.graphdb.GidGraph;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+class CallGraphBinaryFormatTest {
+
+    private static ExtendedRevisionCallGraph readJSON(final String name) throws IOException {
+        final var file = new File(Objects.requireNonNull(Thread.currentThread().getContextClassLoader()
+                .getResource("extended-revision-call-graph/" + name))
+                .getFile());
+        try (var reader = new FileReader(file)) {
+            return ExtendedRevisionCallGraphReader.read(reader);
+        }
+    }
+
+    private static byte[] toBytes(final ExtendedRevisionCallGraph graph) throws IOException {
+        final var outputStream = new ByteArrayOutputStream();
+        CallGraphBinaryFormat.write(graph, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private static Map<String, Object> normalize(final ExtendedRevisionCallGraph graph) {
+        return new JSONObject(graph.toJSON().toString()).toMap();
+    }
+
+    @Test
+    void roundTrip() throws IOException {
+        for (final var name : List.of("testRCG.json", "testRCGEmptyAll.json", "testRCGEmptyExternal.json",
+                "testRCGEmptyInternal.json", "testRCGEmptyResolved.json")) {
+            final var graph = readJSON(name);
+            final var read = CallGraphBinaryFormat.readExtendedRevisionCallGraph(new ByteArrayInputStream(toBytes(graph)));
+            assertEquals(normalize(graph), normalize(read), name);
+            assertEquals(graph.getGraph().getInternalCalls(), read.getGraph().getInternalCalls());
+            assertEquals(graph.getGraph().getExternalCalls(), read.getGraph().getExternalCalls());
+            assertEquals(graph.getGraph().getResolvedCalls(), read.getGraph().getResolvedCalls());
+            assertEquals(graph.mapOfAllMethods().keySet(), read.mapOfAllMethods().keySet());
+            for (final var entry : graph.mapOfAllMethods().entrySet()) {
+                assertEquals(entry.getValue().getMetadata(), read.mapOfAllMethods().get(entry.getKey()).getMetadata());
+            }
+        }
+    }
+
+    @Test
+    void roundTripMetadataValues() throws IOException {
+        final Map<String, Object> metadata = new HashMap<>();
+        metadata.put("int", -3);
+        metadata.put("long", Long.MIN_VALUE);
+        metadata.put("double", 0.5);
+        metadata.put("boolean", true);
+        metadata.put("null", null);
+        metadata.put("list", List.of(1, "a", List.of()));
+        metadata.put("map", Map.of("x", "y"));
+        metadata.put("unicode", "café ☃");
+
+        final var type = new ExtendedRevisionCallGraph.Type((String) null);
+        type.addMethod(new ExtendedRevisionCallGraph.Node(FastenURI.create("/p/A.m()%2Fjava.lang%2FVoidType"), metadata), 7);
+        final Map<List<Integer>, Map<Object, Object>> internalCalls = new HashMap<>();
+        final var random = new Random(0);
+        for (int i = 0; i < 1000; i++) {
+            final Map<Object, Object> callSite = new HashMap<>();
+            callSite.put(random.nextInt(100), Map.of("line", random.nextInt(), "type", "invokestatic"));
+            internalCalls.put(new ArrayList<>(List.of(random.nextInt(50), random.nextInt(Integer.MAX_VALUE) - Integer.MAX_VALUE / 2)), callSite);
+        }
+        final var graph = ExtendedRevisionCallGraph.extendedBuilder()
+                .forge("mvn").product("g:a").version("1").cgGenerator("OPAL").timestamp(-1).nodeCount(1)
+                .classHierarchy(Map.of(ExtendedRevisionCallGraph.Scope.internalTypes, Map.of(FastenURI.create("/p/A"), type),
+                        ExtendedRevisionCallGraph.Scope.externalTypes, Map.of(),
+                        ExtendedRevisionCallGraph.Scope.resolvedTypes, Map.of()))
+                .graph(new ExtendedRevisionCallGraph.Graph(internalCalls, new HashMap<>(), new HashMap<>()))
+                .build();
+
+        final var read = CallGraphBinaryFormat.readExtendedRevisionCallGraph(new ByteArrayInputStream(toBytes(graph)));
+        assertEquals(-1, read.timestamp);
+        assertEquals(internalCalls, read.getGraph().getInternalCalls());
+        final var readType = read.getClassHierarchy().get(ExtendedRevisionCallGraph.Scope.internalTypes).get(FastenURI.create("/p/A"));
+        assertEquals(null, readType.getSourceFileName());
+        assertEquals(metadata, readType.getMethods().get(7).getMetadata());
+    }
+
+    @Test
+    void graphMetadata() throws IOException {
+        final var graph = ExtendedRevisionCallGraph.extendedBuilder()
+                .forge("mvn").product("g:a").version("1").cgGenerator("OPAL").nodeCount(0)
+                .metadata(Map.of("algorithm", "CHA", "requestedAlgorithm", "RTA"))
+                .classHierarchy(Map.of(ExtendedRevisionCallGraph.Scope.internalTypes, Map.of(),
+                        ExtendedRevisionCallGraph.Scope.externalTypes, Map.of(),
+                        ExtendedRevisionCallGraph.Scope.resolvedTypes, Map.of()))
+                .graph(new ExtendedRevisionCallGraph.Graph())
+                .build();
+
+        final var read = CallGraphBinaryFormat.readExtendedRevisionCallGraph(new ByteArrayInputStream(toBytes(graph)));
+        assertEquals("OPAL", read.getCgGenerator());
+        assertEquals(graph.getMetadata(), read.getMetadata());
+        assertEquals(graph.getMetadata(), new ExtendedRevisionCallGraph(graph.toJSON()).getMetadata());
+        final var json = new ByteArrayOutputStream();
+        graph.write(json);
+        assertEquals(graph.getMetadata(),
+                ExtendedRevisionCallGraphReader.read(new ByteArrayInputStream(json.toByteArray())).getMetadata());
+    }
+
+    @Test
+    void unsupportedMetadata() {
+        final var type = new ExtendedRevisionCallGraph.Type("A.java");
+        type.addMethod(new ExtendedRevisionCallGraph.Node(FastenURI.create("/p/A.m()%2Fjava.lang%2FVoidType"), Map.of("x", new Object())), 0);
+        final var graph = ExtendedRevisionCallGraph.extendedBuilder()
+                .forge("mvn").product("g:a").version("1").cgGenerator("OPAL").nodeCount(1)
+                .classHierarchy(Map.of(ExtendedRevisionCallGraph.Scope.internalTypes, Map.of(FastenURI.create("/p/A"), type),
+                        ExtendedRevisionCallGraph.Scope.externalTypes, Map.of(),
+                        ExtendedRevisionCallGraph.Scope.resolvedTypes, Map.of()))
+                .graph(new ExtendedRevisionCallGraph.Graph())
+                .build();
+        assertThrows(IllegalArgumentException.class, () -> toBytes(graph));
+    }
+
+    @Test
+    void gidGraph() throws IOException {
+        final var graph = GidGraph.getGraph(new JSONObject("{\"index\": 42, \"product\": \"g:a\", \"version\": \"1.0\","
+                + "\"nodes\": [10, 3, 1000000000000, 4], \"numInternalNodes\": 2,"
+                + "\"edges\": [[10, 3], [3, 1000000000000], [3, 4], [4, 10]]}"));
+        final var outputStream = new ByteArrayOutputStream();
+        CallGraphBinaryFormat.write(graph, outputStream);
+        final var read = CallGraphBinaryFormat.readGidGraph(new ByteArrayInputStream(outputStream.toByteArray()));
+        assertEquals(graph, read);
+        assertEquals(graph.toJSONString(), read.toJSONString());
+
+        // Kinds are checked
+        assertThrows(IOException.class, () -> CallGraphBinaryFormat.readExtendedRevisionCallGraph(
+                new ByteArrayInputStream(outputStream.toByteArray())));
+    }
+
+    @Test
+    void isBinary() throws IOException {
+        final var binary = new BufferedInputStream(new ByteArrayInputStream(toBytes(readJSON("testRCG.json"))));
+        assertTrue(CallGraphBinaryFormat.isBinary(binary));
+        // The stream is reset
+        assertTrue(CallGraphBinaryFormat.isBinary(binary));
+        assertEquals(normalize(readJSON("testRCG.json")), normalize(CallGraphBinaryFormat.readExtendedRevisionCallGraph(binary)));
+
+        assertFalse(CallGraphBinaryFormat.isBinary(new BufferedInputStream(new ByteArrayInputStream("{}".getBytes()))));
+        assertFalse(CallGraphBinaryFormat.isBinary(new BufferedInputStream(new ByteArrayInputStream(new byte[0]))));
+        assertThrows(IOException.class, () -> CallGraphBinaryFormat.readExtendedRevisionCallGraph(
+                new ByteArrayInputStream("{}".getBytes())));
+    }
+}
@@ -0,0 +1,134 @@
+package eu.fasten.core.data;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import eu.fasten.core.data.KnowledgeBase.CallGraphData;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.webgraph.ArrayListMutableGraph;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class CallGraphDataCacheTest {
+
+    private static CallGraphData callGraphData(final int size) {
+        final var graph = new ArrayListMutableGraph(1).immutableView();
+        final var GID2LID = new Long2IntOpenHashMap();
+        GID2LID.put(0, 0);
+        return new CallGraphData(graph, graph, new Properties(), new Properties(), new long[] {0}, GID2LID, 1, size);
+    }
+
+    @Test
+    public void testHitsAndMisses() {
+        final var cache = new CallGraphDataCache(100);
+        final var data = callGraphData(10);
+        assertSame(data, cache.get(0, x -> data));
+        assertSame(data, cache.get(0, x -> callGraphData(10)));
+        assertSame(data, cache.get(0, x -> callGraphData(10)));
+
+        assertEquals(2, cache.hits());
+        assertEquals(1, cache.misses());
+        assertEquals(1, cache.loads());
+        assertEquals(0, cache.evictions());
+        assertEquals(1, cache.count());
+        assertEquals(10, cache.size());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() {
+        final var cache = new CallGraphDataCache(30);
+        cache.get(0, x -> callGraphData(10));
+        cache.get(1, x -> callGraphData(10));
+        cache.get(2, x -> callGraphData(10));
+        // Make 0 the most recently used entry
+        cache.get(0, x -> callGraphData(10));
+        cache.get(3, x -> callGraphData(15));
+
+        assertEquals(2, cache.evictions());
+        assertEquals(25, cache.size());
+        assertEquals(2, cache.count());
+
+        final long loads = cache.loads();
+        cache.get(0, x -> callGraphData(10));
+        cache.get(3, x -> callGraphData(15));
+        assertEquals(loads, cache.loads());
+        cache.get(1, x -> callGraphData(10));
+        assertEquals(loads + 1, cache.loads());
+    }
+
+    @Test
+    public void testOversizedEntriesAreNotCached() {
+        final var cache = new CallGraphDataCache(5);
+        cache.get(0, x -> callGraphData(10));
+        cache.get(0, x -> callGraphData(10));
+        assertEquals(2, cache.loads());
+        assertEquals(0, cache.count());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testFailedLoad() {
+        final var cache = new CallGraphDataCache(100);
+        assertThrows(IllegalStateException.class, () -> cache.get(0, x -> {
+            throw new IllegalStateException();
+        }));
+        final var data = callGraphData(10);
+        assertSame(data, cache.get(0, x -> data));
+    }
+
+    @Test
+    public void testConcurrentMissesLoadOnce() throws Exception {
+        final var cache = new CallGraphDataCache(100);
+        final var data = callGraphData(10);
+        final var loads = new AtomicInteger();
+        final var start = new CountDownLatch(1);
+        final ExecutorService executorService = Executors.newFixedThreadPool(4);
+        final var futures = new Future<?>[4];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = executorService.submit(() -> {
+                start.await();
+                return cache.get(0, x -> {
+                    loads.incrementAndGet();
+                    try {
+                        Thread.sleep(100);
+                    } catch (final InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    return data;
+                });
+            });
+        }
+        start.countDown();
+        for (final var future : futures) assertSame(data, future.get());
+        executorService.shutdown();
+        executorService.awaitTermination(1, TimeUnit.MINUTES);
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.loads());
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.core.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class CallSiteMapTest {
+
+    private static Map<String, Object> callSite(final int line, final String type, final String receiver) {
+        final var callSite = new HashMap<String, Object>();
+        callSite.put("line", line);
+        callSite.put("type", type);
+        callSite.put("receiver", receiver);
+        return callSite;
+    }
+
+    @Test
+    void keyTypesArePreserved() {
+        final var callSites = new CallSiteMap();
+        callSites.put(1, callSite(10, "invokestatic", "/a/A"));
+        callSites.put("2", callSite(20, "invokevirtual", "/b/B"));
+
+        assertEquals(callSite(10, "invokestatic", "/a/A"), callSites.get(1));
+        assertNull(callSites.get("1"));
+        assertEquals(callSite(20, "invokevirtual", "/b/B"), callSites.get("2"));
+        assertNull(callSites.get(2));
+        assertTrue(callSites.get(1) instanceof HashMap);
+
+        final var expected = new HashMap<>();
+        expected.put(1, callSite(10, "invokestatic", "/a/A"));
+        expected.put("2", callSite(20, "invokevirtual", "/b/B"));
+        assertEquals(expected, callSites);
+        assertEquals(callSites, expected);
+        assertEquals(expected.hashCode(), callSites.hashCode());
+    }
+
+    @Test
+    void otherEntries() {
+        final var callSites = new CallSiteMap();
+        callSites.put(1, callSite(10, "invokestatic", "/a/A"));
+        callSites.put(10, "metadata");
+        callSites.put("01", callSite(10, "invokestatic", "/a/A"));
+        final var partial = new HashMap<>(Map.of("line", 5));
+        callSites.put(2, partial);
+        assertEquals(4, callSites.size());
+        assertEquals("metadata", callSites.get(10));
+        assertEquals(partial, callSites.get(2));
+        assertEquals(callSite(10, "invokestatic", "/a/A"), callSites.get("01"));
+
+        // Replacing a call site with a value of a different form, and vice versa
+        assertEquals(callSite(10, "invokestatic", "/a/A"), callSites.put(1, "other"));
+        assertEquals("other", callSites.get(1));
+        assertEquals("other", callSites.put(1, callSite(11, "invokespecial", "/c/C")));
+        assertEquals(callSite(11, "invokespecial", "/c/C"), callSites.get(1));
+        assertEquals(4, callSites.size());
+    }
+
+    @Test
+    void sameAsHashMap() {
+        final var random = new Random(0);
+        final Map<Object, Object> expected = new HashMap<>();
+        final var callSites = new CallSiteMap();
+        for (int i = 0; i < 10000; i++) {
+            final Object key = random.nextBoolean() ? (Object) random.nextInt(10) : Integer.toString(random.nextInt(10));
+            final Object value = random.nextInt(4) == 0 ? "metadata" + i
+                    : callSite(random.nextInt(100), "invokevirtual", "/a/A" + random.nextInt(3));
+            switch (random.nextInt(4)) {
+                case 0:
+                case 1:
+                    assertEquals(expected.put(key, value), callSites.put(key, value));
+                    break;
+                case 2:
+                    assertEquals(expected.remove(key), callSites.remove(key));
+                    break;
+                default:
+                    assertEquals(expected.get(key), callSites.get(key));
+                    assertEquals(expected.containsKey(key), callSites.containsKey(key));
+            }
+            assertEquals(expected.size(), callSites.size());
+        }
+        assertEquals(expected, callSites);
+        assertEquals(expected, new CallSiteMap(expected));
+
+        callSites.entrySet().removeIf(entry -> entry.getKey() instanceof String);
+        expected.keySet().removeIf(key -> key instanceof String);
+        assertEquals(expected, callSites);
+        callSites.clear();
+        assertTrue(callSites.isEmpty());
+        assertFalse(callSites.containsKey(0));
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.core.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.junit.jupiter.api.Test;
+
+class ExtendedRevisionCallGraphReaderTest {
+
+    private static File getFile(final String name) {
+        return new File(Objects.requireNonNull(Thread.currentThread().getContextClassLoader()
+                .getResource("extended-revision-call-graph/" + name))
+                .getFile());
+    }
+
+    @Test
+    void sameAsJSONObject() throws IOException {
+        for (final var name : List.of("testRCG.json", "testRCGEmptyAll.json", "testRCGEmptyExternal.json",
+                "testRCGEmptyInternal.json", "testRCGEmptyResolved.json")) {
+            assertSameAsJSONObject(name);
+        }
+    }
+
+    private static void assertSameAsJSONObject(final String name) throws IOException {
+        final ExtendedRevisionCallGraph expected;
+        try (var reader = new FileReader(getFile(name))) {
+            expected = new ExtendedRevisionCallGraph(new JSONObject(new JSONTokener(reader)));
+        }
+        final ExtendedRevisionCallGraph actual;
+        try (var inputStream = new FileInputStream(getFile(name))) {
+            actual = ExtendedRevisionCallGraphReader.read(inputStream);
+        }
+
+        assertEquals(expected.forge, actual.forge);
+        assertEquals(expected.product, actual.product);
+        assertEquals(expected.version, actual.version);
+        assertEquals(expected.timestamp, actual.timestamp);
+        assertEquals(expected.getCgGenerator(), actual.getCgGenerator());
+        assertEquals(expected.getNodeCount(), actual.getNodeCount());
+        assertEquals(expected.getGraph().getInternalCalls(), actual.getGraph().getInternalCalls());
+        assertEquals(expected.getGraph().getExternalCalls(), actual.getGraph().getExternalCalls());
+        assertEquals(expected.getGraph().getResolvedCalls(), actual.getGraph().getResolvedCalls());
+        assertEquals(expected.toJSON().toMap(), actual.toJSON().toMap());
+    }
+
+    @Test
+    void handler() throws IOException {
+        final List<String> types = new ArrayList<>();
+        final List<List<Integer>> calls = new ArrayList<>();
+        final Map<String, Object> attributes = new HashMap<>();
+        try (var reader = new FileReader(getFile("testRCG.json"))) {
+            ExtendedRevisionCallGraphReader.read(reader, new ExtendedRevisionCallGraphReader.Handler() {
+                @Override
+                public void attribute(final String key, final Object value) {
+                    attributes.put(key, value);
+                }
+
+                @Override
+                public void type(final ExtendedRevisionCallGraph.Scope scope, final FastenURI uri,
+                                 final ExtendedRevisionCallGraph.Type type) {
+                    types.add(scope + " " + uri);
+                }
+
+                @Override
+                public void call(final ExtendedRevisionCallGraphReader.CallScope scope, final int source,
+                                 final int target, final Map<Object, Object> callSite) {
+                    calls.add(List.of(scope.ordinal(), source, target));
+                }
+            });
+        }
+
+        final var json = new JSONObject(new JSONTokener(new FileReader(getFile("testRCG.json"))));
+        assertEquals(json.getString("product"), attributes.get("product"));
+        assertEquals(json.getInt("nodes"), attributes.get("nodes"));
+        final var cha = json.getJSONObject("cha");
+        assertEquals(cha.getJSONObject("internalTypes").length() + cha.getJSONObject("externalTypes").length()
+                + cha.getJSONObject("resolvedTypes").length(), types.size());
+        final var graph = json.getJSONObject("graph");
+        assertEquals(graph.getJSONArray("internalCalls").length() + graph.getJSONArray("externalCalls").length()
+                + graph.getJSONArray("resolvedCalls").length(), calls.size());
+    }
+
+    @Test
+    void unknownKeysAreSkipped() {
+        final var json = "{\"forge\":\"mvn\",\"product\":\"p\",\"version\":\"1\",\"generator\":\"OPAL\","
+                + "\"nodes\":0,\"extra\":{\"a\":[1,2,{}]},"
+                + "\"cha\":{\"internalTypes\":{},\"other\":[]},"
+                + "\"graph\":{\"internalCalls\":[],\"other\":{}}}";
+        final var graph = ExtendedRevisionCallGraphReader.read(new StringReader(json));
+        assertEquals(-1, graph.timestamp);
+        assertEquals("p", graph.product);
+        assertEquals(0, graph.getGraph().size());
+    }
+
+    @Test
+    void malformed() {
+        assertThrows(JSONException.class, () -> ExtendedRevisionCallGraphReader.read(new StringReader("[]")));
+        assertThrows(JSONException.class, () -> ExtendedRevisionCallGraphReader.read(
+                new StringReader("{\"graph\":{\"internalCalls\":[[\"1\",\"2\",{}]")));
+        assertThrows(JSONException.class, () -> ExtendedRevisionCallGraphReader.read(
+                new StringReader("{\"forge\":\"mvn\"}")));
+    }
+}
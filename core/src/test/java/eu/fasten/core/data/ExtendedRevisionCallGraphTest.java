@@ -22,10 +22,13 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.util.Objects;
 import org.json.JSONObject;
 import org.json.JSONTokener;
@@ -83,6 +86,19 @@ class ExtendedRevisionCallGraphTest {
                         .getJSONObject("methods").getJSONObject("4").toString());
     }
 
+    @Test
+    void write() throws IOException {
+        final var expected = new JSONObject(graph.toJSON().toString()).toMap();
+        final var writer = new StringWriter();
+        graph.write(writer);
+        assertEquals(expected, new JSONObject(writer.toString()).toMap());
+
+        final var outputStream = new ByteArrayOutputStream();
+        graph.write(outputStream);
+        final var read = ExtendedRevisionCallGraphReader.read(new ByteArrayInputStream(outputStream.toByteArray()));
+        assertEquals(expected, new JSONObject(read.toJSON().toString()).toMap());
+    }
+
     @Test
     void toJSONFromCHA() {
         assertEquals(graph.classHierarchyToJSON(graph.getClassHierarchy()).toString(),
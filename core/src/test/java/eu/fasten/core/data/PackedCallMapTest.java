@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.core.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class PackedCallMapTest {
+
+    @Test
+    void keys() {
+        final int[] values = {0, 1, -1, 42, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        for (final int source : values) {
+            for (final int target : values) {
+                final long key = PackedCallMap.key(source, target);
+                assertEquals(source, PackedCallMap.source(key));
+                assertEquals(target, PackedCallMap.target(key));
+            }
+        }
+    }
+
+    @Test
+    void sameAsHashMap() {
+        final var random = new Random(0);
+        final Map<List<Integer>, Map<Object, Object>> expected = new HashMap<>();
+        final var calls = new PackedCallMap();
+        for (int i = 0; i < 10000; i++) {
+            final var call = new ArrayList<>(Arrays.asList(random.nextInt(100), random.nextInt(100)));
+            final Map<Object, Object> metadata = Map.of(i, "metadata");
+            switch (random.nextInt(3)) {
+                case 0:
+                    assertEquals(expected.put(call, metadata), calls.put(call, metadata));
+                    break;
+                case 1:
+                    assertEquals(expected.remove(call), calls.remove(call));
+                    break;
+                default:
+                    assertEquals(expected.get(call), calls.get(call.get(0), call.get(1)));
+                    assertEquals(expected.containsKey(call), calls.containsKey(call));
+            }
+        }
+        assertEquals(expected, calls);
+        assertEquals(calls, expected);
+        assertEquals(expected.hashCode(), calls.hashCode());
+        assertEquals(expected, new PackedCallMap(expected));
+        assertEquals(expected.keySet(), calls.keySet());
+    }
+
+    @Test
+    void nonCallKeys() {
+        final var calls = new PackedCallMap();
+        calls.put(1, 2, new HashMap<>());
+        assertTrue(calls.containsKey(List.of(1, 2)));
+        assertFalse(calls.containsKey(List.of(1, 2, 3)));
+        assertFalse(calls.containsKey("[1, 2]"));
+        assertNull(calls.get(List.of(1L, 2L)));
+        assertNull(calls.remove(List.of(1)));
+        assertThrows(IllegalArgumentException.class, () -> calls.put(List.of(1), new HashMap<>()));
+    }
+
+    @Test
+    void entries() {
+        final var calls = new PackedCallMap();
+        calls.put(1, 2, Map.of(0, "a"));
+        calls.put(3, 4, Map.of(0, "b"));
+        for (final var entry : calls.entrySet()) {
+            entry.setValue(Map.of(1, entry.getKey().get(0)));
+        }
+        assertEquals(Map.of(1, 1), calls.get(1, 2));
+        assertEquals(Map.of(1, 3), calls.get(3, 4));
+
+        calls.entrySet().removeIf(entry -> entry.getKey().get(0) == 1);
+        assertEquals(1, calls.size());
+        assertEquals(Map.of(List.of(3, 4), Map.of(1, 3)), calls);
+
+        final var other = new PackedCallMap();
+        other.put(5, 6, Map.of());
+        calls.putAll(other);
+        assertEquals(2, calls.calls().size());
+        assertTrue(calls.calls().containsKey(PackedCallMap.key(5, 6)));
+    }
+}
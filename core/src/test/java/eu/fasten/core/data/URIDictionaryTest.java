@@ -0,0 +1,75 @@
+package eu.fasten.core.data;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import it.unimi.dsi.fastutil.io.BinIO;
+import java.io.File;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+
+public class URIDictionaryTest {
+
+    private static final String[] URIS = {
+        "///com.example/Foo.bar()%2Fjava.lang%2FVoidType",
+        "///com.example/Foo.baz()%2Fjava.lang%2FVoidType",
+        "///com.example/Foo.%3Cinit%3E()%2Fjava.lang%2FVoidType",
+        "///com.example.util/Bar.qux(%2Fjava.lang%2FString)%2Fjava.lang%2FVoidType",
+        "///java.lang/Object.%3Cinit%3E()VoidType",
+    };
+
+    private static final long[] GIDS = {3, 0, 4, 1, 6};
+
+    @Test
+    public void testLookups() throws IOException {
+        final var dictionary = new URIDictionary(GIDS, URIS, 2);
+        assertEquals(URIS.length, dictionary.size());
+        for (int i = 0; i < URIS.length; i++) {
+            assertEquals(FastenURI.create(URIS[i]), dictionary.gid2URI(GIDS[i]));
+            assertEquals(GIDS[i], dictionary.uri2GID(FastenURI.create(URIS[i])));
+        }
+    }
+
+    @Test
+    public void testMissing() throws IOException {
+        final var dictionary = new URIDictionary(GIDS, URIS, 2);
+        assertNull(dictionary.gid2URI(2));
+        assertNull(dictionary.gid2URI(7));
+        assertNull(dictionary.gid2URI(-1));
+        assertEquals(-1, dictionary.uri2GID(FastenURI.create("///com.example/Foo.qux()%2Fjava.lang%2FVoidType")));
+        assertEquals(-1, dictionary.uri2GID(FastenURI.create("///com.example/Foo")));
+    }
+
+    @Test
+    public void testDuplicateGIDs() {
+        assertThrows(IllegalArgumentException.class, () -> new URIDictionary(new long[] {0, 0}, new String[] {URIS[0], URIS[1]}, 2));
+    }
+
+    @Test
+    public void testSerialization() throws IOException, ClassNotFoundException {
+        final File file = File.createTempFile(URIDictionaryTest.class.getSimpleName(), "dictionary");
+        file.deleteOnExit();
+        BinIO.storeObject(new URIDictionary(GIDS, URIS, 2), file);
+        final var dictionary = (URIDictionary)BinIO.loadObject(file);
+        for (int i = 0; i < URIS.length; i++) assertEquals(GIDS[i], dictionary.uri2GID(FastenURI.create(URIS[i])));
+    }
+}
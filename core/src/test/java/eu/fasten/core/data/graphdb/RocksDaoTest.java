@@ -28,7 +28,9 @@ import org.junit.jupiter.api.Test;
 import org.rocksdb.RocksDBException;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 import static org.junit.jupiter.api.Assertions.*;
 
 public class RocksDaoTest {
@@ -244,4 +246,51 @@ public class RocksDaoTest {
         assertEquals(graph2.getEdges().size(), graphData2.numArcs());
         assertEquals(new LongOpenHashSet(List.of(258L)), graphData2.externalNodes());
     }
+
+    @Test
+    public void mappedDatabaseTest() throws IOException, RocksDBException {
+        final File dir = new File("graphDB-mapped");
+        try {
+            var mappedDao = new RocksDao(new MappedGraphStore(dir));
+            var random = new Random(0);
+            var graphs = 10;
+            var numArcs = new int[graphs];
+            for (int i = 0; i < graphs; i++) {
+                var nodes = new ArrayList<Long>();
+                var n = 1 + random.nextInt(500);
+                for (int j = 0; j < n; j++) nodes.add(1000L * i + 3 * j);
+                var edges = new ArrayList<List<Long>>();
+                var arcs = new LongOpenHashSet();
+                for (int j = random.nextInt(4 * n); j-- != 0;) {
+                    var x = random.nextInt(n);
+                    var y = random.nextInt(n);
+                    if (arcs.add((long) x * n + y)) edges.add(List.of(nodes.get(x), nodes.get(y)));
+                }
+                var numInternal = random.nextInt(n + 1);
+                numArcs[i] = edges.size();
+                rocksDao.saveToRocksDb(i, nodes, numInternal, edges);
+                mappedDao.saveToRocksDb(i, nodes, numInternal, edges);
+            }
+            for (int i = 0; i < graphs; i++) {
+                var graphData = mappedDao.getGraphData(i);
+                assertEquals(rocksDao.getGraphData(i), graphData);
+                assertEquals(numArcs[i], graphData.numArcs());
+            }
+            assertNull(mappedDao.getGraphData(graphs));
+            mappedDao.close();
+
+            // Reopen the store
+            mappedDao = new RocksDao(new MappedGraphStore(dir));
+            for (int i = 0; i < graphs; i++) {
+                assertEquals(rocksDao.getGraphData(i), mappedDao.getGraphData(i));
+            }
+            // The data file grows past its current mapping
+            mappedDao.saveToRocksDb(graphs, List.of(1L, 2L), 1, List.of(List.of(1L, 2L)));
+            assertEquals(1, mappedDao.getGraphData(graphs).numArcs());
+            assertEquals(rocksDao.getGraphData(0), mappedDao.getGraphData(0));
+            mappedDao.close();
+        } finally {
+            FileUtils.deleteDirectory(dir);
+        }
+    }
 }
@@ -0,0 +1,137 @@
+package eu.fasten.core.index;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Properties;
+
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.junit.jupiter.api.Test;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.ByteBufferOutput;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.serializers.FieldSerializer;
+import com.esotericsoftware.kryo.serializers.JavaSerializer;
+
+import it.unimi.dsi.fastutil.io.FastByteArrayOutputStream;
+import it.unimi.dsi.io.InputBitStream;
+import it.unimi.dsi.io.NullInputStream;
+import it.unimi.dsi.lang.MutableString;
+import it.unimi.dsi.sux4j.util.EliasFanoMonotoneLongBigList;
+import it.unimi.dsi.util.XoRoShiRo128PlusPlusRandom;
+import it.unimi.dsi.webgraph.ArrayListMutableGraph;
+import it.unimi.dsi.webgraph.BVGraph;
+import it.unimi.dsi.webgraph.ImmutableGraph;
+import it.unimi.dsi.webgraph.Transform;
+
+public class InMemoryBVGraphTest {
+
+    private static ImmutableGraph randomGraph(final int n, final int arcs, final boolean local, final XoRoShiRo128PlusPlusRandom random) {
+        final ArrayListMutableGraph graph = new ArrayListMutableGraph(n);
+        for (int i = 0; i < arcs; i++) {
+            final int x = random.nextInt(n);
+            final int y = local ? Math.min(n - 1, x + random.nextInt(10)) : random.nextInt(n);
+            try {
+                graph.addArc(x, y);
+            } catch (final IllegalArgumentException e) {
+                // Duplicate arc
+            }
+        }
+        return graph.immutableView();
+    }
+
+    @Test
+    public void testSameAsStore() throws IOException, IllegalAccessException {
+        final XoRoShiRo128PlusPlusRandom random = new XoRoShiRo128PlusPlusRandom(0);
+        final File f = File.createTempFile(InMemoryBVGraphTest.class.getSimpleName(), ".tmpgraph");
+        try {
+            for (int t = 0; t < 100; t++) {
+                final int n = 1 + random.nextInt(200);
+                final ImmutableGraph graph = randomGraph(n, random.nextInt(8 * n + 1), t % 2 == 0, random);
+
+                BVGraph.store(graph, f.toString());
+                final Properties expectedProperties = new Properties();
+                try (FileInputStream propertyFile = new FileInputStream(f + BVGraph.PROPERTIES_EXTENSION)) {
+                    expectedProperties.load(propertyFile);
+                }
+
+                final Properties properties = new Properties();
+                final BVGraph bvGraph = InMemoryBVGraph.compress(graph, properties);
+                assertSame(BVGraph.class, bvGraph.getClass());
+                assertArrayEquals(Files.readAllBytes(new File(f + BVGraph.GRAPH_EXTENSION).toPath()), (byte[])FieldUtils.readField(bvGraph, "graphMemory", true));
+                assertEquals(graph, bvGraph);
+                assertEquals(BVGraph.load(f.toString()), bvGraph);
+                for (int x = 0; x < n; x++) assertEquals(graph.outdegree(x), bvGraph.outdegree(x));
+                assertEquals(Transform.transpose(graph), InMemoryBVGraph.compress(Transform.transpose(graph)));
+
+                for (final String key : new String[] { "graphclass", "version", "nodes", "arcs", "windowsize", "maxrefcount", "minintervallength", "zetak", "compressionflags" })
+                    assertEquals(expectedProperties.getProperty(key), properties.getProperty(key), key);
+            }
+        } finally {
+            new File(f + BVGraph.PROPERTIES_EXTENSION).delete();
+            new File(f + BVGraph.OFFSETS_EXTENSION).delete();
+            new File(f + BVGraph.GRAPH_EXTENSION).delete();
+            f.delete();
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        final Properties properties = new Properties();
+        final BVGraph bvGraph = InMemoryBVGraph.compress(new ArrayListMutableGraph(0).immutableView(), properties);
+        assertEquals(0, bvGraph.numNodes());
+        assertEquals(0, bvGraph.numArcs());
+        assertEquals("0", properties.getProperty("arcs"));
+    }
+
+    @Test
+    public void testKryo() {
+        final Kryo kryo = new Kryo();
+        kryo.register(BVGraph.class, new BVGraphSerializer(kryo));
+        kryo.register(byte[].class);
+        kryo.register(InputBitStream.class);
+        kryo.register(NullInputStream.class);
+        kryo.register(EliasFanoMonotoneLongBigList.class, new JavaSerializer());
+        kryo.register(MutableString.class, new FieldSerializer<>(kryo, MutableString.class));
+
+        final ImmutableGraph graph = randomGraph(1000, 5000, true, new XoRoShiRo128PlusPlusRandom(0));
+        final FastByteArrayOutputStream fbaos = new FastByteArrayOutputStream();
+        final ByteBufferOutput bbo = new ByteBufferOutput(fbaos);
+        kryo.writeObject(bbo, InMemoryBVGraph.compress(graph));
+        bbo.flush();
+
+        final BVGraph bvGraph = kryo.readObject(new Input(fbaos.array, 0, (int)fbaos.length), BVGraph.class);
+        assertEquals(graph, bvGraph);
+        assertEquals(graph, bvGraph.copy());
+    }
+
+    @Test
+    public void testWriteAndMap() throws IOException {
+        final XoRoShiRo128PlusPlusRandom random = new XoRoShiRo128PlusPlusRandom(0);
+        final ImmutableGraph[] graphs = new ImmutableGraph[10];
+        final FastByteArrayOutputStream fbaos = new FastByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(fbaos);
+        for (int i = 0; i < graphs.length; i++) {
+            final int n = 1 + random.nextInt(500);
+            graphs[i] = randomGraph(n, random.nextInt(8 * n + 1), i % 2 == 0, random);
+            InMemoryBVGraph.write(graphs[i], new Properties(), out);
+        }
+        out.flush();
+
+        final ByteBuffer buffer = ByteBuffer.wrap(fbaos.array, 0, (int)fbaos.length);
+        for (final ImmutableGraph graph : graphs) {
+            final BVGraph bvGraph = InMemoryBVGraph.map(buffer);
+            assertEquals(graph, bvGraph);
+            for (int x = 0; x < graph.numNodes(); x++) assertEquals(graph.outdegree(x), bvGraph.outdegree(x));
+        }
+        assertEquals(0, buffer.remaining());
+    }
+}
@@ -1,20 +1,31 @@
 package eu.fasten.core.index;
 
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import eu.fasten.core.data.FastenURI;
 import eu.fasten.core.data.KnowledgeBase;
 import eu.fasten.core.data.KnowledgeBase.Node;
 import eu.fasten.core.data.RevisionCallGraph;
+import eu.fasten.core.data.URIDictionary;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
 import it.unimi.dsi.fastutil.longs.LongSet;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import it.unimi.dsi.fastutil.objects.ObjectLinkedOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ObjectList;
 import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import org.apache.commons.io.FileUtils;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -178,9 +189,20 @@ public class IndexerTest {
                         LongSet reachesSig;
                         LongSet coreachesSig;
 
+                        final LongArrayList successors = new LongArrayList();
+                        kb.forEachSuccessor(signature, successors::add);
+                        assertEquals(kb.successors(signature), successors);
+                        final LongArrayList predecessors = new LongArrayList();
+                        kb.forEachPredecessor(signature, predecessors::add);
+                        assertEquals(kb.predecessors(signature), predecessors);
+
                         reaches = kb.reaches(node);
                         reachesSig = kb.reaches(signature);
 
+                        final ObjectArrayList<FastenURI> reachedURIs = new ObjectArrayList<>();
+                        for (final Node reached : reaches) reachedURIs.add(reached.toFastenURI());
+                        assertEquals(reachedURIs, kb.toFastenURIs(new ObjectArrayList<>(reaches)));
+
                         for (final Node reached : reaches) {
                             coreaches = kb.coreaches(reached);
                             assertTrue(coreaches.contains(node));
@@ -225,6 +247,148 @@ public class IndexerTest {
         testKnowledgeBase(jsonSpecs.toArray(new String[0]));
     }
 
+    @Test
+    public void testConcurrentVisits() throws JSONException, IOException, RocksDBException, ClassNotFoundException, InterruptedException, ExecutionException {
+        final Path kbDir = Files.createTempDirectory(Indexer.class.getSimpleName());
+        final String meta = Files.createTempFile(Indexer.class.getSimpleName(), "meta").getFileName().toString();
+        FileUtils.deleteDirectory(kbDir.toFile());
+        FileUtils.deleteQuietly(new File(meta));
+
+        KnowledgeBase kb = KnowledgeBase.getInstance(kbDir.toString(), meta, false);
+        int index = 0;
+        for (int i = 1; i < 10; i++)
+            for (final String s : JSON_SPECS) kb.add(new RevisionCallGraph(new JSONObject(s.replaceAll("1\\.0", i + ".0"))), index++);
+        kb.close();
+        kb = KnowledgeBase.getInstance(kbDir.toString(), meta, true);
+
+        final LongArrayList signatures = new LongArrayList();
+        for (final var entry : kb.callGraphs.long2ObjectEntrySet())
+            for (final long gid : entry.getValue().callGraphData().nodes())
+                if (entry.getValue().callGraphData().isInternal(gid)) signatures.add(KnowledgeBase.signature(gid, entry.getLongKey()));
+
+        final KnowledgeBase readOnlyKb = kb;
+        final ExecutorService executorService = Executors.newFixedThreadPool(8);
+        final ObjectArrayList<Future<LongSet>> reaches = new ObjectArrayList<>();
+        final ObjectArrayList<Future<LongSet>> coreaches = new ObjectArrayList<>();
+        for (int pass = 0; pass < 10; pass++)
+            for (final long signature : signatures) {
+                reaches.add(executorService.submit(() -> readOnlyKb.reaches(signature)));
+                coreaches.add(executorService.submit(() -> readOnlyKb.coreaches(signature)));
+            }
+        executorService.shutdown();
+
+        for (int i = 0; i < reaches.size(); i++) {
+            final long signature = signatures.getLong(i % signatures.size());
+            assertEquals(kb.reaches(signature), reaches.get(i).get());
+            assertEquals(kb.coreaches(signature), coreaches.get(i).get());
+        }
+
+        kb.close();
+        FileUtils.deleteDirectory(kbDir.toFile());
+        FileUtils.deleteQuietly(new File(meta));
+    }
+
+    @Test
+    public void testParallelVisits() throws JSONException, IOException, RocksDBException, ClassNotFoundException {
+        final Path kbDir = Files.createTempDirectory(Indexer.class.getSimpleName());
+        final String meta = Files.createTempFile(Indexer.class.getSimpleName(), "meta").getFileName().toString();
+        FileUtils.deleteDirectory(kbDir.toFile());
+        FileUtils.deleteQuietly(new File(meta));
+
+        final KnowledgeBase kb = KnowledgeBase.getInstance(kbDir.toString(), meta, false);
+        int index = 0;
+        for (int i = 1; i < 10; i++)
+            for (final String s : JSON_SPECS) kb.add(new RevisionCallGraph(new JSONObject(s.replaceAll("1\\.0", i + ".0"))), index++);
+
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        for (final var entry : kb.callGraphs.long2ObjectEntrySet())
+            for (final long gid : entry.getValue().callGraphData().nodes())
+                if (entry.getValue().callGraphData().isInternal(gid)) {
+                    final long signature = KnowledgeBase.signature(gid, entry.getLongKey());
+                    assertEquals(kb.reaches(signature), kb.reaches(signature, pool));
+                    assertEquals(kb.coreaches(signature), kb.coreaches(signature, pool));
+                }
+        pool.shutdown();
+
+        kb.close();
+        FileUtils.deleteDirectory(kbDir.toFile());
+        FileUtils.deleteQuietly(new File(meta));
+    }
+
+    @Test
+    public void testURIDictionary() throws JSONException, IOException, RocksDBException, ClassNotFoundException {
+        final Path kbDir = Files.createTempDirectory(Indexer.class.getSimpleName());
+        final String meta = Files.createTempFile(Indexer.class.getSimpleName(), "meta").getFileName().toString();
+        FileUtils.deleteDirectory(kbDir.toFile());
+        FileUtils.deleteQuietly(new File(meta));
+
+        KnowledgeBase kb = KnowledgeBase.getInstance(kbDir.toString(), meta, false);
+        for (int index = 0; index < JSON_SPECS.length; index++)
+            kb.add(new RevisionCallGraph(new JSONObject(JSON_SPECS[index])), index);
+        final URIDictionary uriDictionary = kb.buildURIDictionary(URIDictionary.DEFAULT_RATIO);
+        final KnowledgeBase readWriteKb = kb;
+        assertThrows(IllegalStateException.class, () -> readWriteKb.useURIDictionary(uriDictionary));
+        kb.close();
+        kb = KnowledgeBase.getInstance(kbDir.toString(), meta, true);
+
+        final ObjectArrayList<Node> nodes = new ObjectArrayList<>();
+        final LongArrayList gids = new LongArrayList();
+        for (final var entry : kb.callGraphs.long2ObjectEntrySet())
+            for (final long gid : entry.getValue().callGraphData().nodes()) {
+                nodes.add(kb.new Node(gid, entry.getLongKey()));
+                gids.add(gid);
+            }
+        final ObjectList<FastenURI> uris = kb.toFastenURIs(nodes);
+        final ObjectList<FastenURI> genericURIs = kb.gid2URIs(gids);
+
+        kb.useURIDictionary(uriDictionary);
+        assertEquals(uris, kb.toFastenURIs(nodes));
+        assertEquals(genericURIs, kb.gid2URIs(gids));
+        assertEquals(gids, kb.uri2GIDs(genericURIs));
+
+        kb.close();
+        FileUtils.deleteDirectory(kbDir.toFile());
+        FileUtils.deleteQuietly(new File(meta));
+    }
+
+    @Test
+    public void testParallelIndexing() throws JSONException, IOException, RocksDBException, ClassNotFoundException {
+        final ObjectArrayList<String> files = new ObjectArrayList<>();
+        for (int i = 1; i < 10; i++)
+            for (final String s : JSON_SPECS) {
+                final Path file = Files.createTempFile(Indexer.class.getSimpleName(), ".json");
+                Files.writeString(file, s.replaceAll("1\\.0", i + ".0"));
+                files.add(file.toString());
+            }
+
+        final KnowledgeBase[] kbs = new KnowledgeBase[2];
+        final Path[] kbDirs = new Path[2];
+        final String[] metas = new String[2];
+        for (int k = 0; k < 2; k++) {
+            kbDirs[k] = Files.createTempDirectory(Indexer.class.getSimpleName());
+            metas[k] = Files.createTempFile(Indexer.class.getSimpleName(), "meta").getFileName().toString();
+            FileUtils.deleteDirectory(kbDirs[k].toFile());
+            FileUtils.deleteQuietly(new File(metas[k]));
+            kbs[k] = KnowledgeBase.getInstance(kbDirs[k].toString(), metas[k], false);
+            new Indexer(kbs[k], k == 0 ? 1 : 4).index(Long.MAX_VALUE, files.toArray(new String[0]));
+        }
+
+        assertEquals(kbs[0].callGraphs.keySet(), kbs[1].callGraphs.keySet());
+        for (final long index : kbs[0].callGraphs.keySet()) {
+            assertEquals(kbs[0].callGraphs.get(index).product, kbs[1].callGraphs.get(index).product);
+            assertEquals(kbs[0].callGraphs.get(index).version, kbs[1].callGraphs.get(index).version);
+            // GIDs depend on the order in which revisions are analyzed, but URIs do not
+            assertEquals(kbs[0].callGraphs.get(index).toString(), kbs[1].callGraphs.get(index).toString());
+        }
+
+        for (int k = 0; k < 2; k++) {
+            kbs[k].close();
+            FileUtils.deleteDirectory(kbDirs[k].toFile());
+            FileUtils.deleteQuietly(new File(metas[k]));
+        }
+        for (final String file : files) FileUtils.deleteQuietly(new File(file));
+    }
+
     @Test
     public void testLargeIndex() throws JSONException, IOException, RocksDBException, URISyntaxException, ClassNotFoundException {
         final ObjectArrayList<String> jsonSpecs = new ObjectArrayList<>();
@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.core.maven;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ArtifactCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private File cacheDir;
+    private String repo;
+
+    /**
+     * Adds an artifact to the file-system repository.
+     */
+    private String deploy(final String artifactId, final String extension, final int length)
+            throws IOException {
+        final var dir = tempDir.resolve("repo").resolve("org/example").resolve(artifactId).resolve("1.0");
+        Files.createDirectories(dir);
+        final var file = dir.resolve(artifactId + "-1.0." + extension);
+        Files.write(file, new byte[length]);
+        return repo + "org/example/" + artifactId + "/1.0/" + artifactId + "-1.0." + extension;
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        cacheDir = tempDir.resolve("cache").toFile();
+        Files.createDirectories(tempDir.resolve("repo"));
+        repo = tempDir.resolve("repo").toUri().toString();
+    }
+
+    @Test
+    void get() throws IOException {
+        final var cache = new ArtifactCache(cacheDir, 1000);
+        final var url = deploy("a", "jar", 100);
+
+        final var file = cache.get(repo, "org.example:a:1.0", "jar", url);
+        assertEquals(cacheDir, file.getParentFile());
+        assertTrue(file.getName().endsWith(".jar"));
+        assertArrayEquals(new byte[100], Files.readAllBytes(file.toPath()));
+        assertEquals(file, cache.get(repo, "org.example:a:1.0", "jar", url));
+
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+        assertEquals(100, cache.downloadedBytes());
+        assertEquals(100, cache.size());
+        assertEquals(1, cache.count());
+        // No partial downloads are left behind
+        assertEquals(1, cacheDir.list().length);
+    }
+
+    @Test
+    void keys() throws IOException {
+        final var cache = new ArtifactCache(cacheDir, 1000);
+        final var jar = deploy("a", "jar", 100);
+        final var pom = deploy("a", "pom", 10);
+
+        final var jarFile = cache.get(repo, "org.example:a:1.0", "jar", jar);
+        final var pomFile = cache.get(repo, "org.example:a:1.0", "pom", pom);
+        final var otherRepoFile = cache.get("other", "org.example:a:1.0", "jar", jar);
+
+        assertFalse(jarFile.equals(pomFile));
+        assertFalse(jarFile.equals(otherRepoFile));
+        assertEquals(0, cache.hits());
+        assertEquals(3, cache.count());
+    }
+
+    @Test
+    void notFound() throws IOException {
+        final var cache = new ArtifactCache(cacheDir, 1000);
+        assertThrows(FileNotFoundException.class,
+                () -> cache.get(repo, "org.example:b:1.0", "jar", repo + "org/example/b/1.0/b-1.0.jar"));
+        assertEquals(0, cache.count());
+        assertEquals(0, cacheDir.list().length);
+    }
+
+    @Test
+    void evictions() throws IOException {
+        final var cache = new ArtifactCache(cacheDir, 250, 0);
+        final var a = cache.get(repo, "org.example:a:1.0", "jar", deploy("a", "jar", 100));
+        final var b = cache.get(repo, "org.example:b:1.0", "jar", deploy("b", "jar", 100));
+        // a is now the most recently used
+        cache.get(repo, "org.example:a:1.0", "jar", deploy("a", "jar", 100));
+        final var c = cache.get(repo, "org.example:c:1.0", "jar", deploy("c", "jar", 100));
+
+        assertEquals(1, cache.evictions());
+        assertTrue(a.exists());
+        assertFalse(b.exists());
+        assertTrue(c.exists());
+        assertEquals(200, cache.size());
+
+        // Artifacts larger than the cache are returned, and evicted later
+        final var d = cache.get(repo, "org.example:d:1.0", "jar", deploy("d", "jar", 300));
+        assertTrue(d.exists());
+        assertEquals(1, cache.count());
+    }
+
+    @Test
+    void gracePeriod() throws IOException {
+        final var cache = new ArtifactCache(cacheDir, 250, 60_000);
+        final var a = cache.get(repo, "org.example:a:1.0", "jar", deploy("a", "jar", 100));
+        final var b = cache.get(repo, "org.example:b:1.0", "jar", deploy("b", "jar", 100));
+        final var c = cache.get(repo, "org.example:c:1.0", "jar", deploy("c", "jar", 100));
+
+        // All files might still be in use
+        assertEquals(0, cache.evictions());
+        assertTrue(a.exists());
+        assertEquals(300, cache.size());
+
+        // b has not been used for longer than the grace period, a has been used by another process
+        assertTrue(a.setLastModified(System.currentTimeMillis() - 120_000));
+        assertTrue(b.setLastModified(System.currentTimeMillis() - 120_000));
+        new ArtifactCache(cacheDir, 1000).get(repo, "org.example:a:1.0", "jar", deploy("a", "jar", 100));
+        final var d = cache.get(repo, "org.example:d:1.0", "jar", deploy("d", "jar", 100));
+
+        assertEquals(1, cache.evictions());
+        assertTrue(a.exists());
+        assertFalse(b.exists());
+        assertTrue(c.exists());
+        assertTrue(d.exists());
+        assertEquals(300, cache.size());
+    }
+
+    @Test
+    void partialDownloads() throws IOException {
+        Files.createDirectories(cacheDir.toPath());
+        final var stale = new File(cacheDir, "stale.jar.part");
+        final var recent = new File(cacheDir, "recent.jar.part");
+        Files.write(stale.toPath(), new byte[10]);
+        Files.write(recent.toPath(), new byte[10]);
+        assertTrue(stale.setLastModified(System.currentTimeMillis() - 120_000));
+
+        final var cache = new ArtifactCache(cacheDir, 1000, 60_000);
+        assertFalse(stale.exists());
+        // Another process might be writing it
+        assertTrue(recent.exists());
+        assertEquals(0, cache.count());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void snapshots() throws IOException {
+        final var cache = new ArtifactCache(cacheDir, 1000);
+        final var first = cache.get(repo, "org.example:a:1.0-SNAPSHOT", "jar", deploy("a", "jar", 100));
+        assertEquals(100, first.length());
+        final var second = cache.get(repo, "org.example:a:1.0-SNAPSHOT", "jar", deploy("a", "jar", 200));
+        assertEquals(first, second);
+        assertEquals(200, second.length());
+
+        assertEquals(0, cache.hits());
+        assertEquals(2, cache.misses());
+        assertEquals(1, cache.count());
+        assertEquals(200, cache.size());
+    }
+
+    @Test
+    void reopen() throws IOException {
+        final var url = deploy("a", "jar", 100);
+        new ArtifactCache(cacheDir, 1000).get(repo, "org.example:a:1.0", "jar", url);
+
+        final var cache = new ArtifactCache(cacheDir, 1000);
+        assertEquals(1, cache.count());
+        assertEquals(100, cache.size());
+        cache.get(repo, "org.example:a:1.0", "jar", url);
+        assertEquals(1, cache.hits());
+        assertEquals(0, cache.downloadedBytes());
+    }
+
+    @Test
+    void sharedDirectory() throws IOException {
+        final var url = deploy("a", "jar", 100);
+        final var first = new ArtifactCache(cacheDir, 1000);
+        final var second = new ArtifactCache(cacheDir, 1000);
+
+        first.get(repo, "org.example:a:1.0", "jar", url);
+        second.get(repo, "org.example:a:1.0", "jar", url);
+        assertEquals(1, second.hits());
+        assertEquals(1, second.count());
+    }
+}
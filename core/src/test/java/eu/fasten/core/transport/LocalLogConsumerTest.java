@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.core.transport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class LocalLogConsumerTest {
+
+    private static final TopicPartition INPUT = new TopicPartition("input", 0);
+
+    @TempDir
+    File dir;
+
+    private static List<String> values(final ConsumerRecords<String, String> records) {
+        final List<String> values = new ArrayList<>();
+        for (final ConsumerRecord<String, String> record : records) values.add(record.value());
+        return values;
+    }
+
+    @Test
+    public void producedRecordsAreConsumed() throws IOException, InterruptedException, ExecutionException {
+        try (final LocalLog log = new LocalLog(dir)) {
+            final LocalLogProducer producer = new LocalLogProducer(log);
+            final AtomicReference<RecordMetadata> callbackMetadata = new AtomicReference<>();
+            final RecordMetadata metadata = producer.send(new ProducerRecord<>("input", "a"), (m, e) -> callbackMetadata.set(m)).get();
+            assertEquals(0, metadata.offset());
+            assertEquals(INPUT, new TopicPartition(metadata.topic(), metadata.partition()));
+            assertEquals(0, callbackMetadata.get().offset());
+            for (final String value : new String[] { "b", "c", "d", "e" }) producer.send(new ProducerRecord<>("input", value));
+            producer.flush();
+
+            final List<Collection<TopicPartition>> assigned = new ArrayList<>();
+            final LocalLogConsumer consumer = new LocalLogConsumer(log, "group", 3);
+            consumer.subscribe(List.of("input"), new ConsumerRebalanceListener() {
+                @Override
+                public void onPartitionsRevoked(final Collection<TopicPartition> partitions) {}
+
+                @Override
+                public void onPartitionsAssigned(final Collection<TopicPartition> partitions) {
+                    assigned.add(partitions);
+                }
+            });
+            assertEquals(List.of("a", "b", "c"), values(consumer.poll(Duration.ZERO)));
+            assertEquals(List.of(Set.of(INPUT)), assigned);
+            assertEquals(3, consumer.position(INPUT));
+            assertNull(consumer.committed(INPUT));
+            consumer.commitSync(Map.of(INPUT, new OffsetAndMetadata(2)));
+            assertEquals(List.of("d", "e"), values(consumer.poll(Duration.ZERO)));
+            assertTrue(consumer.poll(Duration.ofMillis(10)).isEmpty());
+            consumer.close();
+
+            // A new consumer of the same group restarts from the committed offset
+            final LocalLogConsumer restarted = new LocalLogConsumer(log, "group", 10);
+            restarted.subscribe(List.of("input"));
+            assertEquals(List.of("c", "d", "e"), values(restarted.poll(Duration.ZERO)));
+            restarted.commitSync();
+            assertEquals(5, restarted.committed(INPUT).offset());
+
+            // A consumer of another group starts from the beginning
+            final LocalLogConsumer other = new LocalLogConsumer(log, "other", 10);
+            other.subscribe(List.of("input"));
+            assertEquals(5, other.poll(Duration.ZERO).count());
+        }
+    }
+
+    @Test
+    public void pausedPartitionsAreNotPolled() throws IOException {
+        try (final LocalLog log = new LocalLog(dir)) {
+            log.append("input", null, "a", 0);
+            log.append("other", null, "b", 0);
+            final LocalLogConsumer consumer = new LocalLogConsumer(log, "group", 10);
+            consumer.assign(List.of(INPUT, new TopicPartition("other", 0)));
+            consumer.pause(List.of(INPUT));
+            assertEquals(List.of("b"), values(consumer.poll(Duration.ZERO)));
+            consumer.resume(List.of(INPUT));
+            assertEquals(List.of("a"), values(consumer.poll(Duration.ZERO)));
+            consumer.seekToBeginning(List.of(INPUT));
+            assertEquals(List.of("a"), values(consumer.poll(Duration.ZERO)));
+            assertThrows(IllegalArgumentException.class, () -> consumer.assign(List.of(new TopicPartition("input", 1))));
+        }
+    }
+
+    @Test
+    public void pollWaitsForAppends() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        try (final LocalLog log = new LocalLog(dir)) {
+            final LocalLogConsumer consumer = new LocalLogConsumer(log, "group", 10);
+            consumer.subscribe(List.of("input"));
+            assertTrue(consumer.poll(Duration.ZERO).isEmpty());
+            final CompletableFuture<ConsumerRecords<String, String>> poll = CompletableFuture.supplyAsync(() -> consumer.poll(Duration.ofMinutes(1)));
+            Thread.sleep(50);
+            new LocalLogProducer(log).send(new ProducerRecord<>("input", "a"));
+            assertEquals(List.of("a"), values(poll.get(10, TimeUnit.SECONDS)));
+
+            final CompletableFuture<ConsumerRecords<String, String>> woken = CompletableFuture.supplyAsync(() -> consumer.poll(Duration.ofMinutes(1)));
+            Thread.sleep(50);
+            consumer.wakeup();
+            final ExecutionException e = assertThrows(ExecutionException.class, () -> woken.get(10, TimeUnit.SECONDS));
+            assertNotNull(e.getCause());
+            assertEquals(WakeupException.class, e.getCause().getClass());
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.core.transport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.Set;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class LocalLogTest {
+
+    @TempDir
+    File dir;
+
+    @Test
+    public void appendAndRead() throws IOException {
+        try (final LocalLog log = new LocalLog(dir)) {
+            assertEquals(0, log.endOffset("topic"));
+            assertEquals(0, log.append("topic", "key", "value", 42));
+            assertEquals(1, log.append("topic", null, "è€", 43));
+            assertEquals(2, log.append("topic", "key", null, 44));
+            assertEquals(3, log.endOffset("topic"));
+
+            final List<ConsumerRecord<String, String>> records = log.read("topic", 0, 10);
+            assertEquals(3, records.size());
+            assertEquals("key", records.get(0).key());
+            assertEquals("value", records.get(0).value());
+            assertEquals(42, records.get(0).timestamp());
+            assertNull(records.get(1).key());
+            assertEquals("è€", records.get(1).value());
+            assertEquals(1, records.get(1).offset());
+            assertNull(records.get(2).value());
+
+            assertEquals(1, log.read("topic", 1, 1).size());
+            assertTrue(log.read("topic", 3, 10).isEmpty());
+            assertThrows(IllegalArgumentException.class, () -> log.read("topic", 4, 10));
+            assertThrows(IllegalArgumentException.class, () -> log.append("../topic", null, "value", 0));
+        }
+    }
+
+    @Test
+    public void segmentsAreRolledAndReadAcross() throws IOException {
+        try (final LocalLog log = new LocalLog(dir, 1000)) {
+            for (int i = 0; i < 500; i++) log.append("topic", null, "record " + i, i);
+            for (final int from : new int[] { 0, 1, 63, 64, 65, 137, 499 }) {
+                final List<ConsumerRecord<String, String>> records = log.read("topic", from, 500);
+                assertEquals(500 - from, records.size());
+                for (int i = 0; i < records.size(); i++) {
+                    assertEquals(from + i, records.get(i).offset());
+                    assertEquals("record " + (from + i), records.get(i).value());
+                }
+            }
+        }
+        final File[] segments = new File(dir, "topic").listFiles((d, f) -> f.endsWith(LocalLog.SEGMENT_EXTENSION));
+        assertTrue(segments.length > 1);
+        for (final File segment : segments) assertTrue(segment.length() <= 1000);
+    }
+
+    @Test
+    public void recordsSurviveReopening() throws IOException {
+        try (final LocalLog log = new LocalLog(dir, 1000)) {
+            for (int i = 0; i < 100; i++) log.append("topic", null, "record " + i, i);
+            log.append("other", null, "other record", 0);
+        }
+        try (final LocalLog log = new LocalLog(dir, 1000)) {
+            assertEquals(Set.of("topic", "other"), log.topics());
+            assertEquals(100, log.endOffset("topic"));
+            assertEquals("record 99", log.read("topic", 99, 1).get(0).value());
+            assertEquals(100, log.append("topic", null, "record 100", 100));
+            assertEquals("record 100", log.read("topic", 100, 1).get(0).value());
+        }
+    }
+
+    @Test
+    public void incompleteRecordsAreTruncated() throws IOException {
+        try (final LocalLog log = new LocalLog(dir)) {
+            for (int i = 0; i < 10; i++) log.append("topic", null, "record " + i, i);
+        }
+        final File segment = new File(new File(dir, "topic"), String.format("%020d", 0) + LocalLog.SEGMENT_EXTENSION);
+        final long length = segment.length();
+        try (final RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            // A partially written record...
+            file.setLength(length - 3);
+        }
+        try (final LocalLog log = new LocalLog(dir)) {
+            assertEquals(9, log.endOffset("topic"));
+            assertEquals(9, log.append("topic", null, "record 9", 9));
+        }
+        try (final RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            // ...and a corrupted one
+            file.seek(length - 1);
+            file.write('X');
+        }
+        try (final LocalLog log = new LocalLog(dir)) {
+            assertEquals(9, log.endOffset("topic"));
+            assertEquals("record 8", log.read("topic", 8, 10).get(0).value());
+        }
+    }
+
+    @Test
+    public void committedOffsets() throws IOException {
+        try (final LocalLog log = new LocalLog(dir)) {
+            for (int i = 0; i < 10; i++) log.append("topic", null, "record " + i, i);
+            assertFalse(log.committed("topic", "group").isPresent());
+            log.commit("topic", "group", 5);
+            log.commit("topic", "eu.fasten.Group/1", 7);
+            assertThrows(IllegalArgumentException.class, () -> log.commit("topic", "group", 11));
+        }
+        try (final LocalLog log = new LocalLog(dir)) {
+            assertEquals(OptionalLong.of(5), log.committed("topic", "group"));
+            assertEquals(OptionalLong.of(7), log.committed("topic", "eu.fasten.Group/1"));
+        }
+    }
+
+    @Test
+    public void directoryIsLocked() throws IOException {
+        try (final LocalLog log = new LocalLog(dir)) {
+            assertThrows(IOException.class, () -> new LocalLog(dir));
+        }
+        new LocalLog(dir).close();
+    }
+}
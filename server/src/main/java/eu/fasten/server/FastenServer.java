@@ -19,22 +19,36 @@
 package eu.fasten.server;
 
 import ch.qos.logback.classic.Level;
+import eu.fasten.core.data.graphdb.RocksDao;
 import eu.fasten.core.plugins.DBConnector;
 import eu.fasten.core.plugins.DataWriter;
 import eu.fasten.core.plugins.FastenPlugin;
 import eu.fasten.core.plugins.GraphDBConnector;
 import eu.fasten.core.plugins.KafkaPlugin;
+import eu.fasten.core.transport.LocalLog;
+import eu.fasten.core.transport.LocalLogConsumer;
+import eu.fasten.core.transport.LocalLogProducer;
 import eu.fasten.server.connectors.KafkaConnector;
 import eu.fasten.server.connectors.PostgresConnector;
 import eu.fasten.server.connectors.RocksDBConnector;
 import eu.fasten.server.plugins.FastenServerPlugin;
+import eu.fasten.server.plugins.kafka.CommitPolicy;
 import eu.fasten.server.plugins.kafka.FastenKafkaPlugin;
+import eu.fasten.server.plugins.pipeline.FastenPipeline;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 import org.apache.commons.lang3.ObjectUtils;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
 import org.pf4j.JarPluginManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -71,6 +85,55 @@ public class FastenServer implements Runnable {
             description = "HTTP link to the root directory where output messages will be stored")
     Map<String, String> outputLinks;
 
+    @Option(names = {"-bo", "--binary_output"},
+            paramLabel = "plugins",
+            description = "List of plugins whose output files will be written in binary format, "
+                    + "if they support it.",
+            split = ",")
+    List<String> binaryOutputPlugins;
+
+    @Option(names = {"-pw", "--plugin_workers"},
+            paramLabel = "workers",
+            description = "Kay-value pairs of Plugin and maximum number of workers (instances "
+                    + "of the plugin) processing its records concurrently. Example - OPAL=4",
+            split = ",")
+    Map<String, Integer> pluginWorkers;
+
+    @Option(names = {"-vt", "--virtual_threads"},
+            paramLabel = "plugins",
+            description = "List of plugins whose records will be processed on virtual threads, "
+                    + "which is useful for I/O-bound plugins with many workers.",
+            split = ",")
+    List<String> virtualThreadPlugins;
+
+    @Option(names = {"-hc", "--heavy_cost"},
+            paramLabel = "cost",
+            description = "Kay-value pairs of Plugin and minimum estimated cost (e.g., JAR size in "
+                    + "bytes) of the records processed on a separate heavy lane, so that they do "
+                    + "not hold back cheaper records. Example - OPAL=20000000",
+            split = ",")
+    Map<String, Long> heavyCost;
+
+    @Option(names = {"-hw", "--heavy_workers"},
+            paramLabel = "workers",
+            description = "Kay-value pairs of Plugin and number of workers of its heavy lane. "
+                    + "Example - OPAL=1. Default: 1",
+            split = ",")
+    Map<String, Integer> heavyWorkers;
+
+    @Option(names = {"-pp", "--pipeline"},
+            paramLabel = "plugins",
+            description = "Runs the given plugins, in order, as an in-process pipeline without "
+                    + "Kafka. Example - OPAL,MetadataDBExtension,GraphDBExtension",
+            split = ",")
+    List<String> pipeline;
+
+    @Option(names = {"-pi", "--pipeline_input"},
+            paramLabel = "FILE",
+            description = "File with the records consumed by the first plugin of the pipeline, "
+                    + "one per line. Default: standard input")
+    Path pipelineInput;
+
     @Option(names = {"-m", "--mode"},
             description = "Deployment or Development mode")
     boolean deployMode;
@@ -88,12 +151,39 @@ public class FastenServer implements Runnable {
             split = ",")
     Map<String, String> pluginTopic;
 
+    @Option(names = {"-ll", "--local_log"},
+            paramLabel = "DIR",
+            description = "Directory of a local log to use instead of Kafka: plugins consume "
+                    + "from and produce to topics stored in files of the directory")
+    Path localLogDir;
+
     @Option(names = {"-ks", "--skip_offsets"},
             paramLabel = "skip",
             description = "Adds one to offset of all the partitions of the consumers.",
             defaultValue = "0")
     int skipOffsets;
 
+    @Option(names = {"-cp", "--commit_policy"},
+            paramLabel = "policy",
+            description = "When offsets of processed records are committed: ${COMPLETION-CANDIDATES}. "
+                    + "Default: ${DEFAULT-VALUE}",
+            defaultValue = "RECORD")
+    CommitPolicy commitPolicy;
+
+    @Option(names = {"-ci", "--commit_interval"},
+            paramLabel = "interval",
+            description = "Number of processed records (BATCH) or milliseconds (TIME) between "
+                    + "commits.",
+            defaultValue = "1000")
+    int commitInterval;
+
+    @Option(names = {"-mp", "--max_pending_messages"},
+            paramLabel = "messages",
+            description = "Maximum number of messages of each plugin waiting to be "
+                    + "acknowledged by Kafka.",
+            defaultValue = "" + FastenKafkaPlugin.DEFAULT_MAX_PENDING_SENDS)
+    int maxPendingMessages;
+
     @Option(names = {"-d", "--database"},
             paramLabel = "dbURL",
             description = "Database URL for connection")
@@ -109,6 +199,14 @@ public class FastenServer implements Runnable {
             description = "Path to directory with RocksDB database")
     String graphDbDir;
 
+    @Option(names = {"-gs", "--graphdb_storage"},
+            paramLabel = "storage",
+            description = "Storage of the graphs in the graph database: ${COMPLETION-CANDIDATES}. "
+                    + "MAPPED appends them to a memory-mapped file instead of RocksDB. "
+                    + "Default: ${DEFAULT-VALUE}",
+            defaultValue = "ROCKSDB")
+    RocksDBConnector.Storage graphDbStorage;
+
     @Option(names = {"-b", "--base_dir"},
             paramLabel = "PATH",
             description = "Path to base directory to which data will be written")
@@ -116,6 +214,10 @@ public class FastenServer implements Runnable {
 
     private static final Logger logger = LoggerFactory.getLogger(FastenServer.class);
 
+    private RocksDao rocksDao;
+
+    private LocalLog localLog;
+
     @Override
     public void run() {
         setLoggingLevel();
@@ -158,11 +260,28 @@ public class FastenServer implements Runnable {
         makeGraphDBConnection(graphDbPlugins);
         setBaseDirectory(dataWriterPlugins);
 
-        var kafkaServerPlugins = setupKafkaPlugins(kafkaPlugins);
+        final List<FastenServerPlugin> kafkaServerPlugins;
+        if (pipeline != null) {
+            kafkaServerPlugins = List.of(setupPipeline(kafkaPlugins));
+        } else {
+            kafkaServerPlugins = setupKafkaPlugins(kafkaPlugins);
+        }
 
         kafkaServerPlugins.forEach(FastenServerPlugin::start);
 
         waitForInterruption(kafkaServerPlugins);
+
+        if (localLog != null) {
+            try {
+                localLog.close();
+            } catch (IOException e) {
+                logger.error("Couldn't close the local log in {}", localLogDir, e);
+            }
+        }
+        // The plug-ins share the database, so it is closed once they are all done
+        if (rocksDao != null) {
+            rocksDao.close();
+        }
     }
 
     /**
@@ -193,6 +312,61 @@ public class FastenServer implements Runnable {
         });
     }
 
+    /**
+     * Creates an additional worker of a Kafka plugin, using the public no-argument constructor
+     * that plugin extensions must have, and configures it like the plugin itself.
+     *
+     * @param kafkaPlugin the plugin
+     * @return a new instance of the plugin
+     * @throws RuntimeException if the plugin could not be instantiated
+     */
+    private synchronized KafkaPlugin createWorker(KafkaPlugin kafkaPlugin) {
+        final KafkaPlugin worker;
+        try {
+            worker = kafkaPlugin.getClass().getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("Couldn't create a worker of plug-in "
+                    + kafkaPlugin.getClass().getSimpleName(), e);
+        }
+        if (worker instanceof DBConnector) {
+            makeDBConnection(List.of((DBConnector) worker));
+        }
+        if (worker instanceof GraphDBConnector) {
+            makeGraphDBConnection(List.of((GraphDBConnector) worker));
+        }
+        if (worker instanceof DataWriter) {
+            setBaseDirectory(List.of((DataWriter) worker));
+        }
+        return worker;
+    }
+
+    /**
+     * Chains Kafka plugins in an in-process pipeline, in the order specified in command line.
+     * Each stage has as many workers as specified for Kafka plugins.
+     *
+     * @param kafkaPlugins list of Kafka plugins
+     * @return the pipeline
+     * @throws IllegalArgumentException if a plugin of the pipeline has not been loaded
+     */
+    private FastenPipeline setupPipeline(List<KafkaPlugin> kafkaPlugins) {
+        var stages = new ArrayList<List<KafkaPlugin>>();
+        for (var name : pipeline) {
+            var plugin = kafkaPlugins.stream()
+                    .filter(k -> k.getClass().getSimpleName().equals(name)).findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Plugin " + name
+                            + " of the pipeline has not been loaded"));
+            var maxWorkers = (pluginWorkers != null) ? pluginWorkers.getOrDefault(name, 1) : 1;
+            var workers = new ArrayList<KafkaPlugin>();
+            workers.add(plugin);
+            while (workers.size() < maxWorkers) {
+                workers.add(createWorker(plugin));
+            }
+            stages.add(workers);
+        }
+        logger.info("Running pipeline {}", String.join(" -> ", pipeline));
+        return new FastenPipeline(pipelineInput, stages);
+    }
+
     /**
      * Changes Kafka topics of consumers ad producers if specified in command line.
      *
@@ -205,17 +379,56 @@ public class FastenServer implements Runnable {
                     .forEach(x -> x.setTopic(pluginTopic.get(x.getClass().getSimpleName())));
         }
 
+        if (localLogDir != null) {
+            try {
+                localLog = new LocalLog(localLogDir.toFile());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Couldn't open the local log in " + localLogDir, e);
+            }
+            logger.info("Using the local log in {} instead of Kafka", localLogDir);
+        }
+
         return kafkaPlugins.stream().map(k -> {
-            var consumerProperties = KafkaConnector.kafkaConsumerProperties(
-                    kafkaServers,
-                    k.getClass().getCanonicalName());
-            var producerProperties = KafkaConnector.kafkaProducerProperties(
-                    kafkaServers,
-                    k.getClass().getCanonicalName());
-
-            return new FastenKafkaPlugin(consumerProperties, producerProperties, k, skipOffsets,
+            // Fetches enough records to keep all workers busy
+            var maxWorkers = (pluginWorkers != null)
+                    ? pluginWorkers.getOrDefault(k.getClass().getSimpleName(), 1) : 1;
+            var maxPollRecords = Math.max(5, 2 * maxWorkers);
+            final Consumer<String, String> consumer;
+            final Producer<String, String> producer;
+            if (localLog != null) {
+                consumer = new LocalLogConsumer(localLog, k.getClass().getCanonicalName(),
+                        maxPollRecords);
+                producer = new LocalLogProducer(localLog);
+            } else {
+                var consumerProperties = KafkaConnector.kafkaConsumerProperties(
+                        kafkaServers,
+                        k.getClass().getCanonicalName());
+                var producerProperties = KafkaConnector.kafkaProducerProperties(
+                        kafkaServers,
+                        k.getClass().getCanonicalName());
+                consumerProperties.setProperty(ConsumerConfig.MAX_POLL_RECORDS_CONFIG,
+                        String.valueOf(maxPollRecords));
+                consumer = new KafkaConsumer<>(consumerProperties);
+                producer = new KafkaProducer<>(producerProperties);
+            }
+
+            var kafkaPlugin = new FastenKafkaPlugin(consumer, producer,
+                    List.of(k), skipOffsets,
                     (outputDirs != null) ? outputDirs.get(k.getClass().getSimpleName()) : null,
-                    (outputLinks != null) ? outputLinks.get(k.getClass().getSimpleName()) : null);
+                    (outputLinks != null) ? outputLinks.get(k.getClass().getSimpleName()) : null,
+                    binaryOutputPlugins != null
+                            && binaryOutputPlugins.contains(k.getClass().getSimpleName()));
+            kafkaPlugin.setWorkerFactory(() -> createWorker(k), maxWorkers);
+            kafkaPlugin.setVirtualThreads(virtualThreadPlugins != null
+                    && virtualThreadPlugins.contains(k.getClass().getSimpleName()));
+            kafkaPlugin.setCommitPolicy(commitPolicy, commitInterval);
+            kafkaPlugin.setMaxPendingSends(maxPendingMessages);
+            if (heavyCost != null && heavyCost.containsKey(k.getClass().getSimpleName())) {
+                kafkaPlugin.setHeavyLane(heavyCost.get(k.getClass().getSimpleName()),
+                        (heavyWorkers != null)
+                                ? heavyWorkers.getOrDefault(k.getClass().getSimpleName(), 1) : 1);
+            }
+            return kafkaPlugin;
         }).collect(Collectors.toList());
     }
 
@@ -251,7 +464,12 @@ public class FastenServer implements Runnable {
         graphDbPlugins.forEach((p) -> {
             if (ObjectUtils.allNotNull(graphDbDir)) {
                 try {
-                    p.setRocksDao(RocksDBConnector.createRocksDBAccessObject(graphDbDir));
+                    // All plug-ins share the database, which can be opened only once
+                    if (rocksDao == null) {
+                        rocksDao = RocksDBConnector.createRocksDBAccessObject(graphDbDir,
+                                graphDbStorage);
+                    }
+                    p.setRocksDao(rocksDao);
                     logger.debug("Set Graph DB connection successfully for plug-in {}",
                             p.getClass().getSimpleName());
                 } catch (RuntimeException e) {
@@ -18,11 +18,24 @@
 
 package eu.fasten.server.connectors;
 
+import eu.fasten.core.data.graphdb.MappedGraphStore;
 import eu.fasten.core.data.graphdb.RocksDao;
+import java.io.File;
+import java.io.IOException;
 import org.rocksdb.RocksDBException;
 
 public class RocksDBConnector {
 
+    /**
+     * Where the graph database stores call graphs.
+     */
+    public enum Storage {
+        /** Kryo-serialized graphs in RocksDB. */
+        ROCKSDB,
+        /** Graphs in a {@link MappedGraphStore}, retrieved with no deserialization. */
+        MAPPED
+    }
+
     /**
      * Creates Database Access Object for RocksDB.
      *
@@ -31,9 +44,30 @@ public class RocksDBConnector {
      * @throws RuntimeException if there was a problem opening connection to RocksDB
      */
     public static RocksDao createRocksDBAccessObject(String dbDir) throws RuntimeException {
+        return createRocksDBAccessObject(dbDir, Storage.ROCKSDB);
+    }
+
+    /**
+     * Creates Database Access Object with the given storage. The two storages use different
+     * files, so graphs stored with one are not visible with the other.
+     *
+     * @param dbDir   Directory where the database is stored
+     * @param storage Storage of the graphs
+     * @return RocksDao instance
+     * @throws RuntimeException if there was a problem opening the database
+     */
+    public static RocksDao createRocksDBAccessObject(String dbDir, Storage storage)
+            throws RuntimeException {
         try {
-            return new RocksDao(dbDir);
-        } catch (RocksDBException e) {
+            switch (storage) {
+                case MAPPED:
+                    return new RocksDao(new MappedGraphStore(new File(dbDir)));
+                case ROCKSDB:
+                    return new RocksDao(dbDir);
+                default:
+                    throw new IllegalArgumentException("Unknown storage: " + storage);
+            }
+        } catch (RocksDBException | IOException e) {
             throw new RuntimeException(e);
         }
     }
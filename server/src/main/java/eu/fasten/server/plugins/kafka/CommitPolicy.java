@@ -0,0 +1,35 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.server.plugins.kafka;
+
+/**
+ * When {@link FastenKafkaPlugin} commits the offsets of processed records. Offsets are always
+ * committed before partitions are revoked and when the plug-in stops.
+ */
+public enum CommitPolicy {
+    /** Commits as soon as records have been processed. */
+    RECORD,
+    /**
+     * Commits when all fetched records have been processed, or when a given number of records
+     * has been processed since the last commit.
+     */
+    BATCH,
+    /** Commits at most once in a given number of milliseconds. */
+    TIME
+}
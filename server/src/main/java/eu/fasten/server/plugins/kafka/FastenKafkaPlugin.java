@@ -19,23 +19,53 @@
 package eu.fasten.server.plugins.kafka;
 
 import com.google.common.base.Strings;
+import eu.fasten.core.data.CallGraphBinaryFormat;
 import eu.fasten.core.plugins.KafkaPlugin;
 import eu.fasten.server.plugins.FastenServerPlugin;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 import org.apache.commons.lang.StringUtils;
 import org.apache.kafka.clients.consumer.CommitFailedException;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.common.PartitionInfo;
 import org.apache.kafka.common.TopicPartition;
@@ -44,21 +74,85 @@ import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Runs a {@link KafkaPlugin}, feeding it the records of its consume topic and sending its
+ * results to its output and error topics.
+ *
+ * <p>Records are processed by a pool of workers, each one owning a distinct instance of the
+ * plug-in, since plug-ins keep the state of the record being processed. Records of a poll are
+ * thus processed concurrently, but offsets are committed, for each partition, only up to the
+ * highest offset such that all previous records have been processed. Messages are sent
+ * asynchronously, and the producer is flushed once before each commit, so that results are
+ * never lost for committed records. When the number of records being processed reaches twice
+ * the number of workers, all assigned partitions are paused until workers catch up.
+ *
+ * <p>How often offsets are committed depends on the {@linkplain #setCommitPolicy commit
+ * policy}. The number of messages waiting to be acknowledged by the broker is bounded: when the
+ * bound is reached, workers block until pending messages are acknowledged. Messages that could
+ * not be sent to the output topic are reported to the error topic.
+ *
+ * <p>Additional workers can be {@linkplain #setWorkerFactory created on demand}, up to a
+ * maximum number, so that instances of the plug-in exist only if there are records for them.
+ * Workers run on platform threads, one for each worker, or, for plug-ins which spend most of
+ * their time blocked on I/O, on {@linkplain #setVirtualThreads virtual threads}, one for each
+ * record.
+ *
+ * <p>With {@linkplain #setHeavyLane size-aware scheduling}, the cost of each record is estimated
+ * before processing it, and expensive records are processed on a separate lane with few
+ * workers, so that they do not hold back cheap ones (see {@link SizeAwareScheduler}).
+ */
 public class FastenKafkaPlugin implements FastenServerPlugin {
     private final Logger logger = LoggerFactory.getLogger(FastenKafkaPlugin.class.getName());
 
+    /** How long to poll while records are still being processed. */
+    private static final Duration BUSY_POLL_TIMEOUT = Duration.ofMillis(100);
+    /** The default maximum number of messages waiting to be acknowledged. */
+    public static final int DEFAULT_MAX_PENDING_SENDS = 1000;
+
     private Thread thread;
 
     private final KafkaPlugin plugin;
+    /** All workers created so far. */
+    private final List<KafkaPlugin> workers;
+    private final BlockingQueue<KafkaPlugin> idleWorkers;
+    private Supplier<KafkaPlugin> workerFactory;
+    private int maxWorkers;
+    private boolean virtualThreads;
+    private ExecutorService executor;
+    private int maxInFlight;
+    private long heavyCost;
+    private int heavyWorkers;
+    private SizeAwareScheduler scheduler;
 
     private final AtomicBoolean closed = new AtomicBoolean(false);
-    private final KafkaConsumer<String, String> connection;
-    private final KafkaProducer<String, String> producer;
+    private final Consumer<String, String> connection;
+    private final Producer<String, String> producer;
+
+    /** Records being processed, for each partition. */
+    private final Map<TopicPartition, PartitionOffsets> pendingOffsets = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicReference<Throwable> workerError = new AtomicReference<>();
+
+    private CommitPolicy commitPolicy = CommitPolicy.RECORD;
+    private int commitInterval = 1;
+    /** Records processed since the last commit. */
+    private final AtomicInteger processedSinceCommit = new AtomicInteger();
+    private long lastCommit = System.nanoTime();
+
+    private int maxPendingSends = DEFAULT_MAX_PENDING_SENDS;
+    private Semaphore pendingSends = new Semaphore(maxPendingSends);
+    private final AtomicInteger peakPendingSends = new AtomicInteger();
+
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder commitTime = new LongAdder();
+    private final LongAdder sentMessages = new LongAdder();
+    private final LongAdder failedMessages = new LongAdder();
 
     private final int skipOffsets;
 
     private final String writeDirectory;
     private final String writeLink;
+    private final boolean binaryOutput;
 
     /**
      * Constructs a FastenKafkaConsumer.
@@ -69,10 +163,75 @@ public class FastenKafkaPlugin implements FastenServerPlugin {
      */
     public FastenKafkaPlugin(Properties consumerProperties, Properties producerProperties,
                              KafkaPlugin plugin, int skipOffsets, String writeDirectory, String writeLink) {
-        this.plugin = plugin;
+        this(consumerProperties, producerProperties, plugin, skipOffsets, writeDirectory, writeLink,
+                false);
+    }
+
+    /**
+     * Constructs a FastenKafkaConsumer.
+     *
+     * @param consumerProperties properties of a consumer
+     * @param plugin             Kafka plugin
+     * @param skipOffsets        skip offset number
+     * @param binaryOutput       if true, and the plugin supports it, results written to the
+     *                           write directory will use the binary format of
+     *                           {@link CallGraphBinaryFormat}
+     */
+    public FastenKafkaPlugin(Properties consumerProperties, Properties producerProperties,
+                             KafkaPlugin plugin, int skipOffsets, String writeDirectory, String writeLink,
+                             boolean binaryOutput) {
+        this(consumerProperties, producerProperties, List.of(plugin), skipOffsets, writeDirectory,
+                writeLink, binaryOutput);
+    }
 
-        this.connection = new KafkaConsumer<>(consumerProperties);
-        this.producer = new KafkaProducer<>(producerProperties);
+    /**
+     * Constructs a FastenKafkaConsumer processing records concurrently.
+     *
+     * @param consumerProperties properties of a consumer
+     * @param workers            distinct instances of the same Kafka plugin, one for each
+     *                           worker thread; the first one is used to subscribe
+     * @param skipOffsets        skip offset number
+     * @param binaryOutput       if true, and the plugin supports it, results written to the
+     *                           write directory will use the binary format of
+     *                           {@link CallGraphBinaryFormat}
+     */
+    public FastenKafkaPlugin(Properties consumerProperties, Properties producerProperties,
+                             List<KafkaPlugin> workers, int skipOffsets, String writeDirectory,
+                             String writeLink, boolean binaryOutput) {
+        this(new KafkaConsumer<>(consumerProperties), new KafkaProducer<>(producerProperties),
+                workers, skipOffsets, writeDirectory, writeLink, binaryOutput);
+    }
+
+    /**
+     * Constructs a FastenKafkaConsumer processing records concurrently, using the given consumer
+     * and producer as a transport, e.g., those of a {@link eu.fasten.core.transport.LocalLog}.
+     *
+     * @param consumer     the consumer of input records; it is closed when the plugin stops
+     * @param producer     the producer of output records
+     * @param workers      distinct instances of the same Kafka plugin, one for each worker
+     *                     thread; the first one is used to subscribe
+     * @param skipOffsets  skip offset number
+     * @param binaryOutput if true, and the plugin supports it, results written to the write
+     *                     directory will use the binary format of {@link CallGraphBinaryFormat}
+     */
+    public FastenKafkaPlugin(Consumer<String, String> consumer, Producer<String, String> producer,
+                             List<KafkaPlugin> workers, int skipOffsets, String writeDirectory,
+                             String writeLink, boolean binaryOutput) {
+        if (workers.isEmpty()) {
+            throw new IllegalArgumentException("At least one worker is needed");
+        }
+        this.plugin = workers.get(0);
+        this.workers = new CopyOnWriteArrayList<>(workers);
+        this.idleWorkers = new LinkedBlockingQueue<>(workers);
+        this.maxWorkers = workers.size();
+
+        this.binaryOutput = binaryOutput && plugin.supportsBinaryOutput();
+        if (binaryOutput && !this.binaryOutput) {
+            logger.warn("Plugin {} does not support binary output: using JSON", plugin.name());
+        }
+
+        this.connection = consumer;
+        this.producer = producer;
 
         this.skipOffsets = skipOffsets;
         if (writeDirectory != null) {
@@ -88,14 +247,40 @@ public class FastenKafkaPlugin implements FastenServerPlugin {
             this.writeLink = null;
         }
 
-        logger.debug("Constructed a Kafka plugin for " + plugin.getClass().getCanonicalName());
+        logger.debug("Constructed a Kafka plugin for " + plugin.getClass().getCanonicalName()
+                + " with " + workers.size() + " worker(s)");
     }
 
     @Override
     public void run() {
+        maxInFlight = 2 * maxWorkers;
+        if (heavyWorkers > 0) {
+            if (virtualThreads) {
+                logger.warn("Virtual threads are not used with size-aware scheduling");
+            }
+            scheduler = new SizeAwareScheduler(plugin.getClass().getSimpleName(), maxWorkers,
+                    heavyWorkers, heavyCost);
+            if (workerFactory != null) {
+                maxWorkers += heavyWorkers;
+            }
+        } else {
+            executor = newExecutor();
+        }
         try {
             if (plugin.consumeTopic().isPresent()) {
-                connection.subscribe(plugin.consumeTopic().get());
+                connection.subscribe(plugin.consumeTopic().get(), new ConsumerRebalanceListener() {
+                    @Override
+                    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+                        // Records of revoked partitions will be delivered to another consumer
+                        awaitWorkers();
+                        commit();
+                        pendingOffsets.keySet().removeAll(partitions);
+                    }
+
+                    @Override
+                    public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+                    }
+                });
             }
             if (this.skipOffsets == 1) {
                 skipPartitionOffsets();
@@ -107,14 +292,26 @@ public class FastenKafkaPlugin implements FastenServerPlugin {
                 } else {
                     doCommitSync();
 
-                    handleProducing(null);
+                    handleProducing(plugin, null);
+                    producer.flush();
                 }
             }
         } catch (Exception e) {
             logger.error("Error occurred while processing call graphs", e);
         } finally {
+            if (scheduler != null) {
+                scheduler.shutdown();
+            } else {
+                executor.shutdown();
+            }
+            awaitWorkers();
+            try {
+                commit();
+            } catch (RuntimeException e) {
+                logger.error("Could not commit processed records", e);
+            }
             connection.close();
-            logger.info("Plugin {} stopped", plugin.name());
+            logger.info("Plugin {} stopped: {}", plugin.name(), statistics());
         }
     }
 
@@ -125,7 +322,7 @@ public class FastenKafkaPlugin implements FastenServerPlugin {
         this.thread = new Thread(this);
         this.thread.setName(this.plugin.getClass().getSimpleName() + "_plugin");
         this.thread.start();
-        this.plugin.start();
+        this.workers.forEach(KafkaPlugin::start);
     }
 
     /**
@@ -135,6 +332,99 @@ public class FastenKafkaPlugin implements FastenServerPlugin {
         closed.set(true);
     }
 
+    /**
+     * Sets when the offsets of processed records are committed. Must be called before
+     * {@linkplain #start() starting} the plugin.
+     *
+     * @param commitPolicy   the commit policy
+     * @param commitInterval for {@link CommitPolicy#BATCH}, the number of records processed
+     *                       between commits; for {@link CommitPolicy#TIME}, the number of
+     *                       milliseconds between commits; ignored for {@link CommitPolicy#RECORD}
+     */
+    public void setCommitPolicy(CommitPolicy commitPolicy, int commitInterval) {
+        if (commitInterval <= 0) {
+            throw new IllegalArgumentException("The commit interval must be positive");
+        }
+        this.commitPolicy = commitPolicy;
+        this.commitInterval = commitInterval;
+    }
+
+    /**
+     * Lets this plugin create additional workers when records are waiting for an idle worker.
+     * Must be called before {@linkplain #start() starting} the plugin.
+     *
+     * @param workerFactory a factory of distinct, configured instances of the plugin
+     * @param maxWorkers    the maximum number of workers, including the existing ones
+     */
+    public void setWorkerFactory(Supplier<KafkaPlugin> workerFactory, int maxWorkers) {
+        if (maxWorkers < workers.size()) {
+            throw new IllegalArgumentException("There are already " + workers.size() + " workers");
+        }
+        this.workerFactory = workerFactory;
+        this.maxWorkers = maxWorkers;
+    }
+
+    /**
+     * Sets whether records are processed on virtual threads, one for each record, rather than
+     * on a platform thread for each worker. The number of records processed concurrently is
+     * still bounded by the maximum number of workers. If the JVM does not support virtual
+     * threads, a platform thread is started for each record. Must be called before
+     * {@linkplain #start() starting} the plugin.
+     *
+     * @param virtualThreads whether to use virtual threads
+     */
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * Enables size-aware scheduling. The cost of each record is
+     * {@linkplain KafkaPlugin#estimateCost(String) estimated} before processing it: records whose
+     * cost is at least the given threshold are processed on a heavy lane with the given number
+     * of workers, and the others on a fast lane with the maximum number of workers; within each
+     * lane, cheaper records are processed first, although not indefinitely ahead of more
+     * expensive ones (see {@link SizeAwareScheduler}). If there is a
+     * {@linkplain #setWorkerFactory worker factory}, heavy-lane workers are created in addition
+     * to the maximum number of workers; otherwise, the lanes share the existing workers. Virtual
+     * threads are not used with size-aware scheduling. Must be called before
+     * {@linkplain #start() starting} the plugin.
+     *
+     * @param heavyCost    the minimum estimated cost of the records processed on the heavy lane
+     * @param heavyWorkers the number of workers of the heavy lane
+     */
+    public void setHeavyLane(long heavyCost, int heavyWorkers) {
+        if (heavyWorkers <= 0) {
+            throw new IllegalArgumentException("The heavy lane must have at least one worker");
+        }
+        this.heavyCost = heavyCost;
+        this.heavyWorkers = heavyWorkers;
+    }
+
+    /**
+     * Returns the scheduler of the lanes, whose metrics describe the throughput and latency of
+     * each lane.
+     *
+     * @return the scheduler, or null if size-aware scheduling is disabled or the plugin has not
+     *         been started yet
+     */
+    public SizeAwareScheduler scheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Sets the maximum number of messages waiting to be acknowledged by the broker. Must be
+     * called before {@linkplain #start() starting} the plugin.
+     *
+     * @param maxPendingSends the maximum number of messages waiting to be acknowledged
+     */
+    public void setMaxPendingSends(int maxPendingSends) {
+        if (maxPendingSends <= 0) {
+            throw new IllegalArgumentException("The maximum number of pending sends must be positive");
+        }
+        this.maxPendingSends = maxPendingSends;
+        this.pendingSends = new Semaphore(maxPendingSends);
+    }
+
     /**
      * Getter for the thread.
      *
@@ -145,96 +435,373 @@ public class FastenKafkaPlugin implements FastenServerPlugin {
     }
 
     /**
-     * Consumes a message from a Kafka topics and passes it to a plugin.
+     * Consumes messages from a Kafka topics and hands them to the workers, committing the
+     * offsets of the records processed so far.
      */
     private void handleConsuming() {
-        ConsumerRecords<String, String> records = connection.poll(Duration.ofSeconds(1));
+        ConsumerRecords<String, String> records = connection.poll(inFlight.get() == 0
+                ? Duration.ofSeconds(1) : BUSY_POLL_TIMEOUT);
         for (var r : records) {
-            doCommitSync();
-            plugin.consume(r.value());
-            handleProducing(r.value());
+            var partition = new TopicPartition(r.topic(), r.partition());
+            var offsets = pendingOffsets.computeIfAbsent(partition, p -> new PartitionOffsets());
+            offsets.add(r.offset());
+            inFlight.incrementAndGet();
+            if (scheduler != null) {
+                scheduler.execute(estimateCost(r), () -> process(r, offsets));
+            } else {
+                executor.execute(() -> process(r, offsets));
+            }
+        }
+
+        // Backpressure: stops fetching while workers are saturated
+        if (scheduler != null ? scheduler.saturated() : inFlight.get() >= maxInFlight) {
+            connection.pause(connection.assignment());
+        } else if (!connection.paused().isEmpty()) {
+            connection.resume(connection.paused());
+        }
+
+        if (shouldCommit()) {
+            commit();
+        }
+
+        var error = workerError.get();
+        if (error != null) {
+            throw new RuntimeException("A worker failed while processing a record", error);
+        }
+    }
+
+    /**
+     * Estimates the cost of processing a record.
+     *
+     * @param record record to process
+     * @return the cost estimated by the plugin, or -1 if it could not be estimated
+     */
+    private long estimateCost(ConsumerRecord<String, String> record) {
+        try {
+            return plugin.estimateCost(record.value());
+        } catch (RuntimeException e) {
+            logger.debug("Could not estimate the cost of offset {} of {}-{}", record.offset(),
+                    record.topic(), record.partition(), e);
+            return -1;
+        }
+    }
+
+    /**
+     * Processes a record with an idle worker. The record is marked as completed only if the
+     * worker did not throw; otherwise, its offset (and following ones) will not be committed.
+     *
+     * @param record  record to process
+     * @param offsets offsets of the partition of the record
+     */
+    private void process(ConsumerRecord<String, String> record, PartitionOffsets offsets) {
+        try {
+            var worker = acquireWorker();
+            try {
+                worker.consume(record.value());
+                handleProducing(worker, record.value());
+                offsets.complete(record.offset());
+                processedSinceCommit.incrementAndGet();
+            } finally {
+                idleWorkers.add(worker);
+            }
+        } catch (Throwable e) {
+            logger.error("Worker failed processing offset {} of {}-{}", record.offset(),
+                    record.topic(), record.partition(), e);
+            workerError.compareAndSet(null, e);
+        } finally {
+            synchronized (inFlight) {
+                inFlight.decrementAndGet();
+                inFlight.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Returns an idle worker, creating a new one if there are none and the maximum number of
+     * workers has not been reached yet, or waiting for one otherwise.
+     *
+     * @return an idle worker
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private KafkaPlugin acquireWorker() throws InterruptedException {
+        var worker = idleWorkers.poll();
+        if (worker != null) {
+            return worker;
+        }
+        synchronized (workers) {
+            if (workerFactory != null && workers.size() < maxWorkers) {
+                try {
+                    worker = workerFactory.get();
+                    worker.start();
+                    workers.add(worker);
+                    logger.debug("Created worker {} of plugin {}", workers.size(), plugin.name());
+                    return worker;
+                } catch (RuntimeException e) {
+                    logger.error("Could not create a worker of plugin {}: using {} worker(s)",
+                            plugin.name(), workers.size(), e);
+                    maxWorkers = workers.size();
+                }
+            }
+        }
+        return idleWorkers.take();
+    }
+
+    /**
+     * Creates the executor running the workers.
+     *
+     * @return a fixed pool of platform threads, or an executor starting a virtual thread (or,
+     *         if not supported, a platform thread) for each task
+     */
+    private ExecutorService newExecutor() {
+        var threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = r -> {
+            var t = new Thread(r, plugin.getClass().getSimpleName() + "_worker_"
+                    + threadCount.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        };
+        if (!virtualThreads) {
+            return Executors.newFixedThreadPool(maxWorkers, threadFactory);
+        }
+        try {
+            // Virtual threads are available from Java 21, while we target Java 11
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            logger.warn("Virtual threads are not supported by Java {}: using a platform thread "
+                    + "for each record", Runtime.version());
+            return Executors.newCachedThreadPool(threadFactory);
+        }
+    }
+
+    /**
+     * Waits until all records handed to the workers have been processed.
+     */
+    private void awaitWorkers() {
+        synchronized (inFlight) {
+            while (inFlight.get() > 0) {
+                try {
+                    inFlight.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether processed records should be committed, according to the commit policy.
+     *
+     * @return true if processed records should be committed
+     */
+    private boolean shouldCommit() {
+        switch (commitPolicy) {
+            case BATCH:
+                return inFlight.get() == 0 || processedSinceCommit.get() >= commitInterval;
+            case TIME:
+                return System.nanoTime() - lastCommit >= TimeUnit.MILLISECONDS.toNanos(commitInterval);
+            default:
+                return true;
         }
     }
 
+    /**
+     * Commits, for each partition, the offset following the last record processed such that
+     * all previous records have been processed too. The producer is flushed first, so that the
+     * output of committed records has been sent.
+     */
+    private void commit() {
+        lastCommit = System.nanoTime();
+        processedSinceCommit.set(0);
+        var offsets = new HashMap<TopicPartition, OffsetAndMetadata>();
+        pendingOffsets.forEach((partition, pending) -> {
+            var next = pending.pollCommittable();
+            if (next >= 0) {
+                offsets.put(partition, new OffsetAndMetadata(next));
+            }
+        });
+        if (offsets.isEmpty()) {
+            return;
+        }
+        producer.flush();
+        doCommitSync(offsets);
+        commits.increment();
+        commitTime.add(System.nanoTime() - lastCommit);
+    }
+
     /**
      * Writes messages to server log and stdout/stderr topics.
      *
-     * @param input input message [can be null]
+     * @param plugin plugin instance which processed the input
+     * @param input  input message [can be null]
      */
-    private void handleProducing(String input) {
+    private void handleProducing(KafkaPlugin plugin, String input) {
         try {
             if (plugin.getPluginError() != null) {
                 throw plugin.getPluginError();
             }
 
-            var result = plugin.produce();
-            String payload = result.orElse(null);
-            if (result.isPresent() && writeDirectory != null && !writeDirectory.equals("")) {
-                    payload = writeToFile(payload);
+            final String payload;
+            if (writeDirectory != null && !writeDirectory.equals("")) {
+                payload = writeToFile(plugin);
+            } else {
+                payload = plugin.produce().orElse(null);
             }
 
-            emitMessage(this.producer, String.format("fasten.%s.out",
-                    plugin.getClass().getSimpleName()),
-                    getStdOutMsg(input, payload));
+            emitMessage(String.format("fasten.%s.out", plugin.getClass().getSimpleName()),
+                    getStdOutMsg(input, payload), input);
 
         } catch (Throwable e) {
-            emitMessage(this.producer, String.format("fasten.%s.err",
-                    plugin.getClass().getSimpleName()),
-                    getStdErrMsg(input, e));
+            emitMessage(String.format("fasten.%s.err", plugin.getClass().getSimpleName()),
+                    getStdErrMsg(input, e), input);
         }
     }
 
+    /**
+     * Send message to Kafka topic. The message is sent asynchronously: the producer is flushed
+     * before offsets are committed. If too many messages are waiting to be acknowledged, this
+     * method blocks until some of them are. If a message cannot be sent to the output topic,
+     * the error is reported to the error topic.
+     *
+     * @param topic topic to send to
+     * @param msg   message
+     * @param input input message the message is the result of [can be null]
+     */
+    private void emitMessage(String topic, String msg, String input) {
+        emitMessage(topic, msg, input, true);
+    }
+
     /**
      * Send message to Kafka topic.
      *
-     * @param producer Kafka producer
-     * @param topic    topic to send to
-     * @param msg      message
+     * @param topic topic to send to
+     * @param msg   message
+     * @param input input message the message is the result of [can be null]
+     * @param block whether to wait if too many messages are waiting to be acknowledged; if
+     *              false, the message is sent anyway (this is necessary in producer callbacks,
+     *              which are run by the thread acknowledging messages)
      */
-    private void emitMessage(KafkaProducer<String, String> producer, String topic, String msg) {
+    private void emitMessage(String topic, String msg, String input, boolean block) {
         ProducerRecord<String, String> record = new ProducerRecord<>(topic, msg);
+        var pendingSends = this.pendingSends;
+        final boolean acquired;
+        if (block) {
+            pendingSends.acquireUninterruptibly();
+            acquired = true;
+        } else {
+            acquired = pendingSends.tryAcquire();
+        }
+        peakPendingSends.accumulateAndGet(maxPendingSends - pendingSends.availablePermits(),
+                Math::max);
 
-        producer.send(record, (recordMetadata, e) -> {
-            if (recordMetadata != null) {
-                logger.debug("Sent: {} to {}", msg, topic);
-            } else {
-                e.printStackTrace();
+        try {
+            producer.send(record, (recordMetadata, e) -> {
+                if (acquired) {
+                    pendingSends.release();
+                }
+                if (e == null) {
+                    sentMessages.increment();
+                    logger.debug("Sent: {} to {}", msg, topic);
+                } else {
+                    onSendFailure(topic, input, e);
+                }
+            });
+        } catch (RuntimeException e) {
+            if (acquired) {
+                pendingSends.release();
             }
-        });
+            onSendFailure(topic, input, e);
+        }
+    }
 
-        producer.flush();
+    /**
+     * Handles a message that could not be sent, reporting the error to the error topic unless
+     * the message was itself an error.
+     *
+     * @param topic topic the message was sent to
+     * @param input input message the message is the result of [can be null]
+     * @param error the error
+     */
+    private void onSendFailure(String topic, String input, Exception error) {
+        failedMessages.increment();
+        var errTopic = String.format("fasten.%s.err", plugin.getClass().getSimpleName());
+        if (topic.equals(errTopic)) {
+            logger.error("Could not send message to {}", topic, error);
+        } else {
+            logger.warn("Could not send message to {}: reporting to {}", topic, errTopic, error);
+            emitMessage(errTopic, getStdErrMsg(input, error), input, false);
+        }
     }
 
     /**
-     * Writes output or error message to JSON file and return JSON object containing
+     * Writes the result of the plugin to a JSON file and return JSON object containing
      * a link to to written file.
      *
-     * @param result message to write
-     * @return Path to a newly written JSON file
+     * <p>The result is streamed by {@link KafkaPlugin#produce(Writer)} to a temporary file in
+     * the write directory, which is then moved to its final path, so that results are never
+     * held in memory as a whole and partially written files are never visible.
+     *
+     * <p>If binary output is enabled, the result is written by
+     * {@link KafkaPlugin#produceBinary(java.io.OutputStream)} instead, and the extension of
+     * the output path is replaced by {@link CallGraphBinaryFormat#EXTENSION}. Consumers tell
+     * the two formats apart by {@linkplain CallGraphBinaryFormat#isBinary their first bytes}.
+     *
+     * @param plugin plugin instance whose result must be written
+     * @return JSON object containing the path to a newly written JSON file, or null if the
+     *         plugin has no result
      */
-    private String writeToFile(String result)
-            throws IOException, NullPointerException {
-        var path = plugin.getOutputPath();
-        var pathWithoutFilename = path.substring(0, path.lastIndexOf(File.separator));
-
-        File directory = new File(this.writeDirectory + pathWithoutFilename);
-        if (!directory.exists() && !directory.mkdirs()) {
-            throw new IOException("Failed to create parent directories");
+    private String writeToFile(KafkaPlugin plugin) throws IOException, NullPointerException {
+        File writeDirectory = new File(this.writeDirectory);
+        if (!writeDirectory.exists() && !writeDirectory.mkdirs()) {
+            throw new IOException("Failed to create the write directory");
         }
+        var tempFile = File.createTempFile(plugin.getClass().getSimpleName(), ".json.tmp",
+                writeDirectory);
+        try {
+            final boolean written;
+            if (binaryOutput) {
+                try (var outputStream = new BufferedOutputStream(new FileOutputStream(tempFile))) {
+                    written = plugin.produceBinary(outputStream);
+                }
+            } else {
+                try (var writer = new BufferedWriter(new OutputStreamWriter(
+                        new FileOutputStream(tempFile), StandardCharsets.UTF_8))) {
+                    written = plugin.produce(writer);
+                }
+            }
+            if (!written) {
+                return null;
+            }
+
+            var path = plugin.getOutputPath();
+            if (binaryOutput) {
+                var extension = path.lastIndexOf('.');
+                if (extension > path.lastIndexOf(File.separator)) {
+                    path = path.substring(0, extension);
+                }
+                path += CallGraphBinaryFormat.EXTENSION;
+            }
+            var pathWithoutFilename = path.substring(0, path.lastIndexOf(File.separator));
+
+            File directory = new File(this.writeDirectory + pathWithoutFilename);
+            if (!directory.exists() && !directory.mkdirs()) {
+                throw new IOException("Failed to create parent directories");
+            }
 
-        File file = new File(this.writeDirectory + path);
-        FileWriter fw = new FileWriter(file.getAbsoluteFile());
-        fw.write(result);
-        fw.flush();
-        fw.close();
+            File file = new File(this.writeDirectory + path);
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
 
-        JSONObject link = new JSONObject();
-        link.put("dir", file.getAbsolutePath());
+            JSONObject link = new JSONObject();
+            link.put("dir", file.getAbsolutePath());
 
-        if (this.writeLink != null && !this.writeLink.equals("")) {
-            link.put("link", this.writeLink + path);
+            if (this.writeLink != null && !this.writeLink.equals("")) {
+                link.put("link", this.writeLink + path);
+            }
+            return link.toString();
+        } finally {
+            Files.deleteIfExists(tempFile.toPath());
         }
-        return link.toString();
     }
 
     /**
@@ -288,6 +855,22 @@ public class FastenKafkaPlugin implements FastenServerPlugin {
         return stderrMsg.toString();
     }
 
+    /**
+     * Synchronously commits the given offsets, like {@link #doCommitSync()}.
+     *
+     * @param offsets offsets to commit, for each partition
+     */
+    private void doCommitSync(Map<TopicPartition, OffsetAndMetadata> offsets) {
+        try {
+            connection.commitSync(offsets);
+        } catch (WakeupException e) {
+            doCommitSync(offsets);
+            throw e;
+        } catch (CommitFailedException e) {
+            logger.error("Commit failed", e);
+        }
+    }
+
     /**
      * This is a synchronous commits and will block until either the commit succeeds
      * or an unrecoverable error is encountered.
@@ -309,6 +892,71 @@ public class FastenKafkaPlugin implements FastenServerPlugin {
     }
 
 
+    /**
+     * Returns the number of commits of processed records.
+     *
+     * @return the number of commits
+     */
+    public long commits() {
+        return commits.sum();
+    }
+
+    /**
+     * Returns the total time spent committing processed records, including flushing the
+     * producer.
+     *
+     * @return the total commit time in nanoseconds
+     */
+    public long commitTime() {
+        return commitTime.sum();
+    }
+
+    /**
+     * Returns the number of messages acknowledged by the broker.
+     *
+     * @return the number of messages sent
+     */
+    public long sentMessages() {
+        return sentMessages.sum();
+    }
+
+    /**
+     * Returns the number of messages that could not be sent.
+     *
+     * @return the number of failed messages
+     */
+    public long failedMessages() {
+        return failedMessages.sum();
+    }
+
+    /**
+     * Returns the number of messages waiting to be acknowledged by the broker.
+     *
+     * @return the current depth of the producer queue
+     */
+    public int pendingSends() {
+        return maxPendingSends - pendingSends.availablePermits();
+    }
+
+    /**
+     * Returns the maximum number of messages that have been waiting to be acknowledged at the
+     * same time.
+     *
+     * @return the peak depth of the producer queue
+     */
+    public int peakPendingSends() {
+        return peakPendingSends.get();
+    }
+
+    private String statistics() {
+        var commits = commits();
+        return workers.size() + " worker(s), " + commits + " commits (average latency: "
+                + (commits == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(commitTime() / commits) / 1000.0)
+                + " ms), " + sentMessages() + " messages sent, " + failedMessages() + " failed, "
+                + "peak producer queue depth: " + peakPendingSends()
+                + (scheduler != null ? "; " + scheduler : "");
+    }
+
     /**
      * This method adds one to the offset of all the partitions of a topic.
      * This is useful when you want to skip an offset with FATAL errors when
@@ -351,7 +999,7 @@ public class FastenKafkaPlugin implements FastenServerPlugin {
      * @param consumer Kafka consumer
      * @return consumed Kafka record
      */
-    private ConsumerRecords<String, String> dummyPoll(KafkaConsumer<String, String> consumer) {
+    private ConsumerRecords<String, String> dummyPoll(Consumer<String, String> consumer) {
         ConsumerRecords<String, String> statusRecords;
         int i = 0;
         do {
@@ -361,4 +1009,35 @@ public class FastenKafkaPlugin implements FastenServerPlugin {
 
         return statusRecords;
     }
+
+    /**
+     * The offsets of the records of a partition that have been handed to the workers and not
+     * committed yet.
+     */
+    private static class PartitionOffsets {
+        /** Maps offsets to whether the corresponding record has been processed. */
+        private final TreeMap<Long, Boolean> offsets = new TreeMap<>();
+
+        synchronized void add(long offset) {
+            offsets.put(offset, false);
+        }
+
+        synchronized void complete(long offset) {
+            offsets.replace(offset, true);
+        }
+
+        /**
+         * Removes the longest prefix of processed records.
+         *
+         * @return the offset to commit, that is, the offset following the last removed record,
+         *         or -1 if no record was removed
+         */
+        synchronized long pollCommittable() {
+            long next = -1;
+            while (!offsets.isEmpty() && offsets.firstEntry().getValue()) {
+                next = offsets.pollFirstEntry().getKey() + 1;
+            }
+            return next;
+        }
+    }
 }
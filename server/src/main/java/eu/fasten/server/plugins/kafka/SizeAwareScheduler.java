@@ -0,0 +1,295 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.server.plugins.kafka;
+
+import java.util.Locale;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs jobs on two lanes according to their estimated cost, so that a few expensive jobs do not
+ * hold back many cheap ones.
+ *
+ * <p>Jobs whose cost is at least a threshold run on the heavy lane, which has few threads, so
+ * that expensive jobs cannot take all workers (or all memory); all other jobs, including those
+ * whose cost is unknown, run on the fast lane. Within a lane, waiting jobs run in order of
+ * increasing cost: jobs of unknown cost come last, and jobs of equal cost run in order of
+ * submission. So that expensive jobs (or jobs of unknown cost) are not starved by a steady
+ * stream of cheaper ones, jobs are ordered by cost only within generations of
+ * {@value #AGING} times the capacity of their lane consecutive submissions, and earlier
+ * generations run first.
+ *
+ * <p>A lane is saturated when its jobs in flight (waiting or running) reach twice its number of
+ * threads; the heavy lane can in addition hold as many waiting jobs as the fast lane, so that
+ * the fast lane can keep going while expensive jobs pile up. Each lane keeps metrics about
+ * throughput and latency.
+ */
+public class SizeAwareScheduler {
+
+    /** The size of a generation of jobs, as a multiple of the capacity of their lane. */
+    public static final int AGING = 4;
+
+    private final long heavyCost;
+    private final Lane fast;
+    private final Lane heavy;
+
+    /**
+     * Creates a scheduler.
+     *
+     * @param name         prefix of the names of the threads of the lanes
+     * @param fastThreads  number of threads of the fast lane
+     * @param heavyThreads number of threads of the heavy lane
+     * @param heavyCost    minimum cost of the jobs running on the heavy lane
+     */
+    public SizeAwareScheduler(String name, int fastThreads, int heavyThreads, long heavyCost) {
+        if (fastThreads <= 0 || heavyThreads <= 0) {
+            throw new IllegalArgumentException("Lanes must have at least one thread");
+        }
+        this.heavyCost = heavyCost;
+        this.fast = new Lane(name + "_fast", fastThreads, 2 * fastThreads);
+        this.heavy = new Lane(name + "_heavy", heavyThreads, 2 * heavyThreads + 2 * fastThreads);
+    }
+
+    /**
+     * Runs a job on the lane corresponding to its cost.
+     *
+     * @param cost the estimated cost of the job, or -1 if unknown
+     * @param job  the job
+     */
+    public void execute(long cost, Runnable job) {
+        var lane = cost >= heavyCost ? heavy : fast;
+        lane.inFlight.incrementAndGet();
+        lane.submitted.increment();
+        lane.executor.execute(new Job(lane, cost, lane.sequence.getAndIncrement(), job));
+    }
+
+    /**
+     * Returns whether a lane is saturated, in which case no more jobs should be submitted until
+     * some complete.
+     *
+     * @return true if a lane is saturated
+     */
+    public boolean saturated() {
+        return fast.inFlight() >= fast.capacity || heavy.inFlight() >= heavy.capacity;
+    }
+
+    /**
+     * Returns the fast lane.
+     *
+     * @return the fast lane
+     */
+    public Lane fast() {
+        return fast;
+    }
+
+    /**
+     * Returns the heavy lane.
+     *
+     * @return the heavy lane
+     */
+    public Lane heavy() {
+        return heavy;
+    }
+
+    /**
+     * Stops accepting jobs; jobs already submitted are still run.
+     */
+    public void shutdown() {
+        fast.executor.shutdown();
+        heavy.executor.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        return fast + "; " + heavy;
+    }
+
+    /**
+     * A lane, that is, a pool of threads running jobs in order of increasing cost within each
+     * generation.
+     */
+    public static final class Lane {
+        private final String name;
+        private final int threads;
+        private final int capacity;
+        private final ThreadPoolExecutor executor;
+        private final long start = System.nanoTime();
+        private final AtomicLong sequence = new AtomicLong();
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final LongAdder submitted = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder waitTime = new LongAdder();
+        private final LongAdder runTime = new LongAdder();
+        private final AtomicLong maxLatency = new AtomicLong();
+
+        private Lane(String name, int threads, int capacity) {
+            this.name = name;
+            this.threads = threads;
+            this.capacity = capacity;
+            var threadCount = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                    new PriorityBlockingQueue<>(), r -> {
+                        var t = new Thread(r, name + "_" + threadCount.getAndIncrement());
+                        t.setDaemon(true);
+                        return t;
+                    });
+        }
+
+        /**
+         * Returns the name of this lane.
+         *
+         * @return the name of this lane
+         */
+        public String name() {
+            return name;
+        }
+
+        /**
+         * Returns the number of threads of this lane.
+         *
+         * @return the number of threads
+         */
+        public int threads() {
+            return threads;
+        }
+
+        /**
+         * Returns the number of jobs of this lane waiting or running.
+         *
+         * @return the number of jobs in flight
+         */
+        public int inFlight() {
+            return inFlight.get();
+        }
+
+        /**
+         * Returns the number of jobs submitted to this lane.
+         *
+         * @return the number of jobs submitted
+         */
+        public long submitted() {
+            return submitted.sum();
+        }
+
+        /**
+         * Returns the number of jobs of this lane that have completed, normally or not.
+         *
+         * @return the number of jobs completed
+         */
+        public long completed() {
+            return completed.sum();
+        }
+
+        /**
+         * Returns the total time that completed jobs spent waiting for a thread.
+         *
+         * @return the total waiting time in nanoseconds
+         */
+        public long waitTime() {
+            return waitTime.sum();
+        }
+
+        /**
+         * Returns the total time that completed jobs spent running.
+         *
+         * @return the total running time in nanoseconds
+         */
+        public long runTime() {
+            return runTime.sum();
+        }
+
+        /**
+         * Returns the maximum latency of a job, that is, the time between its submission and its
+         * completion.
+         *
+         * @return the maximum latency in nanoseconds
+         */
+        public long maxLatency() {
+            return maxLatency.get();
+        }
+
+        /**
+         * Returns the number of jobs completed per second since this lane was created.
+         *
+         * @return the throughput in jobs per second
+         */
+        public double throughput() {
+            return completed() / ((System.nanoTime() - start) / 1E9);
+        }
+
+        @Override
+        public String toString() {
+            var completed = completed();
+            return String.format(Locale.ROOT, "%s (%d threads): %d jobs, %.2f jobs/s, average wait "
+                            + "%.3f s, average run %.3f s, max latency %.3f s", name, threads,
+                    completed, throughput(), completed == 0 ? 0 : waitTime() / 1E9 / completed,
+                    completed == 0 ? 0 : runTime() / 1E9 / completed, maxLatency() / 1E9);
+        }
+    }
+
+    /**
+     * A job waiting or running on a lane.
+     */
+    private static final class Job implements Runnable, Comparable<Job> {
+        private final Lane lane;
+        private final long generation;
+        private final long cost;
+        private final long sequence;
+        private final Runnable task;
+        private final long submitted = System.nanoTime();
+
+        private Job(Lane lane, long cost, long sequence, Runnable task) {
+            this.lane = lane;
+            this.generation = sequence / ((long) AGING * lane.capacity);
+            this.cost = cost < 0 ? Long.MAX_VALUE : cost;
+            this.sequence = sequence;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            var started = System.nanoTime();
+            lane.waitTime.add(started - submitted);
+            try {
+                task.run();
+            } finally {
+                var finished = System.nanoTime();
+                lane.runTime.add(finished - started);
+                lane.maxLatency.accumulateAndGet(finished - submitted, Math::max);
+                lane.completed.increment();
+                lane.inFlight.decrementAndGet();
+            }
+        }
+
+        @Override
+        public int compareTo(Job other) {
+            var byGeneration = Long.compare(generation, other.generation);
+            if (byGeneration != 0) {
+                return byGeneration;
+            }
+            var byCost = Long.compare(cost, other.cost);
+            return byCost != 0 ? byCost : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,360 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.server.plugins.pipeline;
+
+import eu.fasten.core.plugins.KafkaPlugin;
+import eu.fasten.server.plugins.FastenServerPlugin;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs a chain of {@link KafkaPlugin}s in the same JVM, without Kafka: the result of each plug-in
+ * is handed directly to the next one through a bounded queue.
+ *
+ * <p>The records consumed by the first plug-in are read from a file, one per line. Each plug-in
+ * is a stage with its own threads, each one owning a distinct instance of the plug-in. When the
+ * next plug-in {@linkplain KafkaPlugin#consumeObject(Object) accepts objects}, the
+ * {@linkplain KafkaPlugin#produceObject() object produced} by a plug-in is handed over as it is,
+ * avoiding a round trip through JSON; otherwise, the JSON result of
+ * {@link KafkaPlugin#produce()} is consumed as a record. As a plug-in cannot be asked for its JSON
+ * result once it has moved on to the next record, the JSON result is produced along with the
+ * object until the next plug-in has accepted an object of the same class; if the next plug-in
+ * declines an object, the JSON result is consumed instead. Records for which a plug-in reports an
+ * error are logged and dropped. When queues are full, upstream stages block, so the memory used
+ * by results in flight is bounded.
+ */
+public class FastenPipeline implements FastenServerPlugin {
+    private final Logger logger = LoggerFactory.getLogger(FastenPipeline.class.getName());
+
+    /** The period in milliseconds at which reading checks whether the pipeline was stopped. */
+    private static final long POLL_MILLIS = 100;
+
+    /** Marks the end of the input in a queue. */
+    private static final Item END = new Item(null, null, null);
+
+    private final Path input;
+    private final List<Stage> stages = new ArrayList<>();
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private Thread thread;
+
+    /**
+     * Constructs a pipeline.
+     *
+     * @param input  file with the records consumed by the first stage, one per line, or null
+     *               to read them from standard input
+     * @param stages for each stage, in order, distinct instances of its plug-in, one for each
+     *               thread of the stage
+     */
+    public FastenPipeline(Path input, List<List<KafkaPlugin>> stages) {
+        if (stages.isEmpty()) {
+            throw new IllegalArgumentException("A pipeline needs at least one stage");
+        }
+        this.input = input;
+        for (var workers : stages) {
+            if (workers.isEmpty()) {
+                throw new IllegalArgumentException("Each stage needs at least one worker");
+            }
+            this.stages.add(new Stage(workers));
+        }
+        for (int i = 0; i < this.stages.size() - 1; i++) {
+            this.stages.get(i).next = this.stages.get(i + 1);
+        }
+    }
+
+    @Override
+    public void run() {
+        var threads = new ArrayList<Thread>();
+        stages.forEach(stage -> threads.addAll(stage.start()));
+        var first = stages.get(0);
+        var lines = new ArrayBlockingQueue<Optional<String>>(1);
+        var reader = new Thread(() -> read(lines), "pipeline_reader");
+        // Reading from standard input blocks, and cannot be interrupted by stop()
+        reader.setDaemon(true);
+        reader.start();
+        long records = 0;
+        try {
+            while (!closed.get()) {
+                var line = lines.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (line == null) {
+                    continue;
+                }
+                if (line.isEmpty()) {
+                    break;
+                }
+                first.queue.put(new Item(line.get(), null, line.get()));
+                records++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            reader.interrupt();
+            try {
+                first.queue.put(END);
+                for (var t : threads) {
+                    t.join();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            logger.info("Pipeline stopped after reading {} records", records);
+            stages.forEach(stage -> logger.info("{}", stage));
+        }
+    }
+
+    /**
+     * Reads the non-blank lines of the input, followed by an empty optional at the end of the
+     * input (or in case of error).
+     */
+    private void read(BlockingQueue<Optional<String>> lines) {
+        try (var reader = input != null
+                ? Files.newBufferedReader(input, StandardCharsets.UTF_8)
+                : new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    lines.put(Optional.of(line));
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Error reading the input of the pipeline", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            lines.put(Optional.empty());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Starts a thread.
+     */
+    @Override
+    public void start() {
+        stages.forEach(stage -> stage.workers.forEach(KafkaPlugin::start));
+        this.thread = new Thread(this);
+        this.thread.setName("pipeline");
+        this.thread.start();
+    }
+
+    /**
+     * Stops reading records, even if reading from standard input is blocked: records read so
+     * far will still go through the pipeline.
+     */
+    @Override
+    public void stop() {
+        closed.set(true);
+    }
+
+    @Override
+    public Thread thread() {
+        return thread;
+    }
+
+    /**
+     * Returns the number of records processed successfully by each stage.
+     *
+     * @return the number of processed records for each stage, in order
+     */
+    public long[] processed() {
+        return stages.stream().mapToLong(stage -> stage.processed.sum()).toArray();
+    }
+
+    /**
+     * Returns the number of records for which each stage reported an error.
+     *
+     * @return the number of failed records for each stage, in order
+     */
+    public long[] failed() {
+        return stages.stream().mapToLong(stage -> stage.failed.sum()).toArray();
+    }
+
+    /**
+     * Returns the number of results handed as objects to each stage.
+     *
+     * @return the number of objects consumed by each stage, in order
+     */
+    public long[] consumedObjects() {
+        return stages.stream().mapToLong(stage -> stage.consumedObjects.sum()).toArray();
+    }
+
+    /**
+     * Returns whether a plug-in overrides {@link KafkaPlugin#consumeObject(Object)}.
+     *
+     * @param plugin a plug-in
+     * @return true if the plug-in may accept objects
+     */
+    private static boolean acceptsObjects(KafkaPlugin plugin) {
+        try {
+            return plugin.getClass().getMethod("consumeObject", Object.class)
+                    .getDeclaringClass() != KafkaPlugin.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * A record or the result of a stage, handed to the next one.
+     */
+    private static class Item {
+        /** The record read from the input, for logging. */
+        final String record;
+        final Object object;
+        final String json;
+
+        Item(String record, Object object, String json) {
+            this.record = record;
+            this.object = object;
+            this.json = json;
+        }
+    }
+
+    private class Stage {
+        final String name;
+        final List<KafkaPlugin> workers;
+        final BlockingQueue<Item> queue;
+        final boolean acceptsObjects;
+        /** The classes of the objects that this stage has accepted. */
+        final Set<Class<?>> acceptedClasses = ConcurrentHashMap.newKeySet();
+        Stage next;
+        final AtomicInteger running = new AtomicInteger();
+
+        final LongAdder processed = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder consumedObjects = new LongAdder();
+        final LongAdder time = new LongAdder();
+
+        Stage(List<KafkaPlugin> workers) {
+            this.workers = List.copyOf(workers);
+            this.name = workers.get(0).getClass().getSimpleName();
+            this.queue = new ArrayBlockingQueue<>(2 * workers.size());
+            this.acceptsObjects = acceptsObjects(workers.get(0));
+        }
+
+        List<Thread> start() {
+            var threads = new ArrayList<Thread>();
+            running.set(workers.size());
+            for (int i = 0; i < workers.size(); i++) {
+                var worker = workers.get(i);
+                var t = new Thread(() -> process(worker), name + "_stage_" + i);
+                t.start();
+                threads.add(t);
+            }
+            return threads;
+        }
+
+        /**
+         * Processes items with a worker until the end of the input. The last worker to
+         * finish marks the end of the input for the next stage, even if it finishes abruptly,
+         * so that the pipeline always terminates.
+         */
+        private void process(KafkaPlugin worker) {
+            try {
+                Item item;
+                while ((item = queue.take()) != END) {
+                    process(worker, item);
+                }
+                // Lets the other workers of this stage see the end of the input
+                queue.put(END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                if (running.decrementAndGet() == 0 && next != null) {
+                    try {
+                        next.queue.put(END);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        }
+
+        private void process(KafkaPlugin worker, Item item) throws InterruptedException {
+            var start = System.nanoTime();
+            try {
+                if (item.object != null && worker.consumeObject(item.object)) {
+                    acceptedClasses.add(item.object.getClass());
+                    consumedObjects.increment();
+                } else if (item.json != null) {
+                    worker.consume(item.json);
+                } else {
+                    // Objects of this class will come with their JSON result from now on
+                    acceptedClasses.remove(item.object.getClass());
+                    throw new IllegalArgumentException(name + " declined an object of type "
+                            + item.object.getClass().getName() + " previously accepted");
+                }
+                if (worker.getPluginError() != null) {
+                    throw worker.getPluginError();
+                }
+            } catch (Throwable e) {
+                failed.increment();
+                logger.error("{} failed processing {}", name, item.record, e);
+                return;
+            } finally {
+                time.add(System.nanoTime() - start);
+            }
+
+            if (next != null) {
+                final Item output;
+                try {
+                    var object = next.acceptsObjects ? worker.produceObject().orElse(null) : null;
+                    var json = object == null || !next.acceptedClasses.contains(object.getClass())
+                            ? worker.produce().orElse(null) : null;
+                    output = object != null || json != null ? new Item(item.record, object, json) : null;
+                } catch (Throwable e) {
+                    failed.increment();
+                    logger.error("{} failed producing the result of {}", name, item.record, e);
+                    return;
+                }
+                if (output != null) {
+                    next.queue.put(output);
+                }
+            }
+            processed.increment();
+        }
+
+        @Override
+        public String toString() {
+            var count = processed.sum() + failed.sum();
+            return name + ": " + workers.size() + " worker(s), " + processed.sum() + " processed, "
+                    + failed.sum() + " failed, " + consumedObjects.sum() + " handed as objects, "
+                    + "average time: "
+                    + (count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(time.sum() / count)) + " ms";
+        }
+    }
+}
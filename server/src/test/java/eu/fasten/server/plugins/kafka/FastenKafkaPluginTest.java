@@ -0,0 +1,429 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.server.plugins.kafka;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import eu.fasten.core.plugins.KafkaPlugin;
+import eu.fasten.core.transport.LocalLog;
+import eu.fasten.core.transport.LocalLogConsumer;
+import eu.fasten.core.transport.LocalLogProducer;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FastenKafkaPluginTest {
+
+    private static final String TOPIC = "fasten.test.in";
+    private static final TopicPartition PARTITION0 = new TopicPartition(TOPIC, 0);
+    private static final TopicPartition PARTITION1 = new TopicPartition(TOPIC, 1);
+
+    private MockConsumer<String, String> consumer;
+    private MockProducer<String, String> producer;
+    private Set<Integer> consumed;
+
+    @BeforeEach
+    public void setup() {
+        consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        producer = new MockProducer<>(true, new StringSerializer(), new StringSerializer());
+        consumed = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Adds {@code n} records to each partition as soon as the consumer polls.
+     */
+    private void addRecords(int n) {
+        consumer.schedulePollTask(() -> {
+            consumer.rebalance(List.of(PARTITION0, PARTITION1));
+            consumer.updateBeginningOffsets(Map.of(PARTITION0, 0L, PARTITION1, 0L));
+            for (int i = 0; i < n; i++) {
+                consumer.addRecord(new ConsumerRecord<>(TOPIC, 0, i, null, record(i)));
+                consumer.addRecord(new ConsumerRecord<>(TOPIC, 1, i, null, record(n + i)));
+            }
+        });
+    }
+
+    private static String record(int id) {
+        return new JSONObject().put("id", id).toString();
+    }
+
+    private long committed(TopicPartition partition) {
+        OffsetAndMetadata offset = consumer.committed(partition);
+        return offset == null ? 0 : offset.offset();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        var deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out");
+            Thread.sleep(10);
+        }
+    }
+
+    private FastenKafkaPlugin kafkaPlugin(List<KafkaPlugin> workers) {
+        return new FastenKafkaPlugin(consumer, producer, workers, 0, null, null, false);
+    }
+
+    @Test
+    public void consumeConcurrently() throws InterruptedException {
+        var workers = new ArrayList<KafkaPlugin>();
+        for (int i = 0; i < 3; i++) {
+            workers.add(new TestPlugin(consumed, null));
+        }
+        addRecords(10);
+        var kafkaPlugin = kafkaPlugin(workers);
+        kafkaPlugin.start();
+
+        await(() -> committed(PARTITION0) == 10 && committed(PARTITION1) == 10);
+        kafkaPlugin.stop();
+        kafkaPlugin.thread().join();
+
+        assertEquals(20, consumed.size());
+        var outputs = producer.history();
+        assertEquals(20, outputs.size());
+        outputs.forEach(r -> assertEquals("fasten.TestPlugin.out", r.topic()));
+        var ids = ConcurrentHashMap.newKeySet();
+        outputs.forEach(r -> ids.add(new JSONObject(r.value()).getJSONObject("payload").getInt("id")));
+        assertEquals(20, ids.size());
+    }
+
+    @Test
+    public void commitOnlyContiguousOffsets() throws InterruptedException {
+        // Record 3 of partition 0 blocks its worker until released
+        var release = new CountDownLatch(1);
+        var workers = new ArrayList<KafkaPlugin>();
+        for (int i = 0; i < 2; i++) {
+            workers.add(new TestPlugin(consumed, id -> {
+                if (id == 3) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            }));
+        }
+        addRecords(5);
+        var kafkaPlugin = kafkaPlugin(workers);
+        kafkaPlugin.start();
+
+        await(() -> consumed.size() == 9);
+        await(() -> committed(PARTITION1) == 5);
+        assertEquals(3, committed(PARTITION0));
+
+        release.countDown();
+        await(() -> committed(PARTITION0) == 5);
+        kafkaPlugin.stop();
+        kafkaPlugin.thread().join();
+        assertEquals(10, consumed.size());
+    }
+
+    @Test
+    public void batchPolicyCommitsOnceAllFetchedRecordsAreProcessed() throws InterruptedException {
+        addRecords(10);
+        var kafkaPlugin = kafkaPlugin(List.of(new TestPlugin(consumed, null)));
+        kafkaPlugin.setCommitPolicy(CommitPolicy.BATCH, 1000);
+        kafkaPlugin.start();
+
+        await(() -> committed(PARTITION0) == 10 && committed(PARTITION1) == 10);
+        kafkaPlugin.stop();
+        kafkaPlugin.thread().join();
+
+        assertEquals(1, kafkaPlugin.commits());
+        assertEquals(20, kafkaPlugin.sentMessages());
+        assertEquals(0, kafkaPlugin.pendingSends());
+    }
+
+    @Test
+    public void timePolicyDelaysCommits() throws InterruptedException {
+        addRecords(5);
+        var kafkaPlugin = kafkaPlugin(List.of(new TestPlugin(consumed, null)));
+        kafkaPlugin.setCommitPolicy(CommitPolicy.TIME, 60_000);
+        kafkaPlugin.start();
+
+        await(() -> kafkaPlugin.sentMessages() == 10);
+        assertEquals(0, kafkaPlugin.commits());
+        kafkaPlugin.stop();
+        kafkaPlugin.thread().join();
+
+        // Processed records are committed when stopping
+        assertEquals(1, kafkaPlugin.commits());
+    }
+
+    @Test
+    public void pendingSendsAreBounded() throws InterruptedException {
+        producer = new MockProducer<>(false, new StringSerializer(), new StringSerializer());
+        addRecords(5);
+        var kafkaPlugin = kafkaPlugin(List.of(new TestPlugin(consumed, null)));
+        kafkaPlugin.setMaxPendingSends(2);
+        kafkaPlugin.start();
+
+        // Messages are acknowledged only when the producer is flushed before committing
+        await(() -> committed(PARTITION0) == 5 && committed(PARTITION1) == 5);
+        kafkaPlugin.stop();
+        kafkaPlugin.thread().join();
+
+        assertEquals(10, producer.history().size());
+        assertEquals(2, kafkaPlugin.peakPendingSends());
+        assertEquals(0, kafkaPlugin.pendingSends());
+    }
+
+    @Test
+    public void failedOutputIsReportedToErrorTopic() throws InterruptedException {
+        producer = new MockProducer<>(true, new StringSerializer(), new StringSerializer()) {
+            @Override
+            public synchronized Future<RecordMetadata> send(ProducerRecord<String, String> record,
+                                                            Callback callback) {
+                if (record.topic().endsWith(".out")) {
+                    var e = new TimeoutException("Test timeout");
+                    callback.onCompletion(null, e);
+                    return CompletableFuture.failedFuture(e);
+                }
+                return super.send(record, callback);
+            }
+        };
+        addRecords(2);
+        var kafkaPlugin = kafkaPlugin(List.of(new TestPlugin(consumed, null)));
+        kafkaPlugin.start();
+
+        await(() -> committed(PARTITION0) == 2 && committed(PARTITION1) == 2);
+        kafkaPlugin.stop();
+        kafkaPlugin.thread().join();
+
+        assertEquals(4, kafkaPlugin.failedMessages());
+        var errors = producer.history();
+        assertEquals(4, errors.size());
+        errors.forEach(r -> {
+            assertEquals("fasten.TestPlugin.err", r.topic());
+            assertEquals("TimeoutException",
+                    new JSONObject(r.value()).getJSONObject("err").getString("error"));
+        });
+    }
+
+    @Test
+    public void virtualThreadsCreateWorkersOnDemand() throws InterruptedException {
+        var created = new AtomicInteger();
+        IntConsumer slowConsume = id -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        };
+        addRecords(20);
+        var kafkaPlugin = kafkaPlugin(List.of(new TestPlugin(consumed, slowConsume)));
+        kafkaPlugin.setWorkerFactory(() -> {
+            created.incrementAndGet();
+            return new TestPlugin(consumed, slowConsume);
+        }, 8);
+        kafkaPlugin.setVirtualThreads(true);
+        kafkaPlugin.start();
+
+        await(() -> committed(PARTITION0) == 20 && committed(PARTITION1) == 20);
+        kafkaPlugin.stop();
+        kafkaPlugin.thread().join();
+
+        assertEquals(40, consumed.size());
+        assertEquals(40, kafkaPlugin.sentMessages());
+        assertTrue(created.get() > 0);
+        assertTrue(created.get() <= 7);
+    }
+
+    @Test
+    public void heavyRecordsDoNotHoldBackCheapOnes() throws InterruptedException {
+        // Records of partition 1 (ids 10 to 19) are heavy, and block until released
+        var release = new CountDownLatch(1);
+        IntConsumer onConsume = id -> {
+            if (id >= 10) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+        addRecords(10);
+        var kafkaPlugin = kafkaPlugin(List.of(new TestPlugin(consumed, onConsume)));
+        kafkaPlugin.setWorkerFactory(() -> new TestPlugin(consumed, onConsume), 1);
+        kafkaPlugin.setHeavyLane(1000, 1);
+        kafkaPlugin.start();
+
+        await(() -> committed(PARTITION0) == 10);
+        assertEquals(0, committed(PARTITION1));
+        assertEquals(10, kafkaPlugin.scheduler().fast().completed());
+
+        release.countDown();
+        await(() -> committed(PARTITION1) == 10);
+        kafkaPlugin.stop();
+        kafkaPlugin.thread().join();
+
+        assertEquals(20, consumed.size());
+        assertEquals(10, kafkaPlugin.scheduler().heavy().completed());
+    }
+
+    @Test
+    public void localLogTransport(@TempDir File dir) throws InterruptedException, IOException {
+        try (var log = new LocalLog(dir)) {
+            for (int i = 0; i < 20; i++) {
+                log.append(TOPIC, null, record(i), i);
+            }
+            var workers = new ArrayList<KafkaPlugin>();
+            for (int i = 0; i < 3; i++) {
+                workers.add(new TestPlugin(consumed, null));
+            }
+            var kafkaPlugin = new FastenKafkaPlugin(new LocalLogConsumer(log, "group", 6),
+                    new LocalLogProducer(log), workers, 0, null, null, false);
+            kafkaPlugin.start();
+
+            await(() -> {
+                try {
+                    return log.committed(TOPIC, "group").orElse(0) == 20;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            kafkaPlugin.stop();
+            kafkaPlugin.thread().join();
+
+            assertEquals(20, consumed.size());
+            var outputs = log.read("fasten.TestPlugin.out", 0, 100);
+            assertEquals(20, outputs.size());
+            var ids = new HashSet<Integer>();
+            outputs.forEach(r -> ids.add(new JSONObject(r.value()).getJSONObject("payload").getInt("id")));
+            assertEquals(20, ids.size());
+        }
+    }
+
+    @Test
+    public void binaryOutputDefaultsToJson() throws IOException {
+        var plugin = new TestPlugin(consumed, null);
+        plugin.consume(record(7));
+        var outputStream = new ByteArrayOutputStream();
+
+        assertTrue(plugin.produceBinary(outputStream));
+        assertEquals(plugin.produce().get(), outputStream.toString(StandardCharsets.UTF_8));
+    }
+
+    private static class TestPlugin implements KafkaPlugin {
+        private final Set<Integer> consumed;
+        private final IntConsumer onConsume;
+        private int id;
+
+        TestPlugin(Set<Integer> consumed, IntConsumer onConsume) {
+            this.consumed = consumed;
+            this.onConsume = onConsume;
+        }
+
+        @Override
+        public Optional<List<String>> consumeTopic() {
+            return Optional.of(List.of(TOPIC));
+        }
+
+        @Override
+        public void setTopic(String topicName) {
+        }
+
+        @Override
+        public void consume(String record) {
+            id = new JSONObject(record).getInt("id");
+            if (onConsume != null) {
+                onConsume.accept(id);
+            }
+            consumed.add(id);
+        }
+
+        @Override
+        public Optional<String> produce() {
+            return Optional.of(new JSONObject().put("id", id).toString());
+        }
+
+        @Override
+        public long estimateCost(String record) {
+            return 100L * new JSONObject(record).getInt("id");
+        }
+
+        @Override
+        public String getOutputPath() {
+            return "/test/" + id + ".json";
+        }
+
+        @Override
+        public String name() {
+            return "Test plugin";
+        }
+
+        @Override
+        public String description() {
+            return "Test plugin";
+        }
+
+        @Override
+        public String version() {
+            return "0.0.1";
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void stop() {
+        }
+
+        @Override
+        public Throwable getPluginError() {
+            return null;
+        }
+
+        @Override
+        public void freeResource() {
+        }
+    }
+}
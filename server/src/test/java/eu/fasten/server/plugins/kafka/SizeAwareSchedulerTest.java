@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.server.plugins.kafka;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class SizeAwareSchedulerTest {
+
+    private SizeAwareScheduler scheduler;
+
+    @BeforeEach
+    public void setup() {
+        scheduler = new SizeAwareScheduler("test", 1, 1, 1000);
+    }
+
+    @AfterEach
+    public void teardown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void cheapJobsAreNotHeldBackByHeavyOnes() throws InterruptedException {
+        var release = new CountDownLatch(1);
+        var done = new CountDownLatch(10);
+        scheduler.execute(5000, () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        for (int i = 0; i < 10; i++) {
+            scheduler.execute(i, done::countDown);
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(10, scheduler.fast().completed());
+        assertEquals(1, scheduler.heavy().inFlight());
+        assertEquals(0, scheduler.heavy().completed());
+
+        release.countDown();
+        scheduler.shutdown();
+        assertTrue(awaitTermination());
+        assertEquals(1, scheduler.heavy().completed());
+        assertEquals(1, scheduler.heavy().submitted());
+        assertTrue(scheduler.heavy().maxLatency() >= scheduler.heavy().runTime());
+    }
+
+    @Test
+    public void cheaperJobsRunFirst() throws InterruptedException {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        List<Long> order = new CopyOnWriteArrayList<>();
+        // Keeps the only thread of the fast lane busy while jobs are queued
+        scheduler.execute(0, () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        started.await();
+        for (long cost : new long[] {500, -1, 20, 300, 20}) {
+            scheduler.execute(cost, () -> order.add(cost));
+        }
+        release.countDown();
+        scheduler.shutdown();
+        assertTrue(awaitTermination());
+
+        assertEquals(List.of(20L, 20L, 300L, 500L, -1L), order);
+        assertEquals(6, scheduler.fast().completed());
+        assertEquals(0, scheduler.heavy().submitted());
+    }
+
+    @Test
+    public void expensiveJobsAreNotStarved() throws InterruptedException {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        List<Long> order = new CopyOnWriteArrayList<>();
+        scheduler.execute(0, () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        started.await();
+        scheduler.execute(-1, () -> order.add(-1L));
+        for (long cost = 0; cost < 20; cost++) {
+            final var c = cost;
+            scheduler.execute(cost, () -> order.add(c));
+        }
+        release.countDown();
+        scheduler.shutdown();
+        assertTrue(awaitTermination());
+
+        // The fast lane has capacity 2, so the first generation holds the first 8 jobs: the job
+        // of unknown cost runs after the 6 cheaper jobs of its generation, and before the others
+        assertEquals(21, order.size());
+        assertEquals(6, order.indexOf(-1L));
+    }
+
+    @Test
+    public void saturation() throws InterruptedException {
+        var release = new CountDownLatch(1);
+        Runnable blocked = () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        };
+        // The fast lane holds twice its threads
+        scheduler.execute(0, blocked);
+        assertFalse(scheduler.saturated());
+        scheduler.execute(0, blocked);
+        assertTrue(scheduler.saturated());
+        release.countDown();
+        scheduler.shutdown();
+        assertTrue(awaitTermination());
+        assertFalse(scheduler.saturated());
+    }
+
+    private boolean awaitTermination() throws InterruptedException {
+        var deadline = System.currentTimeMillis() + 10_000;
+        while (scheduler.fast().inFlight() + scheduler.heavy().inFlight() > 0) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+}
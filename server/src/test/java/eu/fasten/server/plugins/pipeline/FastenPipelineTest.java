@@ -0,0 +1,323 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.fasten.server.plugins.pipeline;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import eu.fasten.core.plugins.KafkaPlugin;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FastenPipelineTest {
+
+    private static final int RECORDS = 50;
+
+    private Path input;
+    private Set<Integer> sunk;
+
+    @BeforeEach
+    public void setup(@TempDir Path tempDir) throws IOException {
+        input = tempDir.resolve("input.txt");
+        var lines = new ArrayList<String>();
+        for (int i = 0; i < RECORDS; i++) {
+            lines.add(new JSONObject().put("n", i).toString());
+            if (i % 10 == 0) {
+                lines.add("");
+            }
+        }
+        Files.write(input, lines);
+        sunk = ConcurrentHashMap.newKeySet();
+    }
+
+    private static List<KafkaPlugin> doublers(int n, int failOn) {
+        var workers = new ArrayList<KafkaPlugin>();
+        for (int i = 0; i < n; i++) {
+            workers.add(new Doubler(failOn));
+        }
+        return workers;
+    }
+
+    private static void run(FastenPipeline pipeline) throws InterruptedException {
+        pipeline.start();
+        pipeline.thread().join();
+    }
+
+    @Test
+    public void handOffObjects() throws InterruptedException {
+        var pipeline = new FastenPipeline(input,
+                List.of(doublers(3, 0), List.of(new ObjectSink(sunk), new ObjectSink(sunk))));
+        run(pipeline);
+
+        assertArrayEquals(new long[] {RECORDS, RECORDS}, pipeline.processed());
+        assertArrayEquals(new long[] {0, RECORDS}, pipeline.consumedObjects());
+        for (int i = 0; i < RECORDS; i++) {
+            assertEquals(true, sunk.contains(2 * i));
+        }
+    }
+
+    @Test
+    public void handOffJson() throws InterruptedException {
+        var pipeline = new FastenPipeline(input, List.of(doublers(2, 0), List.of(new JsonSink(sunk))));
+        run(pipeline);
+
+        assertArrayEquals(new long[] {RECORDS, RECORDS}, pipeline.processed());
+        assertArrayEquals(new long[] {0, 0}, pipeline.consumedObjects());
+        assertEquals(RECORDS, sunk.size());
+        assertEquals(true, sunk.contains(2 * (RECORDS - 1)));
+    }
+
+    @Test
+    public void declinedClassesAreConsumedAsJson() throws InterruptedException {
+        var pipeline = new FastenPipeline(input,
+                List.of(doublers(2, 0), List.of(new DecliningSink(sunk), new DecliningSink(sunk))));
+        run(pipeline);
+
+        assertArrayEquals(new long[] {RECORDS, RECORDS}, pipeline.processed());
+        assertArrayEquals(new long[] {0, 0}, pipeline.consumedObjects());
+        assertEquals(RECORDS, sunk.size());
+    }
+
+    @Test
+    public void stopWhileReadingStandardInput() throws IOException, InterruptedException {
+        var stdin = System.in;
+        try (var pipe = new PipedOutputStream()) {
+            System.setIn(new PipedInputStream(pipe));
+            pipe.write((new JSONObject().put("n", 1) + "\n").getBytes(StandardCharsets.UTF_8));
+            pipe.flush();
+            var pipeline = new FastenPipeline(null, List.of(List.of(new ObjectSink(sunk))));
+            pipeline.start();
+            var deadline = System.currentTimeMillis() + 10_000;
+            while (sunk.isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            // Nothing more is written, so reading blocks
+            pipeline.stop();
+            pipeline.thread().join(10_000);
+            assertFalse(pipeline.thread().isAlive());
+            assertArrayEquals(new long[] {1}, pipeline.processed());
+        } finally {
+            System.setIn(stdin);
+        }
+    }
+
+    @Test
+    public void dropFailedRecords() throws InterruptedException {
+        var pipeline = new FastenPipeline(input,
+                List.of(doublers(1, 7), doublers(2, 3), List.of(new ObjectSink(sunk))));
+        run(pipeline);
+
+        // 7 multiples of 7 fail in the first stage, and 14 multiples of 3 (out of 16, as 21
+        // and 42 have already failed) in the second stage
+        assertArrayEquals(new long[] {RECORDS - 7, RECORDS - 7 - 14, RECORDS - 7 - 14},
+                pipeline.processed());
+        assertArrayEquals(new long[] {7, 14, 0}, pipeline.failed());
+        assertEquals(RECORDS - 7 - 14, sunk.size());
+    }
+
+    @Test
+    public void dropRecordsFailingHandOff() throws InterruptedException {
+        var pipeline = new FastenPipeline(input,
+                List.of(List.of(new FailingProducer(5), new FailingProducer(5)), List.of(new ObjectSink(sunk))));
+        run(pipeline);
+
+        // Producing the results of the 9 positive multiples of 5 fails
+        assertArrayEquals(new long[] {RECORDS - 9, RECORDS - 9}, pipeline.processed());
+        assertArrayEquals(new long[] {9, 0}, pipeline.failed());
+        assertEquals(RECORDS - 9, sunk.size());
+    }
+
+    private abstract static class TestPlugin implements KafkaPlugin {
+        protected Throwable pluginError;
+
+        @Override
+        public Optional<List<String>> consumeTopic() {
+            return Optional.empty();
+        }
+
+        @Override
+        public void setTopic(String topicName) {
+        }
+
+        @Override
+        public Optional<String> produce() {
+            return Optional.empty();
+        }
+
+        @Override
+        public String getOutputPath() {
+            return null;
+        }
+
+        @Override
+        public String name() {
+            return getClass().getSimpleName();
+        }
+
+        @Override
+        public String description() {
+            return "Test plugin";
+        }
+
+        @Override
+        public String version() {
+            return "0.0.1";
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void stop() {
+        }
+
+        @Override
+        public Throwable getPluginError() {
+            return pluginError;
+        }
+
+        @Override
+        public void freeResource() {
+        }
+    }
+
+    /** Doubles numbers, failing on positive multiples of a given number (if positive). */
+    private static class Doubler extends TestPlugin {
+        private final int failOn;
+        private Integer result;
+
+        Doubler(int failOn) {
+            this.failOn = failOn;
+        }
+
+        @Override
+        public void consume(String record) {
+            pluginError = null;
+            result = null;
+            var n = new JSONObject(record).getInt("n");
+            if (failOn > 0 && n != 0 && n % failOn == 0) {
+                pluginError = new IllegalArgumentException("Multiple of " + failOn);
+                return;
+            }
+            result = 2 * n;
+        }
+
+        @Override
+        public boolean consumeObject(Object object) {
+            if (!(object instanceof Integer)) {
+                return false;
+            }
+            consume(new JSONObject().put("n", object).toString());
+            return true;
+        }
+
+        @Override
+        public Optional<String> produce() {
+            return Optional.ofNullable(result).map(n -> new JSONObject().put("n", n).toString());
+        }
+
+        @Override
+        public Optional<Object> produceObject() {
+            return Optional.ofNullable(result);
+        }
+    }
+
+    /** Doubles numbers, throwing when producing the result of positive multiples of a given number. */
+    private static class FailingProducer extends Doubler {
+        private final int failOn;
+        private int n;
+
+        FailingProducer(int failOn) {
+            super(0);
+            this.failOn = failOn;
+        }
+
+        @Override
+        public void consume(String record) {
+            n = new JSONObject(record).getInt("n");
+            super.consume(record);
+        }
+
+        @Override
+        public Optional<Object> produceObject() {
+            if (n != 0 && n % failOn == 0) {
+                throw new IllegalStateException("Multiple of " + failOn);
+            }
+            return super.produceObject();
+        }
+    }
+
+    private static class JsonSink extends TestPlugin {
+        private final Set<Integer> sunk;
+
+        JsonSink(Set<Integer> sunk) {
+            this.sunk = sunk;
+        }
+
+        @Override
+        public void consume(String record) {
+            sunk.add(new JSONObject(record).getInt("n"));
+        }
+    }
+
+    private static class ObjectSink extends JsonSink {
+        private final Set<Integer> sunk;
+
+        ObjectSink(Set<Integer> sunk) {
+            super(sunk);
+            this.sunk = sunk;
+        }
+
+        @Override
+        public boolean consumeObject(Object object) {
+            if (!(object instanceof Integer)) {
+                return false;
+            }
+            sunk.add((Integer) object);
+            return true;
+        }
+    }
+
+    /** Declines objects, which are then consumed as JSON. */
+    private static class DecliningSink extends JsonSink {
+        DecliningSink(Set<Integer> sunk) {
+            super(sunk);
+        }
+
+        @Override
+        public boolean consumeObject(Object object) {
+            return false;
+        }
+    }
+}